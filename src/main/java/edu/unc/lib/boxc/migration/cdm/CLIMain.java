@@ -48,7 +48,8 @@ import java.util.concurrent.Callable;
         AltTextCommand.class,
         BoxctronFileCommand.class,
         FindingAidReportCommand.class,
-        AspaceRefIdCommand.class
+        AspaceRefIdCommand.class,
+        RemoteInventoryCommand.class
     })
 public class CLIMain implements Callable<Integer> {
     @Option(names = { "-w", "--work-dir" },
@@ -38,15 +38,26 @@ public class DescriptionsCommand {
     @Command(name = "expand",
             description = { "Expand user provided modsCollection files into separate XML files.",
                 "The XML files produced will be named based on the CDM ID value found in each document."})
-    public int expand() throws Exception {
+    public int expand(@Option(names = { "--packed" }, negatable = true,
+            description = { "Store the expanded descriptions together in a single packed file with an index,",
+                "rather than as separate files. Recommended for collections with very large numbers of records.",
+                "If neither --packed nor --no-packed is provided, the storage used by the previous expansion "
+                    + "is kept."})
+            Boolean packed) throws Exception {
         long start = System.nanoTime();
 
         try {
             initialize();
 
+            descService.setPackedStorage(packed);
             Set<String> idsWithMods = descService.expandDescriptions();
-            outputLogger.info("Descriptions expanded to {} separate files for {} in {}s",
-                    idsWithMods.size(), project.getProjectName(), (System.nanoTime() - start) / 1e9);
+            if (project.getProjectProperties().isExpandedDescriptionsPacked()) {
+                outputLogger.info("Descriptions expanded to {} records in a packed file for {} in {}s",
+                        idsWithMods.size(), project.getProjectName(), (System.nanoTime() - start) / 1e9);
+            } else {
+                outputLogger.info("Descriptions expanded to {} separate files for {} in {}s",
+                        idsWithMods.size(), project.getProjectName(), (System.nanoTime() - start) / 1e9);
+            }
             return 0;
         } catch (MigrationException | IllegalArgumentException e) {
             outputLogger.info("Cannot expand descriptions: {}", e.getMessage());
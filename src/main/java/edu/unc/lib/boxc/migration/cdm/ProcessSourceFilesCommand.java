@@ -7,6 +7,7 @@ import edu.unc.lib.boxc.migration.cdm.model.MigrationProject;
 import edu.unc.lib.boxc.migration.cdm.options.ProcessSourceFilesOptions;
 import edu.unc.lib.boxc.migration.cdm.services.CdmIndexService;
 import edu.unc.lib.boxc.migration.cdm.services.EmailService;
+import edu.unc.lib.boxc.migration.cdm.services.FileDigestService;
 import edu.unc.lib.boxc.migration.cdm.services.MigrationProjectFactory;
 import edu.unc.lib.boxc.migration.cdm.services.SourceFileService;
 import edu.unc.lib.boxc.migration.cdm.services.SourceFilesToRemoteService;
@@ -46,6 +47,7 @@ public class ProcessSourceFilesCommand implements Callable<Integer> {
         long start = System.nanoTime();
         try {
             validateActionName(options.getActionName());
+            validateTransferOptions();
             loadProjectEnvironment();
             setDefaultOptions();
             initialize();
@@ -70,6 +72,17 @@ public class ProcessSourceFilesCommand implements Callable<Integer> {
         }
     }
 
+    private void validateTransferOptions() {
+        if (options.getMaxTransfers() < 1) {
+            throw new IllegalArgumentException("Max transfers must be greater than 0, provided: "
+                    + options.getMaxTransfers());
+        }
+        if (options.getTransferBufferSize() < 1) {
+            throw new IllegalArgumentException("Transfer buffer size must be greater than 0, provided: "
+                    + options.getTransferBufferSize());
+        }
+    }
+
     private void setDefaultOptions() {
         if (options.getEmailAddress() == null) {
             options.setEmailAddress(options.getUsername() + DEFAULT_EMAIL_DOMAIN);
@@ -106,6 +119,16 @@ public class ProcessSourceFilesCommand implements Callable<Integer> {
         var sourceFilesToRemoteService = new SourceFilesToRemoteService();
         sourceFilesToRemoteService.setSourceFileService(sourceFileService);
         sourceFilesToRemoteService.setSshClientService(sshClientTransferService);
+        sourceFilesToRemoteService.setConcurrentTransfers(Math.min(
+                SourceFilesToRemoteService.DEFAULT_INITIAL_CONCURRENT_TRANSFERS, options.getMaxTransfers()));
+        sourceFilesToRemoteService.setMaxConcurrentTransfers(options.getMaxTransfers());
+        sourceFilesToRemoteService.setBufferSize(options.getTransferBufferSize() * 1024);
+        sourceFilesToRemoteService.setSkipExisting(options.isSkipExisting());
+        if (options.isVerifyChecksums()) {
+            var fileDigestService = new FileDigestService();
+            fileDigestService.setProject(project);
+            sourceFilesToRemoteService.setFileDigestService(fileDigestService);
+        }
         var emailService = new EmailService();
         emailService.setSmtpHost("localhost");
         velocicroptorRemoteJob = new VelocicroptorRemoteJob();
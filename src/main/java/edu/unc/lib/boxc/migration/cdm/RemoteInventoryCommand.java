@@ -0,0 +1,64 @@
+package edu.unc.lib.boxc.migration.cdm;
+
+import edu.unc.lib.boxc.migration.cdm.exceptions.MigrationException;
+import edu.unc.lib.boxc.migration.cdm.model.MigrationProject;
+import edu.unc.lib.boxc.migration.cdm.options.RemoteInventoryOptions;
+import edu.unc.lib.boxc.migration.cdm.services.CdmFileRetrievalService;
+import edu.unc.lib.boxc.migration.cdm.services.CdmRemoteInventoryService;
+import edu.unc.lib.boxc.migration.cdm.services.MigrationProjectFactory;
+import org.slf4j.Logger;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Mixin;
+import picocli.CommandLine.ParentCommand;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+import static edu.unc.lib.boxc.migration.cdm.util.CLIConstants.outputLogger;
+import static org.slf4j.LoggerFactory.getLogger;
+
+@Command(name = "remote_inventory",
+        description = { "Build a cached listing of the image and supp files of the collection on the CDM server.",
+                "When present, export and export_unmapped use this listing to plan which files to transfer. "
+                    + "The listing is only updated when this command is run."})
+public class RemoteInventoryCommand implements Callable<Integer> {
+    private static final Logger log = getLogger(RemoteInventoryCommand.class);
+    @ParentCommand
+    private CLIMain parentCommand;
+
+    @Mixin
+    private RemoteInventoryOptions options;
+
+    private CdmRemoteInventoryService inventoryService;
+    private MigrationProject project;
+
+    @Override
+    public Integer call() throws Exception {
+        long start = System.nanoTime();
+        try {
+            initialize();
+            int count = inventoryService.refreshInventory();
+            outputLogger.info("Listed {} remote files for project {} in {}s", count, project.getProjectName(),
+                    (System.nanoTime() - start) / 1e9);
+            return 0;
+        } catch (MigrationException | IOException e) {
+            log.error("Failed to build remote inventory", e);
+            outputLogger.info("Failed to build remote inventory: {}", e.getMessage());
+            return 1;
+        }
+    }
+
+    private void initialize() throws IOException {
+        Path currentPath = parentCommand.getWorkingDirectory();
+        project = MigrationProjectFactory.loadMigrationProject(currentPath);
+        var fileRetrievalService = new CdmFileRetrievalService();
+        fileRetrievalService.setChompbConfig(parentCommand.getChompbConfig());
+        fileRetrievalService.setProject(project);
+        fileRetrievalService.setSshUsername(options.getCdmUsername());
+        fileRetrievalService.setSshPassword(options.getCdmPassword());
+        inventoryService = new CdmRemoteInventoryService();
+        inventoryService.setProject(project);
+        inventoryService.setFileRetrievalService(fileRetrievalService);
+    }
+}
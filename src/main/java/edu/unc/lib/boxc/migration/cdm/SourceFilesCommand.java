@@ -15,6 +15,8 @@ import edu.unc.lib.boxc.migration.cdm.options.GenerateSourceFileMappingOptions;
 import edu.unc.lib.boxc.migration.cdm.services.CdmExportFilesService;
 import edu.unc.lib.boxc.migration.cdm.services.CdmFieldService;
 import edu.unc.lib.boxc.migration.cdm.services.CdmFileRetrievalService;
+import edu.unc.lib.boxc.migration.cdm.services.CdmRemoteInventoryService;
+import edu.unc.lib.boxc.migration.cdm.services.FileDigestService;
 import edu.unc.lib.boxc.migration.cdm.services.StreamingMetadataService;
 import edu.unc.lib.boxc.migration.cdm.status.SourceFilesSummaryService;
 import org.apache.commons.lang3.StringUtils;
@@ -168,16 +170,26 @@ public class SourceFilesCommand {
     }
 
     @Command(name = "disk_usage",
-            description = "Calculate the disk usage of all of the source files mapped in a migration " +
-                    "project’s source_files.csv")
-    public int calculateDiskUsage() {
+            description = {"Calculate the disk usage of all of the source files mapped in a migration " +
+                    "project’s source_files.csv, in total and broken down by file extension and destination.",
+                    "File sizes are cached, so later calculations only check files in directories which "
+                            + "have changed."})
+    public int calculateDiskUsage(@Option(names = { "--rescan" },
+            description = "Ignore cached file sizes and check every file. Use if mapped files may have been "
+                    + "modified in place, since that does not change their directories.") boolean rescan) {
         try {
             initialize(false);
             if (!Files.exists(project.getSourceFilesMappingPath())) {
                 throw new InvalidProjectStateException("Source files must be generated before disk usage calculation");
             }
-            var diskUsage = sourceService.calculateStorage();
-            outputLogger.info("Source files total {} MB in storage", diskUsage);
+            var diskUsage = sourceService.calculateStorageUsage(rescan);
+            outputLogger.info("Source files total {} MB in storage", diskUsage.getTotalMegabytes());
+            outputLogger.info("By extension:");
+            diskUsage.getBytesByExtension().forEach((extension, bytes) ->
+                    outputLogger.info("  {}: {} MB", extension, bytes / (1024 * 1024)));
+            outputLogger.info("By destination:");
+            diskUsage.getBytesByDestination().forEach((destination, bytes) ->
+                    outputLogger.info("  {}: {} MB", destination, bytes / (1024 * 1024)));
             return 0;
         } catch (Exception e) {
             log.error("Disk usage calculation failed", e);
@@ -257,5 +269,11 @@ public class SourceFilesCommand {
         exportFilesService.setFileRetrievalService(fileRetrievalService);
         exportFilesService.setProject(project);
         exportFilesService.setSourceFileService(sourceService);
+        exportFilesService.setRemoteInventory(CdmRemoteInventoryService.loadInventory(project));
+        if (options.isVerifyChecksums()) {
+            var fileDigestService = new FileDigestService();
+            fileDigestService.setProject(project);
+            exportFilesService.setFileDigestService(fileDigestService);
+        }
     }
 }
@@ -4,8 +4,10 @@ import edu.unc.lib.boxc.migration.cdm.exceptions.InvalidProjectStateException;
 import edu.unc.lib.boxc.migration.cdm.model.MigrationProject;
 import edu.unc.lib.boxc.migration.cdm.services.MigrationProjectFactory;
 import edu.unc.lib.boxc.migration.cdm.services.PostMigrationReportVerifier;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import picocli.CommandLine;
 
 import java.io.IOException;
@@ -20,20 +22,60 @@ import static edu.unc.lib.boxc.migration.cdm.util.CLIConstants.outputLogger;
 @CommandLine.Command(name = "verify_migration",
         description = "Verifies objects have been migrated into box-c")
 public class VerifyPostMigrationCommand implements Callable<Integer> {
+    private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+    private static final int SOCKET_TIMEOUT_MILLIS = 60000;
     @CommandLine.ParentCommand
     private CLIMain parentCommand;
     private CloseableHttpClient httpClient;
     private PostMigrationReportVerifier verifier;
     private MigrationProject project;
 
+    @CommandLine.Option(names = {"--concurrency"},
+            defaultValue = "" + PostMigrationReportVerifier.DEFAULT_CONCURRENCY,
+            description = "Maximum number of objects to verify at once. Default: ${DEFAULT-VALUE}")
+    private int concurrency;
+
+    @CommandLine.Option(names = {"--rate-limit"},
+            defaultValue = "0",
+            description = "Maximum number of requests per second to make to box-c, or 0 for no limit."
+                    + " Default: ${DEFAULT-VALUE}")
+    private double rateLimit;
+
+    @CommandLine.Option(names = {"--max-retries"},
+            defaultValue = "" + PostMigrationReportVerifier.DEFAULT_MAX_RETRIES,
+            description = "Number of times to retry requests which fail due to timeouts, connection errors,"
+                    + " server errors or throttling. Default: ${DEFAULT-VALUE}")
+    private int maxRetries;
+
     public void init() throws IOException {
-        httpClient = HttpClients.createMinimal();
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be greater than 0, provided: " + concurrency);
+        }
+        // Pool sized so that every concurrent request can reuse a connection to the server
+        var connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(concurrency);
+        connectionManager.setDefaultMaxPerRoute(concurrency);
+        // Timeouts so that a stalled request surfaces as an error which the verifier can retry
+        var requestConfig = RequestConfig.custom()
+                .setConnectTimeout(CONNECT_TIMEOUT_MILLIS)
+                .setConnectionRequestTimeout(CONNECT_TIMEOUT_MILLIS)
+                .setSocketTimeout(SOCKET_TIMEOUT_MILLIS)
+                .build();
+        // Retries are handled by the verifier, which backs off between attempts
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .disableAutomaticRetries()
+                .build();
         Path currentPath = parentCommand.getWorkingDirectory();
         project = MigrationProjectFactory.loadMigrationProject(currentPath);
         verifier = new PostMigrationReportVerifier();
         verifier.setHttpClient(httpClient);
         verifier.setProject(project);
         verifier.setShowProgress(true);
+        verifier.setConcurrency(concurrency);
+        verifier.setRequestsPerSecond(rateLimit);
+        verifier.setMaxRetries(maxRetries);
         verifier.setChompbConfig(parentCommand.getChompbConfig());
     }
 
@@ -47,6 +89,7 @@ public class VerifyPostMigrationCommand implements Callable<Integer> {
             outputLogger.info("Completed verification in {}s", (System.nanoTime() - start) / 1e9);
             outputLogger.info("Checked {} out of {} objects in the report",
                     outcome.verifiedCount, outcome.totalRecords);
+            outputRequestMetrics(outcome);
             if (outcome.hasErrors()) {
                 outputLogger.info("Boxc URL Errors encountered for {} objects, see report for details:",
                         outcome.urlErrorCount);
@@ -56,11 +99,26 @@ public class VerifyPostMigrationCommand implements Callable<Integer> {
             }
             outputLogger.info("Success! No problems were found");
             return 0;
-        } catch (InvalidProjectStateException e) {
+        } catch (InvalidProjectStateException | IllegalArgumentException e) {
             outputLogger.info(e.getMessage());
         } catch (Exception e) {
             outputLogger.info("Encountered an error while verifying migration", e);
         }
         return 1;
     }
+
+    private void outputRequestMetrics(PostMigrationReportVerifier.VerificationOutcome outcome) {
+        var metrics = outcome.requestMetrics;
+        if (metrics == null || metrics.getRequestCount() == 0) {
+            return;
+        }
+        var latencies = metrics.getLatencyPercentilesMillis(50, 95, 99);
+        outputLogger.info("Made {} requests to box-c, {} per second", metrics.getRequestCount(),
+                String.format("%.1f", metrics.getThroughput()));
+        outputLogger.info("Request latency p50: {}ms, p95: {}ms, p99: {}ms", latencies[0], latencies[1], latencies[2]);
+        outputLogger.info("Responses by status: {}", metrics.getStatusCounts());
+        if (outcome.requestPauses > 0) {
+            outputLogger.info("Requests were paused {} times due to high error rates", outcome.requestPauses);
+        }
+    }
 }
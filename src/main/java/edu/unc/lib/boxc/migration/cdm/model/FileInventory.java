@@ -0,0 +1,193 @@
+package edu.unc.lib.boxc.migration.cdm.model;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inventory of the files within a base path, organized by directory so that unchanged directories
+ * can be reused when the inventory is refreshed.
+ * Paths are relative to the base path, with the base path itself represented by an empty string.
+ */
+public class FileInventory {
+    private Path basePath;
+    private long scanTime;
+    private Map<String, DirectoryEntry> directories;
+
+    public FileInventory(Path basePath, long scanTime) {
+        this.basePath = basePath;
+        this.scanTime = scanTime;
+        this.directories = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @return Base path which was inventoried
+     */
+    public Path getBasePath() {
+        return basePath;
+    }
+
+    /**
+     * @return Time in milliseconds at which the scan producing this inventory started
+     */
+    public long getScanTime() {
+        return scanTime;
+    }
+
+    public void addDirectory(DirectoryEntry directory) {
+        directories.put(directory.getPath(), directory);
+    }
+
+    /**
+     * @param relativePath path of the directory relative to the base path
+     * @return entry for the directory, or null if it was not present
+     */
+    public DirectoryEntry getDirectory(String relativePath) {
+        return directories.get(relativePath);
+    }
+
+    public Map<String, DirectoryEntry> getDirectories() {
+        return directories;
+    }
+
+    /**
+     * @return all files in the inventory
+     */
+    public List<FileEntry> listFiles() {
+        var files = new ArrayList<FileEntry>();
+        directories.values().forEach(d -> files.addAll(d.getFiles()));
+        return files;
+    }
+
+    /**
+     * A directory within the base path, along with its immediate children
+     */
+    public static class DirectoryEntry {
+        private String path;
+        private long mtime;
+        private List<String> subdirectories;
+        private List<FileEntry> files;
+        private boolean listed;
+
+        public DirectoryEntry(String path, long mtime, List<String> subdirectories, List<FileEntry> files) {
+            this(path, mtime, subdirectories, files, true);
+        }
+
+        /**
+         * @param listed false if the listing of the directory was reused from a cached inventory
+         */
+        public DirectoryEntry(String path, long mtime, List<String> subdirectories, List<FileEntry> files,
+                              boolean listed) {
+            this.path = path;
+            this.mtime = mtime;
+            this.subdirectories = subdirectories;
+            this.files = files;
+            this.listed = listed;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @return last modified time of the directory in milliseconds
+         */
+        public long getMtime() {
+            return mtime;
+        }
+
+        /**
+         * @return names of the immediate subdirectories of this directory
+         */
+        public List<String> getSubdirectories() {
+            return subdirectories;
+        }
+
+        public List<FileEntry> getFiles() {
+            return files;
+        }
+
+        /**
+         * @return true if the directory was listed when the inventory was produced, false if its listing was
+         *      reused from a cached inventory because the directory was unchanged
+         */
+        public boolean isListed() {
+            return listed;
+        }
+    }
+
+    /**
+     * An individual file within the base path. The relative path of the file is derived from the path of
+     * its directory, which is shared by all files in that directory, to limit memory usage for large inventories.
+     */
+    public static class FileEntry {
+        // Size or modification time of a file which was not checked when the inventory was produced
+        public static final long UNKNOWN = -1;
+
+        private String directoryPath;
+        private String filename;
+        private long size;
+        private long mtime;
+        private boolean symbolicLink;
+
+        public FileEntry(String directoryPath, String filename, long size, long mtime, boolean symbolicLink) {
+            this.directoryPath = directoryPath;
+            this.filename = filename;
+            this.size = size;
+            this.mtime = mtime;
+            this.symbolicLink = symbolicLink;
+        }
+
+        /**
+         * @return path of the file relative to the base path
+         */
+        public String getPath() {
+            return directoryPath.isEmpty() ? filename : directoryPath + "/" + filename;
+        }
+
+        /**
+         * @return path of the directory containing the file, relative to the base path
+         */
+        public String getDirectoryPath() {
+            return directoryPath;
+        }
+
+        public String getFilename() {
+            return filename;
+        }
+
+        /**
+         * @return the filename in lowercase. It is derived on each call rather than stored, to limit memory usage.
+         */
+        public String getLowercaseFilename() {
+            return filename.toLowerCase();
+        }
+
+        /**
+         * @return size of the file in bytes, or UNKNOWN if its directory was reused from a cached inventory.
+         *      Files can be rewritten in place without changing the modification time of their directory,
+         *      so sizes are only recorded for files in directories which were listed.
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * @return last modified time of the file in milliseconds, or UNKNOWN if its directory was reused
+         *      from a cached inventory
+         */
+        public long getMtime() {
+            return mtime;
+        }
+
+        /**
+         * @return true if the entry is a symbolic link, which may not resolve to an existing file.
+         *      The size and modification time are those of the link itself.
+         */
+        public boolean isSymbolicLink() {
+            return symbolicLink;
+        }
+    }
+}
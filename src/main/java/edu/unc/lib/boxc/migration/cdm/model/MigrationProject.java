@@ -12,6 +12,9 @@ public class MigrationProject {
     public static final String DESCRIPTION_DIRNAME = "descriptions";
     public static final String COLLS_DESCRIPTION_DIRNAME = "newCollectionDescriptions";
     public static final String EXPANDED_DESCS_DIRNAME = ".expanded_descs";
+    public static final String EXPANDED_DESCS_MANIFEST_FILENAME = ".expanded_descs_manifest.bin";
+    public static final String EXPANDED_DESCS_PACK_FILENAME = ".expanded_descs.pack";
+    public static final String EXPANDED_DESCS_PACK_INDEX_FILENAME = ".expanded_descs_pack_index.bin";
     public static final String EXPORT_DIRNAME = "exports";
     public static final String FIELD_NAMES_FILENAME = "cdm_fields.csv";
     public static final String INDEX_FILENAME = "cdm_index.db";
@@ -32,6 +35,10 @@ public class MigrationProject {
     public static final String ALT_TEXT_DIRNAME = "alt_text";
     public static final String ASPACE_REF_ID_MAPPING_FILENAME = "ref_id_mapping.csv";
     public static final String EAD_TO_CDM_EXPORT_FILENAME = "ead_to_cdm.tsv";
+    public static final String FILE_DIGESTS_FILENAME = ".file_digests.csv";
+    public static final String FILE_INVENTORIES_DIRNAME = ".file_inventories";
+    public static final String FILE_SIZES_CACHE_FILENAME = ".file_sizes.bin";
+    public static final String ACCESS_FILE_MIMETYPES_FILENAME = ".access_file_mimetypes.csv";
 
     private Path projectPath;
     private MigrationProjectProperties properties;
@@ -100,6 +107,27 @@ public class MigrationProject {
         return projectPath.resolve(EXPANDED_DESCS_DIRNAME);
     }
 
+    /**
+     * @return Path of the file which tracks the state of the expanded descriptions, for incremental expansion
+     */
+    public Path getExpandedDescriptionsManifestPath() {
+        return projectPath.resolve(EXPANDED_DESCS_MANIFEST_FILENAME);
+    }
+
+    /**
+     * @return Path of the file containing all expanded descriptions, when they are stored packed together
+     */
+    public Path getExpandedDescriptionsPackPath() {
+        return projectPath.resolve(EXPANDED_DESCS_PACK_FILENAME);
+    }
+
+    /**
+     * @return Path of the index of where each expanded description is located within the pack file
+     */
+    public Path getExpandedDescriptionsPackIndexPath() {
+        return projectPath.resolve(EXPANDED_DESCS_PACK_INDEX_FILENAME);
+    }
+
     /**
      * @return Path of the index containing exported CDM data
      */
@@ -212,4 +240,32 @@ public class MigrationProject {
     public Path getEadToCdmExportPath() {
         return projectPath.resolve(EAD_TO_CDM_EXPORT_FILENAME);
     }
+
+    /**
+     * @return Path of the file where digests of local files are cached
+     */
+    public Path getFileDigestsPath() {
+        return projectPath.resolve(FILE_DIGESTS_FILENAME);
+    }
+
+    /**
+     * @return Path of the directory where inventories of source file base paths are cached
+     */
+    public Path getFileInventoriesPath() {
+        return projectPath.resolve(FILE_INVENTORIES_DIRNAME);
+    }
+
+    /**
+     * @return Path of the file where sizes of mapped files are cached
+     */
+    public Path getFileSizesCachePath() {
+        return projectPath.resolve(FILE_SIZES_CACHE_FILENAME);
+    }
+
+    /**
+     * @return Path of the file where probed mimetypes of access files are cached
+     */
+    public Path getAccessFileMimetypesPath() {
+        return projectPath.resolve(ACCESS_FILE_MIMETYPES_FILENAME);
+    }
 }
@@ -24,6 +24,9 @@ public class MigrationProjectProperties {
     private Instant groupMappingsUpdatedDate;
     private Instant groupMappingsSyncedDate;
     private Instant descriptionsExpandedDate;
+    private Integer expandedDescriptionsBuckets;
+    private Integer expandedDescriptionsSubBuckets;
+    private boolean expandedDescriptionsPacked;
     private Instant sipsGeneratedDate;
     private Set<String> sipsSubmitted;
     private String hookId;
@@ -190,6 +193,40 @@ public class MigrationProjectProperties {
         this.descriptionsExpandedDate = descriptionsExpandedDate;
     }
 
+    /**
+     * @return number of top level bucket directories expanded descriptions are divided between,
+     *      or null if they use the original fixed layout
+     */
+    public Integer getExpandedDescriptionsBuckets() {
+        return expandedDescriptionsBuckets;
+    }
+
+    public void setExpandedDescriptionsBuckets(Integer expandedDescriptionsBuckets) {
+        this.expandedDescriptionsBuckets = expandedDescriptionsBuckets;
+    }
+
+    /**
+     * @return number of bucket directories within each top level bucket for expanded descriptions
+     */
+    public Integer getExpandedDescriptionsSubBuckets() {
+        return expandedDescriptionsSubBuckets;
+    }
+
+    public void setExpandedDescriptionsSubBuckets(Integer expandedDescriptionsSubBuckets) {
+        this.expandedDescriptionsSubBuckets = expandedDescriptionsSubBuckets;
+    }
+
+    /**
+     * @return true if expanded descriptions are stored together in a single pack file rather than as separate files
+     */
+    public boolean isExpandedDescriptionsPacked() {
+        return expandedDescriptionsPacked;
+    }
+
+    public void setExpandedDescriptionsPacked(boolean expandedDescriptionsPacked) {
+        this.expandedDescriptionsPacked = expandedDescriptionsPacked;
+    }
+
     /**
      * @return timestamp SIPS were last generated
      */
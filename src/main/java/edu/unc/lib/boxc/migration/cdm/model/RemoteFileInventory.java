@@ -0,0 +1,110 @@
+package edu.unc.lib.boxc.migration.cdm.model;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Cached listing of files present in a CDM collection on the remote server.
+ * Paths are relative to the collection directory, such as "image/123.cpd".
+ */
+public class RemoteFileInventory {
+    public static final String PATH_FIELD = "path";
+    public static final String SIZE_FIELD = "size";
+    public static final String MTIME_FIELD = "mtime";
+    public static final String[] CSV_HEADERS = new String[] { PATH_FIELD, SIZE_FIELD, MTIME_FIELD };
+
+    private Map<String, RemoteFileEntry> entries;
+
+    public RemoteFileInventory() {
+        entries = new LinkedHashMap<>();
+    }
+
+    public void addEntry(RemoteFileEntry entry) {
+        entries.put(entry.getPath(), entry);
+    }
+
+    /**
+     * @param path path relative to the collection directory
+     * @return entry for the path, or null if the file is not present on the remote server
+     */
+    public RemoteFileEntry getEntry(String path) {
+        return entries.get(path);
+    }
+
+    public Collection<RemoteFileEntry> getEntries() {
+        return entries.values();
+    }
+
+    /**
+     * @param parentPath parent directory relative to the collection directory, such as "image"
+     * @param extension file extension to match, case insensitive
+     * @return entries for files directly within the parent directory with the given extension
+     */
+    public List<RemoteFileEntry> listFiles(String parentPath, String extension) {
+        var prefix = parentPath + "/";
+        var suffix = "." + extension.toLowerCase();
+        return entries.values().stream()
+                .filter(e -> e.getPath().startsWith(prefix))
+                .filter(e -> e.getPath().indexOf('/', prefix.length()) == -1)
+                .filter(e -> e.getPath().toLowerCase().endsWith(suffix))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * An individual file in the remote listing
+     */
+    public static class RemoteFileEntry {
+        private String path;
+        private long size;
+        private long mtime;
+
+        public RemoteFileEntry() {
+        }
+
+        public RemoteFileEntry(String path, long size, long mtime) {
+            this.path = path;
+            this.size = size;
+            this.mtime = mtime;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        /**
+         * @return size of the file in bytes
+         */
+        public long getSize() {
+            return size;
+        }
+
+        public void setSize(long size) {
+            this.size = size;
+        }
+
+        /**
+         * @return last modified time of the file, in seconds since the epoch
+         */
+        public long getMtime() {
+            return mtime;
+        }
+
+        public void setMtime(long mtime) {
+            this.mtime = mtime;
+        }
+
+        /**
+         * @return name of the file, without any parent directories
+         */
+        public String getFilename() {
+            return path.substring(path.lastIndexOf('/') + 1);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package edu.unc.lib.boxc.migration.cdm.model;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Storage used by the files mapped in a project, in total and broken down by file extension and destination
+ */
+public class StorageUsage {
+    public static final String NO_EXTENSION = "(none)";
+    public static final String NO_DESTINATION = "(unassigned)";
+    private static final long BYTES_PER_MB = 1024 * 1024;
+
+    private long fileCount;
+    private long totalBytes;
+    private Map<String, Long> bytesByExtension = new TreeMap<>();
+    private Map<String, Long> bytesByDestination = new TreeMap<>();
+
+    /**
+     * Add a file to the usage totals
+     * @param extension lowercase extension of the file, or null if it has none
+     * @param destination destination the file will be deposited to, or null if it has none
+     * @param bytes size of the file
+     */
+    public void addFile(String extension, String destination, long bytes) {
+        fileCount++;
+        totalBytes += bytes;
+        bytesByExtension.merge(extension == null || extension.isEmpty() ? NO_EXTENSION : extension,
+                bytes, Long::sum);
+        bytesByDestination.merge(destination == null ? NO_DESTINATION : destination, bytes, Long::sum);
+    }
+
+    public long getFileCount() {
+        return fileCount;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return total size in whole megabytes
+     */
+    public long getTotalMegabytes() {
+        return totalBytes / BYTES_PER_MB;
+    }
+
+    /**
+     * @return total bytes for each file extension, ordered by extension
+     */
+    public Map<String, Long> getBytesByExtension() {
+        return bytesByExtension;
+    }
+
+    /**
+     * @return total bytes for each destination, ordered by destination
+     */
+    public Map<String, Long> getBytesByDestination() {
+        return bytesByDestination;
+    }
+}
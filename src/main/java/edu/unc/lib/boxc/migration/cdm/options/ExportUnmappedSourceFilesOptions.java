@@ -18,6 +18,9 @@ public class ExportUnmappedSourceFilesOptions {
             arity = "0..1",
             interactive = true)
     private String cdmPassword;
+    @CommandLine.Option(names = {"--verify-checksums"},
+            description = "Verify the SHA-256 digests of downloaded files against the files on the CDM server.")
+    private boolean verifyChecksums;
 
     public String getCdmUsername() {
         return cdmUsername;
@@ -34,4 +37,12 @@ public class ExportUnmappedSourceFilesOptions {
     public void setCdmPassword(String cdmPassword) {
         this.cdmPassword = cdmPassword;
     }
+
+    public boolean isVerifyChecksums() {
+        return verifyChecksums;
+    }
+
+    public void setVerifyChecksums(boolean verifyChecksums) {
+        this.verifyChecksums = verifyChecksums;
+    }
 }
@@ -2,6 +2,8 @@ package edu.unc.lib.boxc.migration.cdm.options;
 
 import picocli.CommandLine.Option;
 
+import java.util.List;
+
 /**
  * Options for generate file mapping
  * @author krwong
@@ -32,9 +34,11 @@ public class GenerateSourceFileMappingOptions extends SourceFileMappingOptions {
                             + "for use in the filename template. Use matching groups for this.",
                     "Must match the entire value of the export field.",
                     "For example, to extract numeric portions of the value: 276_214_E.tif",
-                    "You could provide the pattern: (\\d+)\\_(\\d+)_E.tif"},
+                    "You could provide the pattern: (\\d+)\\_(\\d+)_E.tif",
+                    "May be provided multiple times to try several patterns in order, each paired with the "
+                            + "--file-template in the same position. The first pattern which matches is used."},
             defaultValue = "(.+)")
-    private String fieldMatchingPattern;
+    private List<String> fieldMatchingPatterns;
 
     @Option(names = {"-t", "--file-template"},
             description = {
@@ -42,9 +46,11 @@ public class GenerateSourceFileMappingOptions extends SourceFileMappingOptions {
                     "It should be used with matching groups from --field-pattern.",
                     "NOTE: Use single quotes to wrap this value, or escape the $ characters as \\$.",
                     "Given the field pattern above, it could be templated out to: 00276_op0214_0001_e.tif",
-                    "With the template: 00$1_op0$2_0001_e.tif"},
+                    "With the template: 00$1_op0$2_0001_e.tif",
+                    "May be provided multiple times, once per --field-pattern. If only one template is provided, "
+                            + "it is used with every pattern."},
             defaultValue = "$1")
-    private String filenameTemplate;
+    private List<String> filenameTemplates;
 
     @Option(names = {"-l", "--lower-template"},
             description = "Convert the filename produced from the --file-temp option to lowercase "
@@ -63,6 +69,12 @@ public class GenerateSourceFileMappingOptions extends SourceFileMappingOptions {
                     "This can be used to build up the mapping in multiple passes"})
     private boolean update;
 
+    @Option(names = {"--rescan"},
+            description = {
+                    "List every directory within the base path, rather than reusing the cached listings of "
+                            + "directories which have not been modified since the previous run."})
+    private boolean rescan;
+
     @Option(names = { "-f", "--force"},
             description = "Overwrite mapping file if one already exists")
     private boolean force;
@@ -83,20 +95,28 @@ public class GenerateSourceFileMappingOptions extends SourceFileMappingOptions {
         this.exportField = exportField;
     }
 
-    public String getFieldMatchingPattern() {
-        return fieldMatchingPattern;
+    public List<String> getFieldMatchingPatterns() {
+        return fieldMatchingPatterns;
+    }
+
+    public void setFieldMatchingPatterns(List<String> fieldMatchingPatterns) {
+        this.fieldMatchingPatterns = fieldMatchingPatterns;
     }
 
     public void setFieldMatchingPattern(String fieldMatchingPattern) {
-        this.fieldMatchingPattern = fieldMatchingPattern;
+        this.fieldMatchingPatterns = List.of(fieldMatchingPattern);
     }
 
-    public String getFilenameTemplate() {
-        return filenameTemplate;
+    public List<String> getFilenameTemplates() {
+        return filenameTemplates;
+    }
+
+    public void setFilenameTemplates(List<String> filenameTemplates) {
+        this.filenameTemplates = filenameTemplates;
     }
 
     public void setFilenameTemplate(String filenameTemplate) {
-        this.filenameTemplate = filenameTemplate;
+        this.filenameTemplates = List.of(filenameTemplate);
     }
 
     public boolean isLowercaseTemplate() {
@@ -132,4 +152,12 @@ public class GenerateSourceFileMappingOptions extends SourceFileMappingOptions {
     public void setPopulateBlank(boolean populateBlank) {
         this.populateBlank = populateBlank;
     }
+
+    public boolean isRescan() {
+        return rescan;
+    }
+
+    public void setRescan(boolean rescan) {
+        this.rescan = rescan;
+    }
 }
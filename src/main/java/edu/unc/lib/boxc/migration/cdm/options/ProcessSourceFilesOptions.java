@@ -1,5 +1,6 @@
 package edu.unc.lib.boxc.migration.cdm.options;
 
+import edu.unc.lib.boxc.migration.cdm.services.SourceFilesToRemoteService;
 import picocli.CommandLine;
 
 import java.nio.file.Path;
@@ -27,6 +28,26 @@ public class ProcessSourceFilesOptions {
             description = "Email of the user that started this job")
     private String emailAddress;
 
+    @CommandLine.Option(names = {"--max-transfers"},
+            description = "Maximum number of files to transfer to the remote server at once. The number of "
+                    + "transfers is adjusted based on throughput up to this limit. Default: ${DEFAULT-VALUE}",
+            defaultValue = "" + SourceFilesToRemoteService.DEFAULT_MAX_CONCURRENT_TRANSFERS)
+    private int maxTransfers;
+
+    @CommandLine.Option(names = {"--transfer-buffer-size"},
+            description = "Size in kilobytes of the buffer used when transferring each file. Default: ${DEFAULT-VALUE}",
+            defaultValue = "" + SourceFilesToRemoteService.DEFAULT_BUFFER_SIZE_KB)
+    private int transferBufferSize;
+
+    @CommandLine.Option(names = {"--skip-existing"},
+            description = "Do not transfer files which are already present on the remote server with the same size "
+                    + "and modification time. Modification times of transferred files are preserved remotely.")
+    private boolean skipExisting;
+
+    @CommandLine.Option(names = {"--verify-checksums"},
+            description = "Verify the SHA-256 digests of transferred files against the remote copies.")
+    private boolean verifyChecksums;
+
     public String getActionName() {
         return actionName;
     }
@@ -58,4 +79,36 @@ public class ProcessSourceFilesOptions {
     public void setEmailAddress(String emailAddress) {
         this.emailAddress = emailAddress;
     }
+
+    public int getMaxTransfers() {
+        return maxTransfers;
+    }
+
+    public void setMaxTransfers(int maxTransfers) {
+        this.maxTransfers = maxTransfers;
+    }
+
+    public int getTransferBufferSize() {
+        return transferBufferSize;
+    }
+
+    public void setTransferBufferSize(int transferBufferSize) {
+        this.transferBufferSize = transferBufferSize;
+    }
+
+    public boolean isSkipExisting() {
+        return skipExisting;
+    }
+
+    public void setSkipExisting(boolean skipExisting) {
+        this.skipExisting = skipExisting;
+    }
+
+    public boolean isVerifyChecksums() {
+        return verifyChecksums;
+    }
+
+    public void setVerifyChecksums(boolean verifyChecksums) {
+        this.verifyChecksums = verifyChecksums;
+    }
 }
@@ -2,6 +2,7 @@ package edu.unc.lib.boxc.migration.cdm.options;
 
 import java.nio.file.Path;
 
+import edu.unc.lib.boxc.migration.cdm.util.ParallelFileCrawler;
 import picocli.CommandLine.Option;
 
 /**
@@ -23,6 +24,13 @@ public class SourceFileMappingOptions implements GenerateFileMappingOptions {
                     + "than written to file"})
     private boolean dryRun;
 
+    @Option(names = {"--crawl-threads"},
+            description = {
+                    "Number of directories within the base path to list concurrently while searching for files.",
+                    "Increasing this can speed up searching network filesystems. Default: ${DEFAULT-VALUE}"},
+            defaultValue = "" + ParallelFileCrawler.DEFAULT_PARALLELISM)
+    private int crawlThreads = ParallelFileCrawler.DEFAULT_PARALLELISM;
+
     public Path getBasePath() {
         return basePath;
     }
@@ -40,6 +48,14 @@ public class SourceFileMappingOptions implements GenerateFileMappingOptions {
         this.dryRun = dryRun;
     }
 
+    public int getCrawlThreads() {
+        return crawlThreads;
+    }
+
+    public void setCrawlThreads(int crawlThreads) {
+        this.crawlThreads = crawlThreads;
+    }
+
     @Override
     public boolean getUpdate() {
         return false;
@@ -1,18 +1,51 @@
 package edu.unc.lib.boxc.migration.cdm.services;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URLConnection;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import edu.unc.lib.boxc.migration.cdm.exceptions.MigrationException;
 import edu.unc.lib.boxc.migration.cdm.util.ProjectPropertiesSerialization;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+
+import static org.slf4j.LoggerFactory.getLogger;
 
 /**
- * Service for interacting with access copy files
+ * Service for interacting with access copy files.
+ * Mimetypes are determined once per file extension. Only files with extensions that do not have a known
+ * mimetype have their content probed, and those results are cached in the project along with the size and
+ * modification time of the file, so that a file which is replaced is probed again.
  * @author bbpennel
  */
 public class AccessFileService extends SourceFileService {
+    private static final Logger log = getLogger(AccessFileService.class);
+    public static final String DEFAULT_MIMETYPE = "application/octet-stream";
+    public static final String[] MIMETYPES_CSV_HEADERS = new String[] { "path", "size", "last_modified", "mimetype" };
+    public static final int DEFAULT_PROBE_THREADS = 8;
+    // Placeholder for extensions without a known mimetype, since the cache cannot contain nulls
+    private static final String UNKNOWN_MIMETYPE = "";
+
+    private final Map<String, String> extensionMimetypes = new ConcurrentHashMap<>();
+    private Map<String, ProbedMimetype> probedMimetypes;
+    private int probeThreads = DEFAULT_PROBE_THREADS;
 
     public AccessFileService() {
     }
@@ -34,13 +67,164 @@ public class AccessFileService extends SourceFileService {
      * @throws IOException
      */
     public String getMimetype(Path path) throws IOException {
-        String mimetype = URLConnection.guessContentTypeFromName(path.getFileName().toString());
-        if (mimetype == null || "application/octet-stream".equals(mimetype)) {
-            mimetype = Files.probeContentType(path);
+        String mimetype = getExtensionMimetype(path);
+        if (mimetype != null) {
+            return mimetype;
+        }
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return probeMimetype(path);
         }
-        if (mimetype == null) {
-            mimetype = "application/octet-stream";
+        var probed = getProbedMimetypes();
+        var cached = probed.get(path.toString());
+        if (cached != null && cached.matches(attrs)) {
+            return cached.mimetype;
         }
+        mimetype = probeMimetype(path);
+        probed.put(path.toString(), new ProbedMimetype(attrs, mimetype));
         return mimetype;
     }
+
+    /**
+     * Probe the content of all mapped access files whose extensions do not have a known mimetype,
+     * concurrently, and cache the results in the project so that they are not probed again.
+     * @throws IOException
+     */
+    public void probeMappedMimetypes() throws IOException {
+        if (Files.notExists(getMappingPath())) {
+            return;
+        }
+        var probed = getProbedMimetypes();
+        var toProbe = new LinkedHashSet<Path>();
+        for (var mapping : loadMappings().getMappings()) {
+            var path = mapping.getFirstSourcePath();
+            if (path != null && getExtensionMimetype(path) == null) {
+                toProbe.add(path);
+            }
+        }
+        if (toProbe.isEmpty()) {
+            return;
+        }
+
+        log.info("Checking mimetypes of {} access files with unrecognized extensions", toProbe.size());
+        var executor = Executors.newFixedThreadPool(probeThreads);
+        try {
+            var results = new ArrayList<Future<?>>(toProbe.size());
+            for (Path path : toProbe) {
+                results.add(executor.submit(() -> {
+                    try {
+                        var attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                        var cached = probed.get(path.toString());
+                        if (cached == null || !cached.matches(attrs)) {
+                            probed.put(path.toString(), new ProbedMimetype(attrs, probeMimetype(path)));
+                        }
+                    } catch (NoSuchFileException e) {
+                        log.debug("Access file {} does not exist, not probing its mimetype", path);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+            for (var result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MigrationException("Interrupted while probing access file mimetypes", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new MigrationException("Failed to probe access file mimetypes", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        writeProbedMimetypes(probed);
+    }
+
+    /**
+     * @return mimetype for the extension of the file, or null if the extension does not have a known mimetype
+     */
+    private String getExtensionMimetype(Path path) {
+        String extension = FilenameUtils.getExtension(path.getFileName().toString()).toLowerCase();
+        String mimetype = extensionMimetypes.computeIfAbsent(extension, ext -> {
+            String guessed = URLConnection.guessContentTypeFromName("file." + ext);
+            return guessed == null || DEFAULT_MIMETYPE.equals(guessed) ? UNKNOWN_MIMETYPE : guessed;
+        });
+        return UNKNOWN_MIMETYPE.equals(mimetype) ? null : mimetype;
+    }
+
+    private String probeMimetype(Path path) throws IOException {
+        String mimetype = Files.probeContentType(path);
+        return mimetype == null ? DEFAULT_MIMETYPE : mimetype;
+    }
+
+    private synchronized Map<String, ProbedMimetype> getProbedMimetypes() throws IOException {
+        if (probedMimetypes == null) {
+            probedMimetypes = new ConcurrentHashMap<>();
+            var mimetypesPath = project.getAccessFileMimetypesPath();
+            if (Files.exists(mimetypesPath)) {
+                try (var csvParser = CSVParser.parse(Files.newBufferedReader(mimetypesPath), CSVFormat.DEFAULT.builder()
+                        .setHeader(MIMETYPES_CSV_HEADERS)
+                        .setSkipHeaderRecord(true)
+                        .get())) {
+                    for (CSVRecord record : csvParser) {
+                        // Entries from older versions of the cache lack the size and modification time
+                        if (record.size() != MIMETYPES_CSV_HEADERS.length) {
+                            continue;
+                        }
+                        probedMimetypes.put(record.get(0), new ProbedMimetype(Long.parseLong(record.get(1)),
+                                Long.parseLong(record.get(2)), record.get(3)));
+                    }
+                }
+            }
+        }
+        return probedMimetypes;
+    }
+
+    private void writeProbedMimetypes(Map<String, ProbedMimetype> probed) throws IOException {
+        var mimetypesPath = project.getAccessFileMimetypesPath();
+        var tmpPath = mimetypesPath.resolveSibling(mimetypesPath.getFileName() + ".tmp");
+        try (var csvPrinter = new CSVPrinter(Files.newBufferedWriter(tmpPath), CSVFormat.DEFAULT.builder()
+                .setHeader(MIMETYPES_CSV_HEADERS)
+                .get())) {
+            for (var entry : probed.entrySet()) {
+                var value = entry.getValue();
+                csvPrinter.printRecord(entry.getKey(), value.size, value.lastModified, value.mimetype);
+            }
+        }
+        Files.move(tmpPath, mimetypesPath, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * @param probeThreads number of threads used to probe the mimetypes of mapped access files
+     */
+    public void setProbeThreads(int probeThreads) {
+        this.probeThreads = probeThreads;
+    }
+
+    /**
+     * Mimetype probed from the content of a file, along with the size and modification time of the file when probed
+     */
+    private static class ProbedMimetype {
+        private final long size;
+        private final long lastModified;
+        private final String mimetype;
+
+        private ProbedMimetype(long size, long lastModified, String mimetype) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.mimetype = mimetype;
+        }
+
+        private ProbedMimetype(BasicFileAttributes attrs, String mimetype) {
+            this(attrs.size(), attrs.lastModifiedTime().toMillis(), mimetype);
+        }
+
+        private boolean matches(BasicFileAttributes attrs) {
+            return size == attrs.size() && lastModified == attrs.lastModifiedTime().toMillis();
+        }
+    }
 }
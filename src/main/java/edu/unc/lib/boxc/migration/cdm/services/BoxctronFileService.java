@@ -4,6 +4,7 @@ import edu.unc.lib.boxc.migration.cdm.exceptions.MigrationException;
 import edu.unc.lib.boxc.migration.cdm.jobs.VelocicroptorRemoteJob;
 import edu.unc.lib.boxc.migration.cdm.model.SourceFilesInfo;
 import edu.unc.lib.boxc.migration.cdm.options.BoxctronFileMappingOptions;
+import edu.unc.lib.boxc.migration.cdm.util.HashedPathSet;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
@@ -14,12 +15,10 @@ import java.io.Reader;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.sql.Connection;
 import java.time.Instant;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
+import static edu.unc.lib.boxc.migration.cdm.util.CLIConstants.outputLogger;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
@@ -29,6 +28,7 @@ import static org.slf4j.LoggerFactory.getLogger;
  */
 public class BoxctronFileService extends AccessFileService {
     private static final Logger log = getLogger(BoxctronFileService.class);
+    private static final int PROGRESS_INTERVAL = 100000;
 
     public static final String ORIGINAL_PATH = "original_path";
     public static final String PREDICTED_CLASS = "predicted_class";
@@ -50,13 +50,13 @@ public class BoxctronFileService extends AccessFileService {
         assertProjectStateValid();
         ensureMappingState(options);
 
-        // Gather list of all potential source file paths to match against
-        Set<String> candidatePaths = gatherCandidatePaths(getVelocicroptorDataPath(project.getProjectPath()));
-        // Gather list of all source file paths to exclude
-        Set<String> exclusionPaths = Set.of();
+        // Gather hashes of all source file paths with color bars which are not excluded, to match against
+        HashedPathSet exclusionPaths = new HashedPathSet();
         if (options.getExclusionsCsv() != null) {
             exclusionPaths = gatherExclusionPaths(options.getExclusionsCsv());
         }
+        HashedPathSet candidatePaths = gatherCandidatePaths(getVelocicroptorDataPath(project.getProjectPath()),
+                exclusionPaths);
 
         Path mappingPath = getMappingPath();
         boolean needsMerge = options.getUpdate() && Files.exists(mappingPath);
@@ -66,31 +66,37 @@ public class BoxctronFileService extends AccessFileService {
         }
         Files.deleteIfExists(mappingPath);
 
-        SourceFilesInfo sourceFilesInfo = loadMappings(project.getSourceFilesMappingPath());
-
-        // Iterate through source file objects in this collection to match against
-        Connection conn = null;
-        try (var csvPrinter = openMappingsPrinter(mappingPath)) {
-            // cdm ids and original file paths from source file mappings
-            for (SourceFilesInfo.SourceFileMapping fileMapping : sourceFilesInfo.getMappings()) {
+        // Stream source file mappings, writing access mappings as each is matched
+        long mappedCount = 0;
+        long matchedCount = 0;
+        try (
+            var csvPrinter = openMappingsPrinter(mappingPath);
+            var sourceParser = openMappingsParser(project.getSourceFilesMappingPath());
+        ) {
+            for (CSVRecord sourceRecord : sourceParser) {
+                SourceFilesInfo.SourceFileMapping fileMapping = recordToMapping(sourceRecord);
                 String cdmId = fileMapping.getCdmId();
                 List<Path> filePaths = fileMapping.getSourcePaths();
 
                 for (Path filePath : filePaths) {
-                    if (candidatePaths.contains(filePath.toString()) && !exclusionPaths.contains(filePath.toString())) {
+                    if (candidatePaths.contains(filePath.toString())) {
                         log.debug("Found match for {} from field {}", cdmId, filePath);
                         csvPrinter.printRecord(cdmId, filePath.getFileName(),
                                 computeAccessPath(filePath), null);
+                        matchedCount++;
                     } else {
                         csvPrinter.printRecord(cdmId, filePath.getFileName(), null, null);
                     }
+                    mappedCount++;
+                    if (mappedCount % PROGRESS_INTERVAL == 0) {
+                        outputLogger.info("Mapped {} source files, {} with access files", mappedCount, matchedCount);
+                    }
                 }
             }
         } catch (IOException e) {
-            throw new MigrationException("Error interacting with export index", e);
-        } finally {
-            CdmIndexService.closeDbConnection(conn);
+            throw new MigrationException("Error reading source file mappings", e);
         }
+        log.info("Mapped {} source files, {} with access files", mappedCount, matchedCount);
 
         // Performing update operation with existing mapping, need to merge values
         if (needsMerge) {
@@ -105,14 +111,15 @@ public class BoxctronFileService extends AccessFileService {
     /**
      * Read the data.csv produced by boxctron and
      * gather original file paths if the predicted_class value is 1 (color bar detected)
+     * and the path is not excluded
      * @throws Exception
      */
-    private Set<String> gatherCandidatePaths(Path dataPath) throws IOException {
+    private HashedPathSet gatherCandidatePaths(Path dataPath, HashedPathSet exclusionPaths) throws IOException {
         if (Files.notExists(dataPath)) {
             throw new NoSuchFileException(dataPath + " does not exist");
         }
 
-        Set<String> candidatePaths = new HashSet<>();
+        HashedPathSet candidatePaths = new HashedPathSet();
         try (Reader reader = Files.newBufferedReader(dataPath);
              CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT
                 .withFirstRecordAsHeader()
@@ -123,7 +130,7 @@ public class BoxctronFileService extends AccessFileService {
                 String originalPath = csvRecord.get(0);
                 String predictedClass = csvRecord.get(1);
 
-                if (predictedClass.equals("1")) {
+                if (predictedClass.equals("1") && !exclusionPaths.contains(originalPath)) {
                     candidatePaths.add(originalPath);
                 }
             }
@@ -138,12 +145,12 @@ public class BoxctronFileService extends AccessFileService {
      * gather original file paths if the corrected_class value is 0 (skip access file)
      * @throws Exception
      */
-    private Set<String> gatherExclusionPaths(Path dataPath) throws IOException {
+    private HashedPathSet gatherExclusionPaths(Path dataPath) throws IOException {
         if (Files.notExists(dataPath)) {
             throw new NoSuchFileException(dataPath + " does not exist");
         }
 
-        Set<String> exclusionPaths = new HashSet<>();
+        HashedPathSet exclusionPaths = new HashedPathSet();
         try (Reader reader = Files.newBufferedReader(dataPath);
              CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT
                      .withFirstRecordAsHeader()
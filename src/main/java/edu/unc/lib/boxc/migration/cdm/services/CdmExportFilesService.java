@@ -5,7 +5,9 @@ import edu.unc.lib.boxc.migration.cdm.exceptions.MigrationException;
 import edu.unc.lib.boxc.migration.cdm.model.CdmFieldInfo;
 import edu.unc.lib.boxc.migration.cdm.model.MigrationProject;
 import edu.unc.lib.boxc.migration.cdm.model.MigrationProjectProperties;
+import edu.unc.lib.boxc.migration.cdm.model.RemoteFileInventory;
 import edu.unc.lib.boxc.migration.cdm.model.SourceFilesInfo.SourceFileMapping;
+import edu.unc.lib.boxc.migration.cdm.services.FileDigestService.DigestAlgorithm;
 import org.apache.commons.csv.CSVRecord;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -17,7 +19,9 @@ import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static edu.unc.lib.boxc.migration.cdm.util.CLIConstants.outputLogger;
@@ -35,6 +39,8 @@ public class CdmExportFilesService {
     private MigrationProject project;
     private SourceFileService sourceFileService;
     private CdmIndexService indexService;
+    private RemoteFileInventory remoteInventory;
+    private FileDigestService fileDigestService;
 
     /**
      * Export files from CDM associated with items that do not already have source files mapped
@@ -45,6 +51,8 @@ public class CdmExportFilesService {
         validateProjectState();
 
         var failedToDownload = new AtomicBoolean();
+        // Tracks downloaded files and their remote source, for checksum verification
+        var downloadedFiles = new LinkedHashMap<Path, String>();
         var originalPath = sourceFileService.getMappingPath();
         var updatedPath = sourceFileService.getTempMappingPath();
         Connection conn = null;
@@ -60,8 +68,9 @@ public class CdmExportFilesService {
             conn = indexService.openDbConnection();
             // Have to make reference to connection final so it can be used inside the download block
             final var dbConn = conn;
-            var imageDir = fileRetrievalService.getSshCollectionPath().resolve(CdmFileRetrievalService.IMAGE_SUBPATH);
-            var pdfDir = fileRetrievalService.getSshCollectionPath().resolve(CdmFileRetrievalService.PDF_SUBPATH);
+            var collectionPath = fileRetrievalService.getSshCollectionPath();
+            var imageDir = collectionPath.resolve(CdmFileRetrievalService.IMAGE_SUBPATH);
+            var pdfDir = collectionPath.resolve(CdmFileRetrievalService.PDF_SUBPATH);
 
             fileRetrievalService.executeDownloadBlock((scpClient -> {
                 try {
@@ -93,6 +102,24 @@ public class CdmExportFilesService {
                         }
                         var destPath = exportSourceFilesPath.resolve(filename);
 
+                        if (remoteInventory != null) {
+                            var remoteEntry = remoteInventory.getEntry(collectionPath.relativize(
+                                    Paths.get(filePath)).toString());
+                            if (remoteEntry == null) {
+                                log.warn("File {} is not present in the remote inventory", filePath);
+                                failedToDownload.set(true);
+                                SourceFileService.writeMapping(updatedPrinter, origMapping);
+                                continue;
+                            }
+                            if (CdmFileRetrievalService.isAlreadyDownloaded(remoteEntry, destPath)) {
+                                log.debug("File {} was previously downloaded to {}", filePath, destPath);
+                                origMapping.setSourcePaths(destPath.toString());
+                                origMapping.setMatchingValue(filename);
+                                SourceFileService.writeMapping(updatedPrinter, origMapping);
+                                continue;
+                            }
+                        }
+
                         try {
                             scpClient.download(filePath, destPath);
                         }  catch (IOException e) {
@@ -102,6 +129,7 @@ public class CdmExportFilesService {
                             SourceFileService.writeMapping(updatedPrinter, origMapping);
                             continue;
                         }
+                        downloadedFiles.put(destPath, filePath);
                         // Update mapping to include downloaded file
                         origMapping.setSourcePaths(destPath.toString());
                         origMapping.setMatchingValue(filename);
@@ -125,7 +153,27 @@ public class CdmExportFilesService {
         Files.move(updatedPath, originalPath);
         Files.delete(swapPath);
 
-        return failedToDownload.get() ? "One or more source files failed to download, check the logs" : null;
+        if (failedToDownload.get()) {
+            return "One or more source files failed to download, check the logs";
+        }
+        return verifyDownloadedFiles(downloadedFiles);
+    }
+
+    /**
+     * @param downloadedFiles map of local path to remote path of downloaded files
+     * @return Result message if any files did not match their remote source, otherwise null
+     */
+    private String verifyDownloadedFiles(Map<Path, String> downloadedFiles) {
+        if (fileDigestService == null || downloadedFiles.isEmpty()) {
+            return null;
+        }
+        var mismatched = fileDigestService.verifyRemoteCopies(fileRetrievalService.getSshClientService(),
+                downloadedFiles, DigestAlgorithm.SHA256);
+        if (!mismatched.isEmpty()) {
+            return mismatched.size() + " downloaded source files failed checksum verification, check the logs";
+        }
+        outputLogger.info("Verified checksums of {} downloaded source files", downloadedFiles.size());
+        return null;
     }
 
     private int calculateTotalUnmapped(Path originalPath) throws IOException {
@@ -187,4 +235,19 @@ public class CdmExportFilesService {
     public void setIndexService(CdmIndexService indexService) {
         this.indexService = indexService;
     }
+
+    /**
+     * @param remoteInventory cached listing of the remote collection. If set, files which are not present
+     *      remotely or were already downloaded will not be transferred.
+     */
+    public void setRemoteInventory(RemoteFileInventory remoteInventory) {
+        this.remoteInventory = remoteInventory;
+    }
+
+    /**
+     * @param fileDigestService if set, the digests of downloaded files will be verified against the remote files
+     */
+    public void setFileDigestService(FileDigestService fileDigestService) {
+        this.fileDigestService = fileDigestService;
+    }
 }
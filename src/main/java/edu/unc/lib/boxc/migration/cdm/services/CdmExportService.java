@@ -2,10 +2,7 @@ package edu.unc.lib.boxc.migration.cdm.services;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.PropertyNamingStrategies;
-import com.fasterxml.jackson.databind.annotation.JsonNaming;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import edu.unc.lib.boxc.migration.cdm.exceptions.MigrationException;
 import edu.unc.lib.boxc.migration.cdm.model.BxcEnvironment;
@@ -16,19 +13,17 @@ import edu.unc.lib.boxc.migration.cdm.services.ChompbConfigService.ChompbConfig;
 import edu.unc.lib.boxc.migration.cdm.util.ProjectPropertiesSerialization;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
-import org.apache.commons.io.IOUtils;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.entity.EntityTemplate;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.slf4j.Logger;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.time.Instant;
 
@@ -54,9 +49,8 @@ import static edu.unc.lib.boxc.migration.cdm.util.EadToCdmUtil.STANDARDIZED_SCOP
 import static edu.unc.lib.boxc.migration.cdm.util.EadToCdmUtil.STANDARDIZED_UNIT_DATE;
 import static edu.unc.lib.boxc.migration.cdm.util.EadToCdmUtil.STANDARDIZED_UNIT_TITLE;
 import static edu.unc.lib.boxc.migration.cdm.util.EadToCdmUtil.TSV_STANDARDIZED_HEADERS;
-import static edu.unc.lib.boxc.migration.cdm.util.EadToCdmUtil.getFilenames;
 import static edu.unc.lib.boxc.migration.cdm.util.EadToCdmUtil.getValue;
-import static edu.unc.lib.boxc.migration.cdm.util.EadToCdmUtil.toJson;
+import static edu.unc.lib.boxc.migration.cdm.util.EadToCdmUtil.writeEadToCdmBody;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
@@ -140,21 +134,33 @@ public class CdmExportService {
             var writer = Files.newBufferedWriter(eadToCdmTsvPath);
             CSVPrinter tsvPrinter = new CSVPrinter(writer, csvPrinterFormat);
         ) {
-            var body = IOUtils.toString(resp.getEntity().getContent(), StandardCharsets.UTF_8);
-            JsonParser parser = mapper.getFactory().createParser(body);
-            if (parser.nextToken() != JsonToken.START_OBJECT) {
-                throw new MigrationException("Unexpected response from EAD to CDM API for EAD ID " + eadId +
-                        "\nIt must be a JSON object, please check the response.");
-            }
-            ObjectNode rootNode = mapper.readTree(parser);
-            var jsonArray = rootNode.get("metadata");
-            if (jsonArray == null || !jsonArray.isArray()) {
-                throw new MigrationException("Unexpected response from EAD to CDM API for EAD ID " + eadId +
-                        "\nJSON value must be a JSON array, please check the response.");
-            }
-            for (JsonNode jsonNode : jsonArray) {
-                ObjectNode entryNode = (ObjectNode) jsonNode;
-                printEadToCdmRow(tsvPrinter, entryNode);
+            // Stream the response so that metadata entries are written out as they are parsed
+            try (JsonParser parser = mapper.getFactory().createParser(resp.getEntity().getContent())) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new MigrationException("Unexpected response from EAD to CDM API for EAD ID " + eadId +
+                            "\nIt must be a JSON object, please check the response.");
+                }
+                boolean foundMetadata = false;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    var fieldName = parser.currentName();
+                    var valueToken = parser.nextToken();
+                    if (!"metadata".equals(fieldName)) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    if (valueToken != JsonToken.START_ARRAY) {
+                        break;
+                    }
+                    foundMetadata = true;
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        ObjectNode entryNode = mapper.readTree(parser);
+                        printEadToCdmRow(tsvPrinter, entryNode);
+                    }
+                }
+                if (!foundMetadata) {
+                    throw new MigrationException("Unexpected response from EAD to CDM API for EAD ID " + eadId +
+                            "\nJSON value must be a JSON array, please check the response.");
+                }
             }
         } catch (IOException e) {
             log.warn("Failed to retrieve response from EAD to CDM API for {}: {}", eadId, e.getMessage());
@@ -171,6 +177,7 @@ public class CdmExportService {
             fileRetrievalService.setSshUsername(options.getCdmUsername());
             fileRetrievalService.setChompbConfig(chompbConfig);
             fileRetrievalService.setProject(project);
+            fileRetrievalService.setRemoteInventory(CdmRemoteInventoryService.loadInventory(project));
         }
     }
 
@@ -192,17 +199,11 @@ public class CdmExportService {
     private HttpPost getEadToCdmHttpPost(String url, MigrationProject project, String eadId) throws IOException {
         var httpPost = new HttpPost(url);
         httpPost.setHeader("Content-type", "application/json");
-        httpPost.setEntity(new StringEntity(getEadToCdmBody(project, eadId)));
+        // Body is written directly to the request stream, since the list of filenames can be very large
+        httpPost.setEntity(new EntityTemplate(outStream -> writeEadToCdmBody(project, eadId, outStream)));
         return httpPost;
     }
 
-    private String getEadToCdmBody(MigrationProject project, String eadId) throws IOException {
-        var body = new EadToCdmInfo();
-        body.setEadId(eadId);
-        body.setFiles(getFilenames(project));
-        return toJson(body);
-    }
-
     private void printEadToCdmRow(CSVPrinter tsvPrinter, ObjectNode entryNode) throws IOException {
         tsvPrinter.printRecord(
                 getValue(STANDARDIZED_COLLECTION_NAME, entryNode),
@@ -228,28 +229,6 @@ public class CdmExportService {
         );
     }
 
-    @JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
-    public static class EadToCdmInfo {
-        private String eadId;
-        private String files;
-
-        public String getEadId() {
-            return eadId;
-        }
-
-        public void setEadId(String eadId) {
-            this.eadId = eadId;
-        }
-
-        public String getFiles() {
-            return files;
-        }
-
-        public void setFiles(String files) {
-            this.files = files;
-        }
-    }
-
     public void setCdmFieldService(CdmFieldService cdmFieldService) {
         this.cdmFieldService = cdmFieldService;
     }
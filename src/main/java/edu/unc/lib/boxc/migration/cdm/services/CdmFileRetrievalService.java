@@ -3,15 +3,21 @@ package edu.unc.lib.boxc.migration.cdm.services;
 import edu.unc.lib.boxc.migration.cdm.exceptions.MigrationException;
 import edu.unc.lib.boxc.migration.cdm.model.CdmEnvironment;
 import edu.unc.lib.boxc.migration.cdm.model.MigrationProject;
+import edu.unc.lib.boxc.migration.cdm.model.RemoteFileInventory;
+import edu.unc.lib.boxc.migration.cdm.model.RemoteFileInventory.RemoteFileEntry;
 import edu.unc.lib.boxc.migration.cdm.services.ChompbConfigService.ChompbConfig;
 import edu.unc.lib.boxc.migration.cdm.util.SshClientService;
 import org.apache.sshd.scp.client.ScpClient;
+import org.slf4j.Logger;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.slf4j.LoggerFactory.getLogger;
 
 /**
  * Service for retrieving CDM files directly from a remote server file system
@@ -19,6 +25,7 @@ import java.util.function.Consumer;
  * @author bbpennel
  */
 public class CdmFileRetrievalService {
+    private static final Logger log = getLogger(CdmFileRetrievalService.class);
     private MigrationProject project;
 
     private static final int SSH_TIMEOUT_SECONDS = 10;
@@ -30,10 +37,12 @@ public class CdmFileRetrievalService {
     public static final String EXPORTED_SOURCE_FILES_DIR = "source_files";
     public static final String PDF_SUBPATH = "supp";
     public static final String PDF_EXPORT_SUBPATH = PDF_SUBPATH + "/*/index.pdf";
+    public static final String PDF_FILENAME = "index.pdf";
 
     private String sshUsername;
     private String sshPassword;
     private ChompbConfig chompbConfig;
+    private RemoteFileInventory remoteInventory;
 
     /**
      * Download the desc.all file for the collection being migrated
@@ -68,6 +77,10 @@ public class CdmFileRetrievalService {
         } catch (IOException e) {
             throw new MigrationException("Failed to create CPD export directory", e);
         }
+        if (remoteInventory != null) {
+            downloadCpdFilesFromInventory(cpdsPath);
+            return;
+        }
         executeDownloadBlock((scpClient) -> {
             var remotePath = getSshCollectionPath().resolve(CPD_SUBPATH).toString();
             try {
@@ -78,6 +91,50 @@ public class CdmFileRetrievalService {
         });
     }
 
+    /**
+     * Download cpd files listed in the remote inventory, skipping any which were already downloaded
+     * @param cpdsPath
+     */
+    private void downloadCpdFilesFromInventory(Path cpdsPath) {
+        var remoteCpds = remoteInventory.listFiles(IMAGE_SUBPATH, "cpd");
+        var toDownload = remoteCpds.stream()
+                .filter(entry -> !isAlreadyDownloaded(entry, cpdsPath.resolve(entry.getFilename())))
+                .collect(Collectors.toList());
+        if (toDownload.isEmpty()) {
+            log.info("All {} cpd files listed in the remote inventory have already been downloaded",
+                    remoteCpds.size());
+            return;
+        }
+        executeDownloadBlock((scpClient) -> {
+            var collectionPath = getSshCollectionPath();
+            try {
+                // Use a single wildcard transfer when everything is needed, otherwise only transfer what is missing
+                if (toDownload.size() == remoteCpds.size()) {
+                    scpClient.download(collectionPath.resolve(CPD_SUBPATH).toString(), cpdsPath);
+                } else {
+                    for (var entry : toDownload) {
+                        scpClient.download(collectionPath.resolve(entry.getPath()).toString(), cpdsPath);
+                    }
+                }
+            } catch (IOException e) {
+                throw new MigrationException("Failed to download cpd files", e);
+            }
+        });
+    }
+
+    /**
+     * @param entry remote file entry
+     * @param localPath local path the file would be downloaded to
+     * @return true if a file with the same size as the remote file is already present locally
+     */
+    public static boolean isAlreadyDownloaded(RemoteFileEntry entry, Path localPath) {
+        try {
+            return Files.isRegularFile(localPath) && Files.size(localPath) == entry.getSize();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
     public static Path getExportedCpdsPath(MigrationProject project) {
         return project.getExportPath().resolve(CPD_EXPORT_PATH);
     }
@@ -93,6 +150,11 @@ public class CdmFileRetrievalService {
         } catch (IOException e) {
             throw new MigrationException("Failed to create PDF export directory", e);
         }
+        if (remoteInventory != null && remoteInventory.getEntries().stream()
+                .noneMatch(entry -> isPdfExportPath(entry.getPath()))) {
+            log.info("No PDF files listed in the remote inventory, skipping PDF download");
+            return;
+        }
         executeDownloadBlock((scpClient) -> {
             var remotePath = getSshCollectionPath().resolve(PDF_EXPORT_SUBPATH).toString();
             try {
@@ -103,19 +165,30 @@ public class CdmFileRetrievalService {
         });
     }
 
+    private static boolean isPdfExportPath(String path) {
+        var parts = path.split("/");
+        return parts.length == 3 && parts[0].equals(PDF_SUBPATH) && parts[2].equals(PDF_FILENAME);
+    }
+
     /**
      * Perform the provided download operations with a ScpClient
      * @param downloadBlock method containing download operations
      */
     public void executeDownloadBlock(Consumer<ScpClient> downloadBlock) {
+        getSshClientService().executeScpBlock(downloadBlock);
+    }
+
+    /**
+     * @return ssh client configured for the CDM server of this project
+     */
+    public SshClientService getSshClientService() {
         var cdmEnvConfig = getCdmEnvironment();
         var sshService = new SshClientService();
         sshService.setSshHost(cdmEnvConfig.getSshHost());
         sshService.setSshPort(cdmEnvConfig.getSshPort());
         sshService.setSshUsername(sshUsername);
         sshService.setSshPassword(sshPassword);
-
-        sshService.executeScpBlock(downloadBlock);
+        return sshService;
     }
 
     private CdmEnvironment getCdmEnvironment() {
@@ -152,4 +225,12 @@ public class CdmFileRetrievalService {
     public void setChompbConfig(ChompbConfig chompbConfig) {
         this.chompbConfig = chompbConfig;
     }
+
+    /**
+     * @param remoteInventory cached listing of the remote collection. If set, it is used to plan which files
+     *      need to be transferred.
+     */
+    public void setRemoteInventory(RemoteFileInventory remoteInventory) {
+        this.remoteInventory = remoteInventory;
+    }
 }
@@ -0,0 +1,164 @@
+package edu.unc.lib.boxc.migration.cdm.services;
+
+import edu.unc.lib.boxc.migration.cdm.exceptions.MigrationException;
+import edu.unc.lib.boxc.migration.cdm.model.MigrationProject;
+import edu.unc.lib.boxc.migration.cdm.model.RemoteFileInventory;
+import edu.unc.lib.boxc.migration.cdm.model.RemoteFileInventory.RemoteFileEntry;
+import edu.unc.lib.boxc.migration.cdm.util.SshClientService;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.slf4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import static edu.unc.lib.boxc.migration.cdm.services.CdmFileRetrievalService.IMAGE_SUBPATH;
+import static edu.unc.lib.boxc.migration.cdm.services.CdmFileRetrievalService.PDF_SUBPATH;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Service which builds and loads a cached listing of the files in a CDM collection on the remote server,
+ * so that export steps can plan transfers without needing to query the server for what is present.
+ * The listing is only refreshed when explicitly requested.
+ */
+public class CdmRemoteInventoryService {
+    private static final Logger log = getLogger(CdmRemoteInventoryService.class);
+    public static final String INVENTORY_FILENAME = "remote_inventory.csv";
+    // Output one line per file, containing path relative to the collection, size in bytes and mtime
+    private static final String FIND_FORMAT = "'%P\\t%s\\t%T@\\n'";
+
+    private CdmFileRetrievalService fileRetrievalService;
+    private MigrationProject project;
+
+    /**
+     * Retrieve a listing of the image and supp directories of the collection from the remote server,
+     * replacing any previously cached listing
+     * @return the number of files in the listing
+     */
+    public int refreshInventory() {
+        var inventoryPath = getInventoryPath(project);
+        var rawListingPath = inventoryPath.resolveSibling(INVENTORY_FILENAME + ".raw");
+        var tmpInventoryPath = inventoryPath.resolveSibling(INVENTORY_FILENAME + ".tmp");
+        try {
+            Files.createDirectories(project.getExportPath());
+            var collectionPath = SshClientService.shellQuote(fileRetrievalService.getSshCollectionPath().toString());
+            var command = "find " + collectionPath + " -type f -printf " + FIND_FORMAT;
+            // Stream listing to disk, since it may be very large for big collections
+            var sshService = fileRetrievalService.getSshClientService();
+            try (var rawStream = Files.newOutputStream(rawListingPath)) {
+                sshService.executeSshBlock(session -> {
+                    sshService.executeRemoteCommand(session, command, rawStream);
+                });
+            }
+
+            int count = 0;
+            try (
+                var reader = Files.newBufferedReader(rawListingPath, StandardCharsets.UTF_8);
+                var printer = openInventoryPrinter(tmpInventoryPath);
+            ) {
+                count = convertListing(reader, printer);
+            }
+            Files.move(tmpInventoryPath, inventoryPath, StandardCopyOption.REPLACE_EXISTING);
+            return count;
+        } catch (IOException e) {
+            throw new MigrationException("Failed to build remote inventory", e);
+        } finally {
+            try {
+                Files.deleteIfExists(rawListingPath);
+                Files.deleteIfExists(tmpInventoryPath);
+            } catch (IOException e) {
+                log.warn("Failed to cleanup temporary inventory files", e);
+            }
+        }
+    }
+
+    /**
+     * Convert raw find output into inventory records, retaining only files within the image and supp directories
+     * @param reader reader of the raw listing
+     * @param printer printer to write inventory records to
+     * @return number of entries written
+     * @throws IOException
+     */
+    protected static int convertListing(BufferedReader reader, CSVPrinter printer) throws IOException {
+        int count = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            var parts = line.split("\t");
+            if (parts.length != 3) {
+                log.warn("Skipping unexpected line in remote listing: {}", line);
+                continue;
+            }
+            var path = parts[0];
+            if (!path.startsWith(IMAGE_SUBPATH + "/") && !path.startsWith(PDF_SUBPATH + "/")) {
+                continue;
+            }
+            try {
+                long size = Long.parseLong(parts[1]);
+                long mtime = (long) Double.parseDouble(parts[2]);
+                printer.printRecord(path, size, mtime);
+                count++;
+            } catch (NumberFormatException e) {
+                log.warn("Skipping unparseable line in remote listing: {}", line);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param project
+     * @return the cached remote inventory for the project, or null if no inventory has been built
+     */
+    public static RemoteFileInventory loadInventory(MigrationProject project) {
+        var inventoryPath = getInventoryPath(project);
+        if (Files.notExists(inventoryPath)) {
+            return null;
+        }
+        var inventory = new RemoteFileInventory();
+        try (var parser = openInventoryParser(inventoryPath)) {
+            for (CSVRecord record : parser) {
+                inventory.addEntry(new RemoteFileEntry(record.get(0),
+                        Long.parseLong(record.get(1)), Long.parseLong(record.get(2))));
+            }
+        } catch (IOException e) {
+            throw new MigrationException("Failed to load remote inventory", e);
+        }
+        return inventory;
+    }
+
+    private static CSVParser openInventoryParser(Path inventoryPath) throws IOException {
+        var reader = Files.newBufferedReader(inventoryPath);
+        return CSVParser.parse(reader, CSVFormat.DEFAULT.builder()
+                .setHeader(RemoteFileInventory.CSV_HEADERS)
+                .setSkipHeaderRecord(true)
+                .get());
+    }
+
+    private static CSVPrinter openInventoryPrinter(Path inventoryPath) throws IOException {
+        var writer = Files.newBufferedWriter(inventoryPath);
+        return new CSVPrinter(writer, CSVFormat.DEFAULT.builder()
+                .setHeader(RemoteFileInventory.CSV_HEADERS)
+                .get());
+    }
+
+    /**
+     * @param project
+     * @return Path where the remote inventory for the project is cached
+     */
+    public static Path getInventoryPath(MigrationProject project) {
+        return project.getExportPath().resolve(INVENTORY_FILENAME);
+    }
+
+    public void setFileRetrievalService(CdmFileRetrievalService fileRetrievalService) {
+        this.fileRetrievalService = fileRetrievalService;
+    }
+
+    public void setProject(MigrationProject project) {
+        this.project = project;
+    }
+}
@@ -1,47 +1,73 @@
 package edu.unc.lib.boxc.migration.cdm.services;
 
 import static edu.unc.lib.boxc.common.xml.SecureXMLFactory.createXMLInputFactory;
+import static edu.unc.lib.boxc.migration.cdm.util.IndentingXMLWriter.writeNewline;
 import static edu.unc.lib.boxc.model.api.xml.JDOMNamespaceUtil.MODS_V3_NS;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringWriter;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLEventReader;
-import javax.xml.stream.XMLEventWriter;
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.stream.events.Attribute;
 import javax.xml.stream.events.Characters;
+import javax.xml.stream.events.Namespace;
 import javax.xml.stream.events.StartElement;
 import javax.xml.stream.events.XMLEvent;
 
-import org.jdom2.Document;
-import org.jdom2.Element;
-import org.jdom2.JDOMException;
-import org.jdom2.input.SAXBuilder;
-import org.jdom2.output.Format;
-import org.jdom2.output.XMLOutputter;
+import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import edu.unc.lib.boxc.common.xml.SecureXMLFactory;
 import edu.unc.lib.boxc.migration.cdm.exceptions.InvalidProjectStateException;
 import edu.unc.lib.boxc.migration.cdm.exceptions.MigrationException;
 import edu.unc.lib.boxc.migration.cdm.model.CdmFieldInfo;
 import edu.unc.lib.boxc.migration.cdm.model.MigrationProject;
+import edu.unc.lib.boxc.migration.cdm.util.IndentingXMLWriter;
 import edu.unc.lib.boxc.migration.cdm.util.ProjectPropertiesSerialization;
 
 /**
@@ -51,13 +77,35 @@ import edu.unc.lib.boxc.migration.cdm.util.ProjectPropertiesSerialization;
  */
 public class DescriptionsService {
     private static final Logger log = LoggerFactory.getLogger(DescriptionsService.class);
-    private static final int EXPANDED_FILES_BUCKETS = 1024;
+    // Number of buckets in the layout used for projects expanded before bucket sizes were recorded
+    private static final int LEGACY_EXPANDED_FILES_BUCKETS = 1024;
+    private static final int MIN_BUCKETS = 16;
+    private static final int MAX_BUCKETS = 256;
+    private static final int MAX_SUB_BUCKETS = 4096;
+    private static final int TARGET_FILES_PER_BUCKET = 1000;
+    // Approximate size of a record within a modsCollection file, for sizing buckets before records are counted
+    private static final int ESTIMATED_RECORD_BYTES = 2048;
+    // Bucket layout is only resized once the collection exceeds its target capacity by this factor
+    private static final int LAYOUT_GROWTH_FACTOR = 4;
+    private static final int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+    // Maximum number of split records waiting to be written, per worker
+    private static final int PENDING_RECORDS_PER_WORKER = 16;
+    private static final int WRITE_LOCK_STRIPES = 256;
+    // Record sequence numbers are the index of the collection file in the upper bits, record index in the lower
+    private static final int FILE_SEQUENCE_SHIFT = 40;
+    private static final int GENERATE_FETCH_SIZE = 10000;
+    private static final int MANIFEST_FORMAT_MAGIC = 0x4d4f4453;
+    private static final int MANIFEST_FORMAT_VERSION = 2;
+    // Length of MD5 hashes of collection files and records
+    private static final int HASH_LENGTH = 16;
 
     private static final QName TYPE_NAME = new QName("type");
     private static final QName DISPLAY_LABEL_NAME = new QName("displayLabel");
     private static final QName IDENTIFIER_NAME = new QName(MODS_V3_NS.getURI(), "identifier");
     private static final QName COLLECTION_NAME = new QName(MODS_V3_NS.getURI(), "modsCollection");
     private static final QName MODS_NAME = new QName(MODS_V3_NS.getURI(), "mods");
+    private static final QName TITLE_INFO_NAME = new QName(MODS_V3_NS.getURI(), "titleInfo");
+    private static final QName TITLE_NAME = new QName(MODS_V3_NS.getURI(), "title");
 
     public static final String CDM_ID_LABEL = "CONTENTdm number";
     public static final String LOCAL_TYPE_VALUE = "local";
@@ -67,9 +115,13 @@ public class DescriptionsService {
 
 
     private MigrationProject project;
-    private final XMLOutputFactory xmlOutput = XMLOutputFactory.newInstance();
-    private final SAXBuilder xmlBuilder = SecureXMLFactory.createSAXBuilder();
-    private final XMLOutputter xmlOutputter = new XMLOutputter(Format.getPrettyFormat());
+    private int parallelism = DEFAULT_PARALLELISM;
+    private Boolean packedStorage;
+    private ExpandedDescriptionStore expandedStore;
+    // Titles of expanded records by id, captured during expansion
+    private Map<String, String> expandedTitles;
+    // Writers are not thread safe, so each expansion worker gets its own
+    private final ThreadLocal<IndentingXMLWriter> recordWriter = ThreadLocal.withInitial(IndentingXMLWriter::new);
 
     public DescriptionsService() {
     }
@@ -90,12 +142,16 @@ public class DescriptionsService {
      * @throws IOException
      */
     public Set<String> expandDescriptions(boolean dryRun) throws IOException {
-        Set<String> idsWithMods = new HashSet<>();
+        List<Path> collFiles = new ArrayList<>();
         try (DirectoryStream<Path> pathStream = Files.newDirectoryStream(project.getDescriptionsPath(), "*.xml")) {
-            for (Path path : pathStream) {
-                expandModsCollectionFile(path, idsWithMods, dryRun);
-            }
+            pathStream.forEach(collFiles::add);
         }
+        // Sorted so that when multiple files contain the same id, the record that is kept is consistent
+        Collections.sort(collFiles);
+
+        var expansion = new Expansion(dryRun, loadManifest());
+        expansion.run(collFiles);
+        Set<String> idsWithMods = expansion.idsWithMods;
         // date should only be set if it's not a dry run
         if (!idsWithMods.isEmpty() && !dryRun) {
             project.getProjectProperties().setDescriptionsExpandedDate(Instant.now());
@@ -104,110 +160,726 @@ public class DescriptionsService {
         return idsWithMods;
     }
 
-    private void expandModsCollectionFile(Path collFile, Set<String> idsWithMods, boolean dryRun) {
-        // Enable so that namespace properties will be added to the split out MODS documents if needed
-        xmlOutput.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, Boolean.TRUE);
+    /**
+     * State of a single expansion of the modsCollection files. Collection files are read concurrently by a pool of
+     * readers, which split out individual MODS records and hand them off to a separate pool of workers which
+     * format and write them. The number of records waiting to be written is bounded to limit memory usage.
+     * Expansion is incremental, based on the manifest from the previous expansion: collection files which have not
+     * changed are not read, records whose content has not changed are not rewritten, and records which are no
+     * longer present in any collection file are removed.
+     * Records are either written to separate files, or appended to a single pack file.
+     */
+    private class Expansion {
+        private final boolean dryRun;
+        private final boolean packed;
+        private final ExpansionManifest previous;
+        private final ExpansionManifest current;
+        private final Set<String> idsWithMods = ConcurrentHashMap.newKeySet();
+        // Content hash and title of the record currently written for each id
+        private final Map<String, WrittenRecord> writtenRecords;
+        // Sequence number of the record most recently written for each id, so the last record for an id wins
+        private final Map<String, Long> writtenSequences = new ConcurrentHashMap<>();
+        private final Object[] writeLocks = new Object[WRITE_LOCK_STRIPES];
+        private final Semaphore pendingRecords = new Semaphore(parallelism * PENDING_RECORDS_PER_WORKER);
+        private final Queue<Future<?>> recordResults = new ConcurrentLinkedQueue<>();
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+        private ExecutorService writerExecutor;
+        // Location of each record within the pack file, when packed
+        private final Map<String, PackedDescriptionStore.Location> packedLocations = new ConcurrentHashMap<>();
+        private PackedDescriptionStore.Appender packAppender;
+
+        private Expansion(boolean dryRun, ExpansionManifest previous) {
+            this.dryRun = dryRun;
+            // Keep the storage used by the previous expansion unless another was requested
+            this.packed = packedStorage != null ? packedStorage : project.getProjectProperties()
+                    .isExpandedDescriptionsPacked();
+            this.previous = previous == null ? new ExpansionManifest(0) : previous;
+            this.current = new ExpansionManifest(System.currentTimeMillis());
+            this.writtenRecords = new ConcurrentHashMap<>(this.previous.writtenRecords);
+            for (int i = 0; i < writeLocks.length; i++) {
+                writeLocks[i] = new Object();
+            }
+        }
 
-        try (InputStream xmlStream = Files.newInputStream(collFile)) {
-            XMLEventReader xmlReader = createXMLInputFactory().createXMLEventReader(xmlStream);
-            StringWriter modsWriter = null;
-            XMLEventWriter xmlWriter = null;
-            boolean inCollection = false;
-            boolean inMods = false;
-            boolean inCdmIdentifier = false;
-            int openTags = 0;
-            String cdmId = null;
-
-            log.debug("Beginning expansion of MODS collection file {}", collFile);
-            while (xmlReader.hasNext()) {
-                XMLEvent event = xmlReader.nextEvent();
-
-                if (!inCollection) {
-                    if (event.isStartElement()) {
-                        StartElement el = event.asStartElement();
-                        // Make sure that this document begins with bulk md tag
-                        if (el.getName().equals(COLLECTION_NAME)) {
-                            log.debug("Starting MODS collection");
-                            inCollection = true;
-                        } else {
-                            throw new MigrationException("Root element is not a mods:collection, is a " + el.getName());
+        private void run(List<Path> collFiles) throws IOException {
+            if (!dryRun) {
+                // Manifest is invalid while expanded files are being modified, so it is only restored on success
+                Files.deleteIfExists(project.getExpandedDescriptionsManifestPath());
+                clearExpandedTitles();
+                updateStorage(collFiles);
+                forgetMissingWrittenFiles();
+            }
+            try {
+                expand(collFiles);
+            } finally {
+                if (packAppender != null) {
+                    packAppender.close();
+                }
+            }
+        }
+
+        private void expand(List<Path> collFiles) throws IOException {
+            List<Integer> changedFiles = new ArrayList<>();
+            for (int i = 0; i < collFiles.size(); i++) {
+                Path collFile = collFiles.get(i);
+                var unchangedState = getUnchangedState(collFile);
+                if (unchangedState == null) {
+                    changedFiles.add(i);
+                    continue;
+                }
+                log.debug("Skipping unchanged MODS collection file {}", collFile);
+                current.sourceFiles.put(collFile.getFileName().toString(), unchangedState);
+                long sequence = fileSequence(i);
+                for (var record : unchangedState.records) {
+                    idsWithMods.add(record.cdmId.trim());
+                    // Reserve ids for the records in unchanged files, so earlier records do not overwrite them
+                    writtenSequences.merge(record.cdmId, sequence++, Math::max);
+                }
+            }
+            readFiles(collFiles, changedFiles);
+            if (dryRun) {
+                return;
+            }
+
+            // Find the record that should be written for each id, where the last record wins
+            Map<String, byte[]> winningHashes = new HashMap<>();
+            Map<String, Integer> winningFiles = new HashMap<>();
+            for (int i = 0; i < collFiles.size(); i++) {
+                var state = current.sourceFiles.get(collFiles.get(i).getFileName().toString());
+                for (var record : state.records) {
+                    winningHashes.put(record.cdmId, record.hash);
+                    winningFiles.put(record.cdmId, i);
+                }
+            }
+            // Reread unchanged files which contain records that are not written, such as if an expanded file
+            // was deleted, or a later record with the same id was removed
+            var staleFiles = new TreeSet<Integer>();
+            winningHashes.forEach((cdmId, hash) -> {
+                var written = writtenRecords.get(cdmId);
+                if (written == null || !Arrays.equals(hash, written.hash)) {
+                    staleFiles.add(winningFiles.get(cdmId));
+                }
+            });
+            if (!staleFiles.isEmpty()) {
+                readFiles(collFiles, new ArrayList<>(staleFiles));
+            }
+            removeObsoleteRecords(winningHashes.keySet());
+            if (packed) {
+                PackedDescriptionStore.commit(project.getExpandedDescriptionsPackPath(),
+                        project.getExpandedDescriptionsPackIndexPath(),
+                        new PackedDescriptionStore.PackIndex(packAppender.getLength(), new HashMap<>(packedLocations)));
+            }
+
+            current.writtenRecords.putAll(writtenRecords);
+            writeManifest(current);
+            setExpandedTitles(current);
+        }
+
+        private void readFiles(List<Path> collFiles, List<Integer> fileIndexes) {
+            if (fileIndexes.isEmpty()) {
+                return;
+            }
+            var readerExecutor = Executors.newFixedThreadPool(Math.min(fileIndexes.size(), parallelism));
+            writerExecutor = Executors.newFixedThreadPool(parallelism);
+            try {
+                var readResults = new ArrayList<Future<?>>(fileIndexes.size());
+                for (int i : fileIndexes) {
+                    Path collFile = collFiles.get(i);
+                    long fileSequence = fileSequence(i);
+                    readResults.add(readerExecutor.submit(() -> {
+                        expandModsCollectionFile(collFile, fileSequence);
+                        return null;
+                    }));
+                }
+                awaitAll(readResults);
+                // Readers are finished, so all records have been submitted
+                awaitAll(recordResults);
+                recordResults.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MigrationException("Interrupted while expanding descriptions", e);
+            } finally {
+                readerExecutor.shutdownNow();
+                writerExecutor.shutdownNow();
+            }
+            Exception e = failure.get();
+            if (e instanceof MigrationException) {
+                throw (MigrationException) e;
+            } else if (e != null) {
+                throw new MigrationException(e.getMessage(), e);
+            }
+        }
+
+        private long fileSequence(int fileIndex) {
+            return (long) fileIndex << FILE_SEQUENCE_SHIFT;
+        }
+
+        /**
+         * @return state of the collection file from the previous expansion if the file has not changed since,
+         *      otherwise null
+         */
+        private SourceFileState getUnchangedState(Path collFile) throws IOException {
+            var state = previous.sourceFiles.get(collFile.getFileName().toString());
+            if (state == null) {
+                return null;
+            }
+            var attrs = Files.readAttributes(collFile, BasicFileAttributes.class);
+            long mtime = attrs.lastModifiedTime().toMillis();
+            if (attrs.size() != state.size) {
+                return null;
+            }
+            // Files modified close to the previous expansion could have changed again without changing mtime
+            if (mtime == state.mtime && mtime < previous.scanTime - FileInventoryService.RACY_WINDOW_MILLIS) {
+                return state;
+            }
+            var digest = newDigest();
+            try (var inStream = new DigestInputStream(Files.newInputStream(collFile), digest)) {
+                inStream.transferTo(OutputStream.nullOutputStream());
+            }
+            if (!Arrays.equals(digest.digest(), state.hash)) {
+                return null;
+            }
+            return new SourceFileState(attrs.size(), mtime, state.hash, state.records);
+        }
+
+        /**
+         * Switch between packed and separate file storage if requested, removing records from the other storage
+         */
+        private void updateStorage(List<Path> collFiles) throws IOException {
+            var props = project.getProjectProperties();
+            if (props.isExpandedDescriptionsPacked() != packed) {
+                log.info("Switching expanded descriptions to {} storage", packed ? "packed" : "file");
+                // Records in the previous storage will not be found in the new one, so all must be written
+                writtenRecords.clear();
+                props.setExpandedDescriptionsPacked(packed);
+                ProjectPropertiesSerialization.write(project);
+            }
+            var packPath = project.getExpandedDescriptionsPackPath();
+            var packIndexPath = project.getExpandedDescriptionsPackIndexPath();
+            if (!packed) {
+                PackedDescriptionStore.delete(packPath, packIndexPath);
+                updateBucketLayout(collFiles);
+                return;
+            }
+            if (Files.exists(project.getExpandedDescriptionsPath())) {
+                FileUtils.deleteDirectory(project.getExpandedDescriptionsPath().toFile());
+            }
+            var index = PackedDescriptionStore.readIndex(packPath, packIndexPath);
+            long validLength = 0;
+            if (index != null) {
+                packedLocations.putAll(index.getLocations());
+                validLength = index.getPackLength();
+            }
+            packAppender = new PackedDescriptionStore.Appender(packPath, validLength);
+        }
+
+        /**
+         * Size the bucket directories of expanded files to the collection. When the layout changes, all
+         * expanded files are removed so that they are written again in their new locations.
+         */
+        private void updateBucketLayout(List<Path> collFiles) throws IOException {
+            long totalBytes = 0;
+            for (Path collFile : collFiles) {
+                totalBytes += Files.size(collFile);
+            }
+            long previousRecords = previous.sourceFiles.values().stream().mapToLong(s -> s.records.size()).sum();
+            long estimatedRecords = Math.max(totalBytes / ESTIMATED_RECORD_BYTES, previousRecords);
+
+            var props = project.getProjectProperties();
+            Integer buckets = props.getExpandedDescriptionsBuckets();
+            if (buckets != null) {
+                int subBuckets = getSubBuckets();
+                long capacity = (long) buckets * subBuckets * TARGET_FILES_PER_BUCKET;
+                if (estimatedRecords <= capacity * LAYOUT_GROWTH_FACTOR) {
+                    return;
+                }
+            }
+
+            long bucketsNeeded = Math.max(1, estimatedRecords / TARGET_FILES_PER_BUCKET);
+            int newBuckets = (int) Math.min(MAX_BUCKETS, Math.max(MIN_BUCKETS, nextPowerOfTwo(bucketsNeeded)));
+            int newSubBuckets = (int) Math.min(MAX_SUB_BUCKETS, nextPowerOfTwo(
+                    (bucketsNeeded + newBuckets - 1) / newBuckets));
+            log.info("Using {} by {} bucket layout for an estimated {} expanded descriptions",
+                    newBuckets, newSubBuckets, estimatedRecords);
+            if (Files.exists(project.getExpandedDescriptionsPath())) {
+                FileUtils.deleteDirectory(project.getExpandedDescriptionsPath().toFile());
+            }
+            writtenRecords.clear();
+            props.setExpandedDescriptionsBuckets(newBuckets);
+            props.setExpandedDescriptionsSubBuckets(newSubBuckets);
+            ProjectPropertiesSerialization.write(project);
+        }
+
+        /**
+         * Forget written records whose expanded files no longer exist, so that they will be written again
+         */
+        private void forgetMissingWrittenFiles() throws IOException {
+            if (writtenRecords.isEmpty()) {
+                return;
+            }
+            if (packed) {
+                writtenRecords.keySet().removeIf(cdmId -> !packedLocations.containsKey(cdmId));
+                return;
+            }
+            Set<Path> existingFiles = new HashSet<>();
+            if (Files.exists(project.getExpandedDescriptionsPath())) {
+                try (var paths = Files.walk(project.getExpandedDescriptionsPath())) {
+                    paths.forEach(existingFiles::add);
+                }
+            }
+            writtenRecords.keySet().removeIf(cdmId -> !existingFiles.contains(getExpandedDescriptionFilePath(cdmId)));
+        }
+
+        private void removeObsoleteRecords(Set<String> currentIds) throws IOException {
+            if (packed) {
+                // Obsolete records remain in the pack file until it is compacted
+                packedLocations.keySet().retainAll(currentIds);
+                writtenRecords.keySet().retainAll(currentIds);
+                return;
+            }
+            for (var it = writtenRecords.keySet().iterator(); it.hasNext(); ) {
+                String cdmId = it.next();
+                if (!currentIds.contains(cdmId)) {
+                    log.debug("Removing expanded MODS file for {}, it is no longer present", cdmId);
+                    Files.deleteIfExists(getExpandedDescriptionFilePath(cdmId));
+                    it.remove();
+                }
+            }
+        }
+
+        private void awaitAll(Collection<Future<?>> results) throws InterruptedException {
+            for (var result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    var cause = e.getCause();
+                    recordFailure(cause instanceof Exception ? (Exception) cause : new MigrationException(cause));
+                }
+            }
+        }
+
+        private void recordFailure(Exception e) {
+            failure.compareAndSet(null, e);
+        }
+
+        private void expandModsCollectionFile(Path collFile, long fileSequence) throws Exception {
+            var fileDigest = newDigest();
+            var recordDigest = newDigest();
+            TitleCapture titleCapture = null;
+            List<RecordState> records = new ArrayList<>();
+            try (InputStream xmlStream = new DigestInputStream(Files.newInputStream(collFile), fileDigest)) {
+                XMLEventReader xmlReader = createXMLInputFactory().createXMLEventReader(xmlStream);
+                List<XMLEvent> recordEvents = null;
+                boolean inCollection = false;
+                boolean inMods = false;
+                boolean inCdmIdentifier = false;
+                int openTags = 0;
+                String cdmId = null;
+                long recordSequence = fileSequence;
+                int recordCount = 0;
+
+                log.debug("Beginning expansion of MODS collection file {}", collFile);
+                // Stop reading early if another file has already failed
+                while (xmlReader.hasNext() && failure.get() == null) {
+                    XMLEvent event = xmlReader.nextEvent();
+
+                    if (!inCollection) {
+                        if (event.isStartElement()) {
+                            StartElement el = event.asStartElement();
+                            // Make sure that this document begins with bulk md tag
+                            if (el.getName().equals(COLLECTION_NAME)) {
+                                log.debug("Starting MODS collection");
+                                inCollection = true;
+                            } else {
+                                throw new MigrationException("Root element is not a mods:collection, is a "
+                                        + el.getName());
+                            }
                         }
-                    }
-                } else if (!inMods) {
-                    if (event.isStartElement()) {
-                        StartElement el = event.asStartElement();
-                        // Make sure that this document begins with bulk md tag
-                        if (el.getName().equals(MODS_NAME)) {
-                            log.debug("Starting MODS record");
-                            inMods = true;
-                            openTags = 1;
-                            cdmId = null;
-                            // Close the previous writer before creating a new one if this isn't the first MODS record
-                            if (modsWriter != null) {
-                                modsWriter.close();
+                    } else if (!inMods) {
+                        if (event.isStartElement()) {
+                            StartElement el = event.asStartElement();
+                            // Make sure that this document begins with bulk md tag
+                            if (el.getName().equals(MODS_NAME)) {
+                                log.debug("Starting MODS record");
+                                inMods = true;
+                                openTags = 1;
+                                cdmId = null;
+                                // Events are only retained when they will be written out
+                                recordEvents = dryRun ? null : new ArrayList<>();
+                                titleCapture = new TitleCapture();
+                                addEvent(recordEvents, recordDigest, titleCapture, event);
+                            } else {
+                                throw new MigrationException("Children of mods:collection must be mods:mods, "
+                                        + "but found " + el.getName());
                             }
-                            modsWriter = new StringWriter();
-                            xmlWriter = xmlOutput.createXMLEventWriter(modsWriter);
-                            xmlWriter.add(event);
-                        } else {
-                            throw new MigrationException("Children of mods:collection must be mods:mods, but found "
-                                    + el.getName());
+                        } else if (event.isEndElement()) {
+                            log.debug("Finished processing MODS collection");
+                            break;
                         }
-                    } else if (event.isEndElement()) {
-                        log.debug("Finished processing MODS collection");
-                        break;
-                    }
-                } else {
-                    xmlWriter.add(event);
-                    if (inCdmIdentifier && event.isCharacters()) {
-                        Characters chars = event.asCharacters();
-                        cdmId = chars.getData();
-                        log.debug("Found cdmid {}", cdmId);
-                        inCdmIdentifier = false;
-                    } else if (event.isStartElement()) {
-                        StartElement el = event.asStartElement();
-                        // Track number of tags open so we can tell when the mods element ends
-                        openTags++;
-
-                        if (cdmId == null && isCdmIdentifier(el)) {
-                            inCdmIdentifier = true;
+                    } else {
+                        addEvent(recordEvents, recordDigest, titleCapture, event);
+                        if (inCdmIdentifier && event.isCharacters()) {
+                            Characters chars = event.asCharacters();
+                            cdmId = chars.getData();
+                            log.debug("Found cdmid {}", cdmId);
+                            inCdmIdentifier = false;
+                        } else if (event.isStartElement()) {
+                            StartElement el = event.asStartElement();
+                            // Track number of tags open so we can tell when the mods element ends
+                            openTags++;
+
+                            if (cdmId == null && isCdmIdentifier(el)) {
+                                inCdmIdentifier = true;
+                            }
+                        } else if (event.isEndElement()) {
+                            openTags--;
                         }
-                    } else if (event.isEndElement()) {
-                        openTags--;
-                    }
-                    // Closing of the MODS element, time to write
-                    if (openTags == 0) {
-                        inMods = false;
-                        xmlWriter.close();
-                        xmlWriter = null;
-
-                        // Write the MODS record to a file
-                        if (cdmId != null) {
-                            if (!dryRun) {
-                                Path descPath = getExpandedDescriptionFilePath(cdmId);
-                                // Make sure the directory exists and overwrite any existing file
-                                Files.createDirectories(descPath.getParent());
-                                if (Files.deleteIfExists(descPath)) {
-                                    log.debug("Overwriting existing MODS file {}", descPath);
-                                }
-                                try (var docStream = new ByteArrayInputStream(modsWriter.toString().getBytes());
-                                     var docOutputStream = Files.newOutputStream(descPath);
-                                ) {
-                                    // Pass through xmlOutputter to fix indentation issues and add xml declaration
-                                    Document doc = xmlBuilder.build(docStream);
-                                    xmlOutputter.output(doc, docOutputStream);
+                        // Closing of the MODS element, hand it off to be written
+                        if (openTags == 0) {
+                            inMods = false;
+                            recordCount++;
+                            byte[] recordHash = recordDigest.digest();
+
+                            if (cdmId != null) {
+                                if (!dryRun) {
+                                    handleRecord(cdmId, recordEvents,
+                                            new WrittenRecord(recordHash, titleCapture.getTitle()), recordSequence);
                                 }
+                                recordSequence++;
+                                records.add(new RecordState(cdmId, recordHash));
+                                idsWithMods.add(cdmId.trim());
+                            } else {
+                                log.warn("MODS record {} in {} does not contain an identifier, skipping",
+                                        recordCount, collFile);
                             }
-
-                            idsWithMods.add(cdmId.trim());
-                        } else {
-                            log.warn("MODS record does not contain an identifier, skipping: {}", modsWriter);
+                            recordEvents = null;
                         }
                     }
                 }
+                // Consume the rest of the file so that its hash is complete
+                xmlStream.transferTo(OutputStream.nullOutputStream());
+            }
+            var attrs = Files.readAttributes(collFile, BasicFileAttributes.class);
+            current.sourceFiles.put(collFile.getFileName().toString(), new SourceFileState(attrs.size(),
+                    attrs.lastModifiedTime().toMillis(), fileDigest.digest(), records));
+        }
+
+        private void addEvent(List<XMLEvent> recordEvents, MessageDigest recordDigest, TitleCapture titleCapture,
+                XMLEvent event) {
+            if (recordEvents != null) {
+                recordEvents.add(event);
+            }
+            updateDigest(recordDigest, event);
+            titleCapture.add(event);
+        }
+
+        /**
+         * Submit the record to be written, unless a later record for the same id has already been handled
+         * or the same content has already been written
+         */
+        private void handleRecord(String cdmId, List<XMLEvent> recordEvents, WrittenRecord record, long sequence)
+                throws InterruptedException {
+            synchronized (getWriteLock(cdmId)) {
+                Long writtenSequence = writtenSequences.get(cdmId);
+                if (writtenSequence != null && writtenSequence > sequence) {
+                    return;
+                }
+                var written = writtenRecords.get(cdmId);
+                if (written != null && Arrays.equals(record.hash, written.hash)) {
+                    log.debug("MODS record for {} is unchanged", cdmId);
+                    writtenSequences.put(cdmId, sequence);
+                    return;
+                }
+            }
+            submitRecord(cdmId, recordEvents, record, sequence);
+        }
+
+        private void submitRecord(String cdmId, List<XMLEvent> recordEvents, WrittenRecord record, long sequence)
+                throws InterruptedException {
+            pendingRecords.acquire();
+            try {
+                recordResults.add(writerExecutor.submit(() -> {
+                    try {
+                        writeRecord(cdmId, recordEvents, record, sequence);
+                    } catch (Exception e) {
+                        recordFailure(e);
+                    } finally {
+                        pendingRecords.release();
+                    }
+                }));
+            } catch (RuntimeException e) {
+                pendingRecords.release();
+                throw e;
+            }
+            drainCompletedRecords();
+        }
+
+        /**
+         * Remove the results of records which have finished writing, so that results are only held for
+         * pending records rather than for every record in the collection
+         */
+        private void drainCompletedRecords() throws InterruptedException {
+            for (var it = recordResults.iterator(); it.hasNext(); ) {
+                var result = it.next();
+                if (result.isDone()) {
+                    it.remove();
+                    awaitAll(List.of(result));
+                }
+            }
+        }
+
+        private void writeRecord(String cdmId, List<XMLEvent> recordEvents, WrittenRecord record, long sequence)
+                throws IOException, XMLStreamException {
+            synchronized (getWriteLock(cdmId)) {
+                Long writtenSequence = writtenSequences.get(cdmId);
+                if (writtenSequence != null && writtenSequence > sequence) {
+                    log.debug("Skipping MODS record for {}, a later record has already been written", cdmId);
+                    return;
+                }
+                // Written directly from the record's events, indented and with an xml declaration
+                if (packed) {
+                    var docOutputStream = new ByteArrayOutputStream();
+                    recordWriter.get().write(recordEvents, docOutputStream);
+                    packedLocations.put(cdmId, packAppender.append(docOutputStream.toByteArray()));
+                } else {
+                    Path descPath = getExpandedDescriptionFilePath(cdmId);
+                    Files.createDirectories(descPath.getParent());
+                    try (var docOutputStream = new BufferedOutputStream(Files.newOutputStream(descPath))) {
+                        recordWriter.get().write(recordEvents, docOutputStream);
+                    }
+                }
+                writtenRecords.put(cdmId, record);
+                writtenSequences.put(cdmId, sequence);
+            }
+        }
+
+        private Object getWriteLock(String cdmId) {
+            return writeLocks[Math.floorMod(cdmId.hashCode(), writeLocks.length)];
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Unable to hash descriptions", e);
+        }
+    }
+
+    /**
+     * Add the content of an event to a hash of the record it belongs to
+     */
+    private static void updateDigest(MessageDigest digest, XMLEvent event) {
+        digest.update((byte) event.getEventType());
+        if (event.isStartElement()) {
+            StartElement el = event.asStartElement();
+            updateDigest(digest, el.getName());
+            for (Iterator<Namespace> it = el.getNamespaces(); it.hasNext(); ) {
+                Namespace ns = it.next();
+                updateDigest(digest, ns.getPrefix());
+                updateDigest(digest, ns.getNamespaceURI());
+            }
+            for (Iterator<Attribute> it = el.getAttributes(); it.hasNext(); ) {
+                Attribute attr = it.next();
+                updateDigest(digest, attr.getName());
+                updateDigest(digest, attr.getValue());
+            }
+        } else if (event.isEndElement()) {
+            updateDigest(digest, event.asEndElement().getName());
+        } else if (event.isCharacters()) {
+            updateDigest(digest, event.asCharacters().getData());
+        } else {
+            updateDigest(digest, event.toString());
+        }
+    }
+
+    private static void updateDigest(MessageDigest digest, QName name) {
+        updateDigest(digest, name.getPrefix());
+        updateDigest(digest, name.getNamespaceURI());
+        updateDigest(digest, name.getLocalPart());
+    }
+
+    private static void updateDigest(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        // Separator, so that adjacent values cannot run together
+        digest.update((byte) 0);
+    }
+
+    private ExpansionManifest loadManifest() {
+        var manifestPath = project.getExpandedDescriptionsManifestPath();
+        if (Files.notExists(manifestPath)) {
+            return null;
+        }
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(manifestPath)))) {
+            if (in.readInt() != MANIFEST_FORMAT_MAGIC || in.readInt() != MANIFEST_FORMAT_VERSION) {
+                log.warn("Ignoring expanded descriptions manifest {} with unsupported format", manifestPath);
+                return null;
+            }
+            var manifest = new ExpansionManifest(in.readLong());
+            int fileCount = in.readInt();
+            for (int i = 0; i < fileCount; i++) {
+                String filename = in.readUTF();
+                long size = in.readLong();
+                long mtime = in.readLong();
+                byte[] hash = readHash(in);
+                int recordCount = in.readInt();
+                List<RecordState> records = new ArrayList<>(recordCount);
+                for (int j = 0; j < recordCount; j++) {
+                    records.add(new RecordState(in.readUTF(), readHash(in)));
+                }
+                manifest.sourceFiles.put(filename, new SourceFileState(size, mtime, hash, records));
+            }
+            int writtenCount = in.readInt();
+            for (int i = 0; i < writtenCount; i++) {
+                String cdmId = in.readUTF();
+                byte[] hash = readHash(in);
+                String title = in.readBoolean() ? in.readUTF() : null;
+                manifest.writtenRecords.put(cdmId, new WrittenRecord(hash, title));
+            }
+            return manifest;
+        } catch (IOException e) {
+            log.warn("Unable to read expanded descriptions manifest {}, all descriptions will be expanded",
+                    manifestPath, e);
+            return null;
+        }
+    }
+
+    private void writeManifest(ExpansionManifest manifest) {
+        var manifestPath = project.getExpandedDescriptionsManifestPath();
+        var tmpPath = manifestPath.resolveSibling(manifestPath.getFileName() + ".tmp");
+        try {
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpPath)))) {
+                out.writeInt(MANIFEST_FORMAT_MAGIC);
+                out.writeInt(MANIFEST_FORMAT_VERSION);
+                out.writeLong(manifest.scanTime);
+                out.writeInt(manifest.sourceFiles.size());
+                for (var entry : manifest.sourceFiles.entrySet()) {
+                    var state = entry.getValue();
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(state.size);
+                    out.writeLong(state.mtime);
+                    out.write(state.hash);
+                    out.writeInt(state.records.size());
+                    for (var record : state.records) {
+                        out.writeUTF(record.cdmId);
+                        out.write(record.hash);
+                    }
+                }
+                out.writeInt(manifest.writtenRecords.size());
+                for (var entry : manifest.writtenRecords.entrySet()) {
+                    var written = entry.getValue();
+                    out.writeUTF(entry.getKey());
+                    out.write(written.hash);
+                    out.writeBoolean(written.title != null);
+                    if (written.title != null) {
+                        out.writeUTF(written.title);
+                    }
+                }
+            }
+            Files.move(tmpPath, manifestPath, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new MigrationException("Failed to write expanded descriptions manifest", e);
+        }
+    }
+
+    private static byte[] readHash(DataInputStream in) throws IOException {
+        byte[] hash = new byte[HASH_LENGTH];
+        in.readFully(hash);
+        return hash;
+    }
+
+    /**
+     * State of the collection files and expanded records as of an expansion
+     */
+    private static class ExpansionManifest {
+        private final long scanTime;
+        // Keyed by the filename of each collection file
+        private final Map<String, SourceFileState> sourceFiles = new ConcurrentHashMap<>();
+        private final Map<String, WrittenRecord> writtenRecords = new HashMap<>();
+
+        private ExpansionManifest(long scanTime) {
+            this.scanTime = scanTime;
+        }
+    }
+
+    private static class SourceFileState {
+        private final long size;
+        private final long mtime;
+        private final byte[] hash;
+        // Records with ids, in the order they occur in the file
+        private final List<RecordState> records;
+
+        private SourceFileState(long size, long mtime, byte[] hash, List<RecordState> records) {
+            this.size = size;
+            this.mtime = mtime;
+            this.hash = hash;
+            this.records = records;
+        }
+    }
+
+    private static class WrittenRecord {
+        private final byte[] hash;
+        // Primary title of the record, or null if it has none
+        private final String title;
+
+        private WrittenRecord(byte[] hash, String title) {
+            this.hash = hash;
+            this.title = title;
+        }
+    }
+
+    /**
+     * Captures the text of the first mods:title within the first mods:titleInfo of a MODS record from its events
+     */
+    private static class TitleCapture {
+        private int depth;
+        private boolean titleInfoSeen;
+        private boolean inTitleInfo;
+        private boolean inTitle;
+        private StringBuilder title;
+
+        private void add(XMLEvent event) {
+            if (event.isStartElement()) {
+                depth++;
+                var name = event.asStartElement().getName();
+                if (depth == 2 && !titleInfoSeen && name.equals(TITLE_INFO_NAME)) {
+                    titleInfoSeen = true;
+                    inTitleInfo = true;
+                } else if (depth == 3 && inTitleInfo && title == null && name.equals(TITLE_NAME)) {
+                    inTitle = true;
+                    title = new StringBuilder();
+                }
+            } else if (event.isEndElement()) {
+                if (depth == 3) {
+                    inTitle = false;
+                } else if (depth == 2) {
+                    inTitleInfo = false;
+                }
+                depth--;
+            } else if (inTitle && depth == 3 && event.isCharacters()) {
+                title.append(event.asCharacters().getData());
             }
-        } catch (IOException | XMLStreamException | JDOMException e) {
-            throw new MigrationException(e.getMessage(), e);
+        }
+
+        /**
+         * @return true once the title can no longer change
+         */
+        private boolean isComplete() {
+            return titleInfoSeen && !inTitleInfo;
+        }
+
+        private String getTitle() {
+            return title == null ? null : title.toString().trim();
+        }
+    }
+
+    private static class RecordState {
+        private final String cdmId;
+        private final byte[] hash;
+
+        private RecordState(String cdmId, byte[] hash) {
+            this.cdmId = cdmId;
+            this.hash = hash;
         }
     }
 
@@ -229,19 +901,173 @@ public class DescriptionsService {
 
     /**
      * @param cdmId
-     * @return The path for the individual MODS file
+     * @return The primary title of the expanded MODS record for the given id, or null if it has none or there is
+     *      no record. Titles captured during expansion are used when available, otherwise the record is read.
+     */
+    public String getExpandedDescriptionTitle(String cdmId) {
+        var titles = getExpandedTitles();
+        if (titles != null) {
+            return titles.get(cdmId);
+        }
+        try (InputStream xmlStream = getExpandedDescriptionStore().openStream(cdmId)) {
+            if (xmlStream == null) {
+                return null;
+            }
+            XMLEventReader xmlReader = createXMLInputFactory().createXMLEventReader(xmlStream);
+            var titleCapture = new TitleCapture();
+            // Stop reading as soon as the title has been found
+            while (xmlReader.hasNext() && !titleCapture.isComplete()) {
+                titleCapture.add(xmlReader.nextEvent());
+            }
+            return titleCapture.getTitle();
+        } catch (IOException | XMLStreamException e) {
+            log.error("Failed to read MODS file for {} while extracting title: {}", cdmId, e.getMessage());
+        }
+        return null;
+    }
+
+    private synchronized Map<String, String> getExpandedTitles() {
+        if (expandedTitles == null) {
+            var manifest = loadManifest();
+            if (manifest != null) {
+                setExpandedTitles(manifest);
+            }
+        }
+        return expandedTitles;
+    }
+
+    private synchronized void clearExpandedTitles() {
+        expandedTitles = null;
+        expandedStore = null;
+    }
+
+    private synchronized void setExpandedTitles(ExpansionManifest manifest) {
+        Map<String, String> titles = new HashMap<>();
+        manifest.writtenRecords.forEach((cdmId, written) -> titles.put(cdmId, written.title));
+        expandedTitles = titles;
+    }
+
+    /**
+     * @return Store for reading expanded MODS records, based on how they were stored when last expanded
+     */
+    public synchronized ExpandedDescriptionStore getExpandedDescriptionStore() {
+        if (expandedStore == null) {
+            if (project.getProjectProperties().isExpandedDescriptionsPacked()) {
+                expandedStore = new PackedDescriptionStore(project.getExpandedDescriptionsPackPath(),
+                        project.getExpandedDescriptionsPackIndexPath());
+            } else {
+                expandedStore = new FileDescriptionStore();
+            }
+        }
+        return expandedStore;
+    }
+
+    /**
+     * Store of expanded MODS records as individual files within bucket directories
+     */
+    private class FileDescriptionStore implements ExpandedDescriptionStore {
+        @Override
+        public boolean contains(String cdmId) {
+            return Files.exists(getExpandedDescriptionFilePath(cdmId));
+        }
+
+        @Override
+        public InputStream openStream(String cdmId) throws IOException {
+            try {
+                return new BufferedInputStream(Files.newInputStream(getExpandedDescriptionFilePath(cdmId)));
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public boolean copyTo(String cdmId, Path destination) throws IOException {
+            Path descPath = getExpandedDescriptionFilePath(cdmId);
+            if (Files.notExists(descPath)) {
+                return false;
+            }
+            Files.copy(descPath, destination);
+            return true;
+        }
+    }
+
+    /**
+     * @param cdmId
+     * @return The path for the individual MODS file, when expanded descriptions are stored as separate files
      */
     public Path getExpandedDescriptionFilePath(String cdmId) {
-        // To avoid having individual directories with too many files, MODS files are written to
-        // EXPANDED_FILES_BUCKETS number of bucket directories based on the hash code of the id provided
-        String subdir = Integer.toString(Math.abs(cdmId.hashCode()) % EXPANDED_FILES_BUCKETS);
-        // Replace reserved filepath characters with underscores, primarily for grouped work ids
-        String filename = cdmId.replaceAll("[: /\\\\<>|&]", "_");
-        return project.getExpandedDescriptionsPath().resolve(subdir).resolve(filename + ".xml");
+        String filename = sanitizeFilename(cdmId) + ".xml";
+        Path basePath = project.getExpandedDescriptionsPath();
+        // To avoid having individual directories with too many files, MODS files are divided between
+        // bucket directories based on the hash code of the id provided
+        Integer buckets = project.getProjectProperties().getExpandedDescriptionsBuckets();
+        if (buckets == null) {
+            String subdir = Integer.toString(Math.abs(cdmId.hashCode()) % LEGACY_EXPANDED_FILES_BUCKETS);
+            return basePath.resolve(subdir).resolve(filename);
+        }
+        int hash = mixHash(cdmId.hashCode());
+        Path bucketPath = basePath.resolve(Integer.toHexString(hash & (buckets - 1)));
+        int subBuckets = getSubBuckets();
+        if (subBuckets > 1) {
+            bucketPath = bucketPath.resolve(Integer.toHexString((hash >>> 8) & (subBuckets - 1)));
+        }
+        return bucketPath.resolve(filename);
+    }
+
+    private int getSubBuckets() {
+        Integer subBuckets = project.getProjectProperties().getExpandedDescriptionsSubBuckets();
+        return subBuckets == null ? 1 : subBuckets;
     }
 
     /**
-     * Generates a modsCollection document with dummy records for all objects in this project
+     * Replace reserved filepath characters with underscores, primarily for grouped work ids
+     */
+    private static String sanitizeFilename(String cdmId) {
+        char[] chars = null;
+        for (int i = 0; i < cdmId.length(); i++) {
+            if (isReservedFilenameChar(cdmId.charAt(i))) {
+                if (chars == null) {
+                    chars = cdmId.toCharArray();
+                }
+                chars[i] = '_';
+            }
+        }
+        return chars == null ? cdmId : new String(chars);
+    }
+
+    private static boolean isReservedFilenameChar(char c) {
+        switch (c) {
+        case ':':
+        case ' ':
+        case '/':
+        case '\\':
+        case '<':
+        case '>':
+        case '|':
+        case '&':
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Spread the bits of a hash code, since the hash codes of short ids differ mostly in their low bits
+     */
+    private static int mixHash(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    private static long nextPowerOfTwo(long value) {
+        return value <= 1 ? 1 : Long.highestOneBit(value - 1) << 1;
+    }
+
+    /**
+     * Generates a modsCollection document with dummy records for all objects in this project.
+     * Records are streamed from the index into the document, so memory usage does not grow with the number of objects.
      * @return
      */
     public int generateDocuments(boolean force) {
@@ -250,8 +1076,10 @@ public class DescriptionsService {
 
         int cnt = 0;
         Connection conn = null;
+        Path path = project.getDescriptionsPath().resolve(GENERATED_MODS_FILENAME);
+        // Not named .xml, so that an incomplete document will not be expanded
+        Path tmpPath = path.resolveSibling("." + GENERATED_MODS_FILENAME + ".tmp");
         try {
-            Path path = project.getDescriptionsPath().resolve(GENERATED_MODS_FILENAME);
             if (Files.exists(path)) {
                 if (force) {
                     Files.delete(path);
@@ -262,38 +1090,72 @@ public class DescriptionsService {
             }
 
             conn = indexService.openDbConnection();
-            Document doc = new Document();
-            Element collEl = new Element("modsCollection", MODS_V3_NS);
-            doc.setRootElement(collEl);
-            Statement stmt = conn.createStatement();
-            ResultSet rs = stmt.executeQuery("select " + CdmFieldInfo.CDM_ID + ", title from "
-                    + CdmIndexService.TB_NAME);
-            while (rs.next()) {
-                String cdmId = rs.getString(1);
-                String title = rs.getString(2);
-                if (title == null) {
-                    title = "Work for " + cdmId;
+            try (Statement stmt = conn.createStatement();
+                 var outStream = new BufferedOutputStream(Files.newOutputStream(tmpPath))) {
+                stmt.setFetchSize(GENERATE_FETCH_SIZE);
+                ResultSet rs = stmt.executeQuery("select " + CdmFieldInfo.CDM_ID + ", title from "
+                        + CdmIndexService.TB_NAME);
+                XMLStreamWriter writer = XMLOutputFactory.newInstance()
+                        .createXMLStreamWriter(outStream, StandardCharsets.UTF_8.name());
+                writer.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+                writeNewline(writer, 0);
+                writer.setPrefix(MODS_V3_NS.getPrefix(), MODS_V3_NS.getURI());
+                writeModsStartElement(writer, "modsCollection");
+                writer.writeNamespace(MODS_V3_NS.getPrefix(), MODS_V3_NS.getURI());
+                while (rs.next()) {
+                    String cdmId = rs.getString(1);
+                    String title = rs.getString(2);
+                    if (title == null) {
+                        title = "Work for " + cdmId;
+                    }
+                    writeGeneratedRecord(writer, cdmId, title);
+                    cnt++;
                 }
-                collEl.addContent(new Element("mods", MODS_V3_NS)
-                        .addContent(new Element("titleInfo", MODS_V3_NS)
-                                .addContent(new Element("title", MODS_V3_NS)
-                                .setText(title)))
-                        .addContent(new Element("identifier", MODS_V3_NS)
-                                .setAttribute("displayLabel", CDM_ID_LABEL)
-                                .setAttribute("type", LOCAL_TYPE_VALUE)
-                                .setText(cdmId)));
-                cnt++;
-            }
-
-            xmlOutputter.output(doc, Files.newOutputStream(path));
-        } catch (SQLException | IOException e) {
+                writeNewline(writer, 0);
+                writer.writeEndElement();
+                writeNewline(writer, 0);
+                writer.writeEndDocument();
+                writer.close();
+            }
+            Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (SQLException | IOException | XMLStreamException e) {
             throw new MigrationException("Failed to generate descriptions", e);
         } finally {
             CdmIndexService.closeDbConnection(conn);
+            try {
+                Files.deleteIfExists(tmpPath);
+            } catch (IOException e) {
+                log.warn("Unable to clean up temporary generated descriptions file {}", tmpPath, e);
+            }
         }
         return cnt;
     }
 
+    private void writeGeneratedRecord(XMLStreamWriter writer, String cdmId, String title) throws XMLStreamException {
+        writeNewline(writer, 1);
+        writeModsStartElement(writer, "mods");
+        writeNewline(writer, 2);
+        writeModsStartElement(writer, "titleInfo");
+        writeNewline(writer, 3);
+        writeModsStartElement(writer, "title");
+        writer.writeCharacters(title);
+        writer.writeEndElement();
+        writeNewline(writer, 2);
+        writer.writeEndElement();
+        writeNewline(writer, 2);
+        writeModsStartElement(writer, "identifier");
+        writer.writeAttribute("displayLabel", CDM_ID_LABEL);
+        writer.writeAttribute("type", LOCAL_TYPE_VALUE);
+        writer.writeCharacters(cdmId);
+        writer.writeEndElement();
+        writeNewline(writer, 1);
+        writer.writeEndElement();
+    }
+
+    private void writeModsStartElement(XMLStreamWriter writer, String localName) throws XMLStreamException {
+        writer.writeStartElement(MODS_V3_NS.getPrefix(), localName, MODS_V3_NS.getURI());
+    }
+
     /**
      * @return Get the path to the file where generated MODS records are written
      */
@@ -312,4 +1174,19 @@ public class DescriptionsService {
     public void setProject(MigrationProject project) {
         this.project = project;
     }
+
+    /**
+     * @param parallelism number of threads used to expand descriptions
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @param packedStorage if true, expanded descriptions are appended to a single pack file rather than
+     *      written as separate files. If null, the storage used by the previous expansion is kept.
+     */
+    public void setPackedStorage(Boolean packedStorage) {
+        this.packedStorage = packedStorage;
+    }
 }
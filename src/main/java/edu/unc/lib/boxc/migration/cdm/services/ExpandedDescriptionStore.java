@@ -0,0 +1,33 @@
+package edu.unc.lib.boxc.migration.cdm.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * Read access to the expanded MODS description of each object, independent of how the descriptions are stored.
+ */
+public interface ExpandedDescriptionStore {
+    /**
+     * @param cdmId
+     * @return true if there is an expanded description for the given id
+     * @throws IOException
+     */
+    boolean contains(String cdmId) throws IOException;
+
+    /**
+     * @param cdmId
+     * @return stream of the expanded MODS document for the given id, or null if there is no description
+     * @throws IOException
+     */
+    InputStream openStream(String cdmId) throws IOException;
+
+    /**
+     * Copy the expanded MODS document for the given id to a new file
+     * @param cdmId
+     * @param destination path to copy the document to. It must not already exist.
+     * @return true if the description was copied, false if there is no description for the id
+     * @throws IOException
+     */
+    boolean copyTo(String cdmId, Path destination) throws IOException;
+}
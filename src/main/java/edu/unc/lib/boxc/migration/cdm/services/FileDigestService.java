@@ -0,0 +1,392 @@
+package edu.unc.lib.boxc.migration.cdm.services;
+
+import edu.unc.lib.boxc.migration.cdm.exceptions.MigrationException;
+import edu.unc.lib.boxc.migration.cdm.model.MigrationProject;
+import edu.unc.lib.boxc.migration.cdm.util.SshClientService;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.slf4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Service for computing digests of local and remote files, in order to verify transfers.
+ * Local digests are computed in parallel and cached in the project, so that they can be reused as long
+ * as the size and last modified time of the file are unchanged.
+ */
+public class FileDigestService {
+    private static final Logger log = getLogger(FileDigestService.class);
+    private static final String[] CSV_HEADERS = new String[] { "path", "size", "mtime", "algorithm", "digest" };
+    // Files at least this large are read through memory mapping rather than a stream
+    private static final long MAPPED_READ_THRESHOLD = 16 * 1024 * 1024;
+    private static final long MAPPED_CHUNK_SIZE = 256 * 1024 * 1024;
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_COMMAND_LENGTH = 64 * 1024;
+    // Limit the total size of the files per remote command, so that each command completes in a reasonable time
+    private static final long MAX_BYTES_PER_COMMAND = 4L * 1024 * 1024 * 1024;
+    // Slowest rate at which remote files are expected to be digested, used to determine how long to wait for each
+    // command. Commands are always given at least the default ssh timeout.
+    private static final long MIN_REMOTE_DIGEST_BYTES_PER_SECOND = 20L * 1024 * 1024;
+
+    private MigrationProject project;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private Map<String, DigestEntry> cache;
+
+    /**
+     * Algorithms supported for digesting, along with the command used to compute them remotely
+     */
+    public enum DigestAlgorithm {
+        SHA256("SHA-256", "sha256sum"),
+        MD5("MD5", "md5sum");
+
+        private final String javaName;
+        private final String command;
+
+        DigestAlgorithm(String javaName, String command) {
+            this.javaName = javaName;
+            this.command = command;
+        }
+
+        public MessageDigest newDigest() {
+            try {
+                return MessageDigest.getInstance(javaName);
+            } catch (NoSuchAlgorithmException e) {
+                throw new MigrationException("Unsupported digest algorithm " + javaName, e);
+            }
+        }
+
+        public String getCommand() {
+            return command;
+        }
+    }
+
+    /**
+     * Compute digests for the provided local files in parallel, reusing cached digests for files which
+     * have not changed. Newly computed digests are added to the cache in the project.
+     * @param paths local files to digest
+     * @param algorithm
+     * @return map of path to hex encoded digest
+     */
+    public Map<Path, String> digestFiles(Collection<Path> paths, DigestAlgorithm algorithm) {
+        loadCache();
+        var executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            var futures = new HashMap<Path, Future<String>>();
+            for (Path path : paths) {
+                futures.put(path, executor.submit(() -> getOrComputeDigest(path, algorithm)));
+            }
+            var result = new HashMap<Path, String>();
+            for (var entry : futures.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().get());
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MigrationException("Interrupted while computing digests", e);
+        } catch (ExecutionException e) {
+            throw new MigrationException("Failed to compute digests", e.getCause());
+        } finally {
+            executor.shutdown();
+            // Digests computed before any failure are still cached
+            persistCache();
+        }
+    }
+
+    private String getOrComputeDigest(Path path, DigestAlgorithm algorithm) throws IOException {
+        var absPath = path.toAbsolutePath();
+        long size = Files.size(absPath);
+        long mtime = Files.getLastModifiedTime(absPath).toMillis();
+        var key = cacheKey(absPath.toString(), algorithm);
+        synchronized (this) {
+            var cached = cache.get(key);
+            if (cached != null && cached.size == size && cached.mtime == mtime) {
+                return cached.digest;
+            }
+        }
+        var digest = digestFile(absPath, algorithm);
+        synchronized (this) {
+            cache.put(key, new DigestEntry(absPath.toString(), size, mtime, algorithm, digest));
+        }
+        return digest;
+    }
+
+    /**
+     * Compute the digest of a single file. Large files are read through memory mapping.
+     * @param path
+     * @param algorithm
+     * @return hex encoded digest
+     * @throws IOException
+     */
+    public static String digestFile(Path path, DigestAlgorithm algorithm) throws IOException {
+        var messageDigest = algorithm.newDigest();
+        long size = Files.size(path);
+        if (size >= MAPPED_READ_THRESHOLD) {
+            try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                for (long position = 0; position < size; position += MAPPED_CHUNK_SIZE) {
+                    long length = Math.min(MAPPED_CHUNK_SIZE, size - position);
+                    messageDigest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+                }
+            }
+        } else {
+            var buffer = new byte[STREAM_BUFFER_SIZE];
+            try (InputStream in = Files.newInputStream(path)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    messageDigest.update(buffer, 0, read);
+                }
+            }
+        }
+        return HexFormat.of().formatHex(messageDigest.digest());
+    }
+
+    /**
+     * Compute digests of files on a remote server, using batched invocations of the digest command.
+     * Files which could not be digested, such as missing or unreadable files, are omitted from the result
+     * rather than failing their whole batch. Files are batched by their total size, and each command is given
+     * time to complete based on the size of its files.
+     * @param sshClientService client for the remote server
+     * @param remotePathSizes paths of the files on the remote server, mapped to their expected sizes in bytes
+     * @param algorithm
+     * @return map of remote path to hex encoded digest
+     */
+    public static Map<String, String> digestRemoteFiles(SshClientService sshClientService,
+                                                        Map<String, Long> remotePathSizes, DigestAlgorithm algorithm) {
+        var result = new HashMap<String, String>();
+        if (remotePathSizes.isEmpty()) {
+            return result;
+        }
+        sshClientService.executeSshBlock(session -> {
+            for (var batch : partitionForCommand(remotePathSizes, algorithm.getCommand())) {
+                var command = new StringBuilder(algorithm.getCommand()).append(" --");
+                batch.paths.forEach(p -> command.append(' ').append(SshClientService.shellQuote(p)));
+                var outStream = new ByteArrayOutputStream();
+                var errStream = new ByteArrayOutputStream();
+                // The digest command exits with a failure status if any of its files could not be read,
+                // but still outputs digests for the others
+                int exitStatus = sshClientService.executeRemoteCommandForStatus(session, command.toString(),
+                        outStream, errStream, getCommandTimeoutSeconds(batch.bytes));
+                var batchPaths = new HashSet<>(batch.paths);
+                for (var line : outStream.toString(StandardCharsets.UTF_8).split("\n")) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    var path = parseDigestLinePath(line);
+                    if (!batchPaths.contains(path)) {
+                        throw new MigrationException("Unexpected output from remote digest command: " + line);
+                    }
+                    result.put(path, parseDigestLine(line));
+                }
+                if (exitStatus != 0) {
+                    log.warn("Remote digest command failed for some files with exit status {}: {}",
+                            exitStatus, errStream.toString(StandardCharsets.UTF_8).trim());
+                }
+            }
+        });
+        return result;
+    }
+
+    protected static List<CommandBatch> partitionForCommand(Map<String, Long> pathSizes, String command) {
+        var batches = new ArrayList<CommandBatch>();
+        var batch = new CommandBatch();
+        int length = command.length();
+        for (var entry : pathSizes.entrySet()) {
+            int argLength = entry.getKey().length() + 3;
+            long size = entry.getValue();
+            if (!batch.paths.isEmpty() && (length + argLength > MAX_COMMAND_LENGTH
+                    || batch.bytes + size > MAX_BYTES_PER_COMMAND)) {
+                batches.add(batch);
+                batch = new CommandBatch();
+                length = command.length();
+            }
+            batch.paths.add(entry.getKey());
+            batch.bytes += size;
+            length += argLength;
+        }
+        batches.add(batch);
+        return batches;
+    }
+
+    protected static long getCommandTimeoutSeconds(long bytes) {
+        return Math.max(SshClientService.SSH_TIMEOUT_SECONDS, bytes / MIN_REMOTE_DIGEST_BYTES_PER_SECOND);
+    }
+
+    /**
+     * Paths of files to digest in a single remote command, along with their total size
+     */
+    protected static class CommandBatch {
+        protected final List<String> paths = new ArrayList<>();
+        protected long bytes;
+    }
+
+    /**
+     * @param line line of output from sha256sum or md5sum
+     * @return the digest from the line. Lines for filenames containing special characters start with a backslash
+     */
+    protected static String parseDigestLine(String line) {
+        var start = line.startsWith("\\") ? 1 : 0;
+        var end = line.indexOf(' ', start);
+        return (end == -1 ? line.substring(start) : line.substring(start, end)).trim();
+    }
+
+    /**
+     * @param line line of output from sha256sum or md5sum
+     * @return the path of the file from the line, with any escaping of special characters removed
+     */
+    protected static String parseDigestLinePath(String line) {
+        var end = line.indexOf(' ');
+        if (end == -1 || end + 2 > line.length()) {
+            throw new MigrationException("Unexpected output from remote digest command: " + line);
+        }
+        // Digest is separated from the path by a space, then a space or asterisk indicating text or binary mode
+        var path = line.substring(end + 2);
+        if (!line.startsWith("\\")) {
+            return path;
+        }
+        var unescaped = new StringBuilder(path.length());
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '\\' && i + 1 < path.length()) {
+                char next = path.charAt(++i);
+                unescaped.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString();
+    }
+
+    /**
+     * Compare the digests of local files with their remote copies
+     * @param sshClientService client for the remote server
+     * @param localToRemote map of local file paths to the path of their remote copy
+     * @param algorithm
+     * @return list of local paths whose remote copies did not match, or could not be digested
+     */
+    public List<Path> verifyRemoteCopies(SshClientService sshClientService, Map<Path, String> localToRemote,
+                                         DigestAlgorithm algorithm) {
+        var localDigests = digestFiles(localToRemote.keySet(), algorithm);
+        // Remote copies are expected to be the same size as the local files
+        var remotePathSizes = new LinkedHashMap<String, Long>();
+        for (var entry : localToRemote.entrySet()) {
+            try {
+                remotePathSizes.put(entry.getValue(), Files.size(entry.getKey()));
+            } catch (IOException e) {
+                throw new MigrationException("Failed to read size of " + entry.getKey(), e);
+            }
+        }
+        var remoteDigests = digestRemoteFiles(sshClientService, remotePathSizes, algorithm);
+        var mismatched = new ArrayList<Path>();
+        for (var entry : localToRemote.entrySet()) {
+            var localDigest = localDigests.get(entry.getKey());
+            var remoteDigest = remoteDigests.get(entry.getValue());
+            if (remoteDigest == null) {
+                log.warn("Unable to compute digest of remote copy of {} at {}", entry.getKey(), entry.getValue());
+                mismatched.add(entry.getKey());
+            } else if (!localDigest.equalsIgnoreCase(remoteDigest)) {
+                log.warn("Digest mismatch for {}, local {} remote {} at {}", entry.getKey(), localDigest,
+                        remoteDigest, entry.getValue());
+                mismatched.add(entry.getKey());
+            }
+        }
+        return mismatched;
+    }
+
+    private synchronized void loadCache() {
+        if (cache != null) {
+            return;
+        }
+        cache = new HashMap<>();
+        var cachePath = project.getFileDigestsPath();
+        if (Files.notExists(cachePath)) {
+            return;
+        }
+        try (var parser = CSVParser.parse(Files.newBufferedReader(cachePath), CSVFormat.DEFAULT.builder()
+                .setHeader(CSV_HEADERS)
+                .setSkipHeaderRecord(true)
+                .get())) {
+            for (CSVRecord record : parser) {
+                var algorithm = DigestAlgorithm.valueOf(record.get(3));
+                var entry = new DigestEntry(record.get(0), Long.parseLong(record.get(1)),
+                        Long.parseLong(record.get(2)), algorithm, record.get(4));
+                cache.put(cacheKey(entry.path, algorithm), entry);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Unable to read digest cache {}, digests will be recomputed", cachePath, e);
+            cache.clear();
+        }
+    }
+
+    private synchronized void persistCache() {
+        var cachePath = project.getFileDigestsPath();
+        var tmpPath = cachePath.resolveSibling(cachePath.getFileName() + ".tmp");
+        try {
+            try (var printer = new CSVPrinter(Files.newBufferedWriter(tmpPath), CSVFormat.DEFAULT.builder()
+                    .setHeader(CSV_HEADERS)
+                    .get())) {
+                for (var entry : cache.values()) {
+                    printer.printRecord(entry.path, entry.size, entry.mtime, entry.algorithm.name(), entry.digest);
+                }
+            }
+            Files.move(tmpPath, cachePath, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // Logged rather than thrown, so that it does not replace the result or failure of the digesting
+            log.warn("Failed to persist digest cache {}, digests will be recomputed next time", cachePath, e);
+        }
+    }
+
+    private static String cacheKey(String path, DigestAlgorithm algorithm) {
+        return algorithm.name() + ":" + path;
+    }
+
+    private static class DigestEntry {
+        private final String path;
+        private final long size;
+        private final long mtime;
+        private final DigestAlgorithm algorithm;
+        private final String digest;
+
+        private DigestEntry(String path, long size, long mtime, DigestAlgorithm algorithm, String digest) {
+            this.path = path;
+            this.size = size;
+            this.mtime = mtime;
+            this.algorithm = algorithm;
+            this.digest = digest;
+        }
+    }
+
+    public void setProject(MigrationProject project) {
+        this.project = project;
+    }
+
+    /**
+     * @param parallelism number of files to digest concurrently
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+}
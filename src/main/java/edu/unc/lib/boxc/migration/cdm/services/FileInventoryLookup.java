@@ -0,0 +1,122 @@
+package edu.unc.lib.boxc.migration.cdm.services;
+
+import edu.unc.lib.boxc.migration.cdm.model.FileInventory.FileEntry;
+import edu.unc.lib.boxc.migration.cdm.services.FileInventoryService.CachedDirectories;
+import org.slf4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Answers whether files exist using cached file inventories, so that checking many files in the same
+ * directories requires a single stat of each directory rather than of each file. The listing of a directory
+ * is only trusted if the directory's last modified time is unchanged since the inventory was produced.
+ * Symbolic links in a listing are checked individually, since their targets may not exist.
+ * Inventories are only read once a path within their base path is looked up, and then only the listings
+ * of directories which are looked up are read, so a lookup can be shared between validations.
+ * Safe for concurrent usage. Must be closed after use.
+ */
+public class FileInventoryLookup implements Closeable {
+    private static final Logger log = getLogger(FileInventoryLookup.class);
+    private final FileInventoryService inventoryService;
+    // Base paths with cached inventories, with the most specific first for when inventories are nested
+    private final List<Path> basePaths;
+    private final Map<Path, Optional<CachedDirectories>> inventories = new ConcurrentHashMap<>();
+    // Names of files in each directory whose inventory listing is known to be current,
+    // mapped to whether the file is a symbolic link
+    private final Map<Path, Map<String, Boolean>> verifiedListings = new ConcurrentHashMap<>();
+
+    /**
+     * @param inventoryService service for the project whose cached inventories will be used
+     */
+    public FileInventoryLookup(FileInventoryService inventoryService) {
+        this.inventoryService = inventoryService;
+        this.basePaths = inventoryService.listInventoryBasePaths().stream()
+                .sorted(Comparator.comparingInt(Path::getNameCount).reversed())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param path absolute path of a file
+     * @return true if a current inventory shows that the path is a file. False if the path is not a file, or
+     *      if no current inventory covers its directory.
+     */
+    public boolean isKnownFile(Path path) {
+        if (basePaths.isEmpty()) {
+            return false;
+        }
+        var normalized = path.normalize();
+        var parent = normalized.getParent();
+        if (parent == null || normalized.getFileName() == null) {
+            return false;
+        }
+        var filenames = verifiedListings.computeIfAbsent(parent, this::loadVerifiedListing);
+        var symbolicLink = filenames.get(normalized.getFileName().toString());
+        if (symbolicLink == null) {
+            return false;
+        }
+        // Links are resolved, so that links whose targets do not exist are not treated as files
+        return !symbolicLink || Files.exists(normalized);
+    }
+
+    private Map<String, Boolean> loadVerifiedListing(Path dir) {
+        for (var basePath : basePaths) {
+            if (!dir.startsWith(basePath)) {
+                continue;
+            }
+            var inventory = getInventory(basePath);
+            if (inventory == null) {
+                continue;
+            }
+            var relativePath = basePath.relativize(dir).toString();
+            var entry = inventory.getDirectory(relativePath);
+            if (entry == null) {
+                continue;
+            }
+            try {
+                long mtime = Files.getLastModifiedTime(dir).toMillis();
+                if (mtime != entry.getMtime()
+                        || mtime >= inventory.getScanTime() - FileInventoryService.RACY_WINDOW_MILLIS) {
+                    continue;
+                }
+                return inventory.readFiles(relativePath, entry).stream()
+                        .collect(Collectors.toMap(FileEntry::getFilename, FileEntry::isSymbolicLink));
+            } catch (IOException | UncheckedIOException e) {
+                log.debug("Unable to use inventory listing for {}", dir, e);
+            }
+        }
+        return Collections.emptyMap();
+    }
+
+    private CachedDirectories getInventory(Path basePath) {
+        return inventories.computeIfAbsent(basePath, p -> {
+            try {
+                return Optional.ofNullable(inventoryService.readCachedDirectories(p));
+            } catch (IOException e) {
+                log.warn("Unable to read inventory for {}", p, e);
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (var inventory : inventories.values()) {
+            if (inventory.isPresent()) {
+                inventory.get().close();
+            }
+        }
+    }
+}
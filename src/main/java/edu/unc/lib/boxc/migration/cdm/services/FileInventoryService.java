@@ -0,0 +1,566 @@
+package edu.unc.lib.boxc.migration.cdm.services;
+
+import edu.unc.lib.boxc.migration.cdm.exceptions.MigrationException;
+import edu.unc.lib.boxc.migration.cdm.model.FileInventory;
+import edu.unc.lib.boxc.migration.cdm.model.FileInventory.DirectoryEntry;
+import edu.unc.lib.boxc.migration.cdm.model.FileInventory.FileEntry;
+import edu.unc.lib.boxc.migration.cdm.model.MigrationProject;
+import edu.unc.lib.boxc.migration.cdm.util.ParallelFileCrawler;
+import org.slf4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Service which maintains a cached inventory of the files within a base path, so that repeated
+ * file matching against the same base path does not need to crawl the entire tree each time.
+ * When refreshing, directories whose last modified time is unchanged reuse their cached listing,
+ * so only subtrees where files were added, removed or renamed are listed again. Since files can be rewritten
+ * in place without changing their directory, the sizes and modification times of files in reused directories
+ * are not carried over.
+ * Directories can be streamed to a visitor as they are scanned, so that callers which only need a single pass
+ * over the files do not need to hold the whole inventory in memory. Only the directories of the cached inventory
+ * are held in memory during a refresh, the files of unchanged directories are read back from the cache as needed.
+ */
+public class FileInventoryService {
+    private static final Logger log = getLogger(FileInventoryService.class);
+    private static final int FORMAT_MAGIC = 0x43464956;
+    private static final int FORMAT_VERSION = 3;
+    // Directories modified this close to the previous scan may have changed after they were listed,
+    // since some filesystems only record modification times to the second
+    static final long RACY_WINDOW_MILLIS = 2000;
+
+    private MigrationProject project;
+    private int parallelism = ParallelFileCrawler.DEFAULT_PARALLELISM;
+    private boolean dryRun;
+
+    /**
+     * Get an up to date inventory of the base path, reusing the cached inventory where possible.
+     * The refreshed inventory is cached in the project, unless this is a dry run.
+     * @param basePath
+     * @param fullScan if true, the cached inventory is ignored and every directory is listed
+     * @return inventory of the base path
+     */
+    public FileInventory getInventory(Path basePath, boolean fullScan) {
+        var absBasePath = basePath.toAbsolutePath().normalize();
+        long scanTime = System.currentTimeMillis();
+        var inventory = new FileInventory(absBasePath, scanTime);
+        scan(absBasePath, scanTime, fullScan, inventory::addDirectory);
+        return inventory;
+    }
+
+    /**
+     * Refresh the inventory of the base path, reusing the cached inventory where possible, passing each directory
+     * to the visitor as it is scanned rather than holding the whole inventory in memory.
+     * The refreshed inventory is cached in the project, unless this is a dry run.
+     * @param basePath
+     * @param fullScan if true, the cached inventory is ignored and every directory is listed
+     * @param visitor called with each directory in the base path. Calls are not concurrent.
+     */
+    public void visitInventory(Path basePath, boolean fullScan, Consumer<DirectoryEntry> visitor) {
+        scan(basePath.toAbsolutePath().normalize(), System.currentTimeMillis(), fullScan, visitor);
+    }
+
+    private void scan(Path absBasePath, long scanTime, boolean fullScan, Consumer<DirectoryEntry> visitor) {
+        var inventoryPath = getInventoryPath(absBasePath);
+        var tmpPath = inventoryPath.resolveSibling(inventoryPath.getFileName() + ".tmp");
+        var listedCount = new AtomicInteger();
+        var pool = new ForkJoinPool(parallelism);
+        boolean completed = false;
+        try {
+            try (var previous = fullScan ? null : readCachedDirectories(absBasePath);
+                 var writer = new InventoryWriter(dryRun ? null : tmpPath, absBasePath, scanTime, visitor)) {
+                var rootAttrs = Files.readAttributes(absBasePath, BasicFileAttributes.class);
+                pool.invoke(new ScanDirectoryTask("", absBasePath, rootAttrs.lastModifiedTime().toMillis(),
+                        previous, writer, listedCount));
+                writer.finish();
+                log.info("Inventoried {} directories in {}, {} of which were listed", writer.directoryCount,
+                        absBasePath, listedCount.get());
+            }
+            if (!dryRun) {
+                Files.move(tmpPath, inventoryPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            completed = true;
+        } catch (IOException | UncheckedIOException e) {
+            throw new MigrationException("Failed to inventory base path " + absBasePath, e);
+        } finally {
+            pool.shutdown();
+            if (!completed) {
+                deleteQuietly(tmpPath);
+            }
+        }
+    }
+
+    private static class ScanDirectoryTask extends RecursiveAction {
+        private final String relativePath;
+        private final Path dir;
+        private final long mtime;
+        private final CachedDirectories previous;
+        private final InventoryWriter writer;
+        private final AtomicInteger listedCount;
+
+        private ScanDirectoryTask(String relativePath, Path dir, long mtime, CachedDirectories previous,
+                                  InventoryWriter writer, AtomicInteger listedCount) {
+            this.relativePath = relativePath;
+            this.dir = dir;
+            this.mtime = mtime;
+            this.previous = previous;
+            this.writer = writer;
+            this.listedCount = listedCount;
+        }
+
+        @Override
+        protected void compute() {
+            var subtasks = new ArrayList<ScanDirectoryTask>();
+            var cached = previous == null ? null : previous.directories.get(relativePath);
+            DirectoryEntry entry;
+            if (cached != null && cached.mtime == mtime
+                    && mtime < previous.scanTime - RACY_WINDOW_MILLIS) {
+                // Directory is unchanged, so only the subdirectories need to be checked
+                for (String name : cached.subdirectories) {
+                    var subdir = dir.resolve(name);
+                    try {
+                        var attrs = Files.readAttributes(subdir, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                        subtasks.add(newSubtask(name, subdir, attrs));
+                    } catch (IOException e) {
+                        log.debug("Unable to read attributes of {}, skipping", subdir, e);
+                    }
+                }
+                var files = new ArrayList<FileEntry>(cached.fileCount);
+                for (var file : previous.readFiles(relativePath, cached)) {
+                    files.add(new FileEntry(relativePath, file.getFilename(), FileEntry.UNKNOWN, FileEntry.UNKNOWN,
+                            file.isSymbolicLink()));
+                }
+                entry = new DirectoryEntry(relativePath, mtime, cached.subdirectories, files, false);
+            } else {
+                entry = listDirectory(subtasks);
+            }
+            writer.accept(entry);
+            invokeAll(subtasks);
+        }
+
+        private DirectoryEntry listDirectory(List<ScanDirectoryTask> subtasks) {
+            listedCount.incrementAndGet();
+            var subdirectories = new ArrayList<String>();
+            var files = new ArrayList<FileEntry>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path child : stream) {
+                    BasicFileAttributes attrs;
+                    try {
+                        attrs = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (IOException e) {
+                        log.debug("Unable to read attributes of {}, skipping", child, e);
+                        continue;
+                    }
+                    var name = child.getFileName().toString();
+                    if (attrs.isDirectory()) {
+                        subdirectories.add(name);
+                        subtasks.add(newSubtask(name, child, attrs));
+                    } else {
+                        files.add(new FileEntry(relativePath, name, attrs.size(),
+                                attrs.lastModifiedTime().toMillis(), attrs.isSymbolicLink()));
+                    }
+                }
+            } catch (IOException e) {
+                log.debug("Unable to list directory {}, skipping", dir, e);
+            }
+            return new DirectoryEntry(relativePath, mtime, subdirectories, files);
+        }
+
+        private ScanDirectoryTask newSubtask(String name, Path subdir, BasicFileAttributes attrs) {
+            return new ScanDirectoryTask(childPath(relativePath, name), subdir,
+                    attrs.lastModifiedTime().toMillis(), previous, writer, listedCount);
+        }
+    }
+
+    private static String childPath(String parentPath, String name) {
+        return parentPath.isEmpty() ? name : parentPath + "/" + name;
+    }
+
+    /**
+     * @param basePath
+     * @return the cached inventory for the base path, or null if there is no usable cached inventory
+     */
+    public FileInventory loadInventory(Path basePath) {
+        var absBasePath = basePath.toAbsolutePath().normalize();
+        var inventoryPath = getInventoryPath(absBasePath);
+        if (Files.notExists(inventoryPath)) {
+            return null;
+        }
+        return readInventory(inventoryPath, absBasePath);
+    }
+
+    /**
+     * @return base paths of all inventories cached in the project, read from the headers of the inventories
+     */
+    public List<Path> listInventoryBasePaths() {
+        var inventoriesPath = project.getFileInventoriesPath();
+        var basePaths = new ArrayList<Path>();
+        if (Files.notExists(inventoriesPath)) {
+            return basePaths;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(inventoriesPath, "*.bin")) {
+            for (Path inventoryPath : stream) {
+                try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(inventoryPath)))) {
+                    if (in.readInt() == FORMAT_MAGIC && in.readInt() == FORMAT_VERSION) {
+                        basePaths.add(Path.of(in.readUTF()));
+                    }
+                } catch (IOException e) {
+                    log.warn("Unable to read inventory {}", inventoryPath, e);
+                }
+            }
+        } catch (IOException e) {
+            throw new MigrationException("Failed to list inventories in " + inventoriesPath, e);
+        }
+        return basePaths;
+    }
+
+    /**
+     * @param inventoryPath
+     * @param expectedBasePath base path the inventory must belong to
+     * @return the inventory, or null if it could not be read
+     */
+    private FileInventory readInventory(Path inventoryPath, Path expectedBasePath) {
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(inventoryPath)))) {
+            if (in.readInt() != FORMAT_MAGIC || in.readInt() != FORMAT_VERSION) {
+                log.warn("Ignoring inventory {} with unsupported format", inventoryPath);
+                return null;
+            }
+            var storedBasePath = in.readUTF();
+            if (!storedBasePath.equals(expectedBasePath.toString())) {
+                log.warn("Ignoring inventory {}, it belongs to base path {}", inventoryPath, storedBasePath);
+                return null;
+            }
+            var inventory = new FileInventory(Path.of(storedBasePath), in.readLong());
+            while (in.readBoolean()) {
+                var dirPath = in.readUTF();
+                long dirMtime = in.readLong();
+                var subdirectories = readSubdirectories(in);
+                int fileCount = in.readInt();
+                inventory.addDirectory(new DirectoryEntry(dirPath, dirMtime, subdirectories,
+                        readFiles(in, dirPath, fileCount)));
+            }
+            return inventory;
+        } catch (IOException e) {
+            log.warn("Unable to read inventory {}", inventoryPath, e);
+            return null;
+        }
+    }
+
+    private static List<String> readSubdirectories(DataInputStream in) throws IOException {
+        int subdirCount = in.readInt();
+        var subdirectories = new ArrayList<String>(subdirCount);
+        for (int j = 0; j < subdirCount; j++) {
+            subdirectories.add(in.readUTF());
+        }
+        return subdirectories;
+    }
+
+    private static List<FileEntry> readFiles(DataInputStream in, String dirPath, int fileCount) throws IOException {
+        var files = new ArrayList<FileEntry>(fileCount);
+        for (int j = 0; j < fileCount; j++) {
+            var name = in.readUTF();
+            boolean symbolicLink = in.readBoolean();
+            files.add(new FileEntry(dirPath, name, in.readLong(), in.readLong(), symbolicLink));
+        }
+        return files;
+    }
+
+    /**
+     * Read the directories of the cached inventory for the base path, recording where the files of each
+     * directory are stored in the cache rather than reading them
+     * @param absBasePath
+     * @return the cached directories, or null if there is no usable cached inventory. Must be closed after use.
+     */
+    CachedDirectories readCachedDirectories(Path absBasePath) throws IOException {
+        var inventoryPath = getInventoryPath(absBasePath);
+        if (Files.notExists(inventoryPath)) {
+            return null;
+        }
+        var counter = new CountingInputStream(new BufferedInputStream(Files.newInputStream(inventoryPath)));
+        try (var in = new DataInputStream(counter)) {
+            if (in.readInt() != FORMAT_MAGIC || in.readInt() != FORMAT_VERSION) {
+                log.warn("Ignoring inventory {} with unsupported format", inventoryPath);
+                return null;
+            }
+            var storedBasePath = in.readUTF();
+            if (!storedBasePath.equals(absBasePath.toString())) {
+                log.warn("Ignoring inventory {}, it belongs to base path {}", inventoryPath, storedBasePath);
+                return null;
+            }
+            var cached = new CachedDirectories(inventoryPath, in.readLong());
+            while (in.readBoolean()) {
+                var dirPath = in.readUTF();
+                long dirMtime = in.readLong();
+                var subdirectories = readSubdirectories(in);
+                int fileCount = in.readInt();
+                long filesOffset = counter.count;
+                for (int j = 0; j < fileCount; j++) {
+                    in.skipNBytes(in.readUnsignedShort() + 1L + 2L * Long.BYTES);
+                }
+                cached.directories.put(dirPath, new CachedDirectory(dirMtime, subdirectories, filesOffset,
+                        (int) (counter.count - filesOffset), fileCount));
+            }
+            cached.open();
+            return cached;
+        } catch (IOException e) {
+            log.warn("Unable to read inventory {}", inventoryPath, e);
+            return null;
+        }
+    }
+
+    private static void writeDirectory(DataOutputStream out, DirectoryEntry dir) throws IOException {
+        out.writeBoolean(true);
+        out.writeUTF(dir.getPath());
+        out.writeLong(dir.getMtime());
+        out.writeInt(dir.getSubdirectories().size());
+        for (var name : dir.getSubdirectories()) {
+            out.writeUTF(name);
+        }
+        out.writeInt(dir.getFiles().size());
+        for (var file : dir.getFiles()) {
+            out.writeUTF(file.getFilename());
+            out.writeBoolean(file.isSymbolicLink());
+            out.writeLong(file.getSize());
+            out.writeLong(file.getMtime());
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.debug("Unable to delete {}", path, e);
+        }
+    }
+
+    /**
+     * Writes directories to a new inventory as they are scanned, passing each along to a visitor
+     */
+    private static class InventoryWriter implements Closeable {
+        private final DataOutputStream out;
+        private final Consumer<DirectoryEntry> visitor;
+        private int directoryCount;
+
+        /**
+         * @param tmpPath path to write the inventory to, or null if it should not be written
+         */
+        private InventoryWriter(Path tmpPath, Path basePath, long scanTime, Consumer<DirectoryEntry> visitor)
+                throws IOException {
+            if (tmpPath == null) {
+                this.out = new DataOutputStream(OutputStream.nullOutputStream());
+            } else {
+                Files.createDirectories(tmpPath.getParent());
+                this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpPath)));
+            }
+            this.visitor = visitor;
+            out.writeInt(FORMAT_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(basePath.toString());
+            out.writeLong(scanTime);
+        }
+
+        private synchronized void accept(DirectoryEntry dir) {
+            try {
+                writeDirectory(out, dir);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            directoryCount++;
+            visitor.accept(dir);
+        }
+
+        private void finish() throws IOException {
+            // Marks the end of the directories
+            out.writeBoolean(false);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Directories of a cached inventory, along with the location of the files of each directory in the cache.
+     * Files are read on demand, and can be read concurrently.
+     */
+    static class CachedDirectories implements Closeable {
+        private final Path inventoryPath;
+        private final long scanTime;
+        private final Map<String, CachedDirectory> directories = new HashMap<>();
+        private FileChannel channel;
+
+        private CachedDirectories(Path inventoryPath, long scanTime) {
+            this.inventoryPath = inventoryPath;
+            this.scanTime = scanTime;
+        }
+
+        private void open() throws IOException {
+            channel = FileChannel.open(inventoryPath, StandardOpenOption.READ);
+        }
+
+        /**
+         * @return time the inventory was produced
+         */
+        long getScanTime() {
+            return scanTime;
+        }
+
+        /**
+         * @param dirPath path of the directory relative to the base path
+         * @return the cached directory, or null if it is not in the inventory
+         */
+        CachedDirectory getDirectory(String dirPath) {
+            return directories.get(dirPath);
+        }
+
+        /**
+         * @return files of the directory, read from the cached inventory
+         */
+        List<FileEntry> readFiles(String dirPath, CachedDirectory dir) {
+            var buffer = ByteBuffer.allocate(dir.filesLength);
+            try {
+                // Positional reads, so that directories can be read concurrently
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, dir.filesOffset + buffer.position()) < 0) {
+                        throw new EOFException("Unexpected end of inventory " + inventoryPath);
+                    }
+                }
+                var in = new DataInputStream(new ByteArrayInputStream(buffer.array()));
+                return FileInventoryService.readFiles(in, dirPath, dir.fileCount);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+
+    static class CachedDirectory {
+        private final long mtime;
+        private final List<String> subdirectories;
+        private final long filesOffset;
+        private final int filesLength;
+        private final int fileCount;
+
+        private CachedDirectory(long mtime, List<String> subdirectories, long filesOffset, int filesLength,
+                                int fileCount) {
+            this.mtime = mtime;
+            this.subdirectories = subdirectories;
+            this.filesOffset = filesOffset;
+            this.filesLength = filesLength;
+            this.fileCount = fileCount;
+        }
+
+        long getMtime() {
+            return mtime;
+        }
+    }
+
+    /**
+     * Tracks the number of bytes read from a stream
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    /**
+     * @param basePath absolute base path
+     * @return Path where the inventory of the base path is cached, named from a hash of the base path
+     */
+    public Path getInventoryPath(Path basePath) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256")
+                    .digest(basePath.toString().getBytes(StandardCharsets.UTF_8));
+            return project.getFileInventoriesPath().resolve(HexFormat.of().formatHex(digest, 0, 16) + ".bin");
+        } catch (NoSuchAlgorithmException e) {
+            throw new MigrationException("Unable to hash base path", e);
+        }
+    }
+
+    public void setProject(MigrationProject project) {
+        this.project = project;
+    }
+
+    /**
+     * @param parallelism number of directories to list concurrently
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @param dryRun if true, refreshed inventories are not cached in the project
+     */
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+}
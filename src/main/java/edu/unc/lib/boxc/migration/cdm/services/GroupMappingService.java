@@ -22,7 +22,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import edu.unc.lib.boxc.migration.cdm.options.GroupMappingSyncOptions;
 import org.apache.commons.csv.CSVFormat;
@@ -39,8 +38,8 @@ import edu.unc.lib.boxc.migration.cdm.model.CdmFieldInfo;
 import edu.unc.lib.boxc.migration.cdm.model.GroupMappingInfo;
 import edu.unc.lib.boxc.migration.cdm.model.GroupMappingInfo.GroupMapping;
 import edu.unc.lib.boxc.migration.cdm.model.MigrationProject;
-import edu.unc.lib.boxc.migration.cdm.model.SourceFilesInfo;
 import edu.unc.lib.boxc.migration.cdm.options.GroupMappingOptions;
+import edu.unc.lib.boxc.migration.cdm.util.MappingCsvMerger;
 import edu.unc.lib.boxc.migration.cdm.util.ProjectPropertiesSerialization;
 
 /**
@@ -206,52 +205,31 @@ public class GroupMappingService {
         // Cleanup temp merged path if it already exists
         Files.deleteIfExists(mergedPath);
 
-        // Load the new mappings into memory
-        GroupMappingInfo updateInfo = loadMappings(updatesPath);
-
-        // Iterate through the existing mappings, merging in the updated mappings when appropriate
+        // Stream the existing and updated mappings through a sort merge, merging in updates when appropriate
+        var merger = new MappingCsvMerger(GroupMappingInfo.CSV_HEADERS);
         try (
-            Reader reader = Files.newBufferedReader(originalPath);
-            CSVParser originalParser = new CSVParser(reader, CSVFormat.DEFAULT
-                    .withFirstRecordAsHeader()
-                    .withHeader(SourceFilesInfo.CSV_HEADERS)
-                    .withTrim());
             // Write to system.out if doing a dry run, otherwise write to mappings file
             BufferedWriter writer = options.getDryRun() ?
                     new BufferedWriter(new OutputStreamWriter(System.out)) :
                     Files.newBufferedWriter(mergedPath);
             CSVPrinter mergedPrinter = new CSVPrinter(writer, CSVFormat.DEFAULT
-                    .withHeader(SourceFilesInfo.CSV_HEADERS));
+                    .withHeader(GroupMappingInfo.CSV_HEADERS));
         ) {
-            Set<String> origIds = new HashSet<>();
-            for (CSVRecord originalRecord : originalParser) {
-                GroupMapping origMapping = new GroupMapping();
-                origMapping.setCdmId(originalRecord.get(0));
-                origMapping.setGroupKey(originalRecord.get(1));
-
-                GroupMapping updateMapping = updateInfo.getMappingByCdmId(origMapping.getCdmId());
-                if (updateMapping != null && updateMapping.getGroupKey() != null) {
-                    if (options.getForce() || origMapping.getGroupKey() == null) {
+            merger.merge(originalPath, updatesPath, mergedPrinter, (originalRow, updateRow) -> {
+                if (originalRow == null) {
+                    // Record was updated but not present in the original document
+                    return updateRow;
+                }
+                // Values are trimmed when read, and blank groups are empty strings rather than null
+                if (updateRow != null && StringUtils.isNotBlank(updateRow.get(1))) {
+                    if (options.getForce() || StringUtils.isBlank(originalRow.get(1))) {
                         // overwrite entry with updated mapping if using force or original didn't have a group
-                        writeMapping(mergedPrinter, updateMapping);
-                    } else {
-                        // retain original data
-                        writeMapping(mergedPrinter, origMapping);
+                        return updateRow;
                     }
-                } else {
-                    // No updates or change, retain original
-                    writeMapping(mergedPrinter, origMapping);
                 }
-                origIds.add(originalRecord.get(0));
-            }
-
-            // Add in any records that were updated but not present in the original document
-            Set<String> updateIds = updateInfo.getMappings().stream()
-                    .map(GroupMapping::getCdmId).collect(Collectors.toSet());
-            updateIds.removeAll(origIds);
-            for (String id : updateIds) {
-                writeMapping(mergedPrinter, updateInfo.getMappingByCdmId(id));
-            }
+                // No updates or change, retain original
+                return originalRow;
+            });
         }
 
         // swap the merged mappings to be the main mappings, unless we're doing a dry run
@@ -261,10 +239,6 @@ public class GroupMappingService {
         Files.delete(updatesPath);
     }
 
-    private void writeMapping(CSVPrinter csvPrinter, GroupMapping mapping) throws IOException {
-        csvPrinter.printRecord(mapping.getCdmId(), mapping.getGroupKey());
-    }
-
     protected void setUpdatedDate(Instant timestamp) throws IOException {
         project.getProjectProperties().setGroupMappingsUpdatedDate(timestamp);
         ProjectPropertiesSerialization.write(project);
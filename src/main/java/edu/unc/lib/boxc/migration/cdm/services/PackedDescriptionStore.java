@@ -0,0 +1,353 @@
+package edu.unc.lib.boxc.migration.cdm.services;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Store of expanded MODS descriptions packed together into a single append-only file, along with an index of the
+ * offset and length of the document for each id within the pack. Reads are served from a memory mapping of the
+ * pack, and copies are transferred directly from the pack file to their destination.
+ * Documents superseded by later versions remain in the pack until more than half of it is superseded, at which
+ * point the pack is compacted.
+ * Safe for concurrent reads.
+ */
+public class PackedDescriptionStore implements ExpandedDescriptionStore {
+    private static final Logger log = LoggerFactory.getLogger(PackedDescriptionStore.class);
+    private static final int INDEX_FORMAT_MAGIC = 0x4d504b49;
+    private static final int INDEX_FORMAT_VERSION = 1;
+    // Mappings are limited to 2GB, so the pack is mapped in segments
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private final Path packPath;
+    private final Path indexPath;
+    private Map<String, Location> locations;
+    private MappedByteBuffer[] segments;
+
+    /**
+     * @param packPath path of the pack file
+     * @param indexPath path of the index of the pack file
+     */
+    public PackedDescriptionStore(Path packPath, Path indexPath) {
+        this.packPath = packPath;
+        this.indexPath = indexPath;
+    }
+
+    @Override
+    public boolean contains(String cdmId) throws IOException {
+        return getLocations().containsKey(cdmId);
+    }
+
+    @Override
+    public InputStream openStream(String cdmId) throws IOException {
+        var location = getLocations().get(cdmId);
+        if (location == null) {
+            return null;
+        }
+        return new ByteBufferInputStream(read(location));
+    }
+
+    @Override
+    public boolean copyTo(String cdmId, Path destination) throws IOException {
+        var location = getLocations().get(cdmId);
+        if (location == null) {
+            return false;
+        }
+        try (var packChannel = FileChannel.open(packPath, READ);
+             var destChannel = FileChannel.open(destination, CREATE_NEW, WRITE)) {
+            transfer(packChannel, location, destChannel);
+        }
+        return true;
+    }
+
+    private synchronized Map<String, Location> getLocations() throws IOException {
+        if (locations == null) {
+            var index = readIndex(packPath, indexPath);
+            if (index == null) {
+                segments = new MappedByteBuffer[0];
+                locations = Map.of();
+            } else {
+                segments = mapSegments(index.packLength);
+                locations = index.locations;
+            }
+        }
+        return locations;
+    }
+
+    private MappedByteBuffer[] mapSegments(long packLength) throws IOException {
+        var mapped = new MappedByteBuffer[(int) ((packLength + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+        // Mappings remain valid after the channel is closed
+        try (var channel = FileChannel.open(packPath, READ)) {
+            for (int i = 0; i < mapped.length; i++) {
+                long start = i * SEGMENT_SIZE;
+                mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(SEGMENT_SIZE, packLength - start));
+            }
+        }
+        return mapped;
+    }
+
+    private ByteBuffer read(Location location) throws IOException {
+        int segment = (int) (location.offset / SEGMENT_SIZE);
+        int segmentOffset = (int) (location.offset - segment * SEGMENT_SIZE);
+        if (segmentOffset + (long) location.length <= SEGMENT_SIZE) {
+            // Independent view of the document, so concurrent readers do not share a position
+            var buffer = segments[segment].duplicate();
+            buffer.position(segmentOffset).limit(segmentOffset + location.length);
+            return buffer.slice();
+        }
+        // Documents which span two segments are read directly from the file
+        var buffer = ByteBuffer.allocate(location.length);
+        try (var channel = FileChannel.open(packPath, READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, location.offset + buffer.position()) < 0) {
+                    throw new EOFException("Unexpected end of pack file " + packPath);
+                }
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static void transfer(FileChannel packChannel, Location location, FileChannel destChannel)
+            throws IOException {
+        long position = location.offset;
+        long remaining = location.length;
+        while (remaining > 0) {
+            long transferred = packChannel.transferTo(position, remaining, destChannel);
+            if (transferred <= 0) {
+                throw new EOFException("Unexpected end of pack file");
+            }
+            position += transferred;
+            remaining -= transferred;
+        }
+    }
+
+    /**
+     * @param packPath
+     * @param indexPath
+     * @return the index of the pack file, or null if there is no index or it does not match the pack file
+     */
+    static PackIndex readIndex(Path packPath, Path indexPath) {
+        if (Files.notExists(indexPath) || Files.notExists(packPath)) {
+            return null;
+        }
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            if (in.readInt() != INDEX_FORMAT_MAGIC || in.readInt() != INDEX_FORMAT_VERSION) {
+                log.warn("Ignoring expanded descriptions pack index {} with unsupported format", indexPath);
+                return null;
+            }
+            long packLength = in.readLong();
+            if (Files.size(packPath) < packLength) {
+                log.warn("Ignoring expanded descriptions pack index {}, the pack file is incomplete", indexPath);
+                return null;
+            }
+            int count = in.readInt();
+            Map<String, Location> locations = new HashMap<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                locations.put(in.readUTF(), new Location(in.readLong(), in.readInt()));
+            }
+            return new PackIndex(packLength, locations);
+        } catch (IOException e) {
+            log.warn("Unable to read expanded descriptions pack index {}", indexPath, e);
+            return null;
+        }
+    }
+
+    /**
+     * Record the index of the pack file, compacting the pack first if most of it is made up of documents
+     * which are no longer indexed.
+     * @param packPath
+     * @param indexPath
+     * @param index
+     * @throws IOException
+     */
+    static void commit(Path packPath, Path indexPath, PackIndex index) throws IOException {
+        long liveLength = index.locations.values().stream().mapToLong(l -> l.length).sum();
+        if (index.packLength - liveLength <= liveLength) {
+            writeIndex(indexPath, index);
+            return;
+        }
+        log.debug("Compacting expanded descriptions pack from {} to {} bytes", index.packLength, liveLength);
+        var tmpPath = packPath.resolveSibling(packPath.getFileName() + ".tmp");
+        // Documents are copied in the order they occur in the old pack, so it is read sequentially
+        var entries = new ArrayList<>(index.locations.entrySet());
+        entries.sort(Comparator.comparingLong(e -> e.getValue().offset));
+        Map<String, Location> compacted = new HashMap<>(entries.size() * 4 / 3 + 1);
+        long length = 0;
+        try (var packChannel = FileChannel.open(packPath, READ);
+             var tmpChannel = FileChannel.open(tmpPath, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            for (var entry : entries) {
+                var location = entry.getValue();
+                transfer(packChannel, location, tmpChannel);
+                compacted.put(entry.getKey(), new Location(length, location.length));
+                length += location.length;
+            }
+        }
+        // The old index is invalid once the pack is replaced
+        Files.deleteIfExists(indexPath);
+        Files.move(tmpPath, packPath, StandardCopyOption.REPLACE_EXISTING);
+        writeIndex(indexPath, new PackIndex(length, compacted));
+    }
+
+    private static void writeIndex(Path indexPath, PackIndex index) throws IOException {
+        var tmpPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpPath)))) {
+            out.writeInt(INDEX_FORMAT_MAGIC);
+            out.writeInt(INDEX_FORMAT_VERSION);
+            out.writeLong(index.packLength);
+            out.writeInt(index.locations.size());
+            for (var entry : index.locations.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue().offset);
+                out.writeInt(entry.getValue().length);
+            }
+        }
+        Files.move(tmpPath, indexPath, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Delete the pack file and its index, if present
+     * @param packPath
+     * @param indexPath
+     * @throws IOException
+     */
+    static void delete(Path packPath, Path indexPath) throws IOException {
+        Files.deleteIfExists(indexPath);
+        Files.deleteIfExists(packPath);
+    }
+
+    /**
+     * Location of a document within the pack file
+     */
+    static class Location {
+        private final long offset;
+        private final int length;
+
+        Location(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Locations of documents by id, and the length of the pack file which they cover
+     */
+    static class PackIndex {
+        private final long packLength;
+        private final Map<String, Location> locations;
+
+        PackIndex(long packLength, Map<String, Location> locations) {
+            this.packLength = packLength;
+            this.locations = locations;
+        }
+
+        long getPackLength() {
+            return packLength;
+        }
+
+        Map<String, Location> getLocations() {
+            return locations;
+        }
+    }
+
+    /**
+     * Appends documents to the end of a pack file. Safe for concurrent usage.
+     */
+    static class Appender implements Closeable {
+        private final FileChannel channel;
+        private long length;
+
+        /**
+         * @param packPath pack file to append to, created if it does not exist
+         * @param validLength length of the pack file covered by its index. Any content after it is discarded.
+         * @throws IOException
+         */
+        Appender(Path packPath, long validLength) throws IOException {
+            channel = FileChannel.open(packPath, CREATE, WRITE);
+            // Discard content which was never indexed, such as from an interrupted expansion
+            channel.truncate(validLength);
+            length = validLength;
+        }
+
+        /**
+         * @param content document to append
+         * @return location of the document in the pack
+         * @throws IOException
+         */
+        synchronized Location append(byte[] content) throws IOException {
+            long offset = length;
+            var buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                length += channel.write(buffer, length);
+            }
+            return new Location(offset, content.length);
+        }
+
+        synchronized long getLength() {
+            return length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Stream over the content of a buffer
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -1,8 +1,6 @@
 package edu.unc.lib.boxc.migration.cdm.services;
 
-import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
 import edu.unc.lib.boxc.common.util.URIUtil;
-import edu.unc.lib.boxc.common.xml.SecureXMLFactory;
 import edu.unc.lib.boxc.migration.cdm.exceptions.MigrationException;
 import edu.unc.lib.boxc.migration.cdm.model.GroupMappingInfo;
 import edu.unc.lib.boxc.migration.cdm.model.MigrationProject;
@@ -10,17 +8,13 @@ import edu.unc.lib.boxc.migration.cdm.model.SourceFilesInfo;
 import edu.unc.lib.boxc.migration.cdm.services.ChompbConfigService.ChompbConfig;
 import edu.unc.lib.boxc.migration.cdm.util.PostMigrationReportConstants;
 import edu.unc.lib.boxc.model.api.ResourceType;
-import edu.unc.lib.boxc.model.api.xml.JDOMNamespaceUtil;
 import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.lang3.StringUtils;
-import org.jdom2.JDOMException;
-import org.jdom2.input.SAXBuilder;
 import org.slf4j.Logger;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.util.Map;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -39,12 +33,9 @@ public class PostMigrationReportService {
     private DescriptionsService descriptionsService;
     private SourceFileService sourceFileService;
     private CSVPrinter csvPrinter;
-    private SAXBuilder saxBuilder;
     private String singleBaseUrl;
     private String compoundBaseUrl;
     private String bxcBaseUrl;
-    private static final int CACHE_SIZE = 16;
-    private Map<String, String> parentTitleCache;
     private SourceFilesInfo sourceFilesInfo;
     private boolean enabled;
 
@@ -66,13 +57,8 @@ public class PostMigrationReportService {
         this.compoundBaseUrl = URIUtil.join(baseWithoutPort, "cdm/compoundobject/collection", collId, "id") + "/";
         var bxcEnv = chompbConfig.getBxcEnvironments().get(project.getProjectProperties().getBxcEnvironmentId());
         this.bxcBaseUrl = URIUtil.join(bxcEnv.getHttpBaseUrl(), "record") + "/";
-        this.saxBuilder = SecureXMLFactory.createSAXBuilder();
 
         csvPrinter = openCsvPrinter();
-
-        var mapBuilder = new ConcurrentLinkedHashMap.Builder<String, String>();
-        mapBuilder.maximumWeightedCapacity(CACHE_SIZE);
-        parentTitleCache = mapBuilder.build();
     }
 
     /**
@@ -115,7 +101,7 @@ public class PostMigrationReportService {
             return;
         }
         String cdmUrl = buildCdmUrl(cdmObjectId, true, isSingleItem);
-        String boxcTitle = getParentTitle(cdmObjectId);
+        String boxcTitle = descriptionsService.getExpandedDescriptionTitle(cdmObjectId);
         String boxcUrl = this.bxcBaseUrl + boxcWorkId;
         String matchingValue = null;
         String parentUrl = null;
@@ -148,11 +134,11 @@ public class PostMigrationReportService {
             return;
         }
         String cdmUrl = buildCdmUrl(fileCdmId, false, isSingleItem);
-        String boxcTitle = extractTitle(fileCdmId);
+        String boxcTitle = descriptionsService.getExpandedDescriptionTitle(fileCdmId);
         String boxcUrl = this.bxcBaseUrl + boxcFileId;
         String matchingValue;
         String parentUrl = this.bxcBaseUrl + boxcWorkId;
-        String parentTitle = getParentTitle(parentCdmId);
+        String parentTitle = descriptionsService.getExpandedDescriptionTitle(parentCdmId);
         String objType = ResourceType.File.name();
         String sourceFile;
 
@@ -189,36 +175,6 @@ public class PostMigrationReportService {
         return this.compoundBaseUrl + cdmObjectId;
     }
 
-    // Get the title of the parent object, using a cache to prevent needing to read its MODS for every child
-    private String getParentTitle(String cdmId) {
-        if (parentTitleCache.containsKey(cdmId)) {
-            return parentTitleCache.get(cdmId);
-        }
-        String title = extractTitle(cdmId);
-        parentTitleCache.put(cdmId, title);
-        return title;
-    }
-
-    // Get the mods:title of the object with the provided cdm id by extracting it from the associated MODS document
-    private String extractTitle(String cdmId) {
-        var descPath = descriptionsService.getExpandedDescriptionFilePath(cdmId);
-        if (Files.notExists(descPath)) {
-            return null;
-        }
-        try {
-            var doc = saxBuilder.build(descPath.toFile());
-            var titleInfo = doc.getRootElement().getChild("titleInfo", JDOMNamespaceUtil.MODS_V3_NS);
-            if (titleInfo == null) {
-                return null;
-            }
-            return titleInfo.getChildTextTrim("title", JDOMNamespaceUtil.MODS_V3_NS);
-        } catch (JDOMException | IOException e) {
-            log.error("Failed to read MODS file for {} while extracting title for post migration report: {}",
-                    cdmId, e.getMessage());
-        }
-        return null;
-    }
-
     private String getMatchingValue(String cdmId) throws IOException {
         var sourceFilesInfo = getSourceFilesInfo();
         String matchingValue = sourceFilesInfo.getMappingByCdmId(cdmId).getMatchingValue();
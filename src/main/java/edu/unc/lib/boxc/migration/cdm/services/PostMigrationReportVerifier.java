@@ -1,16 +1,22 @@
 package edu.unc.lib.boxc.migration.cdm.services;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import edu.unc.lib.boxc.migration.cdm.exceptions.InvalidProjectStateException;
+import edu.unc.lib.boxc.migration.cdm.exceptions.MigrationException;
 import edu.unc.lib.boxc.migration.cdm.model.MigrationProject;
+import edu.unc.lib.boxc.migration.cdm.util.CircuitBreaker;
 import edu.unc.lib.boxc.migration.cdm.util.DisplayProgressUtil;
 import edu.unc.lib.boxc.migration.cdm.util.PostMigrationReportConstants;
+import edu.unc.lib.boxc.migration.cdm.util.RequestMetrics;
+import edu.unc.lib.boxc.migration.cdm.util.TokenBucketRateLimiter;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.csv.CSVRecord;
-import org.apache.commons.io.IOUtils;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.springframework.http.HttpStatus;
 
@@ -19,28 +25,57 @@ import java.io.IOException;
 import java.io.Reader;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static edu.unc.lib.boxc.migration.cdm.util.PostMigrationReportConstants.API_PATH;
 import static edu.unc.lib.boxc.migration.cdm.util.PostMigrationReportConstants.RECORD_PATH;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
- * Service which verifies the Box-c URLs in the post migration report and updates the verified field
+ * Service which verifies the Box-c URLs in the post migration report and updates the verified field.
+ * Multiple rows are verified concurrently, while rows are written out to the updated report in their original order.
+ * Requests can be rate limited, and requests which fail with transient errors are retried with backoff. If many
+ * recent requests have failed, requests are paused to allow Box-c to recover.
  *
  * @author bbpennel
  */
 public class PostMigrationReportVerifier {
     private static final Logger log = getLogger(PostMigrationReportVerifier.class);
+    public static final int DEFAULT_CONCURRENCY = 8;
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    private static final long DEFAULT_RETRY_BASE_DELAY_MILLIS = 500;
+    private static final long MAX_RETRY_DELAY_MILLIS = 30000;
+    // Circuit breaker opens if half of the last 100 requests failed, once at least 20 have been made
+    private static final int BREAKER_WINDOW_SIZE = 100;
+    private static final int BREAKER_MIN_REQUESTS = 20;
+    private static final double BREAKER_FAILURE_THRESHOLD = 0.5;
+    private static final long BREAKER_PAUSE_MILLIS = 30000;
+    // Maximum number of rows waiting to be written, per concurrent request
+    private static final int PENDING_ROWS_PER_REQUEST = 4;
+    // Readers are immutable and thread safe, so one is shared by all requests
+    private static final ObjectReader JSON_READER = new ObjectMapper().reader();
     private MigrationProject project;
     private CloseableHttpClient httpClient;
     private ChompbConfigService.ChompbConfig chompbConfig;
     private boolean showProgress;
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private double requestsPerSecond;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private long retryBaseDelayMillis = DEFAULT_RETRY_BASE_DELAY_MILLIS;
+    private CircuitBreaker circuitBreaker;
+    private TokenBucketRateLimiter rateLimiter;
+    private RequestMetrics metrics;
     private static final String PARENT_ID_KEY = "id";
     private static final String PARENT_NAME_KEY = "name";
 
@@ -49,8 +84,15 @@ public class PostMigrationReportVerifier {
 
         var outcome = new VerificationOutcome();
         var totalRecords = countNumberOfRecords();
+        metrics = new RequestMetrics();
+        outcome.requestMetrics = metrics;
+        rateLimiter = requestsPerSecond > 0 ? new TokenBucketRateLimiter(requestsPerSecond, concurrency) : null;
+        // Each run gets its own breaker, so that failures and pauses from previous runs are not counted
+        circuitBreaker = new CircuitBreaker(BREAKER_WINDOW_SIZE, BREAKER_MIN_REQUESTS,
+                BREAKER_FAILURE_THRESHOLD, BREAKER_PAUSE_MILLIS);
         // Read the report so that we can write out a new version of it with the 'verified' field filled in
         var updatedPath = makeTempReportPath();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
         try (
             var csvParser = openCsvParser();
             var csvPrinter = openCsvPrinter(updatedPath);
@@ -61,47 +103,99 @@ public class PostMigrationReportVerifier {
                     .get(project.getProjectProperties().getBxcEnvironmentId())
                     .getHttpBaseUrl();
 
+            // Rows in the order they were read, so they are written out in their original order regardless of
+            // which requests complete first. Bounded so that memory usage does not grow with the size of the report.
+            Queue<Future<VerifiedRow>> pendingRows = new ArrayDeque<>();
+            int maxPendingRows = concurrency * PENDING_ROWS_PER_REQUEST;
             for (CSVRecord originalRecord : csvParser) {
-                var verified = originalRecord.get(PostMigrationReportConstants.VERIFIED_HEADER);
-
-                var rowValuesMap = originalRecord.toMap();
-                var boxcUrl = originalRecord.get(PostMigrationReportConstants.BXC_URL_HEADER);
-                String parentCollId = "";
-                String parentCollName = "";
-                String result = verified;
-                // 'verified' field is empty or was not previously successful, so request the boxc url
-                if (!isStatusAcceptable(verified)) {
-                    var objectInfo = getObjectInfo(boxcUrl, baseUrl + API_PATH);
-                    result = objectInfo.get("status");
-                    outcome.recordResult(result);
-                    parentCollId = objectInfo.get(PARENT_ID_KEY);
-                    parentCollName = objectInfo.get(PARENT_NAME_KEY);
-                    if (parentCollId.isBlank() && HttpStatus.OK.name().equals(result)) {
-                        outcome.recordParentCollError();
-                    }
+                if (pendingRows.size() >= maxPendingRows) {
+                    writeRow(pendingRows.remove(), csvPrinter, outcome);
+                    currentNum++;
+                    updateProgressDisplay(currentNum, totalRecords);
                 }
-
-                rowValuesMap.put(PostMigrationReportConstants.VERIFIED_HEADER, result);
-
-                // add parent collection information
-                rowValuesMap.put(PostMigrationReportConstants.PARENT_COLL_URL_HEADER,
-                        formatParentCollUrl(parentCollId, baseUrl + RECORD_PATH));
-                rowValuesMap.put(PostMigrationReportConstants.PARENT_COLL_TITLE_HEADER, parentCollName);
-
-
-                // Write the row out into the new version of the report
-                csvPrinter.printRecord(rowValuesMap.values());
-
+                pendingRows.add(executor.submit(() -> verifyRow(originalRecord, baseUrl)));
+            }
+            while (!pendingRows.isEmpty()) {
+                writeRow(pendingRows.remove(), csvPrinter, outcome);
                 currentNum++;
                 updateProgressDisplay(currentNum, totalRecords);
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MigrationException("Interrupted while verifying post migration report", e);
+        } finally {
+            executor.shutdownNow();
         }
         // swap the updated report for the old version, delete old version
         Files.move(updatedPath, project.getPostMigrationReportPath(), StandardCopyOption.REPLACE_EXISTING);
         outcome.totalRecords = totalRecords;
+        outcome.requestPauses = circuitBreaker.getTimesOpened();
         return outcome;
     }
 
+    private VerifiedRow verifyRow(CSVRecord originalRecord, String baseUrl)
+            throws URISyntaxException, InterruptedException {
+        var verified = originalRecord.get(PostMigrationReportConstants.VERIFIED_HEADER);
+
+        var row = new VerifiedRow();
+        row.values = originalRecord.toMap();
+        var boxcUrl = originalRecord.get(PostMigrationReportConstants.BXC_URL_HEADER);
+        String parentCollId = "";
+        String parentCollName = "";
+        String result = verified;
+        // 'verified' field is empty or was not previously successful, so request the boxc url
+        if (!isStatusAcceptable(verified)) {
+            row.requested = true;
+            try {
+                var objectInfo = getObjectInfo(boxcUrl, baseUrl + API_PATH);
+                result = objectInfo.get("status");
+                parentCollId = objectInfo.get(PARENT_ID_KEY);
+                parentCollName = objectInfo.get(PARENT_NAME_KEY);
+                row.parentCollError = parentCollId.isBlank() && HttpStatus.OK.name().equals(result);
+            } catch (IOException e) {
+                // Record the failure as the result of the row, so that it is requested again by the next run
+                // rather than losing the results of the rest of the report
+                log.warn("Unable to verify {}: {}", boxcUrl, e.getMessage());
+                result = e.getClass().getSimpleName();
+            }
+        }
+        row.result = result;
+
+        row.values.put(PostMigrationReportConstants.VERIFIED_HEADER, result);
+
+        // add parent collection information
+        row.values.put(PostMigrationReportConstants.PARENT_COLL_URL_HEADER,
+                formatParentCollUrl(parentCollId, baseUrl + RECORD_PATH));
+        row.values.put(PostMigrationReportConstants.PARENT_COLL_TITLE_HEADER, parentCollName);
+        return row;
+    }
+
+    /**
+     * Wait for the row to be verified, then record its outcome and write it out into the new version of the report
+     */
+    private void writeRow(Future<VerifiedRow> pendingRow, CSVPrinter csvPrinter, VerificationOutcome outcome)
+            throws IOException, URISyntaxException, InterruptedException {
+        VerifiedRow row;
+        try {
+            row = pendingRow.get();
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof URISyntaxException) {
+                throw (URISyntaxException) cause;
+            }
+            throw new MigrationException("Failed to verify post migration report", cause);
+        }
+        if (row.requested) {
+            outcome.recordResult(row.result);
+            if (row.parentCollError) {
+                outcome.recordParentCollError();
+            }
+        }
+        csvPrinter.printRecord(row.values.values());
+    }
+
     // Update progress display, if showing
     private void updateProgressDisplay(long current, long total) {
         if (showProgress) {
@@ -113,35 +207,116 @@ public class PostMigrationReportVerifier {
      * Checks the given boxc url and returns a map with keys 'status', 'id', and 'name'. Status is the http
      * status of the request, id is the id of the parent collection of the object, and name is the title of
      * the parent collection. If the request was not successful, id and name will be empty strings.
+     * Requests which fail due to transient errors are retried, and the last result is returned if none succeed.
      *
      * @param bxcUrl
      * @param bxcApiBaseUrl
      * @return
      * @throws IOException
      * @throws URISyntaxException
+     * @throws InterruptedException
      */
     private Map<String, String> getObjectInfo(String bxcUrl, String bxcApiBaseUrl)
-            throws IOException, URISyntaxException {
-        var map = new HashMap<String, String>();
+            throws IOException, URISyntaxException, InterruptedException {
         var id = getId(bxcUrl);
-        var getRequest = new HttpGet(URI.create(bxcApiBaseUrl + id + "/json"));
-        try (var resp = httpClient.execute(getRequest)) {
-            var status = resp.getStatusLine().getStatusCode();
-            map.put("status", HttpStatus.valueOf(status).name());
-            if (resp.getStatusLine().getStatusCode() != HttpStatus.OK.value()) {
-                map.put(PARENT_ID_KEY, "");
-                map.put(PARENT_NAME_KEY, "");
-                return map;
+        var uri = URI.create(bxcApiBaseUrl + id + "/json");
+        for (int attempt = 0; ; attempt++) {
+            circuitBreaker.awaitClosed();
+            if (rateLimiter != null) {
+                rateLimiter.acquire();
+            }
+            long start = System.nanoTime();
+            CloseableHttpResponse resp;
+            try {
+                resp = httpClient.execute(new HttpGet(uri));
+            } catch (IOException e) {
+                // Includes timeouts and connections which were refused or reset
+                metrics.record(e.getClass().getSimpleName(), System.nanoTime() - start);
+                circuitBreaker.recordFailure();
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+                log.debug("Request to {} failed, retrying: {}", uri, e.getMessage());
+                Thread.sleep(getRetryDelayMillis(attempt, 0));
+                continue;
+            }
+            long retryAfterMillis;
+            try (resp) {
+                var status = resp.getStatusLine().getStatusCode();
+                metrics.record(getStatusName(status), System.nanoTime() - start);
+                boolean retriable = isRetriableStatus(status);
+                if (retriable) {
+                    circuitBreaker.recordFailure();
+                } else {
+                    circuitBreaker.recordSuccess();
+                }
+                if (!retriable || attempt >= maxRetries) {
+                    return readObjectInfo(resp, status);
+                }
+                log.debug("Request to {} returned status {}, retrying", uri, status);
+                retryAfterMillis = getRetryAfterMillis(resp);
+                EntityUtils.consumeQuietly(resp.getEntity());
             }
-            var body = IOUtils.toString(resp.getEntity().getContent(), StandardCharsets.UTF_8);
-            var mapper = new ObjectMapper();
-            var jsonNode = mapper.readTree(body);
+            Thread.sleep(getRetryDelayMillis(attempt, retryAfterMillis));
+        }
+    }
+
+    private Map<String, String> readObjectInfo(CloseableHttpResponse resp, int status) throws IOException {
+        var map = new HashMap<String, String>();
+        map.put("status", getStatusName(status));
+        if (status != HttpStatus.OK.value()) {
+            map.put(PARENT_ID_KEY, "");
+            map.put(PARENT_NAME_KEY, "");
+            // Fully consume the response so that its connection can be reused
+            EntityUtils.consumeQuietly(resp.getEntity());
+            return map;
+        }
+        try (var bodyStream = resp.getEntity().getContent()) {
+            var jsonNode = JSON_READER.readTree(bodyStream);
             map.put(PARENT_ID_KEY, jsonNode.get("briefObject").get("parentCollectionId").asText());
             map.put(PARENT_NAME_KEY, jsonNode.get("briefObject").get("parentCollectionName").asText());
         }
         return map;
     }
 
+    /**
+     * @return name of the http status, or the numeric code if it is not a standard status
+     */
+    private static String getStatusName(int status) {
+        var httpStatus = HttpStatus.resolve(status);
+        return httpStatus == null ? Integer.toString(status) : httpStatus.name();
+    }
+
+    private static boolean isRetriableStatus(int status) {
+        return status == HttpStatus.TOO_MANY_REQUESTS.value() || status >= HttpStatus.INTERNAL_SERVER_ERROR.value();
+    }
+
+    /**
+     * @return delay requested by the Retry-After header of the response in milliseconds, or 0 if there is none
+     */
+    private long getRetryAfterMillis(CloseableHttpResponse resp) {
+        var header = resp.getFirstHeader("Retry-After");
+        if (header == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(header.getValue().trim()) * 1000;
+        } catch (NumberFormatException e) {
+            // Dates are not supported, the backoff delay is used instead
+            return 0;
+        }
+    }
+
+    /**
+     * Exponential backoff with full jitter, so that workers which failed at the same time do not all retry
+     * at the same time. Delays are at least as long as requested by the server, up to a maximum.
+     */
+    private long getRetryDelayMillis(int attempt, long retryAfterMillis) {
+        long maxDelay = Math.min(MAX_RETRY_DELAY_MILLIS, retryBaseDelayMillis << Math.min(attempt, 16));
+        long delay = ThreadLocalRandom.current().nextLong(maxDelay + 1);
+        return Math.max(delay, Math.min(retryAfterMillis, MAX_RETRY_DELAY_MILLIS));
+    }
+
     private String getId(String url) throws URISyntaxException {
         var uri = new URI(url);
         String path = uri.getPath();
@@ -200,6 +375,34 @@ public class PostMigrationReportVerifier {
         this.showProgress = showProgress;
     }
 
+    /**
+     * @param concurrency maximum number of verification requests in flight at once
+     */
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * @param requestsPerSecond maximum rate of requests to Box-c, or 0 for no limit
+     */
+    public void setRequestsPerSecond(double requestsPerSecond) {
+        this.requestsPerSecond = requestsPerSecond;
+    }
+
+    /**
+     * @param maxRetries number of times requests which fail with transient errors are retried
+     */
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * @param retryBaseDelayMillis maximum delay before the first retry, which doubles for each further retry
+     */
+    public void setRetryBaseDelayMillis(long retryBaseDelayMillis) {
+        this.retryBaseDelayMillis = retryBaseDelayMillis;
+    }
+
     public void setChompbConfig(ChompbConfigService.ChompbConfig chompbConfig) {
         this.chompbConfig = chompbConfig;
     }
@@ -208,11 +411,24 @@ public class PostMigrationReportVerifier {
         return HttpStatus.OK.name().equals(status) || HttpStatus.FORBIDDEN.name().equals(status);
     }
 
+    /**
+     * Updated values of a report row, along with the result of verifying it
+     */
+    private static class VerifiedRow {
+        private Map<String, String> values;
+        private String result;
+        // Whether the url was requested, rather than having been verified previously
+        private boolean requested;
+        private boolean parentCollError;
+    }
+
     public static class VerificationOutcome {
         public long urlErrorCount = 0;
         public long verifiedCount = 0;
         public long totalRecords = 0;
         public long parentCollErrorCount = 0;
+        public RequestMetrics requestMetrics;
+        public int requestPauses = 0;
 
         protected void recordResult(String result) {
             if (!isStatusAcceptable(result)) {
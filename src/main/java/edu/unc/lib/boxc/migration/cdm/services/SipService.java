@@ -121,6 +121,8 @@ public class SipService {
         }
         try {
             workGeneratorFactory.setAccessFilesInfo(accessFileService.loadMappings());
+            // Resolve mimetypes of access files up front, so that files are not probed while generating SIPs
+            accessFileService.probeMappedMimetypes();
         } catch (NoSuchFileException e) {
             log.debug("No access mappings file, no access files will be added to the SIP");
         }
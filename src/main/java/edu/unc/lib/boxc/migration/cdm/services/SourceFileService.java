@@ -7,9 +7,14 @@ import edu.unc.lib.boxc.migration.cdm.model.CdmFieldInfo;
 import edu.unc.lib.boxc.migration.cdm.model.MigrationProject;
 import edu.unc.lib.boxc.migration.cdm.model.SourceFilesInfo;
 import edu.unc.lib.boxc.migration.cdm.model.SourceFilesInfo.SourceFileMapping;
+import edu.unc.lib.boxc.migration.cdm.model.StorageUsage;
 import edu.unc.lib.boxc.migration.cdm.options.AddSourceFileMappingOptions;
 import edu.unc.lib.boxc.migration.cdm.options.GenerateFileMappingOptions;
 import edu.unc.lib.boxc.migration.cdm.options.GenerateSourceFileMappingOptions;
+import edu.unc.lib.boxc.migration.cdm.util.CandidatePathIndex;
+import edu.unc.lib.boxc.migration.cdm.util.FieldMatchingRules;
+import edu.unc.lib.boxc.migration.cdm.util.MappingCsvMerger;
+import edu.unc.lib.boxc.migration.cdm.util.ParallelFileCrawler;
 import edu.unc.lib.boxc.migration.cdm.util.ProjectPropertiesSerialization;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
@@ -23,29 +28,23 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.Reader;
 import java.nio.file.FileSystems;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
-import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -53,6 +52,7 @@ import static edu.unc.lib.boxc.migration.cdm.model.SourceFilesInfo.SOURCE_FILE_F
 import static edu.unc.lib.boxc.migration.cdm.services.CdmIndexService.ENTRY_TYPE_COMPOUND_CHILD;
 import static edu.unc.lib.boxc.migration.cdm.services.CdmIndexService.ENTRY_TYPE_DOCUMENT_PDF;
 import static edu.unc.lib.boxc.migration.cdm.services.CdmIndexService.ENTRY_TYPE_FIELD;
+import static edu.unc.lib.boxc.migration.cdm.util.CLIConstants.outputLogger;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
@@ -81,9 +81,9 @@ public class SourceFileService {
         validateExportField(options);
 
         // Gather listing of all potential source file paths to match against
-        Map<String, List<String>> candidatePaths = gatherCandidatePaths(options);
+        CandidatePathIndex candidatePaths = gatherCandidatePaths(options);
 
-        Pattern fieldMatchingPattern = buildFieldMatchingPattern(options);
+        FieldMatchingRules matchingRules = buildFieldMatchingRules(options);
 
         Path mappingPath = getMappingPath();
         boolean needsMerge = options.getUpdate() && Files.exists(mappingPath);
@@ -122,14 +122,10 @@ public class SourceFileService {
                     continue;
                 }
 
-                Matcher fieldMatcher = fieldMatchingPattern.matcher(dbFilename);
-                if (fieldMatcher.matches()) {
-                    String transformed = fieldMatcher.replaceFirst(options.getFilenameTemplate());
-                    if (options.isLowercaseTemplate()) {
-                        transformed = transformed.toLowerCase();
-                    }
-
-                    List<String> paths = candidatePaths.get(transformed);
+                // Use the first rule which produces the name of a candidate file
+                String transformed = matchingRules.transform(dbFilename, candidatePaths::contains);
+                if (transformed != null) {
+                    List<String> paths = candidatePaths.getPaths(transformed);
                     if (paths == null) {
                         log.debug("Transformed field '{}' => '{}' for {} did not match and source filenames",
                                 dbFilename, transformed, cdmId);
@@ -150,7 +146,7 @@ public class SourceFileService {
                         }
                     }
                 } else {
-                    log.debug("Field {} for object {} with field {} does not match the field value pattern",
+                    log.debug("Field {} for object {} with field {} does not match any field value patterns",
                             options.getExportField(), cdmId, dbFilename);
                     csvPrinter.printRecord(cdmId, dbFilename, null, null);
                 }
@@ -186,17 +182,24 @@ public class SourceFileService {
                 + " or " + ENTRY_TYPE_FIELD + " is null";
     }
 
-    private Pattern buildFieldMatchingPattern(GenerateSourceFileMappingOptions options) {
+    private FieldMatchingRules buildFieldMatchingRules(GenerateSourceFileMappingOptions options) {
         if (options.isPopulateBlank()) {
             return null;
         }
-        return Pattern.compile(options.getFieldMatchingPattern());
+        return FieldMatchingRules.build(options.getFieldMatchingPatterns(), options.getFilenameTemplates(),
+                options.isLowercaseTemplate());
     }
 
-    private Map<String, List<String>> gatherCandidatePaths(GenerateSourceFileMappingOptions options)
+    /**
+     * Inventory the base path, producing an index of filenames to the paths of files with that name
+     * @param options
+     * @return index of filenames to paths relative to the base path
+     * @throws IOException
+     */
+    protected CandidatePathIndex gatherCandidatePaths(GenerateSourceFileMappingOptions options)
             throws IOException {
         if (options.isPopulateBlank()) {
-            return Collections.emptyMap();
+            return CandidatePathIndex.empty();
         }
 
         Path basePath = options.getBasePath();
@@ -217,29 +220,26 @@ public class SourceFileService {
             pathMatcher = FileSystems.getDefault().getPathMatcher("glob:" + pathPattern);
         }
 
-        // Mapping of filenames to relative paths versus the base path for those files
-        Map<String, List<String>> candidatePaths = new HashMap<>();
-        Files.walkFileTree(basePath, new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) throws IOException {
-                if (pathPattern == null || pathMatcher.matches(path)) {
-                    String filename = path.getFileName().toString();
-                    if (options.isLowercaseTemplate()) {
-                        filename = filename.toLowerCase();
-                    }
-                    List<String> paths = candidatePaths.computeIfAbsent(filename, f -> new ArrayList<>());
-                    paths.add(basePath.relativize(path).toString());
+        // Use the cached inventory of the base path, only listing directories which have changed
+        var inventoryService = new FileInventoryService();
+        inventoryService.setProject(project);
+        inventoryService.setParallelism(options.getCrawlThreads());
+        inventoryService.setDryRun(options.getDryRun());
+
+        // Index of filenames to relative paths versus the base path for those files. Potential matches are
+        // sorted, so that the output does not depend on the order directories were crawled in.
+        // Directories are added as they are scanned, so the full inventory is never held in memory
+        var indexBuilder = new CandidatePathIndex.Builder();
+        boolean lowercase = options.isLowercaseTemplate();
+        inventoryService.visitInventory(basePath, options.isRescan(), dir -> {
+            for (var file : dir.getFiles()) {
+                if (pathPattern == null || pathMatcher.matches(basePath.resolve(file.getPath()))) {
+                    var filename = file.getFilename();
+                    indexBuilder.add(dir.getPath(), lowercase ? file.getLowercaseFilename() : filename, filename);
                 }
-                return FileVisitResult.CONTINUE;
-            }
-
-            @Override
-            public FileVisitResult visitFileFailed(Path file, IOException exc)
-                    throws IOException {
-                return FileVisitResult.CONTINUE;
             }
         });
-        return candidatePaths;
+        return indexBuilder.build();
     }
 
     private void validateExportField(GenerateSourceFileMappingOptions options) {
@@ -303,7 +303,8 @@ public class SourceFileService {
     }
 
     /**
-     * Merge existing mappings with updated mappings, writing to temporary files as intermediates
+     * Merge existing mappings with updated mappings, writing to temporary files as intermediates.
+     * Both mappings are streamed through a sort merge, so memory usage is bounded regardless of their size.
      * @param options
      * @param updatesPath the temp path containing the newly generated mappings to merge into the original mappings
      */
@@ -313,56 +314,20 @@ public class SourceFileService {
         // Cleanup temp merged path if it already exists
         Files.deleteIfExists(mergedPath);
 
-        // Load the new mappings into memory
-        SourceFilesInfo updateInfo = loadMappings(updatesPath);
-
-        // Iterate through the existing mappings, merging in the updated mappings when appropriate
-        try (
-            var originalParser = openMappingsParser(originalPath);
-            // Write to temp mappings file if doing a dry run, otherwise write to mappings file
-            var mergedPrinter = openMappingsPrinter(mergedPath)
-        ) {
-            Set<String> origIds = new HashSet<>();
-            for (CSVRecord originalRecord : originalParser) {
-                var origMapping = recordToMapping(originalRecord);
-
-                SourceFileMapping updateMapping = updateInfo.getMappingByCdmId(origMapping.getCdmId());
-                if (updateMapping == null) {
+        var merger = new MappingCsvMerger(SourceFilesInfo.CSV_HEADERS);
+        try (var mergedPrinter = openMappingsPrinter(mergedPath)) {
+            merger.merge(originalPath, updatesPath, mergedPrinter, (originalRow, updateRow) -> {
+                if (updateRow == null) {
                     // No updates, so write original
-                    writeMapping(mergedPrinter, origMapping);
-                } else if (updateMapping.getSourcePaths() != null) {
-                    var resolvedMapping = resolveSourcePathConflict(options, origMapping, updateMapping);
-                    writeMapping(mergedPrinter, resolvedMapping);
-                } else if (updateMapping.getPotentialMatches() != null) {
-                    if (origMapping.getSourcePaths() != null) {
-                        // Prefer existing match, write original
-                        writeMapping(mergedPrinter, origMapping);
-                    } else {
-                        // merge potential matches
-                        if (origMapping.getPotentialMatches() != null) {
-                            Set<String> merged = Stream.concat(
-                                        origMapping.getPotentialMatches().stream(),
-                                        updateMapping.getPotentialMatches().stream())
-                                    .collect(Collectors.toSet());
-                            updateMapping.setPotentialMatches(new ArrayList<>(merged));
-                        }
-                        // Write entry with updated potential matches
-                        writeMapping(mergedPrinter, updateMapping);
-                    }
-                } else {
-                    // No change, retain original
-                    writeMapping(mergedPrinter, origMapping);
+                    return mappingToRow(rowToMapping(originalRow));
                 }
-                origIds.add(originalRecord.get(0));
-            }
-
-            // Add in any records that were updated but not present in the original document
-            Set<String> updateIds = updateInfo.getMappings().stream()
-                    .map(SourceFileMapping::getCdmId).collect(Collectors.toSet());
-            updateIds.removeAll(origIds);
-            for (String id : updateIds) {
-                writeMapping(mergedPrinter, updateInfo.getMappingByCdmId(id));
-            }
+                var updateMapping = rowToMapping(updateRow);
+                if (originalRow == null) {
+                    // Record was updated but not present in the original document
+                    return mappingToRow(updateMapping);
+                }
+                return mappingToRow(mergeMapping(options, rowToMapping(originalRow), updateMapping));
+            });
         }
 
         // swap the merged mappings to be the main mappings, unless we're doing a dry run
@@ -373,6 +338,31 @@ public class SourceFileService {
         }
     }
 
+    private SourceFileMapping mergeMapping(GenerateFileMappingOptions options, SourceFileMapping origMapping,
+                                           SourceFileMapping updateMapping) {
+        if (updateMapping.getSourcePaths() != null) {
+            return resolveSourcePathConflict(options, origMapping, updateMapping);
+        } else if (updateMapping.getPotentialMatches() != null) {
+            if (origMapping.getSourcePaths() != null) {
+                // Prefer existing match, write original
+                return origMapping;
+            }
+            // merge potential matches
+            if (origMapping.getPotentialMatches() != null) {
+                Set<String> merged = Stream.concat(
+                            origMapping.getPotentialMatches().stream(),
+                            updateMapping.getPotentialMatches().stream())
+                        .collect(Collectors.toSet());
+                updateMapping.setPotentialMatches(new ArrayList<>(merged));
+            }
+            // Write entry with updated potential matches
+            return updateMapping;
+        } else {
+            // No change, retain original
+            return origMapping;
+        }
+    }
+
     protected SourceFileMapping resolveSourcePathConflict(GenerateFileMappingOptions options,
                                                           SourceFileMapping origMapping,
                                                           SourceFileMapping updateMapping) {
@@ -392,37 +382,31 @@ public class SourceFileService {
      * @throws IOException
      */
     public void addToMapping(AddSourceFileMappingOptions options) throws Exception {
-        Path mappingPath = getMappingPath();
-
-        // If rerunning addToMapping, iterate through the existing mappings
-        int lastId = 0;
-        List<String> origIds = new ArrayList<>();
-        List<String> origSourcePaths = new ArrayList<>();
-        if (Files.exists(mappingPath)) {
-            try (var originalParser = openMappingsParser(mappingPath)) {
-                for (CSVRecord originalRecord : originalParser) {
-                    origIds.add(originalRecord.get(0));
-                    origSourcePaths.add(originalRecord.get(2));
-                }
-            }
-            // if existing source_files csv is empty, lastId should be 0
-            if (!origIds.isEmpty()) {
-                lastId = findHighestId(origIds);
-            }
-        }
-
-        // Write to temp mappings file if doing a dry run, otherwise write to mappings file
-        if (options.getDryRun()) {
-            mappingPath = getTempMappingPath();
+        Path basePath = options.getBasePath();
+        if (!Files.isDirectory(basePath)) {
+            throw new IllegalArgumentException("Base path must be a directory");
         }
-        Files.deleteIfExists(mappingPath);
-
-        try (var csvPrinter = openMappingsPrinter(mappingPath)) {
-            // Insert previous mappings and get the previous highest id
-
-            if (!origIds.isEmpty()) {
-                for (int i = 0; i < origIds.size(); i++) {
-                    csvPrinter.printRecord(origIds.get(i), null, origSourcePaths.get(i), null);
+        Path mappingPath = getMappingPath();
+        // Write to temp mappings file if doing a dry run, otherwise write to an intermediate file
+        // which replaces the mappings once complete
+        Path outputPath = options.getDryRun() ? getTempMappingPath()
+                : mappingPath.getParent().resolve("~" + mappingPath.getFileName().toString() + "_added");
+        Files.deleteIfExists(outputPath);
+
+        try (var csvPrinter = openMappingsPrinter(outputPath)) {
+            // If rerunning addToMapping, stream the existing mappings into the output,
+            // recording their source paths and the highest id in use
+            Set<String> origSourcePaths = new HashSet<>();
+            int lastId = 0;
+            if (Files.exists(mappingPath)) {
+                try (var originalParser = openMappingsParser(mappingPath)) {
+                    for (CSVRecord originalRecord : originalParser) {
+                        String id = originalRecord.get(0);
+                        String sourcePath = originalRecord.get(2);
+                        csvPrinter.printRecord(id, null, sourcePath, null);
+                        origSourcePaths.add(sourcePath);
+                        lastId = Math.max(lastId, parseIdValueToInt(id));
+                    }
                 }
             }
 
@@ -435,29 +419,29 @@ public class SourceFileService {
         }
 
         if (!options.getDryRun()) {
+            Files.move(outputPath, mappingPath, StandardCopyOption.REPLACE_EXISTING);
             setUpdatedDate(Instant.now());
         }
     }
 
     private List<String> gatherFilesystemCandidatePaths(
-            AddSourceFileMappingOptions options, List<String> origSourcePaths) throws Exception {
-        Path basePath = options.getBasePath();
-        if (!Files.isDirectory(basePath)) {
-            throw new IllegalArgumentException("Base path must be a directory");
-        }
-
-        List<String> fileList = new ArrayList<>();
-        Files.walkFileTree(basePath, new SimpleFileVisitor<>() {
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                var fileStr = file.toString();
-                if (!Files.isDirectory(file) && !origSourcePaths.contains(fileStr)
-                        && options.getExtensions().contains(FilenameUtils.getExtension(fileStr).toLowerCase())) {
-                    fileList.add(fileStr);
-                }
-                return FileVisitResult.CONTINUE;
+            AddSourceFileMappingOptions options, Set<String> origSourcePaths) {
+        Set<String> extensions = new HashSet<>(options.getExtensions());
+        List<String> fileList = Collections.synchronizedList(new ArrayList<>());
+        var crawler = new ParallelFileCrawler(options.getCrawlThreads());
+        int skipped = crawler.crawl(options.getBasePath(), (file, attrs) -> {
+            var fileStr = file.toString();
+            if (!origSourcePaths.contains(fileStr)
+                    && extensions.contains(FilenameUtils.getExtension(fileStr).toLowerCase())) {
+                fileList.add(fileStr);
             }
         });
+        if (skipped > 0) {
+            outputLogger.info("Skipped {} files or directories under {} which could not be read,"
+                    + " see the log for details", skipped, options.getBasePath());
+        }
+        // Sort so that ids are assigned in a consistent order
+        Collections.sort(fileList);
 
         return fileList;
     }
@@ -476,10 +460,6 @@ public class SourceFileService {
         return fileId;
     }
 
-    private int findHighestId(List<String> ids) {
-        return ids.stream().map(id -> parseIdValueToInt(id)).max(Integer::compareTo).get();
-    }
-
     private int parseIdValueToInt(String id) {
         int idToInt;
         try {
@@ -496,7 +476,11 @@ public class SourceFileService {
     }
 
     public static void writeMapping(CSVPrinter csvPrinter, SourceFileMapping mapping) throws IOException {
-        csvPrinter.printRecord(mapping.getCdmId(), mapping.getMatchingValue(),
+        csvPrinter.printRecord(mappingToRow(mapping));
+    }
+
+    private static List<String> mappingToRow(SourceFileMapping mapping) {
+        return Arrays.asList(mapping.getCdmId(), mapping.getMatchingValue(),
                 mapping.getSourcePathString(), mapping.getPotentialMatchesString());
     }
 
@@ -527,11 +511,15 @@ public class SourceFileService {
     }
 
     public static SourceFileMapping recordToMapping(CSVRecord csvRecord) {
+        return rowToMapping(csvRecord.toList());
+    }
+
+    private static SourceFileMapping rowToMapping(List<String> row) {
         SourceFileMapping mapping = new SourceFileMapping();
-        mapping.setCdmId(csvRecord.get(0));
-        mapping.setMatchingValue(csvRecord.get(1));
-        mapping.setSourcePaths(csvRecord.get(2));
-        mapping.setPotentialMatches(csvRecord.get(3));
+        mapping.setCdmId(row.get(0));
+        mapping.setMatchingValue(row.get(1));
+        mapping.setSourcePaths(row.get(2));
+        mapping.setPotentialMatches(row.get(3));
         return mapping;
     }
 
@@ -563,20 +551,22 @@ public class SourceFileService {
      * @return total length in MB
      */
     public long calculateStorage() throws IOException {
-        long totalBytes = 0;
-        try (var csvParser = openMappingsParser(project.getSourceFilesMappingPath())) {
-            for (CSVRecord record : csvParser) {
-                var field = record.get(SOURCE_FILE_FIELD);
-                if (!field.isBlank()) {
-                    var basePath = Paths.get(field);
-                    totalBytes += Files.size(basePath);
-                }
-            }
-        }
-        // return amount in MB
-        return totalBytes / (1024 * 1024);
+        return calculateStorageUsage(false).getTotalMegabytes();
     }
 
+    /**
+     * Calculate the storage used by the files in the source files mapping, broken down by file extension
+     * and destination. File sizes are cached in the project, so that later calculations only need to check
+     * files in directories which have changed.
+     * @param fullScan if true, cached file sizes are ignored, which is needed to detect files changed in place
+     * @return storage usage of the mapped source files
+     */
+    public StorageUsage calculateStorageUsage(boolean fullScan) throws IOException {
+        var usageService = new StorageUsageService();
+        usageService.setProject(project);
+        usageService.setIndexService(indexService);
+        return usageService.calculateUsage(project.getSourceFilesMappingPath(), fullScan);
+    }
 
     public void setProject(MigrationProject project) {
         this.project = project;
@@ -1,27 +1,45 @@
 package edu.unc.lib.boxc.migration.cdm.services;
 
+import edu.unc.lib.boxc.migration.cdm.exceptions.MigrationException;
 import edu.unc.lib.boxc.migration.cdm.model.SourceFilesInfo;
+import edu.unc.lib.boxc.migration.cdm.services.FileDigestService.DigestAlgorithm;
+import edu.unc.lib.boxc.migration.cdm.util.AdaptiveConcurrencyController;
 import edu.unc.lib.boxc.migration.cdm.util.SshClientService;
-import org.apache.poi.util.IOUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.sshd.client.session.ClientSession;
 import org.apache.sshd.sftp.client.SftpClient;
+import org.apache.sshd.sftp.client.SftpClient.OpenMode;
 import org.apache.sshd.sftp.client.SftpClientFactory;
 import org.slf4j.Logger;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
+import static edu.unc.lib.boxc.migration.cdm.util.CLIConstants.outputLogger;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
@@ -30,19 +48,38 @@ import static org.slf4j.LoggerFactory.getLogger;
  */
 public class SourceFilesToRemoteService {
     private static final Logger log = getLogger(SourceFilesToRemoteService.class);
+    private static final double BYTES_PER_MB = 1024 * 1024;
+    // Limit on the length of generated remote commands, well below typical argument length limits
+    private static final int MAX_COMMAND_LENGTH = 64 * 1024;
+    public static final int DEFAULT_INITIAL_CONCURRENT_TRANSFERS = 5;
+    public static final int DEFAULT_MAX_CONCURRENT_TRANSFERS = 10;
+    public static final int DEFAULT_BUFFER_SIZE_KB = 256;
     private SourceFileService sourceFileService;
     private SshClientService sshClientService;
-    private int concurrentTransfers = 5;
+    private int concurrentTransfers = DEFAULT_INITIAL_CONCURRENT_TRANSFERS;
+    private int maxConcurrentTransfers = DEFAULT_MAX_CONCURRENT_TRANSFERS;
+    private int bufferSize = DEFAULT_BUFFER_SIZE_KB * 1024;
+    private int maxAttempts = 3;
+    private long retryDelayMillis = 1000;
+    private long sampleIntervalMillis = 5000;
+    private boolean skipExisting;
+    private FileDigestService fileDigestService;
+    private DigestAlgorithm digestAlgorithm = DigestAlgorithm.SHA256;
     private ExecutorService executor;
 
     /**
      * Transfer files from the source CDM server to the remote destination.
-     * Files are transferred in parallel, up to concurrentTransfers at a time.
+     * Files are transferred in parallel, starting with concurrentTransfers at a time. The number of transfers
+     * is adjusted based on observed throughput, up to maxConcurrentTransfers.
      * @param destinationPath
+     * @return summary of the transfer
      * @throws IOException
      */
-    public void transferFiles(Path destinationPath) throws IOException {
-        executor = Executors.newFixedThreadPool(concurrentTransfers);
+    public TransferSummary transferFiles(Path destinationPath) throws IOException {
+        int maxWorkers = Math.max(concurrentTransfers, maxConcurrentTransfers);
+        executor = Executors.newFixedThreadPool(maxWorkers);
+        var scheduler = Executors.newSingleThreadScheduledExecutor();
+        var startTime = System.nanoTime();
 
         try {
             var sourceMappings = sourceFileService.loadMappings();
@@ -50,27 +87,126 @@ public class SourceFilesToRemoteService {
             var pathsList = sourceMappings.getMappings().stream()
                     .map(SourceFilesInfo.SourceFileMapping::getFirstSourcePath)
                     .collect(Collectors.toList());
-            var pathsDeque = new ConcurrentLinkedDeque<>(pathsList);
+            var state = new TransferState(new ConcurrentLinkedDeque<>(pathsList), destinationBasePath);
             // Create the parent path structure before we start transfers
             var parentPaths = listMostSpecificParents(pathsList);
             createParentPaths(parentPaths, destinationBasePath);
 
-            // Capture futures for transfer threads so we can receive errors
-            var futures = new ArrayList<Future<?>>();
+            state.targetWorkers.set(concurrentTransfers);
             for (int i = 0; i < concurrentTransfers; i++) {
-                futures.add(executor.submit(createTransferTask(pathsDeque, destinationBasePath)));
+                startWorker(state);
             }
-            for (Future<?> future : futures) {
-                try {
-                    future.get();
-                } catch (InterruptedException e) {
-                    throw new RuntimeException(e);
-                } catch (ExecutionException e) {
-                    throw new RuntimeException(e.getCause());
-                }
+            if (maxWorkers > 1) {
+                var controller = new AdaptiveConcurrencyController(1, maxWorkers);
+                scheduler.scheduleAtFixedRate(() -> adjustConcurrency(state, controller),
+                        sampleIntervalMillis, sampleIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+
+            // Wait for all transfer workers, including those started by the controller, to complete
+            awaitWorkers(state);
+            stopScheduler(scheduler);
+            awaitWorkers(state);
+
+            if (fileDigestService != null) {
+                verifyTransferredFiles(pathsList, destinationBasePath);
             }
+
+            var summary = new TransferSummary(state.filesTransferred.sum(), state.filesSkipped.sum(),
+                    state.bytesTransferred.sum(), System.nanoTime() - startTime, state.peakWorkers.get());
+            outputLogger.info("Transferred {} files ({} skipped), {} bytes in {}s: {} files/s, {} MB/s",
+                    summary.getFilesTransferred(), summary.getFilesSkipped(), summary.getBytesTransferred(),
+                    String.format("%.2f", summary.getElapsedSeconds()),
+                    String.format("%.2f", summary.getFilesPerSecond()),
+                    String.format("%.2f", summary.getMegabytesPerSecond()));
+            return summary;
         } finally {
-            executor.shutdown();
+            scheduler.shutdownNow();
+            // Interrupts any workers which are still running if a transfer failed
+            executor.shutdownNow();
+        }
+    }
+
+    private void awaitWorkers(TransferState state) {
+        Future<?> future;
+        while ((future = state.futures.poll()) != null) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                state.pathsDeque.clear();
+                Thread.currentThread().interrupt();
+                throw new MigrationException("Interrupted while transferring files", e);
+            } catch (ExecutionException e) {
+                // Prevent the remaining workers from starting any further transfers
+                state.pathsDeque.clear();
+                var cause = e.getCause();
+                if (cause instanceof MigrationException) {
+                    throw (MigrationException) cause;
+                }
+                if (cause instanceof UncheckedIOException) {
+                    cause = cause.getCause();
+                }
+                throw new MigrationException("Failed to transfer files: " + cause.getMessage(), cause);
+            }
+        }
+    }
+
+    /**
+     * Verify that the digests of the remote copies of the transferred files match the local files
+     */
+    private void verifyTransferredFiles(List<Path> paths, Path destinationBasePath) {
+        var localToRemote = new LinkedHashMap<Path, String>();
+        for (Path path : paths) {
+            var sourceRelative = path.toAbsolutePath().toString().substring(1);
+            localToRemote.put(path, destinationBasePath.resolve(sourceRelative).toString());
+        }
+        var mismatched = fileDigestService.verifyRemoteCopies(sshClientService, localToRemote, digestAlgorithm);
+        if (!mismatched.isEmpty()) {
+            throw new MigrationException("Checksum verification failed for " + mismatched.size()
+                    + " transferred files, see the log for details");
+        }
+        outputLogger.info("Verified checksums of {} transferred files", localToRemote.size());
+    }
+
+    private void stopScheduler(ScheduledExecutorService scheduler) {
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(sampleIntervalMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void startWorker(TransferState state) {
+        state.peakWorkers.accumulateAndGet(state.activeWorkers.incrementAndGet(), Math::max);
+        try {
+            state.futures.add(executor.submit(createTransferTask(state)));
+        } catch (RejectedExecutionException e) {
+            state.activeWorkers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Sample the throughput since the last adjustment, and raise or lower the number of workers accordingly
+     */
+    private void adjustConcurrency(TransferState state, AdaptiveConcurrencyController controller) {
+        long now = System.nanoTime();
+        long bytes = state.bytesTransferred.sum();
+        double seconds = (now - state.lastSampleTime) / 1e9;
+        double rate = (bytes - state.lastSampleBytes) / BYTES_PER_MB / seconds;
+        state.lastSampleTime = now;
+        state.lastSampleBytes = bytes;
+        if (state.pathsDeque.isEmpty()) {
+            return;
+        }
+        int current = state.targetWorkers.get();
+        int target = controller.adjust(current, rate);
+        if (target != current) {
+            log.info("Adjusting concurrent transfers from {} to {} at {} MB/s", current, target,
+                    String.format("%.2f", rate));
+        }
+        state.targetWorkers.set(target);
+        while (state.activeWorkers.get() < target && !state.pathsDeque.isEmpty()) {
+            startWorker(state);
         }
     }
 
@@ -81,93 +217,281 @@ public class SourceFilesToRemoteService {
      *      * /a/b
      *      * /a/b/c
      *      * /d/e/f
-     * then just the paths /a/b/c and /d/e/f would be returned
+     * then just the paths /a/b/c and /d/e/f would be returned, in sorted order
      */
-    private List<Path> listMostSpecificParents(List<Path> paths) {
-        var parents = paths.stream().map(Path::getParent)
-                                    .sorted()
-                                    .collect(Collectors.toList());
-        List<Path> result = new ArrayList<>();
-        for (int i = 0; i < parents.size(); i++) {
-            Path current = parents.get(i);
-            boolean isParent = false;
-            // Check if the current path is a parent of any subsequent path
-            for (int j = i + 1; j < parents.size(); j++) {
-                if (parents.get(j).startsWith(current)) {
-                    isParent = true;
-                    break;
-                }
-            }
-            // If not a parent, add to result
-            if (!isParent) {
-                result.add(current);
+    protected static List<Path> listMostSpecificParents(List<Path> paths) {
+        // Build a trie of path components, so that the most specific parents are its leaves
+        var root = new PathTrieNode();
+        for (Path path : paths) {
+            var parent = path.toAbsolutePath().getParent();
+            var node = root;
+            for (Path part : parent) {
+                node = node.children.computeIfAbsent(part.toString(), k -> new PathTrieNode());
             }
         }
+        List<Path> result = new ArrayList<>();
+        collectLeaves(root, Path.of("/"), result);
         return result;
     }
 
-    private boolean remoteDirectoryExists(SftpClient sftpClient, Path path) {
-        try {
-            sftpClient.stat(path.toString());
-            return true;
-        } catch (IOException e) {
-            return false;
+    private static void collectLeaves(PathTrieNode node, Path nodePath, List<Path> result) {
+        if (node.children.isEmpty()) {
+            result.add(nodePath);
+            return;
+        }
+        for (var entry : node.children.entrySet()) {
+            collectLeaves(entry.getValue(), nodePath.resolve(entry.getKey()), result);
         }
     }
 
+    private static class PathTrieNode {
+        private final Map<String, PathTrieNode> children = new TreeMap<>();
+    }
+
+    /**
+     * Create the parent directories on the remote server, using mkdir -p so that all ancestors are created
+     * at once. Directories are passed in batches, so that only a few remote commands are needed.
+     * @param paths most specific parent directories, relative to the root of the local filesystem
+     * @param destinationBasePath
+     */
     private void createParentPaths(List<Path> paths, Path destinationBasePath) {
+        var commands = buildMkdirCommands(paths, destinationBasePath);
+        if (commands.isEmpty()) {
+            return;
+        }
         sshClientService.executeSshBlock((sshClient) -> {
-            var previousPaths = new HashSet<String>();
-            SftpClientFactory factory = SftpClientFactory.instance();
-            try (SftpClient sftpClient = factory.createSftpClient(sshClient)) {
-
-                for (Path path : paths) {
-                    var pathRelative = path.toAbsolutePath().toString().substring(1);
-                    var destPath = destinationBasePath.resolve(pathRelative).toString();
-                    var pathParts = destPath.split("/");
-                    var progressivePath = Path.of("/");
-                    for (var pathPart: pathParts) {
-                        progressivePath = progressivePath.resolve(pathPart);
-                        var stringPath = progressivePath.toString();
-                        if (previousPaths.contains(stringPath) || remoteDirectoryExists(sftpClient, progressivePath)) {
-                            continue;
-                        }
-                        log.info("Creating parent path {}", stringPath);
-                        sftpClient.mkdir(stringPath);
-                        previousPaths.add(stringPath);
-                    }
-                }
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+            for (var command : commands) {
+                // Large batches may take a while to complete, so use the overload with the full ssh timeout
+                sshClientService.executeRemoteCommand(sshClient, command, OutputStream.nullOutputStream());
             }
         });
+        log.info("Created {} parent paths with {} remote commands", paths.size(), commands.size());
+    }
+
+    protected static List<String> buildMkdirCommands(List<Path> paths, Path destinationBasePath) {
+        var commands = new ArrayList<String>();
+        StringBuilder command = null;
+        for (Path path : paths) {
+            var pathRelative = path.toAbsolutePath().toString().substring(1);
+            var destPath = destinationBasePath.resolve(pathRelative).toString();
+            var quoted = SshClientService.shellQuote(destPath);
+            if (command != null && command.length() + quoted.length() + 1 > MAX_COMMAND_LENGTH) {
+                commands.add(command.toString());
+                command = null;
+            }
+            if (command == null) {
+                command = new StringBuilder("mkdir -p");
+            }
+            command.append(' ').append(quoted);
+        }
+        if (command != null) {
+            commands.add(command.toString());
+        }
+        return commands;
     }
 
-    private Runnable createTransferTask(ConcurrentLinkedDeque<Path> pathsDeque, Path destinationBasePath) {
+    private Runnable createTransferTask(TransferState state) {
         return () -> {
-            sshClientService.executeSshBlock((sshClient) -> {
-                SftpClientFactory factory = SftpClientFactory.instance();
-                try (SftpClient sftpClient = factory.createSftpClient(sshClient)) {
-                    Path nextPath;
-                    while ((nextPath = pathsDeque.poll()) != null) {
-                        final Path sourcePath = nextPath;
-
-                        var sourceRelative = sourcePath.toAbsolutePath().toString().substring(1);
-                        var destPath = destinationBasePath.resolve(sourceRelative).toString();
-                        try (InputStream in = Files.newInputStream(sourcePath)) {
-                            // Open output stream to the remote file
-                            try (OutputStream out = sftpClient.write(destPath)) {
-                                IOUtils.copy(in, out);
+            var released = new AtomicBoolean();
+            try {
+                sshClientService.executeSshBlock((sshClient) -> {
+                    SftpClientFactory factory = SftpClientFactory.instance();
+                    SftpClient sftpClient = null;
+                    try {
+                        sftpClient = factory.createSftpClient(sshClient);
+                        Path nextPath;
+                        while (true) {
+                            // Stop this worker if the number of workers has been lowered
+                            if (state.releaseWorkerIfOverTarget()) {
+                                released.set(true);
+                                break;
+                            }
+                            if (Thread.currentThread().isInterrupted()
+                                    || (nextPath = state.pathsDeque.poll()) == null) {
+                                break;
                             }
+                            sftpClient = transferWithRetry(factory, sshClient, sftpClient, nextPath, state);
                         }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } finally {
+                        IOUtils.closeQuietly(sftpClient);
                     }
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
+                });
+            } finally {
+                if (!released.get()) {
+                    state.activeWorkers.decrementAndGet();
                 }
-            });
+            }
         };
     }
 
+    /**
+     * Transfer a single file, retrying if it fails. The sftp client is recreated for retries if it was closed.
+     * @return the sftp client to use for subsequent transfers
+     */
+    private SftpClient transferWithRetry(SftpClientFactory factory, ClientSession session, SftpClient sftpClient,
+                                         Path sourcePath, TransferState state) throws IOException {
+        var sourceRelative = sourcePath.toAbsolutePath().toString().substring(1);
+        var destPath = state.destinationBasePath.resolve(sourceRelative).toString();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (!sftpClient.isOpen()) {
+                    sftpClient = factory.createSftpClient(session);
+                }
+                transferFile(sftpClient, sourcePath, destPath, state);
+                return sftpClient;
+            } catch (IOException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                log.warn("Failed to transfer {} on attempt {}, retrying: {}", sourcePath, attempt, e.getMessage());
+                try {
+                    Thread.sleep(retryDelayMillis * attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void transferFile(SftpClient sftpClient, Path sourcePath, String destPath, TransferState state)
+            throws IOException {
+        var attrs = Files.readAttributes(sourcePath, BasicFileAttributes.class);
+        long size = attrs.size();
+        var mtime = attrs.lastModifiedTime();
+        if (skipExisting && remoteFileMatches(sftpClient, destPath, size, mtime)) {
+            log.debug("Skipping {}, already present remotely", sourcePath);
+            state.filesSkipped.increment();
+            return;
+        }
+        var buffer = new byte[bufferSize];
+        try (InputStream in = Files.newInputStream(sourcePath);
+             OutputStream out = sftpClient.write(destPath, bufferSize,
+                     OpenMode.Write, OpenMode.Create, OpenMode.Truncate)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        // Preserve the modification time, so that later transfers can tell if the remote copy is current
+        try {
+            sftpClient.setStat(destPath, new SftpClient.Attributes().accessTime(mtime).modifyTime(mtime));
+        } catch (IOException e) {
+            log.warn("Unable to set modification time of remote file {}: {}", destPath, e.getMessage());
+        }
+        // Only completed transfers are counted, so that failed attempts do not inflate throughput
+        state.filesTransferred.increment();
+        state.bytesTransferred.add(size);
+    }
+
+    /**
+     * @return true if the remote file has the same size and modification time as the local file. Modification
+     *      times are compared in seconds, since that is the precision sftp uses.
+     */
+    private boolean remoteFileMatches(SftpClient sftpClient, String destPath, long size, FileTime mtime) {
+        try {
+            var remoteAttrs = sftpClient.stat(destPath);
+            return remoteAttrs.getSize() == size && remoteAttrs.getModifyTime() != null
+                    && remoteAttrs.getModifyTime().to(TimeUnit.SECONDS) == mtime.to(TimeUnit.SECONDS);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * State shared between the workers of a single transfer operation
+     */
+    private static class TransferState {
+        private final ConcurrentLinkedDeque<Path> pathsDeque;
+        private final Path destinationBasePath;
+        private final ConcurrentLinkedQueue<Future<?>> futures = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger activeWorkers = new AtomicInteger();
+        private final AtomicInteger targetWorkers = new AtomicInteger();
+        private final AtomicInteger peakWorkers = new AtomicInteger();
+        private final LongAdder bytesTransferred = new LongAdder();
+        private final LongAdder filesTransferred = new LongAdder();
+        private final LongAdder filesSkipped = new LongAdder();
+        // Only accessed from the controller thread
+        private long lastSampleTime = System.nanoTime();
+        private long lastSampleBytes = 0;
+
+        private TransferState(ConcurrentLinkedDeque<Path> pathsDeque, Path destinationBasePath) {
+            this.pathsDeque = pathsDeque;
+            this.destinationBasePath = destinationBasePath;
+        }
+
+        /**
+         * @return true if the calling worker should stop, in which case it has been removed from the active count
+         */
+        private boolean releaseWorkerIfOverTarget() {
+            while (true) {
+                int active = activeWorkers.get();
+                if (active <= targetWorkers.get()) {
+                    return false;
+                }
+                if (activeWorkers.compareAndSet(active, active - 1)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Summary of the results of a transfer operation
+     */
+    public static class TransferSummary {
+        private final long filesTransferred;
+        private final long filesSkipped;
+        private final long bytesTransferred;
+        private final long elapsedNanos;
+        private final int peakConcurrentTransfers;
+
+        public TransferSummary(long filesTransferred, long filesSkipped, long bytesTransferred, long elapsedNanos,
+                               int peakConcurrentTransfers) {
+            this.filesTransferred = filesTransferred;
+            this.filesSkipped = filesSkipped;
+            this.bytesTransferred = bytesTransferred;
+            this.elapsedNanos = elapsedNanos;
+            this.peakConcurrentTransfers = peakConcurrentTransfers;
+        }
+
+        public long getFilesTransferred() {
+            return filesTransferred;
+        }
+
+        /**
+         * @return number of files not transferred because they were already present remotely
+         */
+        public long getFilesSkipped() {
+            return filesSkipped;
+        }
+
+        public long getBytesTransferred() {
+            return bytesTransferred;
+        }
+
+        public double getElapsedSeconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        public double getFilesPerSecond() {
+            return elapsedNanos == 0 ? 0 : filesTransferred / getElapsedSeconds();
+        }
+
+        public double getMegabytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : bytesTransferred / BYTES_PER_MB / getElapsedSeconds();
+        }
+
+        /**
+         * @return highest number of transfers which were running at once
+         */
+        public int getPeakConcurrentTransfers() {
+            return peakConcurrentTransfers;
+        }
+    }
+
     public void setSourceFileService(SourceFileService sourceFileService) {
         this.sourceFileService = sourceFileService;
     }
@@ -176,7 +500,61 @@ public class SourceFilesToRemoteService {
         this.sshClientService = sshClientService;
     }
 
+    /**
+     * @param concurrentTransfers number of transfers to start with
+     */
     public void setConcurrentTransfers(int concurrentTransfers) {
         this.concurrentTransfers = concurrentTransfers;
     }
+
+    /**
+     * @param maxConcurrentTransfers upper limit on the number of transfers the concurrency can be raised to
+     */
+    public void setMaxConcurrentTransfers(int maxConcurrentTransfers) {
+        this.maxConcurrentTransfers = maxConcurrentTransfers;
+    }
+
+    /**
+     * @param bufferSize size in bytes of the buffer used for reading and writing each file
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * @param maxAttempts maximum number of times to attempt transferring each file
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public void setRetryDelayMillis(long retryDelayMillis) {
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    /**
+     * @param sampleIntervalMillis how often throughput is sampled to adjust concurrency
+     */
+    public void setSampleIntervalMillis(long sampleIntervalMillis) {
+        this.sampleIntervalMillis = sampleIntervalMillis;
+    }
+
+    /**
+     * @param skipExisting if true, files already present remotely with the same size and modification time
+     *      will not be transferred
+     */
+    public void setSkipExisting(boolean skipExisting) {
+        this.skipExisting = skipExisting;
+    }
+
+    /**
+     * @param fileDigestService if set, the digests of transferred files will be verified against the remote copies
+     */
+    public void setFileDigestService(FileDigestService fileDigestService) {
+        this.fileDigestService = fileDigestService;
+    }
+
+    public void setDigestAlgorithm(DigestAlgorithm digestAlgorithm) {
+        this.digestAlgorithm = digestAlgorithm;
+    }
 }
@@ -0,0 +1,311 @@
+package edu.unc.lib.boxc.migration.cdm.services;
+
+import edu.unc.lib.boxc.migration.cdm.exceptions.MigrationException;
+import edu.unc.lib.boxc.migration.cdm.model.CdmFieldInfo;
+import edu.unc.lib.boxc.migration.cdm.model.DestinationsInfo;
+import edu.unc.lib.boxc.migration.cdm.model.MigrationProject;
+import edu.unc.lib.boxc.migration.cdm.model.StorageUsage;
+import edu.unc.lib.boxc.migration.cdm.util.ParallelFileCrawler;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Service which calculates the storage used by the files in a mapping.
+ * Files are checked concurrently, and their sizes and modification times are cached in the project along with the
+ * modification times of their directories. On later runs, files in directories which have not been modified since
+ * they were cached reuse their cached sizes without being checked, so only directories where files were added,
+ * removed or renamed are checked again. Since modifying the contents of a file does not modify its directory,
+ * a full scan should be requested if mapped files may have been changed in place.
+ */
+public class StorageUsageService {
+    private static final Logger log = getLogger(StorageUsageService.class);
+    private static final int FORMAT_MAGIC = 0x43535a43;
+    private static final int FORMAT_VERSION = 3;
+
+    private MigrationProject project;
+    private CdmIndexService indexService;
+    private int parallelism = ParallelFileCrawler.DEFAULT_PARALLELISM;
+
+    /**
+     * Calculate the storage used by the files in a mapping
+     * @param mappingPath path of a file mapping CSV
+     * @param fullScan if true, cached file sizes are ignored and every file is checked
+     * @return storage usage of the mapped files
+     * @throws IOException if a mapped file could not be read
+     */
+    public StorageUsage calculateUsage(Path mappingPath, boolean fullScan) throws IOException {
+        // Group the mapped files by directory, so that unchanged directories can reuse cached sizes
+        Map<Path, Set<String>> filenamesByDir = new HashMap<>();
+        try (var csvParser = SourceFileService.openMappingsParser(mappingPath)) {
+            for (CSVRecord record : csvParser) {
+                for (Path path : getSourcePaths(record)) {
+                    filenamesByDir.computeIfAbsent(path.getParent(), d -> new HashSet<>())
+                            .add(path.getFileName().toString());
+                }
+            }
+        }
+
+        var previous = fullScan ? null : loadCache();
+        var current = new SizeCache(System.currentTimeMillis());
+        int checkedCount;
+        var executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            // Determine which directories are unchanged, then check files which could not use cached sizes
+            var dirResults = new ArrayList<Future<DirectorySizes>>(filenamesByDir.size());
+            for (var dirEntry : filenamesByDir.entrySet()) {
+                dirResults.add(executor.submit(() ->
+                        checkDirectory(dirEntry.getKey(), dirEntry.getValue(), previous)));
+            }
+            var fileResults = new ArrayList<Future<?>>();
+            for (var dirResult : dirResults) {
+                var dirSizes = dirResult.get();
+                current.directories.put(dirSizes.dir, dirSizes);
+                for (String filename : dirSizes.unchecked) {
+                    fileResults.add(executor.submit(() -> {
+                        var attrs = Files.readAttributes(dirSizes.dir.resolve(filename), BasicFileAttributes.class);
+                        dirSizes.sizes.put(filename, new FileSize(attrs.size(), attrs.lastModifiedTime().toMillis()));
+                        return null;
+                    }));
+                }
+            }
+            for (var fileResult : fileResults) {
+                fileResult.get();
+            }
+            checkedCount = fileResults.size();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MigrationException("Interrupted while calculating storage usage", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new MigrationException("Failed to calculate storage usage", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        log.info("Checked {} files in {} directories for storage usage", checkedCount,
+                current.directories.size());
+        writeCache(current);
+
+        var destinationResolver = loadDestinationResolver();
+        var usage = new StorageUsage();
+        try (var csvParser = SourceFileService.openMappingsParser(mappingPath)) {
+            for (CSVRecord record : csvParser) {
+                var destination = destinationResolver.apply(record.get(0));
+                for (Path path : getSourcePaths(record)) {
+                    var filename = path.getFileName().toString();
+                    long size = current.directories.get(path.getParent()).sizes.get(filename).size;
+                    usage.addFile(FilenameUtils.getExtension(filename).toLowerCase(), destination, size);
+                }
+            }
+        }
+        return usage;
+    }
+
+    private List<Path> getSourcePaths(CSVRecord record) {
+        var sourcePaths = SourceFileService.recordToMapping(record).getSourcePaths();
+        if (sourcePaths == null) {
+            return List.of();
+        }
+        return sourcePaths.stream().map(p -> p.toAbsolutePath().normalize()).toList();
+    }
+
+    /**
+     * @return sizes of files in the directory which could be reused from the cache, along with the names of
+     *      files which must be checked
+     */
+    private DirectorySizes checkDirectory(Path dir, Set<String> filenames, SizeCache previous) throws IOException {
+        long dirMtime = Files.getLastModifiedTime(dir).toMillis();
+        var cached = previous == null ? null : previous.directories.get(dir);
+        // Directories modified close to when the cache was written may have changed again within the same mtime
+        boolean unchanged = cached != null && cached.mtime == dirMtime
+                && dirMtime < previous.scanTime - FileInventoryService.RACY_WINDOW_MILLIS;
+        var dirSizes = new DirectorySizes(dir, dirMtime);
+        for (String filename : filenames) {
+            var cachedSize = unchanged ? cached.sizes.get(filename) : null;
+            if (cachedSize == null) {
+                dirSizes.unchecked.add(filename);
+            } else {
+                dirSizes.sizes.put(filename, cachedSize);
+            }
+        }
+        return dirSizes;
+    }
+
+    /**
+     * @return function which returns the destination for a cdm id, or null if it has no destination
+     */
+    private Function<String, String> loadDestinationResolver() throws IOException {
+        if (Files.notExists(project.getDestinationMappingsPath())) {
+            return id -> null;
+        }
+        var idToDestination = new HashMap<String, String>();
+        for (var mapping : DestinationsService.loadMappings(project).getMappings()) {
+            idToDestination.put(mapping.getId(), mapping.getDestination());
+        }
+        var defaultDestination = idToDestination.get(DestinationsInfo.DEFAULT_ID);
+        // Files belonging to compound objects are deposited to the destination of their parent
+        var parentIds = idToDestination.size() > (defaultDestination == null ? 0 : 1)
+                ? loadParentIds() : Map.<String, String>of();
+        return id -> {
+            var destination = idToDestination.get(id);
+            if (destination == null && parentIds.containsKey(id)) {
+                destination = idToDestination.get(parentIds.get(id));
+            }
+            return destination == null ? defaultDestination : destination;
+        };
+    }
+
+    private Map<String, String> loadParentIds() {
+        var parentIds = new HashMap<String, String>();
+        if (indexService == null || Files.notExists(project.getIndexPath())) {
+            return parentIds;
+        }
+        Connection conn = null;
+        try {
+            conn = indexService.openDbConnection();
+            Statement stmt = conn.createStatement();
+            ResultSet rs = stmt.executeQuery("select " + CdmFieldInfo.CDM_ID + ", " + CdmIndexService.PARENT_ID_FIELD
+                    + " from " + CdmIndexService.TB_NAME
+                    + " where " + CdmIndexService.PARENT_ID_FIELD + " is not null");
+            while (rs.next()) {
+                parentIds.put(rs.getString(1), rs.getString(2));
+            }
+        } catch (SQLException e) {
+            throw new MigrationException("Error interacting with export index", e);
+        } finally {
+            CdmIndexService.closeDbConnection(conn);
+        }
+        return parentIds;
+    }
+
+    private SizeCache loadCache() {
+        var cachePath = project.getFileSizesCachePath();
+        if (Files.notExists(cachePath)) {
+            return null;
+        }
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cachePath)))) {
+            if (in.readInt() != FORMAT_MAGIC || in.readInt() != FORMAT_VERSION) {
+                log.warn("Ignoring file size cache {} with unsupported format", cachePath);
+                return null;
+            }
+            var cache = new SizeCache(in.readLong());
+            int dirCount = in.readInt();
+            for (int i = 0; i < dirCount; i++) {
+                var dirSizes = new DirectorySizes(Path.of(in.readUTF()), in.readLong());
+                int fileCount = in.readInt();
+                for (int j = 0; j < fileCount; j++) {
+                    dirSizes.sizes.put(in.readUTF(), new FileSize(in.readLong(), in.readLong()));
+                }
+                cache.directories.put(dirSizes.dir, dirSizes);
+            }
+            return cache;
+        } catch (IOException e) {
+            log.warn("Unable to read file size cache {}, all files will be checked", cachePath, e);
+            return null;
+        }
+    }
+
+    private void writeCache(SizeCache cache) {
+        var cachePath = project.getFileSizesCachePath();
+        var tmpPath = cachePath.resolveSibling(cachePath.getFileName() + ".tmp");
+        try {
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpPath)))) {
+                out.writeInt(FORMAT_MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(cache.scanTime);
+                out.writeInt(cache.directories.size());
+                for (var dirSizes : cache.directories.values()) {
+                    out.writeUTF(dirSizes.dir.toString());
+                    out.writeLong(dirSizes.mtime);
+                    out.writeInt(dirSizes.sizes.size());
+                    for (var entry : dirSizes.sizes.entrySet()) {
+                        out.writeUTF(entry.getKey());
+                        out.writeLong(entry.getValue().size);
+                        out.writeLong(entry.getValue().mtime);
+                    }
+                }
+            }
+            Files.move(tmpPath, cachePath, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new MigrationException("Failed to write file size cache", e);
+        }
+    }
+
+    /**
+     * Cached sizes of files, grouped by directory
+     */
+    private static class SizeCache {
+        private final long scanTime;
+        private final Map<Path, DirectorySizes> directories = new HashMap<>();
+
+        private SizeCache(long scanTime) {
+            this.scanTime = scanTime;
+        }
+    }
+
+    private static class DirectorySizes {
+        private final Path dir;
+        private final long mtime;
+        private final Map<String, FileSize> sizes = new ConcurrentHashMap<>();
+        private final List<String> unchecked = new ArrayList<>();
+
+        private DirectorySizes(Path dir, long mtime) {
+            this.dir = dir;
+            this.mtime = mtime;
+        }
+    }
+
+    private static class FileSize {
+        private final long size;
+        private final long mtime;
+
+        private FileSize(long size, long mtime) {
+            this.size = size;
+            this.mtime = mtime;
+        }
+    }
+
+    public void setProject(MigrationProject project) {
+        this.project = project;
+    }
+
+    public void setIndexService(CdmIndexService indexService) {
+        this.indexService = indexService;
+    }
+
+    /**
+     * @param parallelism number of files to check concurrently
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+}
@@ -10,7 +10,10 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Service for retrieving streaming metadata
@@ -47,6 +50,36 @@ public class StreamingMetadataService {
         return streamingFields[0] != null && streamingFields[1] != null;
     }
 
+    /**
+     * Retrieve the ids of all records which have streaming metadata in a single query, for use when
+     * checking many records
+     * @return set of cdm ids
+     */
+    public Set<String> listRecordIdsWithStreamingMetadata() {
+        if (!hasProjectStreamingMetadataField()) {
+            return Collections.emptySet();
+        }
+
+        Set<String> ids = new HashSet<>();
+        Connection conn = null;
+        try {
+            conn = indexService.openDbConnection();
+            Statement stmt = conn.createStatement();
+            ResultSet rs = stmt.executeQuery("select " + CdmFieldInfo.CDM_ID
+                    + " from " + CdmIndexService.TB_NAME
+                    + " where " + STREAMING_FILE_FIELD + " is not null and " + STREAMING_FILE_FIELD + " != ''"
+                    + " and " + DURACLOUD_SPACE_FIELD + " is not null and " + DURACLOUD_SPACE_FIELD + " != ''");
+            while (rs.next()) {
+                ids.add(rs.getString(1));
+            }
+        } catch (SQLException e) {
+            throw new MigrationException("Error interacting with export index", e);
+        } finally {
+            CdmIndexService.closeDbConnection(conn);
+        }
+        return ids;
+    }
+
     public boolean hasProjectStreamingMetadataField() {
         if (projectHasStreamingMetadata == null) {
             // check if project has streamingFile field and duracloudSpace field
@@ -34,7 +34,6 @@ import org.apache.jena.vocabulary.RDF;
 import org.slf4j.Logger;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -106,7 +105,8 @@ public class WorkGenerator {
     }
 
     protected void generateWork() throws IOException {
-        Path expDescPath = getDescriptionPath(cdmId, false);
+        // Works must have a description
+        hasDescription(cdmId, false);
 
         log.info("Transforming CDM object {} to box-c work {}", cdmId, workPid.getId());
         workBag = model.createBag(workPid.getRepositoryPath());
@@ -118,7 +118,7 @@ public class WorkGenerator {
         addRefId(cdmId, workBag);
 
         // Copy description to SIP
-        copyDescriptionToSip(workPid, expDescPath);
+        copyDescriptionToSip(workPid, cdmId);
         sipId = destEntry.getDepositPid().getId();
 
         fileObjPids = addChildObjects();
@@ -135,20 +135,28 @@ public class WorkGenerator {
         return Collections.singletonList(fileObjectPid);
     }
 
-    protected void copyDescriptionToSip(PID pid, Path descPath) throws IOException {
-        if (Files.notExists(descPath)) {
-            return;
-        }
-        // Copy description to SIP
+    /**
+     * Copy the expanded description with the given id into the SIP. Packed descriptions are transferred directly
+     * from the pack file into the SIP.
+     * @param pid pid of the object the description belongs to
+     * @param descCdmId CDM id of the description, which must exist
+     * @throws IOException
+     */
+    protected void copyDescriptionToSip(PID pid, String descCdmId) throws IOException {
         Path sipDescPath = destEntry.getDepositDirManager().getModsPath(pid, true);
-        Files.copy(descPath, sipDescPath);
+        descriptionsService.getExpandedDescriptionStore().copyTo(descCdmId, sipDescPath);
     }
 
-    protected Path getDescriptionPath(String cdmId, boolean allowMissing) {
-        Path expDescPath = descriptionsService.getExpandedDescriptionFilePath(cdmId);
-        if (Files.notExists(expDescPath)) {
+    /**
+     * @param cdmId
+     * @param allowMissing if false, an error is thrown if the description is missing
+     * @return true if there is an expanded description for the given id
+     * @throws IOException
+     */
+    protected boolean hasDescription(String cdmId, boolean allowMissing) throws IOException {
+        if (!descriptionsService.getExpandedDescriptionStore().contains(cdmId)) {
             if (allowMissing) {
-                return null;
+                return false;
             }
             String message = "Cannot transform object " + cdmId + ", it does not have a MODS description";
             if (options.isForce()) {
@@ -158,7 +166,7 @@ public class WorkGenerator {
                 throw new InvalidProjectStateException(message);
             }
         }
-        return expDescPath;
+        return true;
     }
 
     protected SourceFilesInfo.SourceFileMapping getSourceFileMapping(String cdmId) {
@@ -234,9 +242,8 @@ public class WorkGenerator {
      * @throws IOException
      */
     protected void addChildDescription(String descCdmId, PID fileObjPid) throws IOException {
-        var childDescPath = getDescriptionPath(descCdmId, true);
-        if (childDescPath != null) {
-            copyDescriptionToSip(fileObjPid, childDescPath);
+        if (hasDescription(descCdmId, true)) {
+            copyDescriptionToSip(fileObjPid, descCdmId);
         }
     }
 
@@ -11,8 +11,11 @@ import edu.unc.lib.boxc.migration.cdm.model.MigrationProjectProperties;
 import edu.unc.lib.boxc.migration.cdm.options.Verbosity;
 import edu.unc.lib.boxc.migration.cdm.services.CdmFieldService;
 import edu.unc.lib.boxc.migration.cdm.services.DescriptionsService;
+import edu.unc.lib.boxc.migration.cdm.services.FileInventoryLookup;
+import edu.unc.lib.boxc.migration.cdm.services.FileInventoryService;
 import edu.unc.lib.boxc.migration.cdm.services.SipService;
 import edu.unc.lib.boxc.migration.cdm.services.StreamingMetadataService;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 
 /**
@@ -82,15 +85,23 @@ public class ProjectStatusService extends AbstractStatusService {
         reportDescriptionStats(totalObjects);
         sectionDivider();
 
-        outputLogger.info("Source File Mappings");
-        // exclude group/compound objects since they don't have source files
-        int totalObjectsOnlyFileObjects = getQueryService().countIndexedFileObjects();
-        reportSourceMappings(totalObjectsOnlyFileObjects);
-        sectionDivider();
-
-        outputLogger.info("Access File Mappings");
-        reportAccessMappings(totalObjects);
-        sectionDivider();
+        // Source and access file validations share the cached file inventories of the project
+        var inventoryService = new FileInventoryService();
+        inventoryService.setProject(project);
+        var inventoryLookup = new FileInventoryLookup(inventoryService);
+        try {
+            outputLogger.info("Source File Mappings");
+            // exclude group/compound objects since they don't have source files
+            int totalObjectsOnlyFileObjects = getQueryService().countIndexedFileObjects();
+            reportSourceMappings(totalObjectsOnlyFileObjects, inventoryLookup);
+            sectionDivider();
+
+            outputLogger.info("Access File Mappings");
+            reportAccessMappings(totalObjects, inventoryLookup);
+            sectionDivider();
+        } finally {
+            IOUtils.closeQuietly(inventoryLookup);
+        }
 
         outputLogger.info("Grouped Object Mappings");
         reportGroupMappings(totalObjects);
@@ -114,17 +125,19 @@ public class ProjectStatusService extends AbstractStatusService {
         destStatus.reportDestinationStats(totalObjects, Verbosity.QUIET);
     }
 
-    private void reportSourceMappings(int totalObjects) {
+    private void reportSourceMappings(int totalObjects, FileInventoryLookup inventoryLookup) {
         SourceFilesStatusService statusService = new SourceFilesStatusService();
         statusService.setProject(project);
+        statusService.setInventoryLookup(inventoryLookup);
         statusService.setQueryService(getQueryService());
         statusService.setStreamingMetadataService(streamingMetadataService);
         statusService.reportStats(totalObjects, Verbosity.QUIET);
     }
 
-    private void reportAccessMappings(int totalObjects) {
+    private void reportAccessMappings(int totalObjects, FileInventoryLookup inventoryLookup) {
         AccessFilesStatusService statusService = new AccessFilesStatusService();
         statusService.setProject(project);
+        statusService.setInventoryLookup(inventoryLookup);
         statusService.setQueryService(getQueryService());
         statusService.setStreamingMetadataService(streamingMetadataService);
         statusService.reportStats(totalObjects, Verbosity.QUIET);
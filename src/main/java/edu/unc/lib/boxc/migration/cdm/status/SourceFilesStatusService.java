@@ -14,6 +14,7 @@ import org.apache.commons.lang3.StringUtils;
 import edu.unc.lib.boxc.migration.cdm.model.SourceFilesInfo;
 import edu.unc.lib.boxc.migration.cdm.model.SourceFilesInfo.SourceFileMapping;
 import edu.unc.lib.boxc.migration.cdm.options.Verbosity;
+import edu.unc.lib.boxc.migration.cdm.services.FileInventoryLookup;
 import edu.unc.lib.boxc.migration.cdm.services.StreamingMetadataService;
 import edu.unc.lib.boxc.migration.cdm.services.SourceFileService;
 import edu.unc.lib.boxc.migration.cdm.validators.SourceFilesValidator;
@@ -28,6 +29,7 @@ public class SourceFilesStatusService extends AbstractStatusService {
     private static final Logger log = getLogger(SourceFilesStatusService.class);
 
     private StreamingMetadataService streamingMetadataService;
+    private FileInventoryLookup inventoryLookup;
 
     /**
      * Display a stand alone report of the source file mapping status
@@ -53,6 +55,7 @@ public class SourceFilesStatusService extends AbstractStatusService {
         SourceFilesValidator validator = getValidator();
         validator.setProject(project);
         validator.setStreamingMetadataService(streamingMetadataService);
+        validator.setInventoryLookup(inventoryLookup);
         List<String> errors = validator.validateMappings(forceValidation());
         int numErrors = errors.size();
         if (numErrors == 0) {
@@ -125,6 +128,14 @@ public class SourceFilesStatusService extends AbstractStatusService {
         this.streamingMetadataService = streamingMetadataService;
     }
 
+    /**
+     * @param inventoryLookup lookup of cached file inventories to share with other validations, or null
+     *      for the validation to use its own
+     */
+    public void setInventoryLookup(FileInventoryLookup inventoryLookup) {
+        this.inventoryLookup = inventoryLookup;
+    }
+
     protected boolean forceValidation() {
         return false;
     }
@@ -0,0 +1,52 @@
+package edu.unc.lib.boxc.migration.cdm.util;
+
+/**
+ * Hill climbing controller which picks a level of concurrency based on observed throughput.
+ * Each time a sample is provided, the concurrency moves one step in the current direction. If throughput
+ * dropped compared to the previous sample, the direction is reversed.
+ */
+public class AdaptiveConcurrencyController {
+    // Changes in throughput smaller than this fraction are treated as noise
+    private static final double TOLERANCE = 0.05;
+
+    private final int minConcurrency;
+    private final int maxConcurrency;
+    private int direction = 1;
+    private double previousRate = -1;
+
+    public AdaptiveConcurrencyController(int minConcurrency, int maxConcurrency) {
+        if (minConcurrency < 1 || maxConcurrency < minConcurrency) {
+            throw new IllegalArgumentException("Invalid concurrency range " + minConcurrency
+                    + " to " + maxConcurrency);
+        }
+        this.minConcurrency = minConcurrency;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * @param currentConcurrency concurrency in use while the sample was collected
+     * @param rate throughput observed during the sample, in any consistent unit
+     * @return concurrency to use for the next sample period
+     */
+    public synchronized int adjust(int currentConcurrency, double rate) {
+        if (previousRate >= 0 && rate < previousRate * (1 - TOLERANCE)) {
+            direction = -direction;
+        }
+        previousRate = rate;
+        int next = currentConcurrency + direction;
+        // Bounce off of the limits so that the controller keeps probing
+        if (next > maxConcurrency || next < minConcurrency) {
+            direction = -direction;
+            next = currentConcurrency;
+        }
+        return next;
+    }
+
+    public int getMinConcurrency() {
+        return minConcurrency;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+}
@@ -0,0 +1,325 @@
+package edu.unc.lib.boxc.migration.cdm.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Memory compact index of filenames to the relative paths of candidate files with those names,
+ * for matching against source trees containing millions of files.
+ * Directory paths are stored once each, and filenames are packed as UTF-8 into a single sorted byte array
+ * alongside the id of their directory, so each file costs a few bytes beyond its name rather than
+ * several objects. Lookups are by binary search, after a bloom filter rejects most names which are not present.
+ * Files can be looked up by a different name than their own, such as a lowercase form, in which case their
+ * actual names are packed separately.
+ * Instances are immutable and safe for concurrent usage once built.
+ */
+public class CandidatePathIndex {
+    private static final CandidatePathIndex EMPTY = new Builder().build();
+    private static final int BLOOM_BITS_PER_ENTRY = 10;
+    private static final int BLOOM_HASHES = 7;
+
+    private final String[] directories;
+    // Names files are looked up by, in sorted order
+    private final PackedNames names;
+    // Actual names of files, empty for files whose actual name is the same as their lookup name
+    private final PackedNames actualNames;
+    private final int[] directoryIds;
+    private final long[] bloomBits;
+    private final int bloomSize;
+
+    private CandidatePathIndex(String[] directories, PackedNames names, PackedNames actualNames,
+                               int[] directoryIds) {
+        this.directories = directories;
+        this.names = names;
+        this.actualNames = actualNames;
+        this.directoryIds = directoryIds;
+        int entryCount = directoryIds.length;
+        this.bloomSize = Math.max(64, entryCount * BLOOM_BITS_PER_ENTRY);
+        this.bloomBits = new long[(bloomSize + 63) / 64];
+        for (int i = 0; i < entryCount; i++) {
+            long hash = hash(names.bytes, names.offsets[i], names.offsets[i + 1]);
+            for (int k = 0; k < BLOOM_HASHES; k++) {
+                int bit = bloomIndex(hash, k);
+                bloomBits[bit >>> 6] |= 1L << bit;
+            }
+        }
+    }
+
+    /**
+     * @return an index containing no files
+     */
+    public static CandidatePathIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return number of files in the index
+     */
+    public int size() {
+        return directoryIds.length;
+    }
+
+    /**
+     * @param filename
+     * @return true if the index contains at least one file with the given name
+     */
+    public boolean contains(String filename) {
+        var key = filename.getBytes(StandardCharsets.UTF_8);
+        if (!mightContain(key)) {
+            return false;
+        }
+        int i = lowerBound(key);
+        return i < size() && names.compare(i, key) == 0;
+    }
+
+    /**
+     * @param filename
+     * @return paths, relative to the base path, of all files with the given name in sorted order,
+     *      or null if there are none
+     */
+    public List<String> getPaths(String filename) {
+        var key = filename.getBytes(StandardCharsets.UTF_8);
+        if (!mightContain(key)) {
+            return null;
+        }
+        int i = lowerBound(key);
+        List<String> paths = null;
+        while (i < size() && names.compare(i, key) == 0) {
+            if (paths == null) {
+                paths = new ArrayList<>(1);
+            }
+            var actualName = actualNames.isEmpty(i) ? filename : actualNames.get(i);
+            paths.add(joinPath(directories[directoryIds[i]], actualName));
+            i++;
+        }
+        return paths;
+    }
+
+    private boolean mightContain(byte[] key) {
+        long hash = hash(key, 0, key.length);
+        for (int k = 0; k < BLOOM_HASHES; k++) {
+            int bit = bloomIndex(hash, k);
+            if ((bloomBits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return index of the first name which is greater than or equal to the key
+     */
+    private int lowerBound(byte[] key) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (names.compare(mid, key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int bloomIndex(long hash, int k) {
+        // Derive each bit from two halves of the hash, as in double hashing
+        int combined = (int) hash + k * (int) (hash >>> 32);
+        return Math.floorMod(combined, bloomSize);
+    }
+
+    /**
+     * 64-bit FNV-1a hash of a range of bytes
+     */
+    private static long hash(byte[] bytes, int from, int to) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            hash ^= bytes[i] & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static String joinPath(String directory, String filename) {
+        return directory.isEmpty() ? filename : directory + "/" + filename;
+    }
+
+    /**
+     * Names packed as UTF-8 into a single byte array, with the name at index i spanning offsets[i] to [i + 1]
+     */
+    private static class PackedNames {
+        private final byte[] bytes;
+        private final int[] offsets;
+
+        private PackedNames(byte[] bytes, int[] offsets) {
+            this.bytes = bytes;
+            this.offsets = offsets;
+        }
+
+        private int compare(int i, byte[] key) {
+            return Arrays.compareUnsigned(bytes, offsets[i], offsets[i + 1], key, 0, key.length);
+        }
+
+        private boolean isEmpty(int i) {
+            return offsets[i] == offsets[i + 1];
+        }
+
+        private String get(int i) {
+            return new String(bytes, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @return names reordered so that the name at index i is the name at order[i] of these names
+         */
+        private PackedNames reorder(int[] order) {
+            var sortedBytes = new byte[offsets[order.length]];
+            var sortedOffsets = new int[order.length + 1];
+            int offset = 0;
+            for (int i = 0; i < order.length; i++) {
+                int length = offsets[order[i] + 1] - offsets[order[i]];
+                sortedOffsets[i] = offset;
+                System.arraycopy(bytes, offsets[order[i]], sortedBytes, offset, length);
+                offset += length;
+            }
+            sortedOffsets[order.length] = offset;
+            return new PackedNames(sortedBytes, sortedOffsets);
+        }
+    }
+
+    /**
+     * Appends names to growing arrays, rather than holding an object per name
+     */
+    private static class NamesBuffer {
+        private byte[] bytes = new byte[16 * 1024];
+        private int length;
+        private int[] offsets = new int[1025];
+        private int count;
+
+        private void add(byte[] name) {
+            if ((long) length + name.length > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Filenames exceed the maximum size of the index");
+            }
+            if (length + name.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, (int) Math.min(Integer.MAX_VALUE - 8,
+                        Math.max((long) bytes.length * 2, (long) length + name.length)));
+            }
+            if (count + 1 == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            System.arraycopy(name, 0, bytes, length, name.length);
+            length += name.length;
+            count++;
+            offsets[count] = length;
+        }
+
+        private PackedNames toPackedNames() {
+            return new PackedNames(bytes, offsets);
+        }
+    }
+
+    /**
+     * Collects files and builds them into an index. Files are appended to growing arrays as they are added,
+     * rather than held as an object per file, so that collecting does not cost much more memory than the index.
+     */
+    public static class Builder {
+        private final List<String> directories = new ArrayList<>();
+        private final Map<String, Integer> directoryIds = new HashMap<>();
+        private final NamesBuffer names = new NamesBuffer();
+        private final NamesBuffer actualNames = new NamesBuffer();
+        private int[] entryDirectoryIds = new int[1024];
+        private int count;
+
+        /**
+         * @param directoryPath path of the directory containing the file, relative to the base path
+         * @param filename name of the file, which it will be looked up by
+         * @return this builder
+         */
+        public Builder add(String directoryPath, String filename) {
+            return add(directoryPath, filename, filename);
+        }
+
+        /**
+         * @param directoryPath path of the directory containing the file, relative to the base path
+         * @param lookupName name the file will be looked up by
+         * @param filename actual name of the file
+         * @return this builder
+         */
+        public Builder add(String directoryPath, String lookupName, String filename) {
+            int directoryId = directoryIds.computeIfAbsent(directoryPath, d -> {
+                directories.add(d);
+                return directories.size() - 1;
+            });
+            if (count == entryDirectoryIds.length) {
+                entryDirectoryIds = Arrays.copyOf(entryDirectoryIds, count * 2);
+            }
+            names.add(lookupName.getBytes(StandardCharsets.UTF_8));
+            actualNames.add(lookupName.equals(filename) ? new byte[0] : filename.getBytes(StandardCharsets.UTF_8));
+            entryDirectoryIds[count] = directoryId;
+            count++;
+            return this;
+        }
+
+        public CandidatePathIndex build() {
+            // Order by name, then by full path so that paths for the same name are returned in sorted order
+            var added = names.toPackedNames();
+            var addedActual = actualNames.toPackedNames();
+            var order = new int[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            sort(order, new int[count], 0, count, added, addedActual);
+
+            var sortedDirectoryIds = new int[count];
+            for (int i = 0; i < count; i++) {
+                sortedDirectoryIds[i] = entryDirectoryIds[order[i]];
+            }
+            return new CandidatePathIndex(directories.toArray(String[]::new), added.reorder(order),
+                    addedActual.reorder(order), sortedDirectoryIds);
+        }
+
+        /**
+         * Merge sort of entry numbers, avoiding boxing each entry for a comparator
+         */
+        private void sort(int[] order, int[] scratch, int from, int to, PackedNames added, PackedNames addedActual) {
+            if (to - from < 2) {
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            sort(order, scratch, from, mid, added, addedActual);
+            sort(order, scratch, mid, to, added, addedActual);
+            if (compareEntries(order[mid - 1], order[mid], added, addedActual) <= 0) {
+                return;
+            }
+            System.arraycopy(order, from, scratch, from, to - from);
+            int left = from;
+            int right = mid;
+            for (int i = from; i < to; i++) {
+                if (right >= to || (left < mid
+                        && compareEntries(scratch[left], scratch[right], added, addedActual) <= 0)) {
+                    order[i] = scratch[left++];
+                } else {
+                    order[i] = scratch[right++];
+                }
+            }
+        }
+
+        private int compareEntries(int a, int b, PackedNames added, PackedNames addedActual) {
+            int result = Arrays.compareUnsigned(added.bytes, added.offsets[a], added.offsets[a + 1],
+                    added.bytes, added.offsets[b], added.offsets[b + 1]);
+            if (result != 0) {
+                return result;
+            }
+            return getPath(a, added, addedActual).compareTo(getPath(b, added, addedActual));
+        }
+
+        private String getPath(int entry, PackedNames added, PackedNames addedActual) {
+            var name = addedActual.isEmpty(entry) ? added.get(entry) : addedActual.get(entry);
+            return joinPath(directories.get(entryDirectoryIds[entry]), name);
+        }
+    }
+}
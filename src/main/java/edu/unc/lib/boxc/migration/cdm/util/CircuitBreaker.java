@@ -0,0 +1,124 @@
+package edu.unc.lib.boxc.migration.cdm.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Circuit breaker which pauses requests when the rate of failures among recent requests spikes, to give
+ * an overloaded server a chance to recover. The outcomes of the most recent requests are tracked in a window,
+ * and once enough have been recorded and the fraction which failed reaches the threshold, the breaker opens.
+ * While open, callers of {@link #awaitClosed()} wait until the pause has elapsed. Outcomes recorded while open
+ * are ignored, and tracking starts over once the breaker closes.
+ * Safe for concurrent usage.
+ */
+public class CircuitBreaker {
+    private static final Logger log = getLogger(CircuitBreaker.class);
+
+    private final boolean[] outcomes;
+    private final int minRequests;
+    private final double failureThreshold;
+    private final long pauseNanos;
+    // Circular buffer of whether each of the recent requests failed
+    private int count;
+    private int next;
+    private int failures;
+    private boolean open;
+    private long openUntilNanos;
+    private int timesOpened;
+
+    /**
+     * @param windowSize number of recent requests to calculate the failure rate from
+     * @param minRequests minimum number of requests in the window before the breaker can open
+     * @param failureThreshold fraction of requests in the window which must fail for the breaker to open
+     * @param pauseMillis how long requests are paused once the breaker opens
+     */
+    public CircuitBreaker(int windowSize, int minRequests, double failureThreshold, long pauseMillis) {
+        if (windowSize < 1 || minRequests < 1 || minRequests > windowSize) {
+            throw new IllegalArgumentException("Invalid window of " + windowSize
+                    + " requests with a minimum of " + minRequests);
+        }
+        if (failureThreshold <= 0 || failureThreshold > 1) {
+            throw new IllegalArgumentException("Invalid failure threshold " + failureThreshold);
+        }
+        this.outcomes = new boolean[windowSize];
+        this.minRequests = minRequests;
+        this.failureThreshold = failureThreshold;
+        this.pauseNanos = TimeUnit.MILLISECONDS.toNanos(pauseMillis);
+    }
+
+    /**
+     * Wait until the breaker is closed, returning immediately if it is not open
+     * @throws InterruptedException
+     */
+    public void awaitClosed() throws InterruptedException {
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                if (!open) {
+                    return;
+                }
+                waitNanos = openUntilNanos - System.nanoTime();
+                if (waitNanos <= 0) {
+                    log.info("Resuming requests after pause");
+                    open = false;
+                    return;
+                }
+            }
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    public void recordSuccess() {
+        record(false);
+    }
+
+    public void recordFailure() {
+        record(true);
+    }
+
+    private synchronized void record(boolean failed) {
+        if (open) {
+            return;
+        }
+        if (count == outcomes.length) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            count++;
+        }
+        outcomes[next] = failed;
+        if (failed) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+
+        if (count >= minRequests && failures >= failureThreshold * count) {
+            log.warn("{} of the last {} requests failed, pausing requests for {}ms",
+                    failures, count, TimeUnit.NANOSECONDS.toMillis(pauseNanos));
+            open = true;
+            openUntilNanos = System.nanoTime() + pauseNanos;
+            timesOpened++;
+            count = 0;
+            next = 0;
+            failures = 0;
+        }
+    }
+
+    /**
+     * @return true if requests are currently paused
+     */
+    public synchronized boolean isOpen() {
+        return open && openUntilNanos - System.nanoTime() > 0;
+    }
+
+    /**
+     * @return number of times the breaker has opened
+     */
+    public synchronized int getTimesOpened() {
+        return timesOpened;
+    }
+}
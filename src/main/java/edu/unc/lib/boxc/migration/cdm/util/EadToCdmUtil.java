@@ -1,21 +1,26 @@
 package edu.unc.lib.boxc.migration.cdm.util;
 
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
 import edu.unc.lib.boxc.migration.cdm.exceptions.MigrationException;
 import edu.unc.lib.boxc.migration.cdm.model.MigrationProject;
 import edu.unc.lib.boxc.migration.cdm.model.SourceFilesInfo;
-import edu.unc.lib.boxc.migration.cdm.services.CdmExportService;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import static edu.unc.lib.boxc.migration.cdm.model.CdmFieldInfo.CDM_ID;
 import static edu.unc.lib.boxc.migration.cdm.model.SourceFilesInfo.ID_FIELD;
@@ -67,12 +72,6 @@ public class EadToCdmUtil {
     public static final String STANDARDIZED_SCOPE_CONTENT = standardizeHeader(SCOPE_CONTENT);
     public static final String STANDARDIZED_UNIT_TITLE = standardizeHeader(UNIT_TITLE);
     public static final String STANDARDIZED_CONTAINER = standardizeHeader(CONTAINER);
-    private static final ObjectWriter JSON_WRITER;
-
-    static {
-        ObjectMapper mapper = new ObjectMapper();
-        JSON_WRITER = mapper.writerFor(CdmExportService.EadToCdmInfo.class);
-    }
     public static String[] TSV_HEADERS = new String[] {
             COLLECTION_NAME,
             COLLECTION_NUMBER,
@@ -165,20 +164,57 @@ public class EadToCdmUtil {
     }
 
     /**
-     * get filenames from source files
+     * Write the body of an EAD to CDM request, containing the EAD ID and a comma-delimited list of unique
+     * filenames from the source files mapping. Filenames are written as the mapping is read, so that the body
+     * is never held in memory as a single string. The set of distinct filenames seen so far is still kept in
+     * order to skip duplicates, so memory usage grows with the number of distinct filenames in the mapping.
      * @param project
-     * @return comma-delimited list of filenames
+     * @param eadId
+     * @param outStream stream to write the JSON body to. It will be flushed but not closed.
+     * @throws IOException
      */
-    public static String getFilenames(MigrationProject project) {
-        var filenameToIdMap = getInfoFromSourceFile(project);
-        var filenames = filenameToIdMap.keySet();
-        filenames.removeIf(String::isBlank);
-        return String.join(",", filenames);
-    }
-
-    public static String toJson(CdmExportService.EadToCdmInfo info) throws IOException {
-        var json = JSON_WRITER.writeValueAsString(info);
-        return JSON_WRITER.writeValueAsString(info);
+    public static void writeEadToCdmBody(MigrationProject project, String eadId, OutputStream outStream)
+            throws IOException {
+        var encoder = JsonStringEncoder.getInstance();
+        var format = CSVFormat.DEFAULT.builder()
+                .setTrim(true)
+                .setSkipHeaderRecord(true)
+                .setHeader(SourceFilesInfo.CSV_HEADERS)
+                .get();
+        var writer = new BufferedWriter(new OutputStreamWriter(outStream, StandardCharsets.UTF_8));
+        writer.write("{\"ead_id\":");
+        if (eadId == null) {
+            writer.write("null");
+        } else {
+            writer.write('"');
+            writer.write(encoder.quoteAsString(eadId));
+            writer.write('"');
+        }
+        writer.write(",\"files\":\"");
+        try (
+                var reader = Files.newBufferedReader(project.getSourceFilesMappingPath());
+                var csvRecords = CSVParser.parse(reader, format);
+        ) {
+            Set<String> seenFilenames = new HashSet<>();
+            for (var record : csvRecords) {
+                var sourceFile = record.get(SOURCE_FILE_FIELD);
+                if (StringUtils.isBlank(sourceFile)) {
+                    continue;
+                }
+                var filename = Paths.get(sourceFile).getFileName().toString();
+                if (filename.isBlank() || !seenFilenames.add(filename)) {
+                    continue;
+                }
+                if (seenFilenames.size() > 1) {
+                    writer.write(',');
+                }
+                writer.write(encoder.quoteAsString(filename));
+            }
+        } catch (IOException e) {
+            throw new MigrationException("Failed to get source files info", e);
+        }
+        writer.write("\"}");
+        writer.flush();
     }
 
     private EadToCdmUtil() {
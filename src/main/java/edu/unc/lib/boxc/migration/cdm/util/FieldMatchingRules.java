@@ -0,0 +1,129 @@
+package edu.unc.lib.boxc.migration.cdm.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Ordered list of rules for transforming export field values into filenames. Each rule pairs a regular
+ * expression which must match the entire field value with a replacement template. Rules are tried in order
+ * until one produces an acceptable filename, so that several filename conventions can be matched in one pass.
+ * Rules are compiled once, and values which cannot match a rule because they do not start with the
+ * literal prefix of its pattern are rejected before the regular expression is evaluated.
+ * Instances are not thread safe.
+ */
+public class FieldMatchingRules {
+    private static final String META_CHARACTERS = "\\.[]{}()*+?^$|";
+
+    private final List<Rule> rules;
+    private final boolean lowercase;
+
+    private FieldMatchingRules(List<Rule> rules, boolean lowercase) {
+        this.rules = rules;
+        this.lowercase = lowercase;
+    }
+
+    /**
+     * Build rules from patterns and templates, pairing them by position.
+     * If only one pattern or one template is provided, it is used with each of the other values.
+     * @param patterns regular expressions which must match entire field values
+     * @param templates replacement templates, which may reference matching groups from the patterns
+     * @param lowercase if true, transformed values are converted to lowercase
+     * @return compiled rules
+     */
+    public static FieldMatchingRules build(List<String> patterns, List<String> templates, boolean lowercase) {
+        if (patterns.isEmpty() || templates.isEmpty()) {
+            throw new IllegalArgumentException("At least one field pattern and file template must be provided");
+        }
+        if (patterns.size() != templates.size() && patterns.size() != 1 && templates.size() != 1) {
+            throw new IllegalArgumentException("Number of field patterns (" + patterns.size()
+                    + ") must match the number of file templates (" + templates.size() + ")");
+        }
+        int count = Math.max(patterns.size(), templates.size());
+        var rules = new ArrayList<Rule>(count);
+        for (int i = 0; i < count; i++) {
+            var pattern = patterns.get(patterns.size() == 1 ? 0 : i);
+            var template = templates.get(templates.size() == 1 ? 0 : i);
+            rules.add(new Rule(Pattern.compile(pattern), template));
+        }
+        return new FieldMatchingRules(rules, lowercase);
+    }
+
+    /**
+     * @param value field value to transform
+     * @param accept test for whether a transformed value is acceptable, such as if a file with that name exists
+     * @return the value transformed by the first matching rule whose result is accepted. If no results are
+     *      accepted, then the result of the first matching rule. Null if no rules matched.
+     */
+    public String transform(String value, Predicate<String> accept) {
+        String firstTransformed = null;
+        for (Rule rule : rules) {
+            if (!value.startsWith(rule.literalPrefix)) {
+                continue;
+            }
+            Matcher matcher = rule.matcher.reset(value);
+            if (!matcher.matches()) {
+                continue;
+            }
+            String transformed = matcher.replaceFirst(rule.template);
+            if (lowercase) {
+                transformed = transformed.toLowerCase();
+            }
+            if (accept.test(transformed)) {
+                return transformed;
+            }
+            if (firstTransformed == null) {
+                firstTransformed = transformed;
+            }
+        }
+        return firstTransformed;
+    }
+
+    /**
+     * @param regex
+     * @return characters which any value matching the regular expression must start with.
+     *      Empty if the expression does not begin with literal characters or contains alternation.
+     */
+    protected static String extractLiteralPrefix(String regex) {
+        if (regex.indexOf('|') != -1) {
+            return "";
+        }
+        var prefix = new StringBuilder();
+        int i = regex.startsWith("^") ? 1 : 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            int next = i + 1;
+            if (c == '\\') {
+                // Escaped punctuation is literal, while other escapes are character classes or special constructs
+                if (next >= regex.length() || Character.isLetterOrDigit(regex.charAt(next))) {
+                    break;
+                }
+                c = regex.charAt(next);
+                next++;
+            } else if (META_CHARACTERS.indexOf(c) != -1) {
+                break;
+            }
+            // A quantified character may not be present in matching values
+            if (next < regex.length() && "*?{".indexOf(regex.charAt(next)) != -1) {
+                break;
+            }
+            prefix.append(c);
+            i = next;
+        }
+        return prefix.toString();
+    }
+
+    private static class Rule {
+        private final Matcher matcher;
+        private final String template;
+        private final String literalPrefix;
+
+        private Rule(Pattern pattern, String template) {
+            this.matcher = pattern.matcher("");
+            this.template = template;
+            this.literalPrefix = extractLiteralPrefix(pattern.pattern());
+        }
+    }
+}
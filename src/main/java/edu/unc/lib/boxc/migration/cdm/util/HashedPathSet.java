@@ -0,0 +1,66 @@
+package edu.unc.lib.boxc.migration.cdm.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Compact set of paths for membership checks against very large numbers of paths.
+ * Only a 64-bit hash of each path is retained, in a sorted primitive array, so each path costs 8 bytes
+ * regardless of its length. Since only hashes are stored, a path which was not added could be reported as present
+ * if its hash collides with one that was, but with a 64-bit cryptographic hash the chance of that is negligible
+ * even for millions of paths.
+ * Instances are not thread safe.
+ */
+public class HashedPathSet {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final MessageDigest digest;
+    private long[] hashes = new long[INITIAL_CAPACITY];
+    private int size;
+    private boolean sorted = true;
+
+    public HashedPathSet() {
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Unable to hash paths", e);
+        }
+    }
+
+    /**
+     * @param path path to add
+     */
+    public void add(String path) {
+        if (size == hashes.length) {
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        hashes[size++] = hash(path);
+        sorted = false;
+    }
+
+    /**
+     * @param path
+     * @return true if the path was added to this set
+     */
+    public boolean contains(String path) {
+        if (!sorted) {
+            Arrays.sort(hashes, 0, size);
+            sorted = true;
+        }
+        return Arrays.binarySearch(hashes, 0, size, hash(path)) >= 0;
+    }
+
+    /**
+     * @return number of paths added, including duplicates
+     */
+    public int size() {
+        return size;
+    }
+
+    private long hash(String path) {
+        return ByteBuffer.wrap(digest.digest(path.getBytes(StandardCharsets.UTF_8))).getLong();
+    }
+}
@@ -0,0 +1,152 @@
+package edu.unc.lib.boxc.migration.cdm.util;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Characters;
+import javax.xml.stream.events.Comment;
+import javax.xml.stream.events.EntityReference;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.ProcessingInstruction;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+/**
+ * Writes a fragment of StAX events out as a standalone, indented XML document, in a single pass.
+ * Whitespace only text is dropped and other text is trimmed, and elements containing only text are kept on one line,
+ * similar to the pretty format of XMLOutputter. Namespaces used by the fragment but declared by one of its
+ * ancestors are declared in the output document.
+ * Instances are not thread safe.
+ */
+public class IndentingXMLWriter {
+    private static final String INDENT = "  ";
+    private static final String LINE_SEPARATOR = "\n";
+
+    private final XMLOutputFactory outputFactory;
+
+    public IndentingXMLWriter() {
+        outputFactory = XMLOutputFactory.newInstance();
+        outputFactory.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, Boolean.TRUE);
+    }
+
+    /**
+     * Write the events as a document, with an xml declaration
+     * @param events events making up a single element and its content
+     * @param outStream stream to write to. It is not closed.
+     * @throws XMLStreamException
+     */
+    public void write(Iterable<XMLEvent> events, OutputStream outStream) throws XMLStreamException {
+        XMLStreamWriter writer = outputFactory.createXMLStreamWriter(outStream, StandardCharsets.UTF_8.name());
+        writer.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+        // For each open element, whether it contains child elements, which determines how its end tag is indented
+        Deque<Boolean> hasChildren = new ArrayDeque<>();
+        var text = new StringBuilder();
+        for (XMLEvent event : events) {
+            switch (event.getEventType()) {
+            case XMLEvent.START_ELEMENT:
+                writeText(writer, text);
+                if (!hasChildren.isEmpty()) {
+                    hasChildren.pop();
+                    hasChildren.push(true);
+                }
+                writeNewline(writer, hasChildren.size());
+                writeStartElement(writer, event.asStartElement());
+                hasChildren.push(false);
+                break;
+            case XMLEvent.END_ELEMENT:
+                writeText(writer, text);
+                if (hasChildren.pop()) {
+                    writeNewline(writer, hasChildren.size());
+                }
+                writer.writeEndElement();
+                break;
+            case XMLEvent.CHARACTERS:
+            case XMLEvent.SPACE:
+                text.append(event.asCharacters().getData());
+                break;
+            case XMLEvent.CDATA:
+                writeText(writer, text);
+                writer.writeCData(((Characters) event).getData());
+                break;
+            case XMLEvent.COMMENT:
+                writeText(writer, text);
+                writeNewline(writer, hasChildren.size());
+                writer.writeComment(((Comment) event).getText());
+                break;
+            case XMLEvent.PROCESSING_INSTRUCTION:
+                writeText(writer, text);
+                var pi = (ProcessingInstruction) event;
+                writeNewline(writer, hasChildren.size());
+                writer.writeProcessingInstruction(pi.getTarget(), pi.getData());
+                break;
+            case XMLEvent.ENTITY_REFERENCE:
+                writeText(writer, text);
+                writer.writeEntityRef(((EntityReference) event).getName());
+                break;
+            default:
+                // Document level events are not expected within a fragment
+                break;
+            }
+        }
+        writer.writeCharacters(LINE_SEPARATOR);
+        writer.writeEndDocument();
+        writer.flush();
+        writer.close();
+    }
+
+    private void writeStartElement(XMLStreamWriter writer, StartElement element) throws XMLStreamException {
+        var name = element.getName();
+        // Avoid redundant undeclarations of the default namespace on elements without a namespace
+        String defaultNs = writer.getNamespaceContext().getNamespaceURI("");
+        if (name.getNamespaceURI().isEmpty() && (defaultNs == null || defaultNs.isEmpty())) {
+            writer.writeStartElement(name.getLocalPart());
+        } else {
+            writer.writeStartElement(name.getPrefix(), name.getLocalPart(), name.getNamespaceURI());
+        }
+        for (Iterator<Namespace> it = element.getNamespaces(); it.hasNext(); ) {
+            Namespace ns = it.next();
+            if (ns.isDefaultNamespaceDeclaration()) {
+                writer.writeDefaultNamespace(ns.getNamespaceURI());
+            } else {
+                writer.writeNamespace(ns.getPrefix(), ns.getNamespaceURI());
+            }
+        }
+        for (Iterator<Attribute> it = element.getAttributes(); it.hasNext(); ) {
+            Attribute attr = it.next();
+            var attrName = attr.getName();
+            writer.writeAttribute(attrName.getPrefix(), attrName.getNamespaceURI(), attrName.getLocalPart(),
+                    attr.getValue());
+        }
+    }
+
+    private void writeText(XMLStreamWriter writer, StringBuilder text) throws XMLStreamException {
+        if (text.length() == 0) {
+            return;
+        }
+        var trimmed = text.toString().trim();
+        if (!trimmed.isEmpty()) {
+            writer.writeCharacters(trimmed);
+        }
+        text.setLength(0);
+    }
+
+    /**
+     * Write a line break followed by indentation for the given depth, matching the formatting of this writer
+     * @param writer
+     * @param depth number of levels to indent
+     * @throws XMLStreamException
+     */
+    public static void writeNewline(XMLStreamWriter writer, int depth) throws XMLStreamException {
+        writer.writeCharacters(LINE_SEPARATOR);
+        for (int i = 0; i < depth; i++) {
+            writer.writeCharacters(INDENT);
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package edu.unc.lib.boxc.migration.cdm.util;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Merges updates into an id keyed mapping CSV in bounded memory, using an external sort merge.
+ * Both CSVs are sorted by id, spilling sorted runs to disk when they exceed the configured number of rows,
+ * and then joined in a single pass. Merged rows are written in the order of the original CSV, followed by
+ * rows for ids which only appeared in the updates, in the order they appeared there.
+ * The id must be the first column of each CSV. When the updates contain the same id more than once,
+ * only the first row for that id is used.
+ */
+public class MappingCsvMerger {
+    public static final int DEFAULT_MAX_ROWS_IN_MEMORY = 100000;
+    // Each row is prefixed with its sequence number in the source CSV while sorting
+    private static final Comparator<List<String>> BY_SEQUENCE =
+            Comparator.comparingLong(r -> Long.parseLong(r.get(0)));
+    private static final Comparator<List<String>> BY_ID = Comparator.<List<String>, String>comparing(r -> r.get(1))
+            .thenComparing(BY_SEQUENCE);
+
+    private final String[] headers;
+    private int maxRowsInMemory = DEFAULT_MAX_ROWS_IN_MEMORY;
+
+    /**
+     * Determines the row written for an id
+     */
+    @FunctionalInterface
+    public interface ConflictResolver {
+        /**
+         * @param original row from the original CSV, or null if the id only appears in the updates
+         * @param update row from the updates CSV, or null if the id only appears in the original
+         * @return the row to write for the id
+         * @throws IOException
+         */
+        List<String> resolve(List<String> original, List<String> update) throws IOException;
+    }
+
+    /**
+     * @param headers headers of the mapping CSVs
+     */
+    public MappingCsvMerger(String[] headers) {
+        this.headers = headers;
+    }
+
+    /**
+     * Merge updates into the original mappings
+     * @param originalPath path of the original mapping CSV
+     * @param updatesPath path of the CSV containing updated mappings
+     * @param printer printer to which the merged mappings will be written
+     * @param resolver determines the row to write for each id
+     * @throws IOException
+     */
+    public void merge(Path originalPath, Path updatesPath, CSVPrinter printer, ConflictResolver resolver)
+            throws IOException {
+        Path workDir = Files.createTempDirectory(originalPath.toAbsolutePath().getParent(), "~merge");
+        try {
+            Path sortedOriginal;
+            Path sortedUpdates;
+            long originalCount;
+            try (var originalParser = openParser(originalPath)) {
+                var rows = new SequencedRows(originalParser.iterator());
+                sortedOriginal = sortRows(rows, BY_ID, workDir, "original");
+                originalCount = rows.sequence;
+            }
+            try (var updatesParser = openParser(updatesPath)) {
+                sortedUpdates = sortRows(new SequencedRows(updatesParser.iterator()), BY_ID, workDir, "updates");
+            }
+
+            // Join the sorted rows, producing merged rows keyed by the position they will be written in
+            Path sortedMerged;
+            try (
+                var originalRows = new RunReader(sortedOriginal);
+                var updateRows = new RunReader(sortedUpdates);
+            ) {
+                var joinedRows = new JoinedRows(originalRows, updateRows, resolver, originalCount);
+                sortedMerged = sortRows(joinedRows, BY_SEQUENCE, workDir, "merged");
+            }
+
+            try (var mergedRows = new RunReader(sortedMerged)) {
+                while (mergedRows.hasNext()) {
+                    var row = mergedRows.next();
+                    printer.printRecord(row.subList(1, row.size()));
+                }
+            }
+            printer.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            FileUtils.deleteQuietly(workDir.toFile());
+        }
+    }
+
+    /**
+     * Sort rows, spilling sorted runs to disk whenever more than the maximum number of rows are in memory
+     * and then merging the runs.
+     * @return path of a file containing all of the rows in sorted order
+     */
+    private Path sortRows(Iterator<List<String>> rows, Comparator<List<String>> comparator, Path workDir,
+                          String name) throws IOException {
+        var runs = new ArrayList<Path>();
+        var buffer = new ArrayList<List<String>>();
+        while (rows.hasNext()) {
+            buffer.add(rows.next());
+            if (buffer.size() >= maxRowsInMemory) {
+                runs.add(writeRun(buffer, comparator, workDir.resolve(name + "_run" + runs.size())));
+                buffer.clear();
+            }
+        }
+        if (!buffer.isEmpty() || runs.isEmpty()) {
+            runs.add(writeRun(buffer, comparator, workDir.resolve(name + "_run" + runs.size())));
+        }
+        if (runs.size() == 1) {
+            return runs.get(0);
+        }
+
+        // Merge the sorted runs by repeatedly taking the lowest row from any run
+        var sortedPath = workDir.resolve(name + "_sorted");
+        var readers = new ArrayList<RunReader>();
+        try (var printer = new CSVPrinter(Files.newBufferedWriter(sortedPath), CSVFormat.DEFAULT)) {
+            var heap = new PriorityQueue<RunReader>((a, b) -> comparator.compare(a.peek(), b.peek()));
+            for (var run : runs) {
+                var reader = new RunReader(run);
+                readers.add(reader);
+                if (reader.hasNext()) {
+                    heap.add(reader);
+                }
+            }
+            while (!heap.isEmpty()) {
+                var reader = heap.poll();
+                printer.printRecord(reader.next());
+                if (reader.hasNext()) {
+                    heap.add(reader);
+                }
+            }
+        } finally {
+            readers.forEach(IOUtils::closeQuietly);
+        }
+        return sortedPath;
+    }
+
+    private Path writeRun(List<List<String>> rows, Comparator<List<String>> comparator, Path runPath)
+            throws IOException {
+        rows.sort(comparator);
+        try (var printer = new CSVPrinter(Files.newBufferedWriter(runPath), CSVFormat.DEFAULT)) {
+            for (var row : rows) {
+                printer.printRecord(row);
+            }
+        }
+        return runPath;
+    }
+
+    private CSVParser openParser(Path path) throws IOException {
+        return CSVParser.parse(Files.newBufferedReader(path), CSVFormat.DEFAULT.builder()
+                .setHeader(headers)
+                .setSkipHeaderRecord(true)
+                .setTrim(true)
+                .get());
+    }
+
+    /**
+     * Rows from a mapping CSV, each prefixed with its position in the CSV
+     */
+    private static class SequencedRows implements Iterator<List<String>> {
+        private final Iterator<CSVRecord> records;
+        private long sequence;
+
+        private SequencedRows(Iterator<CSVRecord> records) {
+            this.records = records;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return records.hasNext();
+        }
+
+        @Override
+        public List<String> next() {
+            var record = records.next();
+            var row = new ArrayList<String>(record.size() + 1);
+            row.add(Long.toString(sequence++));
+            row.addAll(record.toList());
+            return row;
+        }
+    }
+
+    /**
+     * Joins sorted original and update rows, producing resolved rows prefixed with the position to write them in.
+     * Original rows retain their position, while rows only present in the updates are positioned after
+     * all of the original rows.
+     */
+    private static class JoinedRows implements Iterator<List<String>> {
+        private final RunReader originalRows;
+        private final RunReader updateRows;
+        private final ConflictResolver resolver;
+        private final long originalCount;
+        private List<String> currentUpdate;
+        private boolean currentUpdateMatched;
+        private List<String> nextRow;
+
+        private JoinedRows(RunReader originalRows, RunReader updateRows, ConflictResolver resolver,
+                           long originalCount) throws IOException {
+            this.originalRows = originalRows;
+            this.updateRows = updateRows;
+            this.resolver = resolver;
+            this.originalCount = originalCount;
+            this.currentUpdate = nextDistinctUpdate();
+            this.nextRow = computeNext();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextRow != null;
+        }
+
+        @Override
+        public List<String> next() {
+            var row = nextRow;
+            try {
+                nextRow = computeNext();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return row;
+        }
+
+        private List<String> computeNext() throws IOException {
+            while (originalRows.hasNext() || currentUpdate != null) {
+                var original = originalRows.peek();
+                int cmp;
+                if (original == null) {
+                    cmp = 1;
+                } else if (currentUpdate == null) {
+                    cmp = -1;
+                } else {
+                    cmp = original.get(1).compareTo(currentUpdate.get(1));
+                }
+
+                if (cmp < 0) {
+                    originalRows.next();
+                    return withSequence(original.get(0), resolver.resolve(stripSequence(original), null));
+                } else if (cmp == 0) {
+                    // Retain the update, since following original rows may share the same id
+                    originalRows.next();
+                    currentUpdateMatched = true;
+                    return withSequence(original.get(0),
+                            resolver.resolve(stripSequence(original), stripSequence(currentUpdate)));
+                }
+                var update = currentUpdate;
+                boolean matched = currentUpdateMatched;
+                currentUpdate = nextDistinctUpdate();
+                currentUpdateMatched = false;
+                if (!matched) {
+                    long sequence = originalCount + Long.parseLong(update.get(0));
+                    return withSequence(Long.toString(sequence), resolver.resolve(null, stripSequence(update)));
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return the next update row with an id different from the current update, or null if none remain
+         */
+        private List<String> nextDistinctUpdate() {
+            var previousId = currentUpdate == null ? null : currentUpdate.get(1);
+            while (updateRows.hasNext()) {
+                var update = updateRows.next();
+                if (!update.get(1).equals(previousId)) {
+                    return update;
+                }
+            }
+            return null;
+        }
+
+        private static List<String> stripSequence(List<String> row) {
+            return row.subList(1, row.size());
+        }
+
+        private static List<String> withSequence(String sequence, List<String> row) {
+            var result = new ArrayList<String>(row.size() + 1);
+            result.add(sequence);
+            result.addAll(row);
+            return result;
+        }
+    }
+
+    /**
+     * Reads rows from a sorted run, allowing the next row to be inspected without consuming it
+     */
+    private static class RunReader implements Iterator<List<String>>, Closeable {
+        private final CSVParser parser;
+        private final Iterator<CSVRecord> records;
+        private List<String> next;
+
+        private RunReader(Path runPath) throws IOException {
+            parser = CSVParser.parse(Files.newBufferedReader(runPath), CSVFormat.DEFAULT);
+            records = parser.iterator();
+            advance();
+        }
+
+        private void advance() {
+            next = records.hasNext() ? records.next().toList() : null;
+        }
+
+        public List<String> peek() {
+            return next;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public List<String> next() {
+            var current = next;
+            advance();
+            return current;
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+
+    /**
+     * @param maxRowsInMemory maximum number of rows to sort in memory before spilling to disk
+     */
+    public void setMaxRowsInMemory(int maxRowsInMemory) {
+        this.maxRowsInMemory = maxRowsInMemory;
+    }
+}
@@ -0,0 +1,110 @@
+package edu.unc.lib.boxc.migration.cdm.util;
+
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Crawls a directory tree using a fork join pool, where each directory is listed in its own task.
+ * Listing directories and reading attributes is latency bound on network filesystems, so crawling
+ * many directories concurrently is much faster than a sequential walk.
+ * Symbolic links are not followed. Entries which cannot be read are logged and skipped, and the number
+ * skipped is returned so that callers can report that the crawl was incomplete.
+ */
+public class ParallelFileCrawler {
+    private static final Logger log = getLogger(ParallelFileCrawler.class);
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    private final int parallelism;
+
+    public ParallelFileCrawler() {
+        this(DEFAULT_PARALLELISM);
+    }
+
+    public ParallelFileCrawler(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Crawl the tree beneath the base path, calling the visitor for every file which is not a directory.
+     * The visitor is called concurrently from multiple threads, so it must be thread safe.
+     * @param basePath directory to crawl
+     * @param visitor
+     * @return number of directories and files which were skipped because they could not be read
+     */
+    public int crawl(Path basePath, FileVisitor visitor) {
+        var skipped = new AtomicInteger();
+        var pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new CrawlDirectoryTask(basePath, visitor, skipped));
+            return skipped.get();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Visitor called for each file encountered during a crawl
+     */
+    @FunctionalInterface
+    public interface FileVisitor {
+        void visitFile(Path path, BasicFileAttributes attrs);
+    }
+
+    private static class CrawlDirectoryTask extends RecursiveAction {
+        private final Path dir;
+        private final FileVisitor visitor;
+        private final AtomicInteger skipped;
+
+        private CrawlDirectoryTask(Path dir, FileVisitor visitor, AtomicInteger skipped) {
+            this.dir = dir;
+            this.visitor = visitor;
+            this.skipped = skipped;
+        }
+
+        @Override
+        protected void compute() {
+            List<CrawlDirectoryTask> subtasks = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path entry : stream) {
+                    BasicFileAttributes attrs;
+                    try {
+                        attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (IOException e) {
+                        log.warn("Unable to read attributes of {}, skipping", entry, e);
+                        skipped.incrementAndGet();
+                        continue;
+                    }
+                    if (attrs.isDirectory()) {
+                        var task = new CrawlDirectoryTask(entry, visitor, skipped);
+                        task.fork();
+                        subtasks.add(task);
+                    } else {
+                        visitor.visitFile(entry, attrs);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Unable to list directory {}, skipping", dir, e);
+                skipped.incrementAndGet();
+            }
+            for (var task : subtasks) {
+                task.join();
+            }
+        }
+    }
+}
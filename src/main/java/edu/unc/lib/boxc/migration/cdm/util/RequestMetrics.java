@@ -0,0 +1,82 @@
+package edu.unc.lib.boxc.migration.cdm.util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects metrics about requests made to a service: how long they took, the status of each response,
+ * and the overall throughput.
+ * Safe for concurrent usage.
+ */
+public class RequestMetrics {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final long startNanos = System.nanoTime();
+    private long lastRecordedNanos = startNanos;
+    private long[] latencies = new long[INITIAL_CAPACITY];
+    private int count;
+    private final Map<String, Long> statusCounts = new TreeMap<>();
+
+    /**
+     * @param status status of the response, or the type of error if there was no response
+     * @param latencyNanos time taken to receive the response
+     */
+    public synchronized void record(String status, long latencyNanos) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+        statusCounts.merge(status, 1L, Long::sum);
+        lastRecordedNanos = System.nanoTime();
+    }
+
+    /**
+     * @return number of requests recorded, including retries
+     */
+    public synchronized int getRequestCount() {
+        return count;
+    }
+
+    /**
+     * @return number of requests by status, sorted by status
+     */
+    public synchronized Map<String, Long> getStatusCounts() {
+        return new TreeMap<>(statusCounts);
+    }
+
+    /**
+     * @param percentiles percentiles to calculate, between 0 and 100
+     * @return latency in milliseconds at each of the requested percentiles, or 0 if no requests were recorded
+     */
+    public long[] getLatencyPercentilesMillis(double... percentiles) {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(latencies, count);
+        }
+        Arrays.sort(sorted);
+        long[] result = new long[percentiles.length];
+        if (sorted.length == 0) {
+            return result;
+        }
+        for (int i = 0; i < percentiles.length; i++) {
+            // Nearest rank percentile
+            int rank = (int) Math.ceil(percentiles[i] / 100 * sorted.length);
+            int index = Math.min(sorted.length - 1, Math.max(0, rank - 1));
+            result[i] = TimeUnit.NANOSECONDS.toMillis(sorted[index]);
+        }
+        return result;
+    }
+
+    /**
+     * @return requests per second, from when collection started until the last request was recorded
+     */
+    public synchronized double getThroughput() {
+        long elapsedNanos = lastRecordedNanos - startNanos;
+        if (count == 0 || elapsedNanos <= 0) {
+            return 0;
+        }
+        return count / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+}
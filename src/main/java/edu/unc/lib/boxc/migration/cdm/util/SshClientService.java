@@ -17,6 +17,7 @@ import org.slf4j.Logger;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.GeneralSecurityException;
@@ -35,7 +36,7 @@ import static org.slf4j.LoggerFactory.getLogger;
  */
 public class SshClientService {
     private static final Logger log = getLogger(SshClientService.class);
-    private static final int SSH_TIMEOUT_SECONDS = 60 * 5;
+    public static final int SSH_TIMEOUT_SECONDS = 60 * 5;
     private static final int AUTH_TIMEOUT_SECONDS = 10;
 
     private String sshHost;
@@ -120,6 +121,67 @@ public class SshClientService {
         }
     }
 
+    /**
+     * Execute a remote command on the server, using the provided session, streaming its standard output to
+     * the provided output stream rather than collecting it in memory. Intended for commands with large outputs.
+     * @param clientSession
+     * @param command
+     * @param outStream stream which standard output will be written to. It is not closed.
+     */
+    public void executeRemoteCommand(ClientSession clientSession, String command, OutputStream outStream) {
+        var errStream = new ByteArrayOutputStream();
+        int exitStatus = executeRemoteCommandForStatus(clientSession, command, outStream, errStream);
+        if (exitStatus != 0) {
+            throw new MigrationException("Remote command \"" + command + "\" failed with exit status "
+                    + exitStatus + ": " + errStream);
+        }
+    }
+
+    /**
+     * Execute a remote command on the server, using the provided session, streaming its output to the provided
+     * streams and returning its exit status rather than failing when it is nonzero. Intended for commands which
+     * report a failure for some of their arguments through the exit status, while still producing output for the rest.
+     * @param clientSession
+     * @param command
+     * @param outStream stream which standard output will be written to. It is not closed.
+     * @param errStream stream which standard error will be written to. It is not closed.
+     * @return exit status of the command
+     */
+    public int executeRemoteCommandForStatus(ClientSession clientSession, String command, OutputStream outStream,
+                                             OutputStream errStream) {
+        return executeRemoteCommandForStatus(clientSession, command, outStream, errStream, SSH_TIMEOUT_SECONDS);
+    }
+
+    /**
+     * Execute a remote command on the server, as with executeRemoteCommandForStatus, waiting up to the given
+     * timeout for it to complete. Intended for commands whose duration depends on the amount of data they process.
+     * @param clientSession
+     * @param command
+     * @param outStream stream which standard output will be written to. It is not closed.
+     * @param errStream stream which standard error will be written to. It is not closed.
+     * @param timeoutSeconds how long to wait for the command to complete
+     * @return exit status of the command
+     */
+    public int executeRemoteCommandForStatus(ClientSession clientSession, String command, OutputStream outStream,
+                                             OutputStream errStream, long timeoutSeconds) {
+        try (ClientChannel channel = clientSession.createExecChannel(command)) {
+            channel.setOut(outStream);
+            channel.setErr(errStream);
+            channel.open().verify(5, TimeUnit.SECONDS);
+
+            channel.waitFor(EnumSet.of(ClientChannelEvent.CLOSED), TimeUnit.SECONDS.toMillis(timeoutSeconds));
+            if (channel.getExitStatus() == null) {
+                throw new MigrationException("Remote command \"" + command + "\" did not complete");
+            }
+            log.debug("Command executed on remote server with exit status {}: {}", channel.getExitStatus(), command);
+            return channel.getExitStatus();
+        } catch (MigrationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MigrationException("Failed to execute remote command", e);
+        }
+    }
+
     /**
      * Execute a block of code with an SSH session
      * @param sshBlock
@@ -162,6 +224,14 @@ public class SshClientService {
         scpBlock.accept(scpClient);
     }
 
+    /**
+     * @param value
+     * @return value quoted for use as a single argument in a remote shell command
+     */
+    public static String shellQuote(String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+
     public void setSshHost(String sshHost) {
         this.sshHost = sshHost;
     }
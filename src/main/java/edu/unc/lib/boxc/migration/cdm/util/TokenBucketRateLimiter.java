@@ -0,0 +1,54 @@
+package edu.unc.lib.boxc.migration.cdm.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket rate limiter, which allows a sustained rate of operations along with short bursts.
+ * Tokens are added to the bucket continuously at the configured rate, up to the size of the bucket, and each
+ * operation takes one token. When the bucket is empty, callers wait until a token would be available.
+ * Safe for concurrent usage.
+ */
+public class TokenBucketRateLimiter {
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * @param permitsPerSecond sustained rate of operations allowed
+     * @param burst maximum number of operations allowed at once after a period of inactivity
+     */
+    public TokenBucketRateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Invalid rate limit of " + permitsPerSecond
+                    + " per second with burst of " + burst);
+        }
+        this.tokensPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = burst;
+        this.tokens = burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Wait until a permit is available and take it
+     * @throws InterruptedException
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Take a token, going into debt if none are available, so that waiting can happen outside of the lock
+     * @return nanoseconds until the token taken will have been added to the bucket
+     */
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+    }
+}
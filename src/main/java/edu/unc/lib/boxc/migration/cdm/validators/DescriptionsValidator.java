@@ -1,33 +1,39 @@
 package edu.unc.lib.boxc.migration.cdm.validators;
 
+import static edu.unc.lib.boxc.common.xml.SecureXMLFactory.createXMLInputFactory;
 import static edu.unc.lib.boxc.model.api.xml.JDOMNamespaceUtil.MODS_V3_NS;
 import static org.slf4j.LoggerFactory.getLogger;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
 
-import org.jdom2.Document;
 import org.jdom2.Element;
-import org.jdom2.JDOMException;
-import org.jdom2.input.SAXBuilder;
 import org.slf4j.Logger;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.xml.sax.SAXException;
 
-import edu.unc.lib.boxc.common.xml.SecureXMLFactory;
 import edu.unc.lib.boxc.migration.cdm.exceptions.MigrationException;
 import edu.unc.lib.boxc.migration.cdm.model.MigrationProject;
 import edu.unc.lib.boxc.operations.api.exceptions.MetadataValidationException;
@@ -35,14 +41,23 @@ import edu.unc.lib.boxc.operations.impl.validation.MODSValidator;
 import edu.unc.lib.boxc.operations.impl.validation.SchematronValidator;
 
 /**
- * Validate description files against schema and schematron
+ * Validate description files against schema and schematron.
+ * Files are validated concurrently, with the schemas compiled once and shared between workers.
  *
  * @author bbpennel
  */
 public class DescriptionsValidator {
     private static final Logger log = getLogger(DescriptionsValidator.class);
-    private MODSValidator modsValidator;
+    private static final int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    private Schema modsSchema;
+    private SchematronValidator schematronValidator;
+    // Each worker gets its own validator and parser factory, since they are not guaranteed to be thread safe
+    private final ThreadLocal<MODSValidator> modsValidator = ThreadLocal.withInitial(this::createModsValidator);
+    private final ThreadLocal<XMLInputFactory> xmlInputFactory = ThreadLocal.withInitial(
+            () -> createXMLInputFactory());
     private MigrationProject project;
+    private int parallelism = DEFAULT_PARALLELISM;
 
     /**
      * Validate the object and new collection descriptions for this project
@@ -50,41 +65,98 @@ public class DescriptionsValidator {
      */
     public List<String> validate() {
         List<String> errors = new ArrayList<>();
-        validateFilesInPath(project.getDescriptionsPath(), "modsCollection", errors);
-        validateFilesInPath(project.getNewCollectionDescriptionsPath(), "mods", errors);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            submitFilesInPath(project.getDescriptionsPath(), "modsCollection", executor, results, errors);
+            submitFilesInPath(project.getNewCollectionDescriptionsPath(), "mods", executor, results, errors);
+            // Collected in submission order, so that errors are reported in a consistent order
+            for (var result : results) {
+                errors.addAll(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MigrationException("Interrupted while validating descriptions", e);
+        } catch (ExecutionException e) {
+            throw new MigrationException("Failed to validate descriptions", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
         return errors;
     }
 
-    private void validateFilesInPath(Path dirPath, String expectedRootElName, List<String> errors) {
-        SAXBuilder builder = SecureXMLFactory.createSAXBuilder();
+    private void submitFilesInPath(Path dirPath, String expectedRootElName, ExecutorService executor,
+            List<Future<List<String>>> results, List<String> errors) {
+        List<Path> xmlPaths = new ArrayList<>();
         try (DirectoryStream<Path> pathStream = Files.newDirectoryStream(dirPath, "*.xml")) {
-            for (Path xmlPath : pathStream) {
-                Path relative = project.getProjectPath().relativize(xmlPath);
-                try {
-                    log.info("Validating file: {}", xmlPath);
-                    byte[] bytes = Files.readAllBytes(xmlPath);
-                    ByteArrayInputStream byteStream = new ByteArrayInputStream(bytes);
-                    Document doc = builder.build(byteStream);
-                    Element rootEl = doc.getRootElement();
-                    if (!(rootEl.getName().equals(expectedRootElName) && rootEl.getNamespace().equals(MODS_V3_NS))) {
-                        errors.add("Unexpected root element in document " + relative + ", expecting '"
-                            + new Element(expectedRootElName, MODS_V3_NS).getQualifiedName()
-                            + "' but was '" + rootEl.getQualifiedName() + "'");
-                    }
-                    byteStream.reset();
-                    modsValidator.validate(byteStream);
-                } catch (MetadataValidationException e) {
-                    errors.add("File " + relative + " did not pass validation:\n    " +
-                            (e.getDetailedMessage() == null ? e.getMessage() : e.getDetailedMessage()));
-                } catch (JDOMException e) {
-                    log.warn("Failed to parse {}", xmlPath, e);
-                    errors.add("File " + relative + " is not a valid XML document: " + e.getMessage());
-                }
-            }
+            pathStream.forEach(xmlPaths::add);
         } catch (IOException e) {
             log.error("Failed to validate", e);
             errors.add("Failed to validate due to error: " + e.getMessage());
+            return;
+        }
+        Collections.sort(xmlPaths);
+        for (Path xmlPath : xmlPaths) {
+            results.add(executor.submit(() -> validateFile(xmlPath, expectedRootElName)));
+        }
+    }
+
+    private List<String> validateFile(Path xmlPath, String expectedRootElName) {
+        List<String> errors = new ArrayList<>();
+        Path relative = project.getProjectPath().relativize(xmlPath);
+        try {
+            log.debug("Validating file: {}", xmlPath);
+            String rootError = checkDocument(xmlPath, relative, expectedRootElName);
+            if (rootError != null) {
+                errors.add(rootError);
+            }
+            try (InputStream docStream = new BufferedInputStream(Files.newInputStream(xmlPath))) {
+                modsValidator.get().validate(docStream);
+            }
+        } catch (MetadataValidationException e) {
+            errors.add("File " + relative + " did not pass validation:\n    " +
+                    (e.getDetailedMessage() == null ? e.getMessage() : e.getDetailedMessage()));
+        } catch (XMLStreamException e) {
+            log.warn("Failed to parse {}", xmlPath, e);
+            errors.add("File " + relative + " is not a valid XML document: " + e.getMessage());
+        } catch (IOException e) {
+            log.error("Failed to validate {}", xmlPath, e);
+            errors.add("Failed to validate " + relative + " due to error: " + e.getMessage());
         }
+        return errors;
+    }
+
+    /**
+     * Read the document up to its root element. Only the start of the document is read, well formedness
+     * errors after the root element are reported when the document is parsed by the MODS validator.
+     * @return error message if the root element of the document is not the expected element, otherwise null
+     */
+    private String checkDocument(Path xmlPath, Path relative, String expectedRootElName)
+            throws IOException, XMLStreamException {
+        try (InputStream xmlStream = new BufferedInputStream(Files.newInputStream(xmlPath))) {
+            XMLStreamReader reader = xmlInputFactory.get().createXMLStreamReader(xmlStream);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamReader.START_ELEMENT) {
+                        if (reader.getLocalName().equals(expectedRootElName)
+                                && MODS_V3_NS.getURI().equals(reader.getNamespaceURI())) {
+                            return null;
+                        }
+                        return "Unexpected root element in document " + relative + ", expecting '"
+                                + new Element(expectedRootElName, MODS_V3_NS).getQualifiedName()
+                                + "' but was '" + getQualifiedName(reader) + "'";
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return null;
+    }
+
+    private String getQualifiedName(XMLStreamReader reader) {
+        String prefix = reader.getPrefix();
+        return prefix == null || prefix.isEmpty() ? reader.getLocalName() : prefix + ":" + reader.getLocalName();
     }
 
     public void init() {
@@ -94,7 +166,7 @@ public class DescriptionsValidator {
         schemas.put("vocabularies-mods", new ClassPathResource(
                 "edu/unc/lib/boxc/operations/impl/validation/vocabularies-mods.sch"));
 
-        SchematronValidator schematronValidator = new SchematronValidator();
+        schematronValidator = new SchematronValidator();
         schematronValidator.setSchemas(schemas);
         schematronValidator.loadSchemas();
 
@@ -105,19 +177,28 @@ public class DescriptionsValidator {
         };
 
         SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-        Schema schema;
         try {
-            schema = factory.newSchema(xsdSources);
+            modsSchema = factory.newSchema(xsdSources);
         } catch (SAXException e) {
             throw new MigrationException(e);
         }
+    }
 
-        modsValidator = new MODSValidator();
-        modsValidator.setModsSchema(schema);
-        modsValidator.setSchematronValidator(schematronValidator);
+    private MODSValidator createModsValidator() {
+        var validator = new MODSValidator();
+        validator.setModsSchema(modsSchema);
+        validator.setSchematronValidator(schematronValidator);
+        return validator;
     }
 
     public void setProject(MigrationProject project) {
         this.project = project;
     }
+
+    /**
+     * @param parallelism number of description files to validate concurrently
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
 }
@@ -4,18 +4,30 @@ import java.io.IOException;
 import java.io.Reader;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import edu.unc.lib.boxc.migration.cdm.model.SourceFilesInfo.SourceFileMapping;
+import edu.unc.lib.boxc.migration.cdm.services.FileInventoryLookup;
+import edu.unc.lib.boxc.migration.cdm.services.FileInventoryService;
 import edu.unc.lib.boxc.migration.cdm.services.SourceFileService;
 import edu.unc.lib.boxc.migration.cdm.services.StreamingMetadataService;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 
 import edu.unc.lib.boxc.migration.cdm.exceptions.MigrationException;
@@ -24,18 +36,39 @@ import edu.unc.lib.boxc.migration.cdm.model.SourceFilesInfo;
 
 /**
  * Validator for source file mappings.
+ * The existence of mapped files is checked concurrently, using cached file inventories from the project
+ * where they are current, while errors are reported in the order of the lines they occurred on.
+ * Only a limited number of checks are pending at once, so memory usage does not grow with the number of lines.
  * Individual instances are not safe for concurrent usage.
  *
  * @author bbpennel
  */
 public class SourceFilesValidator {
+    public static final int DEFAULT_PARALLELISM = 8;
+    private static final int PENDING_CHECKS_PER_WORKER = 64;
     protected MigrationProject project;
     protected StreamingMetadataService streamingMetadataService;
     protected Set<String> previousIds = new HashSet<>();
     protected Set<String> previousPaths = new HashSet<>();
     protected List<String> errors = new ArrayList<>();
+    private int parallelism = DEFAULT_PARALLELISM;
+    // Errors in line order, some of which are still being determined
+    private Queue<Future<String>> pendingErrors;
+    private ExecutorService executor;
+    private FileInventoryLookup inventoryLookup;
+    private FileInventoryLookup sharedInventoryLookup;
+    private Set<String> idsWithStreamingMetadata;
 
     public List<String> validateMappings(boolean force) {
+        pendingErrors = new ArrayDeque<>();
+        if (sharedInventoryLookup != null) {
+            inventoryLookup = sharedInventoryLookup;
+        } else {
+            var inventoryService = new FileInventoryService();
+            inventoryService.setProject(project);
+            inventoryLookup = new FileInventoryLookup(inventoryService);
+        }
+        executor = Executors.newFixedThreadPool(parallelism);
         try (
                 Reader reader = Files.newBufferedReader(getMappingPath());
                 CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT
@@ -46,7 +79,7 @@ public class SourceFilesValidator {
             int i = 2;
             for (CSVRecord csvRecord : csvParser) {
                 if (csvRecord.size() != 4) {
-                    errors.add("Invalid entry at line " + i + ", must be 4 columns but were " + csvRecord.size());
+                    addError("Invalid entry at line " + i + ", must be 4 columns but were " + csvRecord.size());
                     continue;
                 }
                 var mapping = SourceFileService.recordToMapping(csvRecord);
@@ -54,11 +87,11 @@ public class SourceFilesValidator {
                 String pathVal = csvRecord.get(2);
                 if (StringUtils.isBlank(id)) {
                     if (!force) {
-                        errors.add("Invalid blank id at line " + i);
+                        addError("Invalid blank id at line " + i);
                     }
                 } else {
                     if (previousIds.contains(id)) {
-                        errors.add("Duplicate mapping for id " + id + " at line " + i);
+                        addError("Duplicate mapping for id " + id + " at line " + i);
                     }
                     previousIds.add(id);
                 }
@@ -67,43 +100,103 @@ public class SourceFilesValidator {
                 i++;
             }
             if (i == 2) {
-                errors.add("Mappings file contained no mappings");
+                addError("Mappings file contained no mappings");
             }
+            collectErrors();
         } catch (IOException e) {
             throw new MigrationException("Failed to read mappings file", e);
+        } finally {
+            executor.shutdownNow();
+            if (inventoryLookup != sharedInventoryLookup) {
+                IOUtils.closeQuietly(inventoryLookup);
+            }
         }
         return errors;
     }
 
+    private void addError(String error) {
+        addPendingError(CompletableFuture.completedFuture(error));
+    }
+
+    private void addPendingError(Future<String> pendingError) {
+        pendingErrors.add(pendingError);
+        // Collect errors which have been determined, waiting for the oldest check if too many are pending
+        while (!pendingErrors.isEmpty() && (pendingErrors.peek().isDone()
+                || pendingErrors.size() > parallelism * PENDING_CHECKS_PER_WORKER)) {
+            collectNextError();
+        }
+    }
+
+    private void collectErrors() {
+        while (!pendingErrors.isEmpty()) {
+            collectNextError();
+        }
+    }
+
+    private void collectNextError() {
+        try {
+            var error = pendingErrors.remove().get();
+            if (error != null) {
+                errors.add(error);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MigrationException("Interrupted while validating mappings", e);
+        } catch (ExecutionException e) {
+            throw new MigrationException("Failed to validate mappings", e.getCause());
+        }
+    }
+
     protected void validateSourcePath(int i, String id, SourceFileMapping mapping, boolean force) {
         if (mapping.getSourcePaths() == null || mapping.getSourcePaths().isEmpty()) {
-            if (!force && !allowUnmapped() && !streamingMetadataService.verifyRecordHasStreamingMetadata(id)) {
-                errors.add("No path mapped at line " + i);
+            if (!force && !allowUnmapped() && !getIdsWithStreamingMetadata().contains(id)) {
+                addError("No path mapped at line " + i);
             }
             return;
         }
         for (var sourcePath: mapping.getSourcePaths()) {
             if (previousPaths.contains(sourcePath.toString())) {
-                errors.add("Duplicate mapping for path " + sourcePath + " at line " + i);
+                addError("Duplicate mapping for path " + sourcePath + " at line " + i);
             } else {
-                try {
-                    if (!sourcePath.isAbsolute()) {
-                        errors.add("Invalid path at line " + i + ", path is not absolute");
-                    } else if (Files.exists(sourcePath)) {
-                        if (Files.isDirectory(sourcePath)) {
-                            errors.add("Invalid path at line " + i + ", path is a directory");
-                        }
-                    } else {
-                        errors.add("Invalid path at line " + i + ", file does not exist");
-                    }
-                } catch (InvalidPathException e) {
-                    errors.add("Invalid path at line " + i + ", not a valid file path");
+                if (!sourcePath.isAbsolute()) {
+                    addError("Invalid path at line " + i + ", path is not absolute");
+                } else {
+                    addPendingError(executor.submit(() -> checkPathExists(i, sourcePath)));
                 }
                 previousPaths.add(sourcePath.toString());
             }
         }
     }
 
+    /**
+     * @return error describing why the path is not a usable file, or null if it is a file
+     */
+    private String checkPathExists(int i, Path sourcePath) {
+        if (inventoryLookup.isKnownFile(sourcePath)) {
+            return null;
+        }
+        try {
+            var attrs = Files.readAttributes(sourcePath, BasicFileAttributes.class);
+            if (attrs.isDirectory()) {
+                return "Invalid path at line " + i + ", path is a directory";
+            }
+            return null;
+        } catch (NoSuchFileException e) {
+            return "Invalid path at line " + i + ", file does not exist";
+        } catch (InvalidPathException e) {
+            return "Invalid path at line " + i + ", not a valid file path";
+        } catch (IOException e) {
+            return "Invalid path at line " + i + ", file does not exist";
+        }
+    }
+
+    private Set<String> getIdsWithStreamingMetadata() {
+        if (idsWithStreamingMetadata == null) {
+            idsWithStreamingMetadata = streamingMetadataService.listRecordIdsWithStreamingMetadata();
+        }
+        return idsWithStreamingMetadata;
+    }
+
     protected Path getMappingPath() {
         return project.getSourceFilesMappingPath();
     }
@@ -116,6 +209,22 @@ public class SourceFilesValidator {
         this.streamingMetadataService = streamingMetadataService;
     }
 
+    /**
+     * @param inventoryLookup lookup to check for files in, so that cached inventories are only read once when
+     *      validating multiple mappings. It is not closed by the validator. If not set, a lookup is created
+     *      for each validation.
+     */
+    public void setInventoryLookup(FileInventoryLookup inventoryLookup) {
+        this.sharedInventoryLookup = inventoryLookup;
+    }
+
+    /**
+     * @param parallelism maximum number of paths to check concurrently
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
     protected boolean allowUnmapped() {
         return false;
     }
@@ -53,6 +53,38 @@ public class DescriptionsCommandIT extends AbstractCommandIT {
         assertExpandedDescriptionFilesCount(3);
     }
 
+    @Test
+    public void expandDescriptionsPacked() throws Exception {
+        setIndexedDate();
+
+        Files.copy(Paths.get("src/test/resources/mods_collections/gilmer_mods1.xml"),
+                project.getDescriptionsPath().resolve("gilmer_mods1.xml"));
+
+        String[] args = new String[] {
+                "-w", project.getProjectPath().toString(),
+                "descriptions", "expand", "--packed" };
+        executeExpectSuccess(args);
+        assertOutputContains("Descriptions expanded to 3 records in a packed file");
+        assertTrue(Files.exists(project.getExpandedDescriptionsPackPath()));
+
+        // Packed storage is kept when expanding again without specifying the storage
+        String[] args2 = new String[] {
+                "-w", project.getProjectPath().toString(),
+                "descriptions", "expand" };
+        executeExpectSuccess(args2);
+        assertTrue(Files.exists(project.getExpandedDescriptionsPackPath()));
+        assertFalse(Files.exists(project.getExpandedDescriptionsPath()));
+        assertOutputDoesNotContain("separate files");
+
+        String[] args3 = new String[] {
+                "-w", project.getProjectPath().toString(),
+                "descriptions", "expand", "--no-packed" };
+        executeExpectSuccess(args3);
+        assertOutputContains("Descriptions expanded to 3 separate files");
+        assertFalse(Files.exists(project.getExpandedDescriptionsPackPath()));
+        assertExpandedDescriptionFilesCount(3);
+    }
+
     @Test
     public void expandNoDescriptionsFiles() throws Exception {
         setIndexedDate();
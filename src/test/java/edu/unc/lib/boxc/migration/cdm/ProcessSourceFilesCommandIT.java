@@ -69,6 +69,20 @@ public class ProcessSourceFilesCommandIT extends AbstractCommandIT {
         assertOutputContains("Invalid action name provided: garbo");
     }
 
+    @Test
+    public void testProcessSourceFilesInvalidMaxTransfers() {
+        String[] args = new String[] {
+                "-w", project.getProjectPath().toString(),
+                "--env-config", chompbConfigPath,
+                "process_source_files",
+                "-u", "testuser",
+                "-k", CLIENT_KEY_PATH.toString(),
+                "-a", "velocicroptor",
+                "--max-transfers", "0"};
+        executeExpectFailure(args);
+        assertOutputContains("Max transfers must be greater than 0, provided: 0");
+    }
+
     @Test
     public void testProcessSourceFilesNoKey() {
         String[] args = new String[] {
@@ -1,5 +1,6 @@
 package edu.unc.lib.boxc.migration.cdm;
 
+import com.github.tomakehurst.wiremock.http.Fault;
 import com.github.tomakehurst.wiremock.junit5.WireMockTest;
 import edu.unc.lib.boxc.migration.cdm.options.SipGenerationOptions;
 import edu.unc.lib.boxc.migration.cdm.test.BxcEnvironmentHelper;
@@ -17,6 +18,7 @@ import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
+import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
 import static edu.unc.lib.boxc.migration.cdm.test.PostMigrationReportTestHelper.JSON;
 import static edu.unc.lib.boxc.migration.cdm.test.PostMigrationReportTestHelper.JSON_NO_PARENT;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -53,6 +55,16 @@ public class VerifyPostMigrationCommandIT extends AbstractCommandIT {
         assertOutputContains("Post migration report has not been generated yet");
     }
 
+    @Test
+    public void invalidConcurrencyTest() throws Exception {
+        String[] args = new String[] {
+                "-w", project.getProjectPath().toString(),
+                "verify_migration",
+                "--concurrency", "0" };
+        executeExpectFailure(args);
+        assertOutputContains("Concurrency must be greater than 0, provided: 0");
+    }
+
     @Test
     public void successTest() throws Exception {
         stubFor(get(urlMatching("/bxc/api/.*"))
@@ -107,6 +119,38 @@ public class VerifyPostMigrationCommandIT extends AbstractCommandIT {
         assertTrue(Files.exists(project.getPostMigrationReportPath()));
     }
 
+    @Test
+    public void transientErrorsRetriedTest() throws Exception {
+        // First request has its connection reset, the retry gets a server error, then all further requests succeed
+        stubFor(get(urlMatching("/bxc/api/.*")).inScenario("faults")
+                .whenScenarioStateIs(STARTED)
+                .willReturn(aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER))
+                .willSetStateTo("reset"));
+        stubFor(get(urlMatching("/bxc/api/.*")).inScenario("faults")
+                .whenScenarioStateIs("reset")
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.SERVICE_UNAVAILABLE.value()))
+                .willSetStateTo("recovered"));
+        stubFor(get(urlMatching("/bxc/api/.*")).inScenario("faults")
+                .whenScenarioStateIs("recovered")
+                .willReturn(aResponse()
+                        .withBody(JSON)
+                        .withStatus(HttpStatus.OK.value())));
+
+        generateSip();
+
+        String[] args = new String[] {
+                "-w", project.getProjectPath().toString(),
+                "verify_migration",
+                "--concurrency", "1" };
+        executeExpectSuccess(args);
+        assertOutputContains("Checked 6 out of 6 objects in the report");
+        assertOutputContains("Made 8 requests to box-c");
+        assertOutputContains("OK=6");
+        assertOutputContains("SERVICE_UNAVAILABLE=1");
+        assertOutputContains("Success! No problems were found");
+    }
+
     private void generateSip() {
         var sipService = testHelper.createSipsService();
         var sipOptions = new SipGenerationOptions();
@@ -0,0 +1,105 @@
+package edu.unc.lib.boxc.migration.cdm.services;
+
+import edu.unc.lib.boxc.migration.cdm.model.MigrationProject;
+import edu.unc.lib.boxc.migration.cdm.model.SourceFilesInfo;
+import edu.unc.lib.boxc.migration.cdm.test.BxcEnvironmentHelper;
+import edu.unc.lib.boxc.migration.cdm.test.CdmEnvironmentHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AccessFileServiceTest {
+    @TempDir
+    public Path tmpFolder;
+
+    private MigrationProject project;
+    private AccessFileService service;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        project = MigrationProjectFactory.createCdmMigrationProject(
+                tmpFolder, "proj", null, "user",
+                CdmEnvironmentHelper.DEFAULT_ENV_ID, BxcEnvironmentHelper.DEFAULT_ENV_ID);
+        service = new AccessFileService();
+        service.setProject(project);
+    }
+
+    @Test
+    public void getMimetypeKnownExtensionTest() throws Exception {
+        // Known extensions are resolved without reading the file
+        assertEquals("image/jpeg", service.getMimetype(tmpFolder.resolve("missing.jpg")));
+        assertEquals("image/jpeg", service.getMimetype(tmpFolder.resolve("MISSING.JPG")));
+    }
+
+    @Test
+    public void getMimetypeUnknownExtensionTest() throws Exception {
+        var path = Files.writeString(tmpFolder.resolve("file.unknownext"), "content");
+        assertEquals(AccessFileService.DEFAULT_MIMETYPE, service.getMimetype(path));
+    }
+
+    @Test
+    public void probeMappedMimetypesTest() throws Exception {
+        var knownPath = Files.writeString(tmpFolder.resolve("image.jpg"), "content");
+        var unknownPath = Files.writeString(tmpFolder.resolve("file.unknownext"), "content");
+        Files.writeString(project.getAccessFilesMappingPath(), String.join(",", SourceFilesInfo.CSV_HEADERS) + "\n"
+                + "1,," + knownPath + ",\n"
+                + "2,," + unknownPath + ",\n"
+                + "3,,,\n");
+
+        service.probeMappedMimetypes();
+
+        long size = Files.size(unknownPath);
+        long lastModified = Files.getLastModifiedTime(unknownPath).toMillis();
+        var cached = Files.readString(project.getAccessFileMimetypesPath());
+        assertTrue(cached.contains(unknownPath + "," + size + "," + lastModified + ","
+                + AccessFileService.DEFAULT_MIMETYPE));
+        assertFalse(cached.contains(knownPath.toString()));
+
+        // Cached results are used instead of probing the file again
+        Files.writeString(project.getAccessFileMimetypesPath(), "path,size,last_modified,mimetype\n"
+                + unknownPath + "," + size + "," + lastModified + ",text/x-custom\n");
+        var newService = new AccessFileService();
+        newService.setProject(project);
+        assertEquals("text/x-custom", newService.getMimetype(unknownPath));
+        assertEquals("image/jpeg", newService.getMimetype(knownPath));
+    }
+
+    @Test
+    public void probeMappedMimetypesFileReplacedTest() throws Exception {
+        var unknownPath = Files.writeString(tmpFolder.resolve("file.unknownext"), "content");
+        Files.writeString(project.getAccessFilesMappingPath(), String.join(",", SourceFilesInfo.CSV_HEADERS) + "\n"
+                + "1,," + unknownPath + ",\n");
+        long lastModified = Files.getLastModifiedTime(unknownPath).toMillis();
+        // Cached from a file with the same path but a different size, so the file must be probed again
+        Files.writeString(project.getAccessFileMimetypesPath(), "path,size,last_modified,mimetype\n"
+                + unknownPath + ",1," + lastModified + ",text/x-custom\n");
+
+        service.probeMappedMimetypes();
+
+        assertEquals(AccessFileService.DEFAULT_MIMETYPE, service.getMimetype(unknownPath));
+        var cached = Files.readString(project.getAccessFileMimetypesPath());
+        assertFalse(cached.contains("text/x-custom"));
+    }
+
+    @Test
+    public void probeMappedMimetypesOldCacheFormatTest() throws Exception {
+        var unknownPath = Files.writeString(tmpFolder.resolve("file.unknownext"), "content");
+        Files.writeString(project.getAccessFileMimetypesPath(), "path,mimetype\n" + unknownPath + ",text/x-custom\n");
+
+        assertEquals(AccessFileService.DEFAULT_MIMETYPE, service.getMimetype(unknownPath));
+    }
+
+    @Test
+    public void probeMappedMimetypesNoMappingTest() throws Exception {
+        service.probeMappedMimetypes();
+
+        assertFalse(Files.exists(project.getAccessFileMimetypesPath()));
+    }
+}
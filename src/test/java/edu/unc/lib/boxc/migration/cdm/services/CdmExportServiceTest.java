@@ -166,6 +166,41 @@ public class CdmExportServiceTest {
         }
     }
 
+    @Test
+    public void exportFromEadToCdmMultipleFilesTest() throws Exception {
+        CdmFieldInfo fieldInfo = populateFieldInfo();
+        fieldService.persistFieldsToProject(project, fieldInfo);
+        var options = makeExportOptions();
+        options.setEadToCdm(true);
+        options.setEadId("00001");
+        writeCsv(project, mappingBody("00001,," + project.getProjectPath() + "/02096-z_0001_0001.tif,",
+                "00002,," + project.getProjectPath() + "/02096-z_0001_0002.tif,",
+                "00003,,,",
+                "00004,," + project.getProjectPath() + "/other/02096-z_0001_0001.tif,"));
+        var builder = mock(HttpClientBuilder.class);
+        var responseBody = "{\"status\":{\"code\":\"ok\"}," + getJsonContent("02096-z_0001_0001.tif").substring(1);
+        StringEntity stringEntity = new StringEntity(responseBody, ContentType.APPLICATION_JSON);
+
+        try (MockedStatic<HttpClientBuilder> mockedStatic = mockStatic(HttpClientBuilder.class) ) {
+            mockedStatic.when(HttpClientBuilder::create).thenReturn(builder);
+            when(builder.disableRedirectHandling()).thenReturn(builder);
+            when(builder.setDefaultCredentialsProvider(any())).thenReturn(builder);
+            when(builder.build()).thenReturn(httpClient);
+            var resp = mock(CloseableHttpResponse.class);
+            when(httpClient.execute(any())).thenReturn(resp);
+            when(resp.getEntity()).thenReturn(stringEntity);
+            service.exportAll(options);
+
+            var postArgument = getHttpPostArgument();
+            var jsonString = IOUtils.toString(postArgument.getEntity().getContent(), StandardCharsets.UTF_8);
+            assertEquals( "{\"ead_id\":\"00001\",\"files\":\"02096-z_0001_0001.tif,02096-z_0001_0002.tif\"}",
+                    jsonString);
+            var tsvLines = Files.readAllLines(project.getEadToCdmExportPath());
+            assertEquals(2, tsvLines.size());
+            assertTrue(tsvLines.get(1).contains("02096-z_0001_0001.tif"));
+        }
+    }
+
     private CdmFieldInfo populateFieldInfo() {
         CdmFieldInfo fieldInfo = new CdmFieldInfo();
         List<CdmFieldEntry> fields = fieldInfo.getFields();
@@ -0,0 +1,133 @@
+package edu.unc.lib.boxc.migration.cdm.services;
+
+import edu.unc.lib.boxc.migration.cdm.model.MigrationProject;
+import edu.unc.lib.boxc.migration.cdm.model.RemoteFileInventory;
+import edu.unc.lib.boxc.migration.cdm.model.RemoteFileInventory.RemoteFileEntry;
+import edu.unc.lib.boxc.migration.cdm.test.BxcEnvironmentHelper;
+import edu.unc.lib.boxc.migration.cdm.test.CdmEnvironmentHelper;
+import edu.unc.lib.boxc.migration.cdm.test.TestSshServer;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CdmRemoteInventoryServiceTest {
+    private static final String PROJECT_NAME = "proj";
+    @TempDir
+    public Path tmpFolder;
+
+    private MigrationProject project;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        project = MigrationProjectFactory.createCdmMigrationProject(
+                tmpFolder, PROJECT_NAME, null, "user",
+                CdmEnvironmentHelper.DEFAULT_ENV_ID, BxcEnvironmentHelper.DEFAULT_ENV_ID);
+        Files.createDirectories(project.getExportPath());
+    }
+
+    @Test
+    public void loadInventoryNotPresentTest() {
+        assertNull(CdmRemoteInventoryService.loadInventory(project));
+    }
+
+    @Test
+    public void convertAndLoadInventoryTest() throws Exception {
+        var listing = "image/1.cpd\t512\t1700000000.1234567890\n"
+                + "image/2.jp2\t2048\t1700000001.0000000000\n"
+                + "image/nested/3.cpd\t100\t1700000002.0000000000\n"
+                + "supp/17940/index.pdf\t4096\t1700000003.5000000000\n"
+                + "index/description/desc.all\t99\t1700000004.0000000000\n"
+                + "not a listing line\n";
+        var inventoryPath = CdmRemoteInventoryService.getInventoryPath(project);
+        int count;
+        try (
+            var reader = new BufferedReader(new StringReader(listing));
+            var printer = new CSVPrinter(Files.newBufferedWriter(inventoryPath), CSVFormat.DEFAULT.builder()
+                    .setHeader(RemoteFileInventory.CSV_HEADERS).get());
+        ) {
+            count = CdmRemoteInventoryService.convertListing(reader, printer);
+        }
+        assertEquals(4, count);
+
+        var inventory = CdmRemoteInventoryService.loadInventory(project);
+        assertEquals(4, inventory.getEntries().size());
+        var cpdEntry = inventory.getEntry("image/1.cpd");
+        assertEquals(512, cpdEntry.getSize());
+        assertEquals(1700000000L, cpdEntry.getMtime());
+        assertEquals("1.cpd", cpdEntry.getFilename());
+        assertEquals(4096, inventory.getEntry("supp/17940/index.pdf").getSize());
+        assertNull(inventory.getEntry("index/description/desc.all"));
+
+        var cpdPaths = inventory.listFiles("image", "cpd").stream()
+                .map(RemoteFileEntry::getPath)
+                .collect(Collectors.toList());
+        assertEquals(1, cpdPaths.size());
+        assertEquals("image/1.cpd", cpdPaths.get(0));
+    }
+
+    @Test
+    public void refreshInventoryTest() throws Exception {
+        project.getProjectProperties().setCdmCollectionId("mini_gilmer");
+        var chompbConfig = new ChompbConfigService.ChompbConfig();
+        chompbConfig.setCdmEnvironments(CdmEnvironmentHelper.getTestMapping());
+        chompbConfig.setBxcEnvironments(BxcEnvironmentHelper.getTestMapping());
+        var fileRetrievalService = new CdmFileRetrievalService();
+        fileRetrievalService.setChompbConfig(chompbConfig);
+        fileRetrievalService.setProject(project);
+        fileRetrievalService.setSshUsername("testuser");
+        fileRetrievalService.setSshPassword(TestSshServer.PASSWORD);
+        var service = new CdmRemoteInventoryService();
+        service.setProject(project);
+        service.setFileRetrievalService(fileRetrievalService);
+
+        var testSshServer = new TestSshServer();
+        testSshServer.startServer();
+        try {
+            assertEquals(3, service.refreshInventory());
+        } finally {
+            testSshServer.stopServer();
+        }
+
+        var inventory = CdmRemoteInventoryService.loadInventory(project);
+        assertEquals(3, inventory.getEntries().size());
+        var localPath = Path.of("src/test/resources/descriptions/mini_gilmer/image/26.JP2");
+        var entry = inventory.getEntry("image/26.JP2");
+        assertEquals(Files.size(localPath), entry.getSize());
+        assertEquals(Files.getLastModifiedTime(localPath).toMillis() / 1000, entry.getMtime());
+        assertTrue(CdmFileRetrievalService.isAlreadyDownloaded(entry, localPath));
+        // Files outside of the image and supp directories are not listed
+        assertNull(inventory.getEntry("index/description/desc.all"));
+        // Temporary files are cleaned up
+        try (var exportFiles = Files.list(project.getExportPath())) {
+            assertEquals(List.of(CdmRemoteInventoryService.getInventoryPath(project)),
+                    exportFiles.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void isAlreadyDownloadedTest() throws Exception {
+        var localPath = tmpFolder.resolve("1.cpd");
+        var entry = new RemoteFileEntry("image/1.cpd", 5, 1700000000L);
+        assertFalse(CdmFileRetrievalService.isAlreadyDownloaded(entry, localPath));
+
+        Files.writeString(localPath, "cpd");
+        assertFalse(CdmFileRetrievalService.isAlreadyDownloaded(entry, localPath));
+
+        Files.writeString(localPath, "cpd!!");
+        assertTrue(CdmFileRetrievalService.isAlreadyDownloaded(entry, localPath));
+    }
+}
@@ -4,6 +4,7 @@ import static edu.unc.lib.boxc.migration.cdm.services.DescriptionsService.CDM_ID
 import static edu.unc.lib.boxc.migration.cdm.services.DescriptionsService.CHOMPB_ID_LABEL;
 import static edu.unc.lib.boxc.migration.cdm.services.DescriptionsService.LOCAL_TYPE_VALUE;
 import static edu.unc.lib.boxc.model.api.xml.JDOMNamespaceUtil.MODS_V3_NS;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -17,6 +18,7 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Stream;
@@ -33,6 +35,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import edu.unc.lib.boxc.common.xml.SecureXMLFactory;
+import edu.unc.lib.boxc.migration.cdm.exceptions.InvalidProjectStateException;
 import edu.unc.lib.boxc.migration.cdm.exceptions.MigrationException;
 import edu.unc.lib.boxc.migration.cdm.model.MigrationProject;
 import edu.unc.lib.boxc.migration.cdm.model.MigrationProjectProperties;
@@ -224,6 +227,21 @@ public class DescriptionsServiceTest {
         assertEquals(3, idsWithMods.size());
     }
 
+    @Test
+    public void generateDescriptionsExistingTest() throws Exception {
+        testHelper.indexExportData("mini_gilmer");
+
+        assertEquals(3, service.generateDocuments(false));
+        assertThrows(InvalidProjectStateException.class, () -> service.generateDocuments(false));
+
+        assertEquals(3, service.generateDocuments(true));
+        try (var files = Files.list(project.getDescriptionsPath())) {
+            assertEquals(1, files.count());
+        }
+        Set<String> idsWithMods = service.expandDescriptions();
+        assertEquals(Set.of("25", "26", "27"), idsWithMods);
+    }
+
     @Test
     public void expandNonCDMCollectionsOneFile() throws Exception {
         Files.copy(Paths.get("src/test/resources/mods_collections/non_cdm_mods.xml"),
@@ -239,9 +257,211 @@ public class DescriptionsServiceTest {
         assertExpandedDescriptionFilesCount(3);
     }
 
+    @Test
+    public void expandManyRecordsInParallel() throws Exception {
+        service.setParallelism(4);
+        for (int fileIndex = 0; fileIndex < 5; fileIndex++) {
+            writeModsCollection("coll" + fileIndex + ".xml", fileIndex * 200, 200, "Title ");
+        }
+
+        Set<String> idsWithMods = service.expandDescriptions();
+        assertEquals(1000, idsWithMods.size());
+        assertDatePresent();
+
+        assertModsPopulated("Title 0", "0");
+        assertModsPopulated("Title 555", "555");
+        assertModsPopulated("Title 999", "999");
+        assertExpandedDescriptionFilesCount(1000);
+    }
+
+    @Test
+    public void expandDuplicateIdsLastRecordWins() throws Exception {
+        service.setParallelism(4);
+        writeModsCollection("a_coll.xml", 0, 300, "First ");
+        writeModsCollection("b_coll.xml", 0, 300, "Second ");
+
+        Set<String> idsWithMods = service.expandDescriptions();
+        assertEquals(300, idsWithMods.size());
+
+        // Records from the later file take precedence, regardless of which finished first
+        for (int i = 0; i < 300; i += 50) {
+            assertModsPopulated("Second " + i, Integer.toString(i));
+        }
+        assertExpandedDescriptionFilesCount(300);
+    }
+
+    @Test
+    public void expandIncrementallyAfterChange() throws Exception {
+        writeModsCollection("a_coll.xml", 0, 10, "Title ");
+        writeModsCollection("b_coll.xml", 10, 10, "Title ");
+        service.expandDescriptions();
+        assertTrue(Files.exists(project.getExpandedDescriptionsManifestPath()));
+
+        // Backdate all expanded files so that rewrites can be detected
+        var oldTime = FileTime.fromMillis(System.currentTimeMillis() - 100000);
+        for (int i = 0; i < 20; i++) {
+            Files.setLastModifiedTime(service.getExpandedDescriptionFilePath(Integer.toString(i)), oldTime);
+        }
+
+        // Change one record, remove one record and leave the rest of the file the same
+        writeModsCollection("b_coll.xml", 10, 9, "Title ");
+        var bPath = project.getDescriptionsPath().resolve("b_coll.xml");
+        Files.writeString(bPath, Files.readString(bPath).replace("Title 12", "Changed 12"));
+
+        Set<String> idsWithMods = service.expandDescriptions();
+        assertEquals(19, idsWithMods.size());
+        assertModsPopulated("Changed 12", "12");
+        assertModsPopulated("Title 11", "11");
+        assertFalse(Files.exists(service.getExpandedDescriptionFilePath("19")));
+        for (int i = 0; i < 19; i++) {
+            var mtime = Files.getLastModifiedTime(service.getExpandedDescriptionFilePath(Integer.toString(i)));
+            assertEquals(i == 12, !mtime.equals(oldTime), "Unexpected rewrite state for record " + i);
+        }
+        assertExpandedDescriptionFilesCount(19);
+    }
+
+    @Test
+    public void expandIncrementallyDuplicateIdRemoved() throws Exception {
+        writeModsCollection("a_coll.xml", 0, 5, "First ");
+        writeModsCollection("b_coll.xml", 0, 1, "Second ");
+        service.expandDescriptions();
+        assertModsPopulated("Second 0", "0");
+
+        // Once the later record is removed, the record from the unchanged file should be restored
+        Files.delete(project.getDescriptionsPath().resolve("b_coll.xml"));
+        Set<String> idsWithMods = service.expandDescriptions();
+        assertEquals(5, idsWithMods.size());
+        assertModsPopulated("First 0", "0");
+        assertExpandedDescriptionFilesCount(5);
+    }
+
+    @Test
+    public void expandedDescriptionTitlesTest() throws Exception {
+        Files.copy(Paths.get("src/test/resources/mods_collections/gilmer_mods1.xml"),
+                project.getDescriptionsPath().resolve("gilmer_mods1.xml"));
+        service.expandDescriptions();
+
+        assertEquals("Redoubt C", service.getExpandedDescriptionTitle("25"));
+        assertEquals("Plan of Battery McIntosh", service.getExpandedDescriptionTitle("26"));
+        assertNull(service.getExpandedDescriptionTitle("99"));
+
+        // Titles are loaded from the expansion manifest by other instances
+        var otherService = new DescriptionsService();
+        otherService.setProject(project);
+        assertEquals("Fort DeRussy on Red River, Louisiana", otherService.getExpandedDescriptionTitle("27"));
+
+        // Without a manifest, titles are read from the expanded records
+        Files.delete(project.getExpandedDescriptionsManifestPath());
+        var fallbackService = new DescriptionsService();
+        fallbackService.setProject(project);
+        assertEquals("Redoubt C", fallbackService.getExpandedDescriptionTitle("25"));
+        assertNull(fallbackService.getExpandedDescriptionTitle("99"));
+    }
+
+    @Test
+    public void expandReplacesLegacyLayout() throws Exception {
+        Files.copy(Paths.get("src/test/resources/mods_collections/gilmer_mods1.xml"),
+                project.getDescriptionsPath().resolve("gilmer_mods1.xml"));
+        var legacyPath = service.getExpandedDescriptionFilePath("25");
+        assertEquals(project.getExpandedDescriptionsPath().resolve("579").resolve("25.xml"), legacyPath);
+        Files.createDirectories(legacyPath.getParent());
+        Files.writeString(legacyPath, "old");
+
+        service.expandDescriptions();
+
+        assertFalse(Files.exists(legacyPath));
+        var props = ProjectPropertiesSerialization.read(project.getProjectPropertiesPath());
+        assertEquals(16, props.getExpandedDescriptionsBuckets());
+        assertEquals(1, props.getExpandedDescriptionsSubBuckets());
+        assertModsPopulated("Redoubt C", "25");
+        assertExpandedDescriptionFilesCount(3);
+    }
+
+    @Test
+    public void expandWithSubBuckets() throws Exception {
+        project.getProjectProperties().setExpandedDescriptionsBuckets(16);
+        project.getProjectProperties().setExpandedDescriptionsSubBuckets(4);
+        writeModsCollection("coll.xml", 0, 50, "Title ");
+
+        service.expandDescriptions();
+
+        var path = service.getExpandedDescriptionFilePath("a:b c/d");
+        assertEquals("a_b_c_d.xml", path.getFileName().toString());
+        assertEquals(project.getExpandedDescriptionsPath(), path.getParent().getParent().getParent());
+        try (var paths = Files.walk(project.getExpandedDescriptionsPath())) {
+            assertEquals(50, paths.filter(p -> p.getNameCount()
+                    == project.getExpandedDescriptionsPath().getNameCount() + 3).count());
+        }
+        assertModsPopulated("Title 42", "42");
+    }
+
+    @Test
+    public void expandPacked() throws Exception {
+        writeModsCollection("coll.xml", 0, 10, "Title ");
+        service.setPackedStorage(true);
+
+        Set<String> idsWithMods = service.expandDescriptions();
+        assertEquals(10, idsWithMods.size());
+        var packPath = project.getExpandedDescriptionsPackPath();
+        assertTrue(Files.exists(packPath));
+        assertTrue(Files.exists(project.getExpandedDescriptionsPackIndexPath()));
+        assertFalse(Files.exists(project.getExpandedDescriptionsPath()));
+        assertModsPopulated("Title 3", "3");
+        assertEquals("Title 4", service.getExpandedDescriptionTitle("4"));
+
+        var store = service.getExpandedDescriptionStore();
+        assertFalse(store.contains("99"));
+        assertNull(store.openStream("99"));
+        var copyPath = tmpFolder.resolve("copy.xml");
+        assertTrue(store.copyTo("5", copyPath));
+        try (var inStream = store.openStream("5")) {
+            assertArrayEquals(inStream.readAllBytes(), Files.readAllBytes(copyPath));
+        }
+
+        // Once most of the pack is made up of replaced records, it is compacted
+        long packSize = Files.size(packPath);
+        writeModsCollection("coll.xml", 0, 9, "New ");
+        // Storage used by the previous expansion is kept when none is requested
+        service.setPackedStorage(null);
+        idsWithMods = service.expandDescriptions();
+        assertTrue(project.getProjectProperties().isExpandedDescriptionsPacked());
+        assertFalse(Files.exists(project.getExpandedDescriptionsPath()));
+        assertEquals(9, idsWithMods.size());
+        assertModsPopulated("New 3", "3");
+        assertFalse(service.getExpandedDescriptionStore().contains("9"));
+        assertTrue(Files.size(packPath) < packSize);
+
+        // Switching back to separate files removes the pack
+        service.setPackedStorage(false);
+        service.expandDescriptions();
+        assertFalse(Files.exists(packPath));
+        assertFalse(Files.exists(project.getExpandedDescriptionsPackIndexPath()));
+        assertModsPopulated("New 3", "3");
+        assertExpandedDescriptionFilesCount(9);
+    }
+
+    private void writeModsCollection(String filename, int firstId, int count, String titlePrefix) throws Exception {
+        Element collEl = new Element("modsCollection", MODS_V3_NS);
+        for (int i = firstId; i < firstId + count; i++) {
+            collEl.addContent(new Element("mods", MODS_V3_NS)
+                    .addContent(new Element("titleInfo", MODS_V3_NS)
+                            .addContent(new Element("title", MODS_V3_NS).setText(titlePrefix + i)))
+                    .addContent(new Element("identifier", MODS_V3_NS)
+                            .setAttribute("displayLabel", CDM_ID_LABEL)
+                            .setAttribute("type", LOCAL_TYPE_VALUE)
+                            .setText(Integer.toString(i))));
+        }
+        try (var outStream = Files.newOutputStream(project.getDescriptionsPath().resolve(filename))) {
+            xmlOutputter.output(new Document(collEl), outStream);
+        }
+    }
+
     private void assertModsPopulated(String expectedTitle, String expectedId) throws Exception {
-        Path path = service.getExpandedDescriptionFilePath(expectedId);
-        Document modsDoc = SecureXMLFactory.createSAXBuilder().build(path.toFile());
+        Document modsDoc;
+        try (var inStream = service.getExpandedDescriptionStore().openStream(expectedId)) {
+            assertNotNull(inStream, "Expected expanded MODS record for " + expectedId);
+            modsDoc = SecureXMLFactory.createSAXBuilder().build(inStream);
+        }
         Element rootEl = modsDoc.getRootElement();
         assertEquals("mods", rootEl.getName());
         assertEquals(MODS_V3_NS, rootEl.getNamespace());
@@ -0,0 +1,146 @@
+package edu.unc.lib.boxc.migration.cdm.services;
+
+import edu.unc.lib.boxc.migration.cdm.model.MigrationProject;
+import edu.unc.lib.boxc.migration.cdm.services.FileDigestService.DigestAlgorithm;
+import edu.unc.lib.boxc.migration.cdm.test.BxcEnvironmentHelper;
+import edu.unc.lib.boxc.migration.cdm.test.CdmEnvironmentHelper;
+import edu.unc.lib.boxc.migration.cdm.test.TestSshServer;
+import edu.unc.lib.boxc.migration.cdm.util.SshClientService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FileDigestServiceTest {
+    private static final String PROJECT_NAME = "proj";
+    private static final String HELLO_SHA256 = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+    private static final String HELLO_MD5 = "5d41402abc4b2a76b9719d911017c592";
+    private static final String WORLD_SHA256 = "486ea46224d1bb4fb680f34f7c9ad96a8f24ec88be73ea8e5a6c65260e9cb8a7";
+    @TempDir
+    public Path tmpFolder;
+
+    private MigrationProject project;
+    private FileDigestService service;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        project = MigrationProjectFactory.createCdmMigrationProject(
+                tmpFolder, PROJECT_NAME, null, "user",
+                CdmEnvironmentHelper.DEFAULT_ENV_ID, BxcEnvironmentHelper.DEFAULT_ENV_ID);
+        service = new FileDigestService();
+        service.setProject(project);
+        service.setParallelism(2);
+    }
+
+    @Test
+    public void digestFileTest() throws Exception {
+        var path = Files.writeString(tmpFolder.resolve("hello.txt"), "hello");
+
+        assertEquals(HELLO_SHA256, FileDigestService.digestFile(path, DigestAlgorithm.SHA256));
+        assertEquals(HELLO_MD5, FileDigestService.digestFile(path, DigestAlgorithm.MD5));
+    }
+
+    @Test
+    public void digestFilesCachedTest() throws Exception {
+        var path1 = Files.writeString(tmpFolder.resolve("hello.txt"), "hello");
+        var path2 = Files.writeString(tmpFolder.resolve("world.txt"), "world");
+
+        var digests = service.digestFiles(List.of(path1, path2), DigestAlgorithm.SHA256);
+        assertEquals(HELLO_SHA256, digests.get(path1));
+        assertEquals(WORLD_SHA256, digests.get(path2));
+        assertTrue(Files.exists(project.getFileDigestsPath()));
+
+        // Cached digest is reused while the size and modification time are unchanged
+        var modified = Files.getLastModifiedTime(path1);
+        Files.writeString(path1, "jello");
+        Files.setLastModifiedTime(path1, modified);
+        var service2 = new FileDigestService();
+        service2.setProject(project);
+        assertEquals(HELLO_SHA256, service2.digestFiles(List.of(path1), DigestAlgorithm.SHA256).get(path1));
+
+        // Digest is recomputed once the modification time changes
+        Files.setLastModifiedTime(path1, FileTime.fromMillis(modified.toMillis() + 10000));
+        assertEquals(FileDigestService.digestFile(path1, DigestAlgorithm.SHA256),
+                service2.digestFiles(List.of(path1), DigestAlgorithm.SHA256).get(path1));
+    }
+
+    @Test
+    public void parseDigestLineTest() {
+        assertEquals(HELLO_SHA256, FileDigestService.parseDigestLine(HELLO_SHA256 + "  /path/to/hello.txt"));
+        assertEquals(HELLO_SHA256, FileDigestService.parseDigestLine("\\" + HELLO_SHA256 + "  /path/to\\nhello.txt"));
+        assertEquals("/path/to/hello.txt",
+                FileDigestService.parseDigestLinePath(HELLO_SHA256 + "  /path/to/hello.txt"));
+        assertEquals("/path/to/hello.txt",
+                FileDigestService.parseDigestLinePath(HELLO_SHA256 + " */path/to/hello.txt"));
+        assertEquals("/path/to\nhe\\llo.txt",
+                FileDigestService.parseDigestLinePath("\\" + HELLO_SHA256 + "  /path/to\\nhe\\\\llo.txt"));
+    }
+
+    @Test
+    public void partitionForCommandBySizeTest() {
+        long gb = 1024L * 1024 * 1024;
+        var pathSizes = new LinkedHashMap<String, Long>();
+        pathSizes.put("/a", 3 * gb);
+        pathSizes.put("/b", 2 * gb);
+        pathSizes.put("/c", 10L);
+        pathSizes.put("/d", 10 * gb);
+        pathSizes.put("/e", 10L);
+
+        var batches = FileDigestService.partitionForCommand(pathSizes, "sha256sum");
+        assertEquals(List.of(List.of("/a"), List.of("/b", "/c"), List.of("/d"), List.of("/e")),
+                batches.stream().map(b -> b.paths).toList());
+        assertEquals(2 * gb + 10, batches.get(1).bytes);
+    }
+
+    @Test
+    public void getCommandTimeoutSecondsTest() {
+        assertEquals(SshClientService.SSH_TIMEOUT_SECONDS, FileDigestService.getCommandTimeoutSeconds(10L));
+        // Large batches are given longer to complete than the default timeout
+        long bytes = 100L * 1024 * 1024 * 1024;
+        assertEquals(bytes / (20L * 1024 * 1024), FileDigestService.getCommandTimeoutSeconds(bytes));
+    }
+
+    @Test
+    public void digestRemoteFilesMissingFileTest() throws Exception {
+        var path1 = Files.writeString(tmpFolder.resolve("hello.txt"), "hello");
+        var path2 = Files.writeString(tmpFolder.resolve("wor\\ld.txt"), "world");
+        var missingPath = tmpFolder.resolve("missing.txt");
+
+        var clientKeyPath = Paths.get("src/test/resources/test_client_key");
+        var testSshServer = new TestSshServer();
+        testSshServer.setClientKeyPath(clientKeyPath);
+        var sshClientService = new SshClientService();
+        sshClientService.setSshPort(42222);
+        sshClientService.setSshHost("127.0.0.1");
+        sshClientService.setSshUsername("testuser");
+        sshClientService.setSshKeyPath(clientKeyPath);
+        sshClientService.initialize();
+        testSshServer.startServer();
+        try {
+            var remotePathSizes = new LinkedHashMap<String, Long>();
+            remotePathSizes.put(path1.toString(), 5L);
+            remotePathSizes.put(missingPath.toString(), 5L);
+            remotePathSizes.put(path2.toString(), 5L);
+            var digests = FileDigestService.digestRemoteFiles(sshClientService, remotePathSizes,
+                    DigestAlgorithm.SHA256);
+            assertEquals(Map.of(path1.toString(), HELLO_SHA256, path2.toString(), WORLD_SHA256), digests);
+
+            // Missing remote copy is reported as a verification failure, without failing the other files
+            var mismatched = service.verifyRemoteCopies(sshClientService,
+                    Map.of(path1, path1.toString(), path2, missingPath.toString()), DigestAlgorithm.SHA256);
+            assertEquals(List.of(path2), mismatched);
+        } finally {
+            testSshServer.stopServer();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package edu.unc.lib.boxc.migration.cdm.services;
+
+import edu.unc.lib.boxc.migration.cdm.test.BxcEnvironmentHelper;
+import edu.unc.lib.boxc.migration.cdm.test.CdmEnvironmentHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FileInventoryLookupTest {
+    private static final String PROJECT_NAME = "proj";
+    private static final FileTime OLD_TIME = FileTime.fromMillis(System.currentTimeMillis() - 60 * 60 * 1000);
+    @TempDir
+    public Path tmpFolder;
+
+    private FileInventoryService inventoryService;
+    private Path basePath;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        var project = MigrationProjectFactory.createCdmMigrationProject(
+                tmpFolder, PROJECT_NAME, null, "user",
+                CdmEnvironmentHelper.DEFAULT_ENV_ID, BxcEnvironmentHelper.DEFAULT_ENV_ID);
+        inventoryService = new FileInventoryService();
+        inventoryService.setProject(project);
+        inventoryService.setParallelism(2);
+        basePath = tmpFolder.resolve("files").toAbsolutePath();
+        Files.createDirectories(basePath);
+    }
+
+    @Test
+    public void noInventoriesTest() throws Exception {
+        var path = addFile("a.tif");
+
+        try (var lookup = new FileInventoryLookup(inventoryService)) {
+            assertFalse(lookup.isKnownFile(path));
+        }
+    }
+
+    @Test
+    public void isKnownFileTest() throws Exception {
+        var path1 = addFile("dir/a.tif");
+        var path2 = addFile("dir/b.tif");
+        var otherPath = addFile("other/c.tif");
+        ageDirectories("dir", "other");
+        inventoryService.getInventory(basePath, false);
+
+        // Modified directories are not trusted
+        Files.setLastModifiedTime(basePath.resolve("other"), FileTime.fromMillis(System.currentTimeMillis()));
+        try (var lookup = new FileInventoryLookup(inventoryService)) {
+            assertEquals(List.of(basePath), inventoryService.listInventoryBasePaths());
+            assertTrue(lookup.isKnownFile(path1));
+            assertTrue(lookup.isKnownFile(path2));
+            assertFalse(lookup.isKnownFile(basePath.resolve("dir/missing.tif")));
+            assertFalse(lookup.isKnownFile(basePath.resolve("dir")));
+            assertFalse(lookup.isKnownFile(otherPath));
+            assertFalse(lookup.isKnownFile(tmpFolder.resolve("elsewhere/a.tif")));
+        }
+    }
+
+    @Test
+    public void nestedInventoriesTest() throws Exception {
+        var path1 = addFile("dir/a.tif");
+        ageDirectories("", "dir");
+        inventoryService.getInventory(basePath, false);
+        // More specific inventory is produced after a file was added, so it is preferred
+        var path2 = addFile("dir/b.tif");
+        ageDirectories("dir");
+        inventoryService.getInventory(basePath.resolve("dir"), false);
+
+        try (var lookup = new FileInventoryLookup(inventoryService)) {
+            assertTrue(lookup.isKnownFile(path1));
+            assertTrue(lookup.isKnownFile(path2));
+        }
+    }
+
+    @Test
+    public void symbolicLinksTest() throws Exception {
+        var target = addFile("dir/a.tif");
+        var link = Files.createSymbolicLink(basePath.resolve("dir/link.tif"), target);
+        var brokenLink = Files.createSymbolicLink(basePath.resolve("dir/broken.tif"),
+                basePath.resolve("dir/missing.tif"));
+        ageDirectories("", "dir");
+        inventoryService.getInventory(basePath, false);
+
+        try (var lookup = new FileInventoryLookup(inventoryService)) {
+            assertTrue(lookup.isKnownFile(link));
+            assertFalse(lookup.isKnownFile(brokenLink));
+        }
+    }
+
+    private Path addFile(String relPath) throws Exception {
+        var path = basePath.resolve(relPath);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, relPath);
+        return path;
+    }
+
+    private void ageDirectories(String... relPaths) throws Exception {
+        for (String relPath : relPaths) {
+            Files.setLastModifiedTime(basePath.resolve(relPath), OLD_TIME);
+        }
+    }
+}
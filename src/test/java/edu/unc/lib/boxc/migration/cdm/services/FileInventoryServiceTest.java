@@ -0,0 +1,196 @@
+package edu.unc.lib.boxc.migration.cdm.services;
+
+import edu.unc.lib.boxc.migration.cdm.model.FileInventory;
+import edu.unc.lib.boxc.migration.cdm.model.FileInventory.FileEntry;
+import edu.unc.lib.boxc.migration.cdm.model.MigrationProject;
+import edu.unc.lib.boxc.migration.cdm.test.BxcEnvironmentHelper;
+import edu.unc.lib.boxc.migration.cdm.test.CdmEnvironmentHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FileInventoryServiceTest {
+    private static final String PROJECT_NAME = "proj";
+    private static final FileTime OLD_TIME = FileTime.fromMillis(System.currentTimeMillis() - 60 * 60 * 1000);
+    @TempDir
+    public Path tmpFolder;
+
+    private MigrationProject project;
+    private FileInventoryService service;
+    private Path basePath;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        project = MigrationProjectFactory.createCdmMigrationProject(
+                tmpFolder, PROJECT_NAME, null, "user",
+                CdmEnvironmentHelper.DEFAULT_ENV_ID, BxcEnvironmentHelper.DEFAULT_ENV_ID);
+        service = new FileInventoryService();
+        service.setProject(project);
+        service.setParallelism(2);
+        basePath = tmpFolder.resolve("files");
+        Files.createDirectories(basePath);
+    }
+
+    @Test
+    public void getInventoryNoCacheTest() throws Exception {
+        addFile("top.tif", "top");
+        addFile("nested/path/Deep.TIF", "deeper");
+        addFile("nested/other.txt", "other");
+
+        assertNull(service.loadInventory(basePath));
+        var inventory = service.getInventory(basePath, false);
+
+        assertEquals(List.of("nested/other.txt", "nested/path/Deep.TIF", "top.tif"), listPaths(inventory));
+        var deep = findEntry(inventory, "nested/path/Deep.TIF");
+        assertEquals("Deep.TIF", deep.getFilename());
+        assertEquals("deep.tif", deep.getLowercaseFilename());
+        assertEquals(6, deep.getSize());
+        assertTrue(Files.exists(service.getInventoryPath(basePath.toAbsolutePath())));
+    }
+
+    @Test
+    public void getInventoryDryRunTest() throws Exception {
+        addFile("top.tif", "top");
+        service.setDryRun(true);
+
+        var inventory = service.getInventory(basePath, false);
+
+        assertEquals(List.of("top.tif"), listPaths(inventory));
+        assertNull(service.loadInventory(basePath));
+        assertFalse(Files.exists(project.getFileInventoriesPath()));
+
+        // Previously cached inventory is left unchanged
+        service.setDryRun(false);
+        var cached = service.getInventory(basePath, false);
+        addFile("added.tif", "added");
+        service.setDryRun(true);
+        assertEquals(List.of("added.tif", "top.tif"), listPaths(service.getInventory(basePath, true)));
+        assertEquals(cached.getScanTime(), service.loadInventory(basePath).getScanTime());
+        assertEquals(List.of("top.tif"), listPaths(service.loadInventory(basePath)));
+    }
+
+    @Test
+    public void loadInventoryRoundTripTest() throws Exception {
+        addFile("top.tif", "top");
+        addFile("nested/path/deep.tif", "deeper");
+
+        var inventory = service.getInventory(basePath, false);
+        var loaded = service.loadInventory(basePath);
+
+        assertNotNull(loaded);
+        assertEquals(inventory.getScanTime(), loaded.getScanTime());
+        assertEquals(listPaths(inventory), listPaths(loaded));
+        assertEquals(List.of("path"), loaded.getDirectory("nested").getSubdirectories());
+        var deep = findEntry(loaded, "nested/path/deep.tif");
+        assertEquals(6, deep.getSize());
+        assertEquals(Files.getLastModifiedTime(basePath.resolve("nested/path/deep.tif")).toMillis(), deep.getMtime());
+    }
+
+    @Test
+    public void getInventoryReusesUnchangedDirectoriesTest() throws Exception {
+        addFile("unchanged/a.tif", "a");
+        addFile("changed/b.tif", "b");
+        addFile("changed/sub/c.tif", "c");
+        ageDirectories("", "unchanged", "changed", "changed/sub");
+
+        service.getInventory(basePath, false);
+
+        // Add a file to an unchanged directory and then restore its mtime, so that the directory appears unchanged
+        addFile("unchanged/hidden.tif", "hidden");
+        ageDirectories("unchanged");
+        // Add a file to a directory, updating its mtime
+        addFile("changed/sub/d.tif", "d");
+        Files.delete(basePath.resolve("changed/b.tif"));
+
+        var inventory = service.getInventory(basePath, false);
+        assertEquals(List.of("changed/sub/c.tif", "changed/sub/d.tif", "unchanged/a.tif"), listPaths(inventory));
+
+        // A full rescan picks up files in directories whose mtime did not change
+        var rescanned = service.getInventory(basePath, true);
+        assertEquals(List.of("changed/sub/c.tif", "changed/sub/d.tif", "unchanged/a.tif", "unchanged/hidden.tif"),
+                listPaths(rescanned));
+    }
+
+    @Test
+    public void getInventoryReusedDirectorySizesUnknownTest() throws Exception {
+        addFile("unchanged/a.tif", "a");
+        addFile("changed/b.tif", "b");
+        ageDirectories("", "unchanged", "changed");
+
+        service.getInventory(basePath, false);
+        // Rewrite a file in place, which does not change the mtime of its directory
+        addFile("unchanged/a.tif", "rewritten");
+        addFile("changed/c.tif", "c");
+
+        var inventory = service.getInventory(basePath, false);
+        assertFalse(inventory.getDirectory("unchanged").isListed());
+        assertEquals(FileEntry.UNKNOWN, findEntry(inventory, "unchanged/a.tif").getSize());
+        assertEquals(FileEntry.UNKNOWN, findEntry(inventory, "unchanged/a.tif").getMtime());
+        assertTrue(inventory.getDirectory("changed").isListed());
+        assertEquals(1, findEntry(inventory, "changed/b.tif").getSize());
+
+        var rescanned = service.getInventory(basePath, true);
+        assertEquals(9, findEntry(rescanned, "unchanged/a.tif").getSize());
+    }
+
+    @Test
+    public void getInventorySymbolicLinkTest() throws Exception {
+        addFile("dir/a.tif", "a");
+        Files.createSymbolicLink(basePath.resolve("dir/link.tif"), basePath.resolve("dir/a.tif"));
+        Files.createSymbolicLink(basePath.resolve("dir/broken.tif"), basePath.resolve("dir/missing.tif"));
+
+        service.getInventory(basePath, false);
+        var loaded = service.loadInventory(basePath);
+
+        assertEquals(List.of("dir/a.tif", "dir/broken.tif", "dir/link.tif"), listPaths(loaded));
+        assertFalse(findEntry(loaded, "dir/a.tif").isSymbolicLink());
+        assertTrue(findEntry(loaded, "dir/link.tif").isSymbolicLink());
+        assertTrue(findEntry(loaded, "dir/broken.tif").isSymbolicLink());
+    }
+
+    @Test
+    public void getInventoryRecentlyModifiedDirectoryRelistedTest() throws Exception {
+        addFile("dir/a.tif", "a");
+
+        service.getInventory(basePath, false);
+        // Directory was modified within the racy window of the previous scan, so it must be listed again
+        var dirMtime = Files.getLastModifiedTime(basePath.resolve("dir"));
+        addFile("dir/b.tif", "b");
+        Files.setLastModifiedTime(basePath.resolve("dir"), dirMtime);
+
+        var inventory = service.getInventory(basePath, false);
+        assertEquals(List.of("dir/a.tif", "dir/b.tif"), listPaths(inventory));
+    }
+
+    private void addFile(String relPath, String content) throws Exception {
+        var path = basePath.resolve(relPath);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, content);
+    }
+
+    private void ageDirectories(String... relPaths) throws Exception {
+        for (String relPath : relPaths) {
+            Files.setLastModifiedTime(basePath.resolve(relPath), OLD_TIME);
+        }
+    }
+
+    private List<String> listPaths(FileInventory inventory) {
+        return inventory.listFiles().stream().map(FileEntry::getPath).sorted().collect(Collectors.toList());
+    }
+
+    private FileEntry findEntry(FileInventory inventory, String path) {
+        return inventory.listFiles().stream().filter(f -> f.getPath().equals(path)).findFirst().get();
+    }
+}
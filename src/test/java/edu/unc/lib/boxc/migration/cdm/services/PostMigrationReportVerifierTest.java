@@ -21,11 +21,15 @@ import org.springframework.http.HttpStatus;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.net.SocketTimeoutException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static edu.unc.lib.boxc.migration.cdm.test.PostMigrationReportTestHelper.JSON;
 import static edu.unc.lib.boxc.migration.cdm.test.PostMigrationReportTestHelper.JSON_NO_PARENT;
@@ -56,8 +60,6 @@ public class PostMigrationReportVerifierTest {
     public Path tmpFolder;
     @Mock
     private CloseableHttpClient httpClient;
-    @Mock
-    private HttpEntity respEntity;
     private SipServiceHelper testHelper;
     private MigrationProject project;
     private PostMigrationReportService reportGenerator;
@@ -285,10 +287,178 @@ public class PostMigrationReportVerifierTest {
                 "");
     }
 
+    @Test
+    public void reportVerifyConcurrentPreservesOrderTest() throws Exception {
+        verifier.setConcurrency(4);
+        var random = new Random();
+        when(httpClient.execute(any(HttpUriRequest.class))).thenAnswer(invocation -> {
+            HttpGet httpGet = invocation.getArgument(0);
+            // Vary response times so that requests complete out of order
+            Thread.sleep(random.nextInt(5));
+            var resp = mock(CloseableHttpResponse.class);
+            var statusLine = mock(StatusLine.class);
+            when(resp.getStatusLine()).thenReturn(statusLine);
+            // Objects with odd numbered ids are not found
+            var id = httpGet.getURI().getPath().split("/")[4];
+            if (Integer.parseInt(id.substring(id.length() - 3)) % 2 == 0) {
+                var respEntity = mock(HttpEntity.class);
+                when(respEntity.getContent())
+                        .thenReturn(new ByteArrayInputStream(JSON.getBytes(StandardCharsets.UTF_8)));
+                when(resp.getEntity()).thenReturn(respEntity);
+                when(statusLine.getStatusCode()).thenReturn(HttpStatus.OK.value());
+            } else {
+                when(statusLine.getStatusCode()).thenReturn(HttpStatus.NOT_FOUND.value());
+            }
+            return resp;
+        });
+
+        reportGenerator.init();
+        for (int i = 0; i < 100; i++) {
+            var boxcUrl = String.format("http://example.com/bxc/bb3b83d7-2962-4604-a7d0-9afcb4ec9%03d", i);
+            reportGenerator.addRow(Integer.toString(i), CDM_URL_1, "Work", boxcUrl, "Title " + i,
+                    null, null, null, "", "", 1, SIP_ID, null,null);
+        }
+        reportGenerator.closeCsv();
+
+        var outcome = verifier.verify();
+        assertEquals(100, outcome.verifiedCount);
+        assertEquals(100, outcome.totalRecords);
+        assertEquals(50, outcome.urlErrorCount);
+
+        var rows = parseReport(project);
+        assertEquals(100, rows.size());
+        for (int i = 0; i < 100; i++) {
+            var row = rows.get(i);
+            assertEquals(Integer.toString(i), row.getFirst());
+            var expectedStatus = i % 2 == 0 ? HttpStatus.OK : HttpStatus.NOT_FOUND;
+            assertEquals(expectedStatus.name(), row.get(7));
+            assertEquals(i % 2 == 0 ? PARENT_COLL_URL : "", row.get(12));
+        }
+    }
+
+    @Test
+    public void reportVerifyRetriesTransientErrorsTest() throws Exception {
+        verifier.setRetryBaseDelayMillis(1);
+        verifier.setMaxRetries(2);
+        // The first object recovers after one server error, the second is never available
+        var attempts = new ConcurrentHashMap<String, AtomicInteger>();
+        when(httpClient.execute(any(HttpUriRequest.class))).thenAnswer(invocation -> {
+            HttpGet httpGet = invocation.getArgument(0);
+            var requestUrl = httpGet.getURI().toString();
+            var attempt = attempts.computeIfAbsent(requestUrl, k -> new AtomicInteger()).getAndIncrement();
+            var resp = mock(CloseableHttpResponse.class);
+            var respEntity = mock(HttpEntity.class);
+            when(resp.getEntity()).thenReturn(respEntity);
+            var statusLine = mock(StatusLine.class);
+            when(resp.getStatusLine()).thenReturn(statusLine);
+            if (requestUrl.equals(BOXC_API_1) && attempt > 0) {
+                when(respEntity.getContent())
+                        .thenReturn(new ByteArrayInputStream(JSON.getBytes(StandardCharsets.UTF_8)));
+                when(statusLine.getStatusCode()).thenReturn(HttpStatus.OK.value());
+            } else {
+                when(statusLine.getStatusCode()).thenReturn(HttpStatus.SERVICE_UNAVAILABLE.value());
+            }
+            return resp;
+        });
+
+        reportGenerator.init();
+        reportGenerator.addRow("25", CDM_URL_1, "Work", BOXC_URL_1, "Redoubt C",
+                null, null, null, "", "", 1, SIP_ID, null,null);
+        reportGenerator.addRow("26", CDM_URL_2, "Work", BOXC_URL_2, "Redoubt D",
+                null, null, null, "", "", 1, SIP_ID, null,null);
+        reportGenerator.closeCsv();
+
+        var outcome = verifier.verify();
+        assertEquals(2, outcome.verifiedCount);
+        assertEquals(1, outcome.urlErrorCount);
+        assertEquals(2, attempts.get(BOXC_API_1).get());
+        assertEquals(3, attempts.get(BOXC_API_2).get());
+        assertEquals(5, outcome.requestMetrics.getRequestCount());
+        assertEquals(Map.of(HttpStatus.OK.name(), 1L, HttpStatus.SERVICE_UNAVAILABLE.name(), 4L),
+                outcome.requestMetrics.getStatusCounts());
+
+        var rows = parseReport(project);
+        assertEquals(HttpStatus.OK.name(), rows.get(0).get(7));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.name(), rows.get(1).get(7));
+    }
+
+    @Test
+    public void reportVerifyRetriesExhaustedTest() throws Exception {
+        verifier.setRetryBaseDelayMillis(1);
+        verifier.setMaxRetries(1);
+        // The first object always times out, the second succeeds
+        when(httpClient.execute(any(HttpUriRequest.class))).thenAnswer(invocation -> {
+            HttpGet httpGet = invocation.getArgument(0);
+            if (httpGet.getURI().toString().equals(BOXC_API_1)) {
+                throw new SocketTimeoutException("Read timed out");
+            }
+            var resp = mock(CloseableHttpResponse.class);
+            var respEntity = mock(HttpEntity.class);
+            when(resp.getEntity()).thenReturn(respEntity);
+            when(respEntity.getContent()).thenReturn(new ByteArrayInputStream(JSON.getBytes(StandardCharsets.UTF_8)));
+            var statusLine = mock(StatusLine.class);
+            when(resp.getStatusLine()).thenReturn(statusLine);
+            when(statusLine.getStatusCode()).thenReturn(HttpStatus.OK.value());
+            return resp;
+        });
+
+        reportGenerator.init();
+        reportGenerator.addRow("25", CDM_URL_1, "Work", BOXC_URL_1, "Redoubt C",
+                null, null, null, "", "", 1, SIP_ID, null,null);
+        reportGenerator.addRow("26", CDM_URL_2, "Work", BOXC_URL_2, "Redoubt D",
+                null, null, null, "", "", 1, SIP_ID, null,null);
+        reportGenerator.closeCsv();
+
+        // Failure is recorded for the row rather than failing the whole verification
+        var outcome = verifier.verify();
+        assertEquals(2, outcome.verifiedCount);
+        assertEquals(1, outcome.urlErrorCount);
+        assertEquals(Map.of("SocketTimeoutException", 2L, HttpStatus.OK.name(), 1L),
+                outcome.requestMetrics.getStatusCounts());
+
+        var rows = parseReport(project);
+        assertEquals("SocketTimeoutException", rows.get(0).get(7));
+        assertEquals(HttpStatus.OK.name(), rows.get(1).get(7));
+    }
+
+    @Test
+    public void reportVerifyNonstandardStatusTest() throws Exception {
+        verifier.setRetryBaseDelayMillis(1);
+        verifier.setMaxRetries(1);
+        when(httpClient.execute(any(HttpUriRequest.class))).thenAnswer(invocation -> {
+            HttpGet httpGet = invocation.getArgument(0);
+            var resp = mock(CloseableHttpResponse.class);
+            when(resp.getEntity()).thenReturn(mock(HttpEntity.class));
+            var statusLine = mock(StatusLine.class);
+            when(resp.getStatusLine()).thenReturn(statusLine);
+            // Status codes which are not known to HttpStatus
+            when(statusLine.getStatusCode()).thenReturn(httpGet.getURI().toString().equals(BOXC_API_1) ? 520 : 299);
+            return resp;
+        });
+
+        reportGenerator.init();
+        reportGenerator.addRow("25", CDM_URL_1, "Work", BOXC_URL_1, "Redoubt C",
+                null, null, null, "", "", 1, SIP_ID, null,null);
+        reportGenerator.addRow("26", CDM_URL_2, "Work", BOXC_URL_2, "Redoubt D",
+                null, null, null, "", "", 1, SIP_ID, null,null);
+        reportGenerator.closeCsv();
+
+        var outcome = verifier.verify();
+        assertEquals(2, outcome.verifiedCount);
+        assertEquals(2, outcome.urlErrorCount);
+        assertEquals(Map.of("520", 2L, "299", 1L), outcome.requestMetrics.getStatusCounts());
+
+        var rows = parseReport(project);
+        assertEquals("520", rows.get(0).get(7));
+        assertEquals("299", rows.get(1).get(7));
+    }
+
     private void mockBxcResponses(Map<String, HttpStatus> urlToStatus, boolean noParent) throws IOException {
         when(httpClient.execute(any(HttpUriRequest.class))).thenAnswer(invocation -> {
             HttpGet httpGet = invocation.getArgument(0);
             var resp = mock(CloseableHttpResponse.class);
+            // Each response gets its own entity, since requests are made concurrently
+            var respEntity = mock(HttpEntity.class);
             when(resp.getEntity()).thenReturn(respEntity);
             var statusLine = mock(StatusLine.class);
             when(resp.getStatusLine()).thenReturn(statusLine);
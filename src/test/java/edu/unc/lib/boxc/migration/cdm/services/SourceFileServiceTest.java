@@ -210,6 +210,27 @@ public class SourceFileServiceTest {
         assertMappedDatePresent();
     }
 
+    @Test
+    public void generateMultipleMatchingRulesTest() throws Exception {
+        testHelper.indexExportData("mini_gilmer");
+        GenerateSourceFileMappingOptions options = makeDefaultOptions();
+        options.setPathPattern("**/*");
+        options.setFieldMatchingPatterns(List.of("(\\d+)\\_([^_]+)\\_E.tif", "276_(\\d+)_E.tif", "(.+)"));
+        options.setFilenameTemplates(List.of("00$1_op0$2_0001_e.tif", "img_$1.jpg", "$1"));
+        Path srcPath1 = testHelper.addSourceFile("nested/00276_op0182_0001_e.tif");
+        Path srcPath2 = testHelper.addSourceFile("img_183.jpg");
+        Path srcPath3 = testHelper.addSourceFile("276_203_E.tif");
+
+        service.generateMapping(options);
+
+        SourceFilesInfo info = service.loadMappings();
+        assertMappingPresent(info, "25", "276_182_E.tif", srcPath1);
+        assertMappingPresent(info, "26", "276_183_E.tif", srcPath2);
+        assertMappingPresent(info, "27", "276_203_E.tif", srcPath3);
+
+        assertMappedDatePresent();
+    }
+
     @Test
     public void generateMultipleMatchesForSameObjectTest() throws Exception {
         testHelper.indexExportData("mini_gilmer");
@@ -229,6 +250,31 @@ public class SourceFileServiceTest {
         assertMappedDatePresent();
     }
 
+    @Test
+    public void generateManyNestedDirectoriesParallelCrawlTest() throws Exception {
+        testHelper.indexExportData("mini_gilmer");
+        GenerateSourceFileMappingOptions options = makeDefaultOptions();
+        options.setPathPattern("**/*.tif");
+        options.setCrawlThreads(4);
+        // Add many sibling and nested directories of files which do not match
+        for (int i = 0; i < 20; i++) {
+            testHelper.addSourceFile("dir" + i + "/sub" + i + "/other_" + i + ".tif");
+        }
+        Path srcPath1 = testHelper.addSourceFile("dir3/sub3/deeper/276_182_E.tif");
+        Path srcPath1Dupe = testHelper.addSourceFile("dir12/276_182_E.tif");
+        Path srcPath3 = testHelper.addSourceFile("dir19/sub19/276_203_E.tif");
+
+        service.generateMapping(options);
+
+        SourceFilesInfo info = service.loadMappings();
+        assertMappingPresent(info, "25", "276_182_E.tif", null, srcPath1, srcPath1Dupe);
+        assertEquals(2, info.getMappingByCdmId("25").getPotentialMatches().size());
+        assertMappingPresent(info, "26", "276_183_E.tif", null);
+        assertMappingPresent(info, "27", "276_203_E.tif", srcPath3);
+
+        assertMappedDatePresent();
+    }
+
     @Test
     public void generateDryRunSummaryTest() throws Exception {
         testHelper.indexExportData("mini_gilmer");
@@ -763,6 +809,32 @@ public class SourceFileServiceTest {
         assertEquals(2, info.getMappings().size());
     }
 
+    @Test
+    public void addToMappingDryRunTest() throws Exception {
+        writeCsv(mappingBody("test-00001,," + filesystemSourceFile("IMG_2377.jpeg") + ","));
+
+        AddSourceFileMappingOptions options = new AddSourceFileMappingOptions();
+        options.setBasePath(Path.of("src/test/resources/files"));
+        options.setExtensions(Collections.singletonList("tif"));
+        options.setOptionalIdPrefix("test");
+        options.setDryRun(true);
+
+        service.addToMapping(options);
+
+        // Existing mappings are unchanged
+        SourceFilesInfo info = service.loadMappings();
+        assertEquals(1, info.getMappings().size());
+
+        List<Path> testSourcePaths = Arrays.asList(filesystemSourceFile("D2_035_Varners_DrugStore_interior.tif"),
+                filesystemSourceFile("IMG_2377.jpeg"),
+                filesystemSourceFile("MJM_7_016_LumberMills_IndianCreekTrestle.tif"));
+        SourceFilesInfo dryRunInfo = SourceFileService.loadMappings(service.getTempMappingPath());
+        assertAddToMappingPresent(dryRunInfo, "test-00001", "", testSourcePaths);
+        assertAddToMappingPresent(dryRunInfo, "test-00002", "", testSourcePaths);
+        assertAddToMappingPresent(dryRunInfo, "test-00003", "", testSourcePaths);
+        assertEquals(3, dryRunInfo.getMappings().size());
+    }
+
     @Test
     public void calculateDiskStorageTest() throws IOException {
         writeCsv(
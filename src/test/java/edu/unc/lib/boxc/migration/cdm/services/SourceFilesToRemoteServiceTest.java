@@ -16,6 +16,8 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -117,6 +119,117 @@ public class SourceFilesToRemoteServiceTest {
         assertTransferred(filePath5);
     }
 
+    @Test
+    public void testTransferFilesSkipsExisting() throws Exception {
+        var filePath1 = createTestFile("sources/file1.jpg", "file1");
+        var filePath2 = createTestFile("sources/nest/path/file2.jpg", "file2");
+        AddSourceFileMappingOptions options = new AddSourceFileMappingOptions();
+        options.setBasePath(tmpFolder.resolve("sources"));
+        options.setExtensions(List.of("jpg"));
+        sourceFileService.addToMapping(options);
+        var oldMtime = FileTime.fromMillis(System.currentTimeMillis() - 60000);
+        Files.setLastModifiedTime(filePath1, oldMtime);
+        Files.setLastModifiedTime(filePath2, oldMtime);
+
+        service.setSkipExisting(true);
+        var summary = service.transferFiles(remotePath);
+        assertEquals(2, summary.getFilesTransferred());
+        assertEquals(0, summary.getFilesSkipped());
+        assertEquals(10, summary.getBytesTransferred());
+
+        // Change the size of one file so that it must be transferred again
+        Files.writeString(filePath2, "file2 updated");
+        var summary2 = service.transferFiles(remotePath);
+        assertEquals(1, summary2.getFilesTransferred());
+        assertEquals(1, summary2.getFilesSkipped());
+        assertTransferred(filePath1);
+        assertTransferred(filePath2);
+
+        // Content changed without changing the size, but the modification time differs
+        Files.writeString(filePath1, "FILE1");
+        var summary3 = service.transferFiles(remotePath);
+        assertEquals(1, summary3.getFilesTransferred());
+        assertEquals(1, summary3.getFilesSkipped());
+        assertTransferred(filePath1);
+        assertTransferred(filePath2);
+    }
+
+    @Test
+    public void testTransferFilesExistingTransferredByDefault() throws Exception {
+        var filePath1 = createTestFile("sources/file1.jpg", "file1");
+        AddSourceFileMappingOptions options = new AddSourceFileMappingOptions();
+        options.setBasePath(tmpFolder.resolve("sources"));
+        options.setExtensions(List.of("jpg"));
+        sourceFileService.addToMapping(options);
+
+        service.transferFiles(remotePath);
+        var summary = service.transferFiles(remotePath);
+        assertEquals(1, summary.getFilesTransferred());
+        assertEquals(0, summary.getFilesSkipped());
+        assertTransferred(filePath1);
+    }
+
+    @Test
+    public void testTransferFilesFailure() throws Exception {
+        createTestFile("sources/file1.jpg", "file1");
+        var filePath2 = createTestFile("sources/file2.jpg", "file2");
+        AddSourceFileMappingOptions options = new AddSourceFileMappingOptions();
+        options.setBasePath(tmpFolder.resolve("sources"));
+        options.setExtensions(List.of("jpg"));
+        sourceFileService.addToMapping(options);
+        Files.delete(filePath2);
+
+        service.setMaxAttempts(1);
+        var e = assertThrows(MigrationException.class, () -> service.transferFiles(remotePath));
+        assertTrue(e.getMessage().contains("Failed to transfer files"), e.getMessage());
+    }
+
+    @Test
+    public void testTransferFilesAdaptiveConcurrency() throws Exception {
+        var paths = new ArrayList<Path>();
+        for (int i = 0; i < 60; i++) {
+            paths.add(createTestFile("sources/dir" + (i % 3) + "/file" + i + ".jpg", ("content" + i).repeat(500)));
+        }
+        AddSourceFileMappingOptions options = new AddSourceFileMappingOptions();
+        options.setBasePath(tmpFolder.resolve("sources"));
+        options.setExtensions(List.of("jpg"));
+        sourceFileService.addToMapping(options);
+
+        service.setConcurrentTransfers(1);
+        service.setMaxConcurrentTransfers(4);
+        service.setSampleIntervalMillis(10);
+        service.setBufferSize(256);
+        var summary = service.transferFiles(remotePath);
+
+        assertEquals(60, summary.getFilesTransferred());
+        // Started with a single transfer, so concurrency must have been raised by the controller
+        assertTrue(summary.getPeakConcurrentTransfers() > 1,
+                "Expected concurrency to increase, peak was " + summary.getPeakConcurrentTransfers());
+        assertTrue(summary.getPeakConcurrentTransfers() <= 4);
+        for (var path : paths) {
+            assertTransferred(path);
+        }
+    }
+
+    @Test
+    public void testTransferFilesVerifyChecksums() throws Exception {
+        var filePath1 = createTestFile("sources/file1.jpg", "file1");
+        var filePath2 = createTestFile("sources/space path/fi'le2.jpg", "file2");
+        AddSourceFileMappingOptions options = new AddSourceFileMappingOptions();
+        options.setBasePath(tmpFolder.resolve("sources"));
+        options.setExtensions(List.of("jpg"));
+        sourceFileService.addToMapping(options);
+
+        var fileDigestService = new FileDigestService();
+        fileDigestService.setProject(project);
+        service.setFileDigestService(fileDigestService);
+        service.transferFiles(remotePath);
+
+        assertTransferred(filePath1);
+        assertTransferred(filePath2);
+        assertTrue(Files.exists(project.getFileDigestsPath()));
+    }
+
     @Test
     public void testTransferFilesAuthFailure() throws Exception {
         createTestFile("sources/file1.jpg", "file1");
@@ -137,6 +250,28 @@ public class SourceFilesToRemoteServiceTest {
         assertFalse(Files.exists(remotePath));
     }
 
+    @Test
+    public void testListMostSpecificParents() {
+        var paths = List.of(Path.of("/a/b/file1.jpg"),
+                Path.of("/a/b/c/file2.jpg"),
+                Path.of("/a/b-x/file3.jpg"),
+                Path.of("/d/e/f/file4.jpg"),
+                Path.of("/d/e/f/file5.jpg"));
+
+        var parents = SourceFilesToRemoteService.listMostSpecificParents(paths);
+
+        assertEquals(List.of(Path.of("/a/b/c"), Path.of("/a/b-x"), Path.of("/d/e/f")), parents);
+    }
+
+    @Test
+    public void testBuildMkdirCommands() {
+        var parents = List.of(Path.of("/a/b/c"), Path.of("/it's here"));
+
+        var commands = SourceFilesToRemoteService.buildMkdirCommands(parents, Path.of("/remote"));
+
+        assertEquals(List.of("mkdir -p '/remote/a/b/c' '/remote/it'\\''s here'"), commands);
+    }
+
     private Path createTestFile(String relativePath, String content) throws Exception {
         Path file = tmpFolder.resolve(relativePath);
         Files.createDirectories(file.getParent());
@@ -0,0 +1,140 @@
+package edu.unc.lib.boxc.migration.cdm.services;
+
+import edu.unc.lib.boxc.migration.cdm.model.DestinationsInfo;
+import edu.unc.lib.boxc.migration.cdm.model.MigrationProject;
+import edu.unc.lib.boxc.migration.cdm.model.SourceFilesInfo;
+import edu.unc.lib.boxc.migration.cdm.model.StorageUsage;
+import edu.unc.lib.boxc.migration.cdm.test.BxcEnvironmentHelper;
+import edu.unc.lib.boxc.migration.cdm.test.CdmEnvironmentHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StorageUsageServiceTest {
+    private static final String DEST_UUID = "bfe93126-849a-43a5-b9d9-391e18ffacc6";
+    private static final String DEST_UUID2 = "8ae56bbc-400e-496d-af4b-3c585e20dba1";
+    @TempDir
+    public Path tmpFolder;
+
+    private MigrationProject project;
+    private StorageUsageService service;
+    private Path filesPath;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        project = MigrationProjectFactory.createCdmMigrationProject(
+                tmpFolder, "proj", null, "user",
+                CdmEnvironmentHelper.DEFAULT_ENV_ID, BxcEnvironmentHelper.DEFAULT_ENV_ID);
+        service = new StorageUsageService();
+        service.setProject(project);
+        filesPath = Files.createDirectories(tmpFolder.resolve("files"));
+    }
+
+    @Test
+    public void calculateUsageBreakdownTest() throws Exception {
+        var path1 = writeFile("nested/a.tif", 100);
+        var path2 = writeFile("b.TIF", 50);
+        var path3 = writeFile("c.jpg", 25);
+        var path4 = writeFile("noext", 5);
+        writeMapping("1,," + path1 + ",",
+                "2,," + path2 + "|" + path3 + ",",
+                "3,,,",
+                "4,," + path4 + ",");
+        Files.writeString(project.getDestinationMappingsPath(), String.join(",", DestinationsInfo.CSV_HEADERS) + "\n"
+                + "default," + DEST_UUID + ",\n"
+                + "2," + DEST_UUID2 + ",\n");
+
+        StorageUsage usage = service.calculateUsage(project.getSourceFilesMappingPath(), false);
+
+        assertEquals(180L, usage.getTotalBytes());
+        assertEquals(4L, usage.getFileCount());
+        assertEquals(Map.of("tif", 150L, "jpg", 25L, StorageUsage.NO_EXTENSION, 5L), usage.getBytesByExtension());
+        assertEquals(Map.of(DEST_UUID, 105L, DEST_UUID2, 75L), usage.getBytesByDestination());
+    }
+
+    @Test
+    public void calculateUsageNoDestinationsTest() throws Exception {
+        var path1 = writeFile("a.tif", 100);
+        writeMapping("1,," + path1 + ",");
+
+        StorageUsage usage = service.calculateUsage(project.getSourceFilesMappingPath(), false);
+
+        assertEquals(Map.of(StorageUsage.NO_DESTINATION, 100L), usage.getBytesByDestination());
+    }
+
+    @Test
+    public void calculateUsageReusesCachedSizesTest() throws Exception {
+        var path1 = writeFile("a.tif", 100);
+        Files.setLastModifiedTime(path1, FileTime.fromMillis(System.currentTimeMillis() - 60000));
+        writeMapping("1,," + path1 + ",");
+        assertEquals(100L, service.calculateUsage(project.getSourceFilesMappingPath(), false).getTotalBytes());
+        assertTrue(Files.exists(project.getFileSizesCachePath()));
+        assertEquals(100L, service.calculateUsage(project.getSourceFilesMappingPath(), false).getTotalBytes());
+
+        // Adding a file to the directory is picked up along with the cached size of the existing file
+        var path2 = writeFile("b.tif", 10);
+        writeMapping("1,," + path1 + ",", "2,," + path2 + ",");
+        assertEquals(110L, service.calculateUsage(project.getSourceFilesMappingPath(), false).getTotalBytes());
+
+        // Full scan ignores the cache
+        assertEquals(110L, service.calculateUsage(project.getSourceFilesMappingPath(), true).getTotalBytes());
+    }
+
+    @Test
+    public void calculateUsageFileRewrittenInPlaceTest() throws Exception {
+        var path1 = writeFile("a.tif", 100);
+        var dirMtime = FileTime.fromMillis(System.currentTimeMillis() - 60000);
+        Files.setLastModifiedTime(filesPath, dirMtime);
+        writeMapping("1,," + path1 + ",");
+        assertEquals(100L, service.calculateUsage(project.getSourceFilesMappingPath(), false).getTotalBytes());
+
+        // Files in unchanged directories are not checked again, so rewriting a file in place is not detected
+        Files.write(path1, new byte[200]);
+        Files.setLastModifiedTime(filesPath, dirMtime);
+        assertEquals(100L, service.calculateUsage(project.getSourceFilesMappingPath(), false).getTotalBytes());
+
+        // Full scan picks up the change, and its result is cached
+        assertEquals(200L, service.calculateUsage(project.getSourceFilesMappingPath(), true).getTotalBytes());
+        assertEquals(200L, service.calculateUsage(project.getSourceFilesMappingPath(), false).getTotalBytes());
+    }
+
+    @Test
+    public void calculateUsageRecentlyModifiedDirectoryTest() throws Exception {
+        var path1 = writeFile("a.tif", 100);
+        writeMapping("1,," + path1 + ",");
+        assertEquals(100L, service.calculateUsage(project.getSourceFilesMappingPath(), false).getTotalBytes());
+
+        // Directory was modified within the racy window of the cache, so its files are checked again
+        Files.write(path1, new byte[200]);
+        assertEquals(200L, service.calculateUsage(project.getSourceFilesMappingPath(), false).getTotalBytes());
+    }
+
+    @Test
+    public void calculateUsageMissingFileTest() throws Exception {
+        writeMapping("1,," + filesPath.resolve("missing.tif") + ",");
+
+        assertThrows(NoSuchFileException.class,
+                () -> service.calculateUsage(project.getSourceFilesMappingPath(), false));
+    }
+
+    private Path writeFile(String relPath, int size) throws Exception {
+        var path = filesPath.resolve(relPath);
+        Files.createDirectories(path.getParent());
+        return Files.write(path, new byte[size]);
+    }
+
+    private void writeMapping(String... rows) throws Exception {
+        Files.writeString(project.getSourceFilesMappingPath(),
+                String.join(",", SourceFilesInfo.CSV_HEADERS) + "\n" + String.join("\n", rows));
+    }
+}
@@ -78,7 +78,7 @@ public class TestSshServer {
 
         public DelegatingCommandFactory() {
             this.scpCommandFactory = new ScpCommandFactory();
-            this.shellCommandFactory = (channel, command) -> new ProcessShellFactory(command, command.split(" ")).createShell(channel);
+            this.shellCommandFactory = (channel, command) -> new ProcessShellFactory(command, "/bin/sh", "-c", command).createShell(channel);
         }
 
         @Override
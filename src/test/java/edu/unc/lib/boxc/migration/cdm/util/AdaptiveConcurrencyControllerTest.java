@@ -0,0 +1,58 @@
+package edu.unc.lib.boxc.migration.cdm.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AdaptiveConcurrencyControllerTest {
+
+    @Test
+    public void increasesWhileThroughputImprovesTest() {
+        var controller = new AdaptiveConcurrencyController(1, 10);
+
+        assertEquals(2, controller.adjust(1, 10.0));
+        assertEquals(3, controller.adjust(2, 20.0));
+        assertEquals(4, controller.adjust(3, 30.0));
+    }
+
+    @Test
+    public void keepsDirectionWithinToleranceTest() {
+        var controller = new AdaptiveConcurrencyController(1, 10);
+
+        assertEquals(3, controller.adjust(2, 100.0));
+        // Drop of less than the tolerance is treated as noise
+        assertEquals(4, controller.adjust(3, 97.0));
+    }
+
+    @Test
+    public void decreasesWhenThroughputDropsTest() {
+        var controller = new AdaptiveConcurrencyController(1, 10);
+
+        assertEquals(5, controller.adjust(4, 100.0));
+        assertEquals(4, controller.adjust(5, 50.0));
+        // Continues decreasing while throughput improves
+        assertEquals(3, controller.adjust(4, 60.0));
+        // Reverses again once throughput drops
+        assertEquals(4, controller.adjust(3, 30.0));
+    }
+
+    @Test
+    public void bouncesOffLimitsTest() {
+        var controller = new AdaptiveConcurrencyController(1, 3);
+
+        assertEquals(3, controller.adjust(2, 10.0));
+        // Stays at the maximum for a sample, then probes downward
+        assertEquals(3, controller.adjust(3, 20.0));
+        assertEquals(2, controller.adjust(3, 20.0));
+        assertEquals(1, controller.adjust(2, 20.0));
+        assertEquals(1, controller.adjust(1, 20.0));
+        assertEquals(2, controller.adjust(1, 20.0));
+    }
+
+    @Test
+    public void invalidRangeTest() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyController(0, 5));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyController(5, 4));
+    }
+}
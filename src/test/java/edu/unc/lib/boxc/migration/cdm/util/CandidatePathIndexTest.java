@@ -0,0 +1,85 @@
+package edu.unc.lib.boxc.migration.cdm.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CandidatePathIndexTest {
+
+    @Test
+    public void lookupTest() {
+        var index = new CandidatePathIndex.Builder()
+                .add("", "top.tif")
+                .add("nested", "a.tif")
+                .add("nested/deeper", "b.tif")
+                .add("other", "ümlaut.tif")
+                .build();
+
+        assertEquals(4, index.size());
+        assertTrue(index.contains("top.tif"));
+        assertTrue(index.contains("ümlaut.tif"));
+        assertFalse(index.contains("missing.tif"));
+        assertFalse(index.contains("nested"));
+        assertEquals(List.of("top.tif"), index.getPaths("top.tif"));
+        assertEquals(List.of("nested/deeper/b.tif"), index.getPaths("b.tif"));
+        assertEquals(List.of("other/ümlaut.tif"), index.getPaths("ümlaut.tif"));
+        assertNull(index.getPaths("missing.tif"));
+    }
+
+    @Test
+    public void duplicateFilenamesSortedTest() {
+        var index = new CandidatePathIndex.Builder()
+                .add("z", "dup.tif")
+                .add("a/b", "dup.tif")
+                .add("a", "dup.tif")
+                .add("a", "dup.tiff")
+                .build();
+
+        assertEquals(List.of("a/b/dup.tif", "a/dup.tif", "z/dup.tif"), index.getPaths("dup.tif"));
+        assertEquals(List.of("a/dup.tiff"), index.getPaths("dup.tiff"));
+    }
+
+    @Test
+    public void lookupNameDiffersFromFilenameTest() {
+        var index = new CandidatePathIndex.Builder()
+                .add("b", "dup.tif", "DUP.TIF")
+                .add("a", "dup.tif", "Dup.tif")
+                .add("c", "dup.tif", "dup.tif")
+                .build();
+
+        assertTrue(index.contains("dup.tif"));
+        assertFalse(index.contains("DUP.TIF"));
+        assertEquals(List.of("a/Dup.tif", "b/DUP.TIF", "c/dup.tif"), index.getPaths("dup.tif"));
+        assertNull(index.getPaths("Dup.tif"));
+    }
+
+    @Test
+    public void emptyIndexTest() {
+        var index = CandidatePathIndex.empty();
+
+        assertEquals(0, index.size());
+        assertFalse(index.contains("a.tif"));
+        assertNull(index.getPaths("a.tif"));
+    }
+
+    @Test
+    public void manyEntriesTest() {
+        var builder = new CandidatePathIndex.Builder();
+        for (int i = 0; i < 10000; i++) {
+            builder.add("dir" + (i % 100), "file" + i + ".tif");
+        }
+        var index = builder.build();
+
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(List.of("dir" + (i % 100) + "/file" + i + ".tif"), index.getPaths("file" + i + ".tif"));
+        }
+        for (int i = 10000; i < 20000; i++) {
+            assertFalse(index.contains("file" + i + ".tif"));
+        }
+    }
+}
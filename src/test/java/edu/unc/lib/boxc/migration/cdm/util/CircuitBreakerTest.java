@@ -0,0 +1,78 @@
+package edu.unc.lib.boxc.migration.cdm.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void staysClosedBelowMinRequestsTest() {
+        var breaker = new CircuitBreaker(10, 4, 0.5, 60000);
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordFailure();
+
+        assertFalse(breaker.isOpen());
+        assertEquals(0, breaker.getTimesOpened());
+    }
+
+    @Test
+    public void opensAtThresholdTest() {
+        var breaker = new CircuitBreaker(10, 4, 0.5, 60000);
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        assertFalse(breaker.isOpen());
+        breaker.recordFailure();
+
+        assertTrue(breaker.isOpen());
+        assertEquals(1, breaker.getTimesOpened());
+        // Outcomes while open do not count towards reopening
+        breaker.recordFailure();
+        assertEquals(1, breaker.getTimesOpened());
+    }
+
+    @Test
+    public void oldOutcomesLeaveWindowTest() {
+        var breaker = new CircuitBreaker(4, 4, 0.5, 60000);
+        breaker.recordFailure();
+        for (int i = 0; i < 10; i++) {
+            breaker.recordSuccess();
+        }
+        breaker.recordFailure();
+
+        // Only one of the last four requests failed
+        assertFalse(breaker.isOpen());
+    }
+
+    @Test
+    public void awaitClosedResumesAfterPauseTest() throws Exception {
+        var breaker = new CircuitBreaker(2, 2, 1.0, 100);
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertTrue(breaker.isOpen());
+
+        long start = System.nanoTime();
+        breaker.awaitClosed();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis >= 90, "Expected to wait for the pause, waited " + elapsedMillis + "ms");
+        assertFalse(breaker.isOpen());
+        // Tracking starts over once closed
+        breaker.recordFailure();
+        assertFalse(breaker.isOpen());
+        breaker.recordFailure();
+        assertTrue(breaker.isOpen());
+        assertEquals(2, breaker.getTimesOpened());
+    }
+
+    @Test
+    public void invalidConfigurationTest() {
+        assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(10, 20, 0.5, 1000));
+        assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(10, 5, 0, 1000));
+    }
+}
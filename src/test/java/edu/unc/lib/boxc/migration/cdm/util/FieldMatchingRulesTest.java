@@ -0,0 +1,69 @@
+package edu.unc.lib.boxc.migration.cdm.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FieldMatchingRulesTest {
+
+    @Test
+    public void extractLiteralPrefixTest() {
+        assertEquals("", FieldMatchingRules.extractLiteralPrefix("(.+)"));
+        assertEquals("IMG_", FieldMatchingRules.extractLiteralPrefix("IMG_(\\d+).tif"));
+        assertEquals("IMG_", FieldMatchingRules.extractLiteralPrefix("^IMG_(\\d+).tif"));
+        assertEquals("276_", FieldMatchingRules.extractLiteralPrefix("276\\_(\\d+)_E.tif"));
+        assertEquals("ab", FieldMatchingRules.extractLiteralPrefix("abc?d"));
+        assertEquals("abc", FieldMatchingRules.extractLiteralPrefix("abc+d"));
+        assertEquals("", FieldMatchingRules.extractLiteralPrefix("\\d+"));
+        assertEquals("", FieldMatchingRules.extractLiteralPrefix("abc|def"));
+        assertEquals("", FieldMatchingRules.extractLiteralPrefix("(?i)abc"));
+    }
+
+    @Test
+    public void transformFirstMatchingRuleTest() {
+        var rules = FieldMatchingRules.build(List.of("IMG_(\\d+)\\.tif", "(\\d+)_(\\d+)_E.tif", "(.+)"),
+                List.of("image_$1.tif", "00$1_op0$2_0001_e.tif", "$1"), false);
+
+        assertEquals("image_123.tif", rules.transform("IMG_123.tif", t -> true));
+        assertEquals("00276_op0182_0001_e.tif", rules.transform("276_182_E.tif", t -> true));
+        assertEquals("other.jpg", rules.transform("other.jpg", t -> true));
+    }
+
+    @Test
+    public void transformUsesFirstAcceptedTest() {
+        var rules = FieldMatchingRules.build(List.of("(\\d+)_(\\d+)_E.tif", "(\\d+)_(\\d+)_E.tif"),
+                List.of("00$1_op0$2_0001_e.tif", "$1_$2.TIF"), true);
+        var existing = Set.of("276_183.tif");
+
+        assertEquals("276_183.tif", rules.transform("276_183_E.tif", existing::contains));
+        // When no results are accepted, the first result is returned
+        assertEquals("00276_op0182_0001_e.tif", rules.transform("276_182_E.tif", existing::contains));
+    }
+
+    @Test
+    public void transformNoMatchTest() {
+        var rules = FieldMatchingRules.build(List.of("IMG_(\\d+)\\.tif"), List.of("$1"), false);
+
+        assertNull(rules.transform("276_182_E.tif", t -> true));
+        assertNull(rules.transform("IMG_abc.tif", t -> true));
+    }
+
+    @Test
+    public void buildSingleTemplateForAllPatternsTest() {
+        var rules = FieldMatchingRules.build(List.of("a(\\d+)", "b(\\d+)"), List.of("$1.tif"), false);
+
+        assertEquals("1.tif", rules.transform("a1", t -> true));
+        assertEquals("2.tif", rules.transform("b2", t -> true));
+    }
+
+    @Test
+    public void buildMismatchedRulesTest() {
+        assertThrows(IllegalArgumentException.class, () -> FieldMatchingRules.build(
+                List.of("a", "b", "c"), List.of("1", "2"), false));
+    }
+}
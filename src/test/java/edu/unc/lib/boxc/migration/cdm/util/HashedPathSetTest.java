@@ -0,0 +1,52 @@
+package edu.unc.lib.boxc.migration.cdm.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HashedPathSetTest {
+
+    @Test
+    public void containsTest() {
+        var set = new HashedPathSet();
+        set.add("/path/to/file1.tif");
+        set.add("/path/to/file2.tif");
+
+        assertTrue(set.contains("/path/to/file1.tif"));
+        assertTrue(set.contains("/path/to/file2.tif"));
+        assertFalse(set.contains("/path/to/file3.tif"));
+        assertFalse(set.contains("/path/to/FILE1.tif"));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    public void addAfterContainsTest() {
+        var set = new HashedPathSet();
+        set.add("/b.tif");
+        assertFalse(set.contains("/a.tif"));
+
+        set.add("/a.tif");
+        assertTrue(set.contains("/a.tif"));
+        assertTrue(set.contains("/b.tif"));
+    }
+
+    @Test
+    public void manyPathsTest() {
+        var set = new HashedPathSet();
+        for (int i = 0; i < 5000; i++) {
+            set.add("/path/dir" + (i % 10) + "/file" + i + ".tif");
+        }
+
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(set.contains("/path/dir" + (i % 10) + "/file" + i + ".tif"));
+            assertFalse(set.contains("/path/dir" + ((i + 1) % 10) + "/file" + i + ".tif"));
+        }
+    }
+
+    @Test
+    public void emptySetTest() {
+        assertFalse(new HashedPathSet().contains("/a.tif"));
+    }
+}
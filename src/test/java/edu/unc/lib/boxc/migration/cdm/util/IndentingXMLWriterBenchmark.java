@@ -0,0 +1,148 @@
+package edu.unc.lib.boxc.migration.cdm.util;
+
+import edu.unc.lib.boxc.common.xml.SecureXMLFactory;
+import org.jdom2.Document;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.events.XMLEvent;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of writing the records of a large modsCollection out as separate indented documents, comparing
+ * IndentingXMLWriter against serializing each record to a string and reformatting it with XMLOutputter.
+ * Not run as part of the test suite. Run the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndentingXMLWriterBenchmark {
+    private static final String MODS_NS = "http://www.loc.gov/mods/v3";
+
+    @Param({"10000"})
+    private int recordCount;
+
+    private List<List<XMLEvent>> records;
+    private IndentingXMLWriter indentingWriter;
+    private XMLOutputFactory outputFactory;
+    private SAXBuilder saxBuilder;
+    private XMLOutputter xmlOutputter;
+
+    @Setup
+    public void setup() throws Exception {
+        records = readRecords(buildModsCollection(recordCount));
+        indentingWriter = new IndentingXMLWriter();
+        outputFactory = XMLOutputFactory.newInstance();
+        outputFactory.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, Boolean.TRUE);
+        saxBuilder = SecureXMLFactory.createSAXBuilder();
+        xmlOutputter = new XMLOutputter(Format.getPrettyFormat());
+    }
+
+    @Benchmark
+    public void indentingXMLWriter() throws Exception {
+        for (List<XMLEvent> record : records) {
+            indentingWriter.write(record, OutputStream.nullOutputStream());
+        }
+    }
+
+    @Benchmark
+    public void reparseWithXMLOutputter() throws Exception {
+        for (List<XMLEvent> record : records) {
+            var modsWriter = new StringWriter();
+            XMLEventWriter xmlWriter = outputFactory.createXMLEventWriter(modsWriter);
+            for (XMLEvent event : record) {
+                xmlWriter.add(event);
+            }
+            xmlWriter.close();
+            Document doc = saxBuilder.build(new StringReader(modsWriter.toString()));
+            xmlOutputter.output(doc, OutputStream.nullOutputStream());
+        }
+    }
+
+    private static String buildModsCollection(int count) {
+        var xml = new StringBuilder("<mods:modsCollection xmlns:mods=\"" + MODS_NS + "\" "
+                + "xmlns:xlink=\"http://www.w3.org/1999/xlink\">\n");
+        for (int i = 0; i < count; i++) {
+            xml.append("  <mods:mods>\n")
+                .append("    <mods:titleInfo>\n")
+                .append("      <mods:title>Record ").append(i).append(" &amp; related materials</mods:title>\n")
+                .append("    </mods:titleInfo>\n")
+                .append("    <mods:name type=\"personal\">\n")
+                .append("      <mods:namePart>Person ").append(i).append("</mods:namePart>\n")
+                .append("      <mods:role><mods:roleTerm type=\"text\">creator</mods:roleTerm></mods:role>\n")
+                .append("    </mods:name>\n")
+                .append("    <mods:originInfo><mods:dateCreated>1900-01-01</mods:dateCreated></mods:originInfo>\n")
+                .append("    <mods:abstract>Description of record ").append(i)
+                .append(" which is long enough to be representative of a typical abstract.</mods:abstract>\n")
+                .append("    <mods:location><mods:url xlink:href=\"https://example.com/").append(i)
+                .append("\">link</mods:url></mods:location>\n")
+                .append("    <mods:note/>\n")
+                .append("    <mods:identifier type=\"local\" displayLabel=\"CONTENTdm number\">").append(i)
+                .append("</mods:identifier>\n")
+                .append("  </mods:mods>\n");
+        }
+        return xml.append("</mods:modsCollection>\n").toString();
+    }
+
+    /**
+     * @return events of each mods:mods record in the collection
+     */
+    private static List<List<XMLEvent>> readRecords(String xml) throws Exception {
+        XMLEventReader reader = XMLInputFactory.newInstance().createXMLEventReader(new StringReader(xml));
+        List<List<XMLEvent>> result = new ArrayList<>();
+        List<XMLEvent> current = null;
+        int depth = 0;
+        while (reader.hasNext()) {
+            XMLEvent event = reader.nextEvent();
+            if (event.isStartElement()) {
+                depth++;
+                if (depth == 2) {
+                    current = new ArrayList<>();
+                    result.add(current);
+                }
+            }
+            if (current != null) {
+                current.add(event);
+            }
+            if (event.isEndElement()) {
+                depth--;
+                if (depth == 1) {
+                    current = null;
+                }
+            }
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(IndentingXMLWriterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
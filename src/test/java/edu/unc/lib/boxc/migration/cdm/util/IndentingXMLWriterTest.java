@@ -0,0 +1,88 @@
+package edu.unc.lib.boxc.migration.cdm.util;
+
+import org.junit.jupiter.api.Test;
+
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.events.XMLEvent;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class IndentingXMLWriterTest {
+    private final IndentingXMLWriter writer = new IndentingXMLWriter();
+
+    @Test
+    public void writeIndentedTest() throws Exception {
+        var events = readChildEvents("<root><rec>  <title> A &amp; B </title>\n   <empty/><nested><x>1</x></nested>"
+                + "</rec></root>");
+
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<rec>\n"
+                + "  <title>A &amp; B</title>\n"
+                + "  <empty></empty>\n"
+                + "  <nested>\n"
+                + "    <x>1</x>\n"
+                + "  </nested>\n"
+                + "</rec>\n", write(events));
+    }
+
+    @Test
+    public void writeNamespacesDeclaredOnAncestorTest() throws Exception {
+        var events = readChildEvents("<mods:modsCollection xmlns:mods=\"http://www.loc.gov/mods/v3\" "
+                + "xmlns:xlink=\"http://www.w3.org/1999/xlink\">"
+                + "<mods:mods><mods:location xlink:href=\"http://example.com\" type=\"url\"/></mods:mods>"
+                + "</mods:modsCollection>");
+
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<mods:mods xmlns:mods=\"http://www.loc.gov/mods/v3\">\n"
+                + "  <mods:location xmlns:xlink=\"http://www.w3.org/1999/xlink\" xlink:href=\"http://example.com\""
+                + " type=\"url\"></mods:location>\n"
+                + "</mods:mods>\n", write(events));
+    }
+
+    @Test
+    public void writeDefaultNamespaceTest() throws Exception {
+        var events = readChildEvents("<collection><mods xmlns=\"http://www.loc.gov/mods/v3\">"
+                + "<!-- note --><title>T</title></mods></collection>");
+
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<mods xmlns=\"http://www.loc.gov/mods/v3\">\n"
+                + "  <!-- note -->\n"
+                + "  <title>T</title>\n"
+                + "</mods>\n", write(events));
+    }
+
+    private String write(List<XMLEvent> events) throws Exception {
+        var outStream = new ByteArrayOutputStream();
+        writer.write(events, outStream);
+        return outStream.toString(StandardCharsets.UTF_8);
+    }
+
+    // Events of the first child of the root element, as split out of a larger document
+    private List<XMLEvent> readChildEvents(String xml) throws Exception {
+        XMLEventReader reader = XMLInputFactory.newInstance().createXMLEventReader(new StringReader(xml));
+        var events = new ArrayList<XMLEvent>();
+        int depth = 0;
+        while (reader.hasNext()) {
+            XMLEvent event = reader.nextEvent();
+            if (event.isStartElement()) {
+                depth++;
+            }
+            if (depth >= 2) {
+                events.add(event);
+            }
+            if (event.isEndElement()) {
+                depth--;
+                if (depth == 1) {
+                    break;
+                }
+            }
+        }
+        return events;
+    }
+}
@@ -0,0 +1,96 @@
+package edu.unc.lib.boxc.migration.cdm.util;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MappingCsvMergerTest {
+    private static final String[] HEADERS = new String[] { "id", "value" };
+    @TempDir
+    public Path tmpFolder;
+
+    private MappingCsvMerger merger;
+
+    @BeforeEach
+    public void setup() {
+        merger = new MappingCsvMerger(HEADERS);
+    }
+
+    @Test
+    public void mergeTest() throws Exception {
+        var originalPath = writeCsv("original.csv", "3,c", "1,a", "2,");
+        var updatesPath = writeCsv("updates.csv", "5,e", "2,b", "4,d");
+
+        var result = merge(originalPath, updatesPath);
+
+        assertEquals("id,value\n3,c\n1,a\n2,b\n5,e\n4,d\n", result);
+    }
+
+    @Test
+    public void mergeSpillToDiskTest() throws Exception {
+        merger.setMaxRowsInMemory(2);
+        var originalPath = writeCsv("original.csv", "9,i", "3,c", "7,", "1,a", "5,e");
+        var updatesPath = writeCsv("updates.csv", "8,h", "7,g", "2,b", "6,f", "3,updated");
+
+        var result = merge(originalPath, updatesPath);
+
+        assertEquals("id,value\n9,i\n3,updated\n7,g\n1,a\n5,e\n8,h\n2,b\n6,f\n", result);
+    }
+
+    @Test
+    public void mergeDuplicateIdsTest() throws Exception {
+        merger.setMaxRowsInMemory(2);
+        var originalPath = writeCsv("original.csv", "1,", "2,b", "1,");
+        var updatesPath = writeCsv("updates.csv", "1,first", "3,c", "1,second");
+
+        var result = merge(originalPath, updatesPath);
+
+        // Each original row is resolved against the first update for its id
+        assertEquals("id,value\n1,first\n2,b\n1,first\n3,c\n", result);
+    }
+
+    @Test
+    public void mergeEmptyOriginalTest() throws Exception {
+        var originalPath = writeCsv("original.csv");
+        var updatesPath = writeCsv("updates.csv", "2,b", "1,a");
+
+        var result = merge(originalPath, updatesPath);
+
+        assertEquals("id,value\n2,b\n1,a\n", result);
+    }
+
+    private String merge(Path originalPath, Path updatesPath) throws Exception {
+        var writer = new StringWriter();
+        try (var printer = new CSVPrinter(writer, CSVFormat.DEFAULT.builder()
+                .setHeader(HEADERS)
+                .setRecordSeparator('\n')
+                .get())) {
+            // Use update values when present, otherwise retain the original
+            merger.merge(originalPath, updatesPath, printer, (original, update) -> {
+                if (original == null) {
+                    return update;
+                }
+                if (update == null || update.get(1).isEmpty()) {
+                    return original;
+                }
+                return List.of(original.get(0), update.get(1));
+            });
+        }
+        return writer.toString();
+    }
+
+    private Path writeCsv(String filename, String... rows) throws Exception {
+        var path = tmpFolder.resolve(filename);
+        Files.writeString(path, String.join(",", HEADERS) + "\n" + String.join("\n", rows));
+        return path;
+    }
+}
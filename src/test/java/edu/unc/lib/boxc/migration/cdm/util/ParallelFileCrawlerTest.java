@@ -0,0 +1,42 @@
+package edu.unc.lib.boxc.migration.cdm.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ParallelFileCrawlerTest {
+    @TempDir
+    public Path tmpFolder;
+
+    @Test
+    public void crawlVisitsNestedFilesTest() throws Exception {
+        Files.createDirectories(tmpFolder.resolve("a/b"));
+        Files.createDirectories(tmpFolder.resolve("empty"));
+        Files.writeString(tmpFolder.resolve("top.txt"), "top");
+        Files.writeString(tmpFolder.resolve("a/one.txt"), "one");
+        Files.writeString(tmpFolder.resolve("a/b/two.txt"), "two");
+
+        Set<Path> visited = ConcurrentHashMap.newKeySet();
+        int skipped = new ParallelFileCrawler(2).crawl(tmpFolder, (path, attrs) -> visited.add(path));
+
+        assertEquals(0, skipped);
+        assertEquals(Set.of(tmpFolder.resolve("top.txt"), tmpFolder.resolve("a/one.txt"),
+                tmpFolder.resolve("a/b/two.txt")), visited);
+    }
+
+    @Test
+    public void crawlUnreadableDirectoryCountedAsSkippedTest() {
+        Set<Path> visited = ConcurrentHashMap.newKeySet();
+        int skipped = new ParallelFileCrawler().crawl(tmpFolder.resolve("missing"),
+                (path, attrs) -> visited.add(path));
+
+        assertEquals(1, skipped);
+        assertEquals(Set.of(), visited);
+    }
+}
@@ -0,0 +1,38 @@
+package edu.unc.lib.boxc.migration.cdm.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RequestMetricsTest {
+
+    @Test
+    public void percentilesAndStatusCountsTest() {
+        var metrics = new RequestMetrics();
+        // Recorded out of order, latencies of 1 to 2000ms
+        for (int i = 2000; i > 0; i--) {
+            metrics.record(i % 10 == 0 ? "NOT_FOUND" : "OK", TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        assertEquals(2000, metrics.getRequestCount());
+        assertEquals(Map.of("NOT_FOUND", 200L, "OK", 1800L), metrics.getStatusCounts());
+        assertArrayEquals(new long[] { 1, 1000, 1900, 1980, 2000 },
+                metrics.getLatencyPercentilesMillis(0, 50, 95, 99, 100));
+        assertTrue(metrics.getThroughput() > 0);
+    }
+
+    @Test
+    public void noRequestsTest() {
+        var metrics = new RequestMetrics();
+
+        assertEquals(0, metrics.getRequestCount());
+        assertTrue(metrics.getStatusCounts().isEmpty());
+        assertArrayEquals(new long[] { 0, 0 }, metrics.getLatencyPercentilesMillis(50, 99));
+        assertEquals(0, metrics.getThroughput());
+    }
+}
@@ -0,0 +1,34 @@
+package edu.unc.lib.boxc.migration.cdm.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TokenBucketRateLimiterTest {
+
+    @Test
+    public void burstThenLimitedTest() throws Exception {
+        var limiter = new TokenBucketRateLimiter(20, 5);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire();
+        }
+        long burstMillis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(burstMillis < 40, "Burst should not wait, took " + burstMillis + "ms");
+
+        // Further permits are limited to 20 per second
+        for (int i = 0; i < 4; i++) {
+            limiter.acquire();
+        }
+        long totalMillis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(totalMillis >= 190, "Expected to be rate limited, took " + totalMillis + "ms");
+    }
+
+    @Test
+    public void invalidRateTest() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(10, 0));
+    }
+}
@@ -139,6 +139,29 @@ public class DescriptionsValidatorTest {
         assertErrorCount(errors, 1);
     }
 
+    @Test
+    public void multipleInvalidFilesReportedInOrderTest() throws Exception {
+        validator.setParallelism(3);
+        for (int i = 5; i >= 0; i--) {
+            Element modsColl = new Element("modsCollection", MODS_V3_NS)
+                    .addContent(new Element("mods", MODS_V3_NS)
+                            .addContent(new Element("title", MODS_V3_NS)
+                                    .setText("My title " + i)));
+            xmlOutputter.output(new Document(modsColl),
+                    Files.newOutputStream(project.getDescriptionsPath().resolve("mods_" + i + ".xml")));
+        }
+        FileUtils.write(project.getNewCollectionDescriptionsPath().resolve("coll.xml").toFile(), "not xml", UTF_8);
+
+        List<String> errors = validator.validate();
+        assertErrorCount(errors, 7);
+        for (int i = 0; i <= 5; i++) {
+            assertTrue(errors.get(i).startsWith("File descriptions/mods_" + i + ".xml did not pass validation"),
+                    "Unexpected error at position " + i + ": " + errors.get(i));
+        }
+        assertTrue(errors.get(6).startsWith("File newCollectionDescriptions/coll.xml is not a valid XML"),
+                "Unexpected last error: " + errors.get(6));
+    }
+
     private void assertHasErrorMatching(List<String> errors, String expectedP) {
         Pattern pattern = Pattern.compile(expectedP, Pattern.DOTALL);
         assertTrue(errors.stream().anyMatch(e -> pattern.matcher(e).matches()),
@@ -7,6 +7,8 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.List;
 
 import edu.unc.lib.boxc.migration.cdm.test.BxcEnvironmentHelper;
@@ -19,6 +21,7 @@ import org.junit.jupiter.api.Test;
 import edu.unc.lib.boxc.migration.cdm.exceptions.MigrationException;
 import edu.unc.lib.boxc.migration.cdm.model.MigrationProject;
 import edu.unc.lib.boxc.migration.cdm.model.SourceFilesInfo;
+import edu.unc.lib.boxc.migration.cdm.services.FileInventoryService;
 import edu.unc.lib.boxc.migration.cdm.services.MigrationProjectFactory;
 import edu.unc.lib.boxc.migration.cdm.test.SipServiceHelper;
 import org.junit.jupiter.api.io.TempDir;
@@ -235,6 +238,77 @@ public class SourceFilesValidatorTest {
         assertNumberErrors(errors, 1);
     }
 
+    @Test
+    public void errorsReportedInLineOrderTest() throws Exception {
+        testHelper.indexExportData("mini_gilmer");
+        validator.setParallelism(4);
+        var rows = new ArrayList<String>();
+        var expected = new ArrayList<String>();
+        for (int i = 0; i < 20; i++) {
+            Path path = testHelper.addSourceFile(i + ".txt");
+            if (i % 3 == 0) {
+                Files.delete(path);
+                expected.add("Invalid path at line " + (i + 2) + ", file does not exist");
+            } else if (i % 5 == 0) {
+                expected.add("Invalid path at line " + (i + 2) + ", path is not absolute");
+                path = tmpFolder.relativize(path);
+            }
+            rows.add(i + ",," + path + ",");
+        }
+        writeCsv(mappingBody(rows.toArray(String[]::new)));
+        List<String> errors = validator.validateMappings(false);
+        assertEquals(expected, errors);
+    }
+
+    @Test
+    public void manyPendingChecksReportedInLineOrderTest() throws Exception {
+        testHelper.indexExportData("mini_gilmer");
+        validator.setParallelism(1);
+        Path path = testHelper.addSourceFile("25.txt");
+        var rows = new ArrayList<String>();
+        var expected = new ArrayList<String>();
+        for (int i = 0; i < 500; i++) {
+            if (i % 7 == 0) {
+                rows.add(i + ",," + path.resolveSibling(i + "_missing.txt") + ",");
+                expected.add("Invalid path at line " + (i + 2) + ", file does not exist");
+            } else {
+                rows.add(i + ",," + path.resolveSibling(i + ".txt") + ",");
+                testHelper.addSourceFile(i + ".txt");
+            }
+        }
+        writeCsv(mappingBody(rows.toArray(String[]::new)));
+        List<String> errors = validator.validateMappings(false);
+        assertEquals(expected, errors);
+    }
+
+    @Test
+    public void currentInventoryUsedForExistenceTest() throws Exception {
+        testHelper.indexExportData("mini_gilmer");
+        Path path1 = testHelper.addSourceFile("25.txt");
+        Path path2 = testHelper.addSourceFile("26.txt");
+        var sourceDir = path1.getParent();
+        var mtime = FileTime.fromMillis(System.currentTimeMillis() - 60000);
+        Files.setLastModifiedTime(sourceDir, mtime);
+        var inventoryService = new FileInventoryService();
+        inventoryService.setProject(project);
+        inventoryService.getInventory(sourceDir, false);
+
+        // Inventory is trusted while the directory is unmodified
+        Files.delete(path2);
+        Files.setLastModifiedTime(sourceDir, mtime);
+        writeCsv(mappingBody("25,," + path1 + ",", "26,," + path2 + ","));
+        assertNumberErrors(validator.validateMappings(false), 0);
+
+        // Once the directory is modified, paths are checked directly
+        Files.setLastModifiedTime(sourceDir, FileTime.fromMillis(System.currentTimeMillis()));
+        validator = new SourceFilesValidator();
+        validator.setProject(project);
+        validator.setStreamingMetadataService(testHelper.getStreamingMetadataService());
+        List<String> errors = validator.validateMappings(false);
+        assertHasError(errors, "Invalid path at line 3, file does not exist");
+        assertNumberErrors(errors, 1);
+    }
+
     private void assertHasError(List<String> errors, String expected) {
         assertTrue(errors.contains(expected),
                 "Expected error:\n" + expected + "\nBut the returned errors were:\n" + String.join("\n", errors));